@@ -0,0 +1,4 @@
+-- the service does not own extensions, this stands in for the DBA step in README.md. Created in template1 so the
+-- databases the build creates have it too
+\connect template1
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.config;
+
+import com.messagemedia.numbers.service.executor.InstrumentedExecutor;
+import com.messagemedia.numbers.service.executor.InstrumentedExecutor.OverflowPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The executors asynchronous side effects run on, referenced by name from {@code @Async} and the bulk job handlers, the
+ * ones bulk jobs and imports run on and the one streamed responses are written on.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Bean(name = "billingExecutor")
+    public InstrumentedExecutor billingExecutor(@Value("${numbers.service.executors.billing.threads}") int threads,
+                                                @Value("${numbers.service.executors.billing.queueCapacity}") int queueCapacity,
+                                                @Value("${numbers.service.executors.virtualThreads}") boolean virtualThreads) {
+        return new InstrumentedExecutor("billingExecutor", threads, queueCapacity, OverflowPolicy.CALLER_RUNS, virtualThreads);
+    }
+
+    @Bean(name = "slackExecutor")
+    public InstrumentedExecutor slackExecutor(@Value("${numbers.service.executors.slack.threads}") int threads,
+                                              @Value("${numbers.service.executors.slack.queueCapacity}") int queueCapacity,
+                                              @Value("${numbers.service.executors.virtualThreads}") boolean virtualThreads) {
+        return new InstrumentedExecutor("slackExecutor", threads, queueCapacity, OverflowPolicy.DISCARD, virtualThreads);
+    }
+
+    @Bean(name = "callableNumbersExecutor")
+    public InstrumentedExecutor callableNumbersExecutor(@Value("${numbers.service.bulk.callableNumbers.parallelism}") int threads,
+                                                        @Value("${numbers.service.executors.callableNumbers.queueCapacity}") int queueCapacity,
+                                                        @Value("${numbers.service.executors.virtualThreads}") boolean virtualThreads) {
+        return new InstrumentedExecutor("callableNumbersExecutor", threads, queueCapacity, OverflowPolicy.CALLER_RUNS, virtualThreads);
+    }
+
+    @Bean(name = "amsExecutor")
+    public InstrumentedExecutor amsExecutor(@Value("${numbers.service.executors.ams.threads}") int threads,
+                                            @Value("${numbers.service.executors.ams.queueCapacity}") int queueCapacity,
+                                            @Value("${numbers.service.executors.virtualThreads}") boolean virtualThreads) {
+        return new InstrumentedExecutor("amsExecutor", threads, queueCapacity, OverflowPolicy.CALLER_RUNS, virtualThreads);
+    }
+
+    @Bean(name = "exportExecutor")
+    public InstrumentedExecutor exportExecutor(@Value("${numbers.service.executors.export.threads}") int threads,
+                                               @Value("${numbers.service.executors.export.queueCapacity}") int queueCapacity,
+                                               @Value("${numbers.service.executors.virtualThreads}") boolean virtualThreads) {
+        return new InstrumentedExecutor("exportExecutor", threads, queueCapacity, OverflowPolicy.CALLER_RUNS, virtualThreads);
+    }
+
+    @Bean(name = "bulkJobExecutor")
+    public InstrumentedExecutor bulkJobExecutor(@Value("${numbers.service.executors.bulkJob.queueCapacity}") int queueCapacity,
+                                                @Value("${numbers.service.executors.virtualThreads}") boolean virtualThreads) {
+        return new InstrumentedExecutor("bulkJobExecutor", 1, queueCapacity, OverflowPolicy.CALLER_RUNS, virtualThreads);
+    }
+
+    @Bean(name = "bulkJobChunkExecutor")
+    public InstrumentedExecutor bulkJobChunkExecutor(@Value("${numbers.service.bulk.parallelism}") int threads,
+                                                     @Value("${numbers.service.executors.virtualThreads}") boolean virtualThreads) {
+        // a job never has more chunks in flight than there are threads
+        return new InstrumentedExecutor("bulkJobChunkExecutor", threads, threads, OverflowPolicy.CALLER_RUNS, virtualThreads);
+    }
+
+    @Bean(name = "numberImportExecutor")
+    public InstrumentedExecutor numberImportExecutor(@Value("${numbers.service.executors.numberImport.queueCapacity}") int queueCapacity,
+                                                     @Value("${numbers.service.executors.virtualThreads}") boolean virtualThreads) {
+        return new InstrumentedExecutor("numberImportExecutor", 1, queueCapacity, OverflowPolicy.CALLER_RUNS, virtualThreads);
+    }
+}
@@ -22,7 +22,9 @@ public class SQSConfig {
     @Bean(name = "provisioningSQSQueuePublisher")
     public SQSQueuePublisher provisioningSQSQueuePublisher(AmazonSQS amazonSQS,
                                            @Value("${service.numbers-service.provisioning-queue.url}") String provisioningQueueUrl,
-                                           JsonFastMapper mapper) {
-        return new SQSQueuePublisher(amazonSQS, provisioningQueueUrl, mapper);
+                                           JsonFastMapper mapper,
+                                           @Value("${numbers.service.sqs.bufferWindowMillis}") long bufferWindowMillis,
+                                           @Value("${numbers.service.sqs.maxRetries}") int maxRetries) {
+        return new SQSQueuePublisher(amazonSQS, provisioningQueueUrl, mapper, bufferWindowMillis, maxRetries);
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Runs the {@code @Scheduled} jobs on a thread each, so a job stuck on a slow downstream, like the billing notification
+ * relay during a billing manager outage, does not hold up the provisioning outbox relay or the other jobs.
+ */
+@Configuration
+public class SchedulingConfig implements SchedulingConfigurer, DisposableBean {
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        int tasks = registrar.getCronTaskList().size() + registrar.getFixedRateTaskList().size()
+                + registrar.getFixedDelayTaskList().size() + registrar.getTriggerTaskList().size();
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(Math.max(tasks, 1));
+        scheduler.setThreadNamePrefix("scheduler-");
+        scheduler.initialize();
+        registrar.setTaskScheduler(scheduler);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -17,15 +17,21 @@ import com.messagemedia.numbers.repository.mappers.NumberAssignmentMapper;
 import com.messagemedia.numbers.repository.mappers.NumberForwardMapper;
 import com.messagemedia.numbers.repository.mappers.NumbersMapper;
 import com.messagemedia.numbers.service.client.models.AuditToken;
+import com.messagemedia.numbers.service.executor.InstrumentedExecutor;
 import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.format.FormatterRegistry;
 import org.springframework.format.datetime.standard.DateTimeFormatterRegistrar;
 import org.springframework.lang.Nullable;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 
 @Configuration
 @ComponentScan(basePackages = {"com.messagemedia.numbers"}, excludeFilters = {
@@ -36,11 +42,21 @@ import org.springframework.web.client.RestTemplate;
         AmsSecureConfig.class,
         AuditConfig.class,
         SQSConfig.class,
+        ExecutorConfig.class,
+        SchedulingConfig.class,
         RestUtilConfig.class
 })
 @EnableAsync
+@EnableScheduling
 public class WorkerContext extends BaseWebContext {
 
+    @Autowired
+    @Qualifier("exportExecutor")
+    private InstrumentedExecutor exportExecutor;
+
+    @Value("${numbers.service.export.timeoutMillis}")
+    private long exportTimeoutMillis;
+
     @Bean
     public NumbersMapper numbersMapper() {
         return Mappers.getMapper(NumbersMapper.class);
@@ -90,4 +106,14 @@ public class WorkerContext extends BaseWebContext {
         dateTimeFormatterRegistrar.setUseIsoFormat(true);
         dateTimeFormatterRegistrar.registerFormatters(registry);
     }
+
+    /**
+     * Streamed responses, like {@code GET /v1/numbers/export}, are written on the bounded export executor instead of a
+     * new thread per request, and are given the export timeout instead of the servlet container's default.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(exportExecutor));
+        configurer.setDefaultTimeout(exportTimeoutMillis);
+    }
 }
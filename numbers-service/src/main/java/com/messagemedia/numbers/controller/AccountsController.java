@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.domainmodels.accounts.VendorAccountId;
+import com.messagemedia.numbers.model.dto.BulkJobDto;
+import com.messagemedia.numbers.model.dto.BulkMigrationRow;
+import com.messagemedia.numbers.repository.entities.BulkJobType;
+import com.messagemedia.numbers.service.NumbersService;
+import com.messagemedia.numbers.service.job.BulkJobService;
+import com.messagemedia.numbers.service.job.BulkRowPages;
+import com.messagemedia.service.accountmanagement.client.exception.ServiceAccountManagementException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.messagemedia.numbers.controller.AccountsController.ACCOUNTS_URL;
+import static com.messagemedia.numbers.controller.BulkJobController.toBulkJobDto;
+import static java.util.stream.Collectors.toList;
+
+@RestController
+@RequestMapping(value = ACCOUNTS_URL, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+public class AccountsController {
+
+    static final String ACCOUNTS_URL = "/v1/accounts";
+
+    private final NumbersService numbersService;
+    private final BulkJobService bulkJobService;
+
+    @Autowired
+    public AccountsController(NumbersService numbersService, BulkJobService bulkJobService) {
+        this.numbersService = numbersService;
+        this.bulkJobService = bulkJobService;
+    }
+
+    /**
+     * Moves every number assigned to {@code from} when the request is made to {@code to} in a bulk job. The account
+     * relationship is verified once for the whole job instead of once per number. The numbers are read a page at a
+     * time, so the job is not limited in size, and an account without numbers gets a completed empty job.
+     */
+    @PostMapping(path = "/{from}/migrate-to/{to}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BulkJobDto migrateNumbers(@PathVariable("from") String fromAccountId,
+                                     @PathVariable("to") String toAccountId,
+                                     @RequestParam("vendorId") String vendorId,
+                                     @RequestParam(name = "note", required = false) String note) throws ServiceAccountManagementException {
+        numbersService.verifyReassignment(new VendorAccountId(vendorId, fromAccountId), new VendorAccountId(vendorId, toAccountId));
+        BulkRowPages<BulkMigrationRow> rows = (last, limit) -> numbersService.findAssignedNumberIds(vendorId, fromAccountId,
+                last == null ? null : last.getNumberId(), limit).stream()
+                .map(numberId -> new BulkMigrationRow(numberId, vendorId, fromAccountId, toAccountId))
+                .collect(toList());
+        return toBulkJobDto(bulkJobService.submitPages(BulkJobType.MIGRATE, note, rows));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.numbers.model.dto.BillingNotificationQueueDto;
+import com.messagemedia.numbers.service.billing.BillingNotificationQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.messagemedia.numbers.controller.BillingNotificationController.BILLING_NOTIFICATIONS_URL;
+
+/**
+ * Recovers billing notifications after a billing manager incident: replay makes parked notifications pending again
+ * and drain sends every pending notification without waiting for its backoff.
+ */
+@RestController
+@RequestMapping(value = BILLING_NOTIFICATIONS_URL, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+public class BillingNotificationController {
+
+    static final String BILLING_NOTIFICATIONS_URL = "/v1/billing/notifications";
+
+    private final BillingNotificationQueue billingNotificationQueue;
+
+    @Autowired
+    public BillingNotificationController(BillingNotificationQueue billingNotificationQueue) {
+        this.billingNotificationQueue = billingNotificationQueue;
+    }
+
+    @PostMapping(path = "/replay")
+    public BillingNotificationQueueDto replay(@RequestParam(name = "vendorId", required = false) String vendorId,
+                                              @RequestParam(name = "accountId", required = false) String accountId) {
+        return toDto(billingNotificationQueue.replay(vendorId, accountId));
+    }
+
+    @PostMapping(path = "/drain")
+    public BillingNotificationQueueDto drain() {
+        return toDto(billingNotificationQueue.drain());
+    }
+
+    private BillingNotificationQueueDto toDto(int notifications) {
+        return new BillingNotificationQueueDto(notifications, billingNotificationQueue.countPending(), billingNotificationQueue.countParked());
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.numbers.exception.BulkJobRequestInvalidException;
+import com.messagemedia.numbers.model.dto.BulkAssignmentRequest;
+import com.messagemedia.numbers.model.dto.BulkAssignmentRow;
+import com.messagemedia.numbers.model.dto.BulkJobDto;
+import com.messagemedia.numbers.model.dto.BulkJobRowDto;
+import com.messagemedia.numbers.model.dto.BulkJobRowListResponse;
+import com.messagemedia.numbers.model.dto.BulkUnassignmentRequest;
+import com.messagemedia.numbers.model.dto.BulkUnassignmentRow;
+import com.messagemedia.numbers.repository.entities.BulkJobEntity;
+import com.messagemedia.numbers.repository.entities.BulkJobRowStatus;
+import com.messagemedia.numbers.repository.entities.BulkJobType;
+import com.messagemedia.numbers.repository.projections.BulkJobRow;
+import com.messagemedia.numbers.service.NumbersService;
+import com.messagemedia.numbers.service.job.BulkJobService;
+import com.messagemedia.numbers.service.job.BulkRowPages;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.controller.NumbersController.NUMBERS_SERVICE_URL;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Submits bulk jobs over many numbers and reports their progress and per row outcomes.
+ */
+@RestController
+@RequestMapping(value = BulkJobController.JOBS_SERVICE_URL, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+public class BulkJobController {
+
+    static final String JOBS_SERVICE_URL = NUMBERS_SERVICE_URL + "/jobs";
+    static final String TEXT_CSV_VALUE = "text/csv";
+    private static final int MAX_PAGE_SIZE = 10000;
+
+    private final BulkJobService bulkJobService;
+    private final NumbersService numbersService;
+
+    @Autowired
+    public BulkJobController(BulkJobService bulkJobService, NumbersService numbersService) {
+        this.bulkJobService = bulkJobService;
+        this.numbersService = numbersService;
+    }
+
+    @PostMapping(path = "/assignments", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BulkJobDto submitAssignments(@RequestBody BulkAssignmentRequest request) {
+        return toBulkJobDto(bulkJobService.submit(BulkJobType.ASSIGN, request.getNote(), request.getRows()));
+    }
+
+    /**
+     * Same as {@link #submitAssignments(BulkAssignmentRequest)} for the {@code <phone number>,<account id>} files of
+     * scripts/assign_number_to_account.py.
+     */
+    @PostMapping(path = "/assignments", consumes = TEXT_CSV_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BulkJobDto submitAssignmentsCsv(@RequestParam("vendorId") String vendorId,
+                                           @RequestParam(name = "note", required = false) String note,
+                                           @RequestBody String csv) {
+        Map<String, String> metadata = note == null ? null : Collections.singletonMap("note", note);
+        List<BulkAssignmentRow> rows = new ArrayList<>();
+        String[] lines = csv.split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            if (StringUtils.isBlank(lines[i])) {
+                continue;
+            }
+            String[] columns = lines[i].split(",");
+            if (columns.length < 2 || StringUtils.isAnyBlank(columns[0], columns[1])) {
+                throw new BulkJobRequestInvalidException(String.format("line %d is not <phone number>,<account id>", i + 1));
+            }
+            rows.add(new BulkAssignmentRow(null, columns[0].trim(), vendorId, columns[1].trim(), null, metadata, null));
+        }
+        return toBulkJobDto(bulkJobService.submit(BulkJobType.ASSIGN, note, rows));
+    }
+
+    /**
+     * Unassigns every number of {@code vendorId}/{@code accountId}, as assigned when the job is submitted, or the
+     * numbers with the given ids. The numbers of an account are read a page at a time like a migration's, see
+     * {@link AccountsController#migrateNumbers}.
+     */
+    @PostMapping(path = "/unassignments", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BulkJobDto submitUnassignments(@RequestBody BulkUnassignmentRequest request) {
+        boolean byAccount = request.getVendorId() != null || request.getAccountId() != null;
+        if (byAccount == (request.getNumberIds() != null)
+                || (byAccount && StringUtils.isAnyBlank(request.getVendorId(), request.getAccountId()))) {
+            throw new BulkJobRequestInvalidException("either vendorId and accountId or numberIds are required");
+        }
+        if (byAccount) {
+            BulkRowPages<BulkUnassignmentRow> rows = (last, limit) -> numbersService.findAssignedNumberIds(request.getVendorId(),
+                    request.getAccountId(), last == null ? null : last.getNumberId(), limit).stream()
+                    .map(numberId -> new BulkUnassignmentRow(numberId, request.getVendorId(), request.getAccountId()))
+                    .collect(toList());
+            return toBulkJobDto(bulkJobService.submitPages(BulkJobType.UNASSIGN, request.getNote(), rows));
+        }
+        List<BulkUnassignmentRow> rows = request.getNumberIds().stream()
+                .map(numberId -> new BulkUnassignmentRow(numberId, null, null))
+                .collect(toList());
+        return toBulkJobDto(bulkJobService.submit(BulkJobType.UNASSIGN, request.getNote(), rows));
+    }
+
+    @GetMapping(path = "/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public BulkJobDto getJob(@PathVariable("id") UUID jobId) {
+        return toBulkJobDto(bulkJobService.getJob(jobId));
+    }
+
+    @GetMapping(path = "/{id}/rows")
+    @ResponseStatus(HttpStatus.OK)
+    public BulkJobRowListResponse getJobRows(@PathVariable("id") UUID jobId,
+                                             @RequestParam(name = "status", required = false) BulkJobRowStatus status,
+                                             @RequestParam(name = "fromRow", defaultValue = "0") int fromRow,
+                                             @RequestParam(name = "pageSize", defaultValue = "1000") int pageSize) {
+        if (fromRow < 0 || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new BulkJobRequestInvalidException(String.format("fromRow must not be negative and pageSize must be between 1 and %d",
+                    MAX_PAGE_SIZE));
+        }
+        // one more row than asked for tells whether there is a next page
+        List<BulkJobRow> rows = bulkJobService.getRows(jobId, status, fromRow, pageSize + 1);
+        Integer nextRow = rows.size() > pageSize ? rows.get(pageSize).getRowIndex() : null;
+        return new BulkJobRowListResponse(rows.stream()
+                .limit(pageSize)
+                .map(row -> new BulkJobRowDto(row.getRowIndex(), row.getItem(), row.getStatus(), row.getMessage()))
+                .collect(toList()), nextRow);
+    }
+
+    static BulkJobDto toBulkJobDto(BulkJobEntity job) {
+        return new BulkJobDto(job.getId(), job.getType(), job.getStatus(), job.getNote(), job.getTotal(), job.getSucceeded(),
+                job.getFailed(), job.getCreated(), job.getUpdated(), job.getCompleted());
+    }
+}
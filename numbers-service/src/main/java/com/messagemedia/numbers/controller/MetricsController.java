@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.numbers.service.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.messagemedia.numbers.controller.MetricsController.METRICS_URL;
+
+@RestController
+@RequestMapping(value = METRICS_URL, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+public class MetricsController {
+
+    static final String METRICS_URL = "/v1/metrics";
+
+    private final List<MetricsSource> metricsSources;
+
+    @Autowired
+    public MetricsController(List<MetricsSource> metricsSources) {
+        this.metricsSources = metricsSources;
+    }
+
+    @GetMapping
+    public Map<String, Map<String, Object>> getMetrics() {
+        Map<String, Map<String, Object>> metrics = new TreeMap<>();
+        metricsSources.forEach(source -> metrics.put(source.getMetricsName(), new TreeMap<>(source.getMetrics())));
+        return metrics;
+    }
+}
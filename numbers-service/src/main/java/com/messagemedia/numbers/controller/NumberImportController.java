@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.numbers.exception.NumberImportRequestInvalidException;
+import com.messagemedia.numbers.model.dto.NumberImportDto;
+import com.messagemedia.numbers.model.dto.NumberImportRejectionDto;
+import com.messagemedia.numbers.model.dto.NumberImportRejectionListResponse;
+import com.messagemedia.numbers.repository.entities.NumberImportEntity;
+import com.messagemedia.numbers.repository.entities.NumberImportStatus;
+import com.messagemedia.numbers.repository.projections.NumberImportRejection;
+import com.messagemedia.numbers.service.imports.NumberImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.controller.BulkJobController.TEXT_CSV_VALUE;
+import static com.messagemedia.numbers.controller.NumbersController.NUMBERS_SERVICE_URL;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Imports provider inventory files and reports their progress and the lines which could not be read.
+ */
+@RestController
+@RequestMapping(value = NumberImportController.IMPORTS_SERVICE_URL, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+public class NumberImportController {
+
+    static final String IMPORTS_SERVICE_URL = NUMBERS_SERVICE_URL + "/imports";
+    private static final int MAX_PAGE_SIZE = 10000;
+
+    private final NumberImportService numberImportService;
+
+    @Autowired
+    public NumberImportController(NumberImportService numberImportService) {
+        this.numberImportService = numberImportService;
+    }
+
+    /**
+     * The body is read as a stream, so files of any size can be posted.
+     */
+    @PostMapping(consumes = TEXT_CSV_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public NumberImportDto submitImport(@RequestParam(name = "note", required = false) String note, InputStream csv) {
+        return toNumberImportDto(numberImportService.submit(note, csv));
+    }
+
+    @GetMapping(path = "/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public NumberImportDto getImport(@PathVariable("id") UUID importId) {
+        return toNumberImportDto(numberImportService.getImport(importId));
+    }
+
+    @GetMapping(path = "/{id}/rejections")
+    @ResponseStatus(HttpStatus.OK)
+    public NumberImportRejectionListResponse getRejections(@PathVariable("id") UUID importId,
+                                                           @RequestParam(name = "fromLine", defaultValue = "0") long fromLine,
+                                                           @RequestParam(name = "pageSize", defaultValue = "1000") int pageSize) {
+        if (fromLine < 0 || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new NumberImportRequestInvalidException(String.format(
+                    "fromLine must not be negative and pageSize must be between 1 and %d", MAX_PAGE_SIZE));
+        }
+        // one more rejection than asked for tells whether there is a next page
+        List<NumberImportRejection> rejections = numberImportService.getRejections(importId, fromLine, pageSize + 1);
+        Long nextLine = rejections.size() > pageSize ? rejections.get(pageSize).getLineNumber() : null;
+        return new NumberImportRejectionListResponse(rejections.stream()
+                .limit(pageSize)
+                .map(rejection -> new NumberImportRejectionDto(rejection.getLineNumber(), rejection.getLine(), rejection.getReason()))
+                .collect(toList()), nextLine);
+    }
+
+    static NumberImportDto toNumberImportDto(NumberImportEntity numberImport) {
+        long duplicates = numberImport.getStatus() == NumberImportStatus.COMPLETED
+                ? numberImport.getStaged() - numberImport.getImported() : 0;
+        double rowsPerSecond = 0;
+        if (numberImport.getCreated() != null && numberImport.getUpdated() != null) {
+            long millis = Duration.between(numberImport.getCreated(),
+                    numberImport.getCompleted() == null ? numberImport.getUpdated() : numberImport.getCompleted()).toMillis();
+            rowsPerSecond = numberImport.getTotal() * 1000.0 / Math.max(1, millis);
+        }
+        return new NumberImportDto(numberImport.getId(), numberImport.getStatus(), numberImport.getNote(), numberImport.getTotal(),
+                numberImport.getExisting(), numberImport.getStaged(), numberImport.getImported(), duplicates,
+                numberImport.getRejected(), rowsPerSecond, numberImport.getMessage(), numberImport.getCreated(),
+                numberImport.getUpdated(), numberImport.getCompleted());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.numbers.model.dto.NumberBatchRegisterRequest;
+import com.messagemedia.numbers.model.dto.NumberBatchRegisterResponse;
+import com.messagemedia.numbers.model.dto.NumberBatchRegisterResult;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.service.NumberRegistrationService;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import com.messagemedia.numbers.service.client.models.RegisterNumberRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static com.messagemedia.numbers.controller.NumbersController.NUMBERS_SERVICE_URL;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Registers many numbers per call, e.g. a block of numbers onboarded from a provider.
+ */
+@RestController
+@RequestMapping(value = NUMBERS_SERVICE_URL, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+public class NumbersBatchController {
+
+    private final NumberRegistrationService numberRegistrationService;
+    private final NumbersMapper numbersMapper;
+
+    @Autowired
+    public NumbersBatchController(NumberRegistrationService numberRegistrationService,
+                                  NumbersMapper numbersMapper) {
+        this.numberRegistrationService = numberRegistrationService;
+        this.numbersMapper = numbersMapper;
+    }
+
+    @PostMapping(path = "/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public NumberBatchRegisterResponse registerNumbers(@Valid @RequestBody NumberBatchRegisterRequest batchRequest) {
+        List<RegisterNumberRequest> items = batchRequest.getItems() == null ? Collections.emptyList() : batchRequest.getItems();
+        List<Optional<NumberEntity>> numbers = numberRegistrationService.registerNumbers(items.stream()
+                .map(item -> item == null ? null : numbersMapper.toNumberEntity(item))
+                .collect(toList()));
+
+        List<NumberBatchRegisterResult> results = new ArrayList<>(items.size());
+        int created = 0;
+        for (int i = 0; i < items.size(); i++) {
+            if (numbers.get(i).isPresent()) {
+                NumberDto numberDto = numbersMapper.toNumberDto(numbers.get(i).get());
+                created++;
+                results.add(new NumberBatchRegisterResult(numberDto.getPhoneNumber(), NumberBatchRegisterResult.Outcome.CREATED, numberDto));
+            } else {
+                results.add(new NumberBatchRegisterResult(items.get(i).getPhoneNumber(), NumberBatchRegisterResult.Outcome.DUPLICATE, null));
+            }
+        }
+        return new NumberBatchRegisterResponse(created, results.size() - created, results);
+    }
+}
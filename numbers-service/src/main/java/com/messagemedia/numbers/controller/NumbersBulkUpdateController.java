@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.numbers.model.dto.BulkUpdateResponse;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
+import com.messagemedia.numbers.service.NumbersBulkUpdateService;
+import com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest;
+import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
+import com.messagemedia.numbers.service.client.models.UpdateAssignmentRequest;
+import com.messagemedia.numbers.service.client.models.UpdateNumberRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+
+import static com.messagemedia.numbers.controller.NumbersController.NUMBERS_SERVICE_URL;
+
+/**
+ * Updates every number or assignment matching the filters of {@code GET /v1/numbers} and
+ * {@code GET /v1/numbers/assignments}, e.g. moving a block of numbers to another provider or re-labelling the
+ * assignments of an account.
+ */
+@RestController
+@RequestMapping(value = NUMBERS_SERVICE_URL, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+public class NumbersBulkUpdateController {
+
+    private final NumbersBulkUpdateService numbersBulkUpdateService;
+
+    @Autowired
+    public NumbersBulkUpdateController(NumbersBulkUpdateService numbersBulkUpdateService) {
+        this.numbersBulkUpdateService = numbersBulkUpdateService;
+    }
+
+    @PatchMapping(path = "/bulk")
+    @ResponseStatus(HttpStatus.OK)
+    public BulkUpdateResponse updateNumbers(@Valid NumberSearchRequest filter,
+                                            @RequestParam(name = "matchMode", required = false) PhoneNumberPattern.Mode matchMode,
+                                            @Valid @RequestBody UpdateNumberRequest numberRequest) {
+        return numbersBulkUpdateService.updateNumbers(filter, matchMode, numberRequest);
+    }
+
+    @PatchMapping(path = "/assignments/bulk")
+    @ResponseStatus(HttpStatus.OK)
+    public BulkUpdateResponse updateAssignments(@Valid NumberAssignmentSearchRequest filter,
+                                                @RequestParam(name = "matchMode", required = false) PhoneNumberPattern.Mode matchMode,
+                                                @Valid @RequestBody UpdateAssignmentRequest assignmentRequest) {
+        return numbersBulkUpdateService.updateAssignments(filter, matchMode, assignmentRequest);
+    }
+}
@@ -8,18 +8,18 @@
 
 package com.messagemedia.numbers.controller;
 
-import com.messagemedia.domainmodels.accounts.VendorAccountId;
-import com.messagemedia.numbers.exception.EventNotificationPublishingFailedException;
+import com.messagemedia.numbers.model.dto.NumberLookupRequest;
+import com.messagemedia.numbers.model.dto.NumberLookupResponse;
+import com.messagemedia.numbers.model.dto.NumberLookupResult;
 import com.messagemedia.numbers.repository.entities.AssignmentEntity;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
 import com.messagemedia.numbers.repository.mappers.AssignmentMapper;
 import com.messagemedia.numbers.repository.mappers.NumberAssignmentMapper;
 import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
 import com.messagemedia.numbers.service.CallableNumbersService;
-import com.messagemedia.numbers.service.NumberListResult;
+import com.messagemedia.numbers.service.NumberViewListResult;
 import com.messagemedia.numbers.service.NumbersService;
-import com.messagemedia.numbers.service.NotificationService;
-import com.messagemedia.numbers.service.billing.BillingNotificationService;
 import com.messagemedia.numbers.service.client.models.*;
 import com.messagemedia.service.accountmanagement.client.exception.ServiceAccountManagementException;
 import org.slf4j.MDC;
@@ -30,6 +30,9 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.HttpStatusCodeException;
 
 import javax.validation.Valid;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static com.messagemedia.numbers.controller.NumbersController.NUMBERS_SERVICE_URL;
@@ -43,8 +46,6 @@ public class NumbersController {
     private static final String ASSIGNMENTS_SERVICE_URL = "/assignments";
 
     private final NumbersService numbersService;
-    private final NotificationService notificationService;
-    private final BillingNotificationService billingNotificationService;
     private final NumbersMapper numbersMapper;
     private final AssignmentMapper assignmentMapper;
     private final NumberAssignmentMapper numberAssignmentMapper;
@@ -52,15 +53,11 @@ public class NumbersController {
 
     @Autowired
     public NumbersController(NumbersService numbersService,
-                             NotificationService notificationService,
-                             BillingNotificationService billingNotificationService,
                              NumbersMapper numbersMapper,
                              AssignmentMapper assignmentMapper,
                              NumberAssignmentMapper numberAssignmentMapper,
                              CallableNumbersService callableNumbersService) {
         this.numbersService = numbersService;
-        this.notificationService = notificationService;
-        this.billingNotificationService = billingNotificationService;
         this.numbersMapper = numbersMapper;
         this.assignmentMapper = assignmentMapper;
         this.numberAssignmentMapper = numberAssignmentMapper;
@@ -69,28 +66,41 @@ public class NumbersController {
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    public NumberListResponse getNumbers(@Valid NumberSearchRequest request) {
-        NumberListResult result = numbersService.getNumbers(request);
+    public NumberListResponse getNumbers(@Valid NumberSearchRequest request,
+                                         @RequestParam(name = "matchMode", required = false) PhoneNumberPattern.Mode matchMode) {
+        NumberViewListResult result = numbersService.getNumbers(request, matchMode);
         return new NumberListResponse(
-                numbersMapper.toNumberDtoList(result.getNumbers()),
+                numbersMapper.toNumberDtoListFromViews(result.getNumbers()),
                 new PageMetadata(request.getPageSize(), result.getToken())
         );
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public NumberDto registerNumber(@Valid @RequestBody RegisterNumberRequest numberRequest) throws EventNotificationPublishingFailedException {
-        NumberDto numberDto = numbersMapper.toNumberDto(numbersService.registerNumber(numbersMapper.toNumberEntity(numberRequest)));
-        notificationService.push(Event.NUMBER_CREATED, numberDto);
-        return numberDto;
+    public NumberDto registerNumber(@Valid @RequestBody RegisterNumberRequest numberRequest) {
+        return numbersMapper.toNumberDto(numbersService.registerNumber(numbersMapper.toNumberEntity(numberRequest)));
+    }
+
+    @PostMapping(path = "/lookup")
+    @ResponseStatus(HttpStatus.OK)
+    public NumberLookupResponse lookupNumbers(@RequestBody NumberLookupRequest lookupRequest) {
+        List<String> items = lookupRequest.getItems();
+        List<Optional<NumberEntity>> numbers = numbersService.lookupNumbers(items);
+        NumberLookupResult[] results = new NumberLookupResult[items.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new NumberLookupResult(items.get(i), numbers.get(i).isPresent(),
+                    numbers.get(i).map(numbersMapper::toNumberDto).orElse(null));
+        }
+        return new NumberLookupResponse(Arrays.asList(results));
     }
 
     @GetMapping(path = ASSIGNMENTS_SERVICE_URL)
     @ResponseStatus(HttpStatus.OK)
-    public NumberAssignmentListResponse getAssignments(@Valid NumberAssignmentSearchRequest request) {
-        NumberListResult result = numbersService.getNumberAssignments(request);
+    public NumberAssignmentListResponse getAssignments(@Valid NumberAssignmentSearchRequest request,
+                                                       @RequestParam(name = "matchMode", required = false) PhoneNumberPattern.Mode matchMode) {
+        NumberViewListResult result = numbersService.getNumberAssignments(request, matchMode);
         return new NumberAssignmentListResponse(
-            numberAssignmentMapper.toNumberAssignmentDtoList(result.getNumbers()),
+            numberAssignmentMapper.toNumberAssignmentDtoListFromViews(result.getNumbers()),
             new PageMetadata(request.getPageSize(), result.getToken())
         );
     }
@@ -98,17 +108,11 @@ public class NumbersController {
     @PostMapping(path = ASSIGNMENT_SERVICE_URL)
     @ResponseStatus(HttpStatus.CREATED)
     public AssignmentDto assignNumber(@Valid @RequestBody AssignNumberRequest assignNumberRequest,
-                                      @PathVariable("id") UUID numberId) throws EventNotificationPublishingFailedException {
+                                      @PathVariable("id") UUID numberId) {
         addVendorAccountMdcValues(assignNumberRequest.getVendorId(), assignNumberRequest.getAccountId());
         try {
             AssignmentEntity assignmentEntity = assignmentMapper.toAssignmentEntity(assignNumberRequest);
-            AssignmentDto assignmentDto = assignmentMapper.toAssignmentDto(numbersService.assignNumberToAccount(numberId, assignmentEntity));
-            NumberEntity numberEntity = numbersService.getNumber(numberId);
-            NumberDto numberDto = numbersMapper.toNumberDto(numberEntity);
-            notificationService.push(Event.NUMBER_ASSIGNED, numberDto);
-            billingNotificationService
-                    .sendAddNotification(new VendorAccountId(assignmentDto.getVendorId(), assignmentDto.getAccountId()), numberEntity);
-            return assignmentDto;
+            return assignmentMapper.toAssignmentDto(numbersService.assignNumberToAccount(numberId, assignmentEntity));
         } finally {
             MDC.clear();
         }
@@ -122,17 +126,12 @@ public class NumbersController {
 
     @DeleteMapping(path = ASSIGNMENT_SERVICE_URL)
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void disassociateAssignment(@PathVariable("id") UUID numberId) throws EventNotificationPublishingFailedException, HttpStatusCodeException {
-        AssignmentDto assignmentDto = assignmentMapper.toAssignmentDto(numbersService.disassociateAssignment(numberId));
-        addVendorAccountMdcValues(assignmentDto.getVendorId(), assignmentDto.getAccountId());
-        NumberEntity numberEntity = numbersService.getNumber(numberId);
-        deleteCallableNumber(numberEntity);
+    public void disassociateAssignment(@PathVariable("id") UUID numberId) throws HttpStatusCodeException {
+        AssignmentEntity assignment = numbersService.disassociateAssignment(numberId);
+        addVendorAccountMdcValues(assignment.getVendorId(), assignment.getAccountId());
         try {
-            NumberDto numberDto = numbersMapper.toNumberDto(numberEntity);
-            numberDto.setAssignedTo(assignmentDto);
-            notificationService.push(Event.NUMBER_UNASSIGNED, numberDto);
-            billingNotificationService
-                    .sendRemoveNotification(new VendorAccountId(assignmentDto.getVendorId(), assignmentDto.getAccountId()), numberEntity);
+            // the number as the unassignment left it, read once by the service
+            deleteCallableNumber(assignment.getNumberEntity());
         } finally {
             MDC.clear();
         }
@@ -141,26 +140,21 @@ public class NumbersController {
     @GetMapping(path = "/{id}")
     @ResponseStatus(HttpStatus.OK)
     public NumberDto getNumber(@PathVariable("id") UUID numberId) {
-        return numbersMapper.toNumberDto(numbersService.getNumber(numberId));
+        return numbersMapper.toNumberDto(numbersService.getCachedNumber(numberId));
     }
 
     @PatchMapping(path = "/{id}")
     @ResponseStatus(HttpStatus.OK)
     public NumberDto updateNumber(@Valid @RequestBody UpdateNumberRequest numberRequest,
-                                  @PathVariable("id") UUID numberId) throws EventNotificationPublishingFailedException {
-        NumberDto numberDto = numbersMapper.toNumberDto(numbersService.updateNumber(numberId, numberRequest));
-        notificationService.push(Event.NUMBER_UPDATED, numberDto);
-        return numberDto;
+                                  @PathVariable("id") UUID numberId) {
+        return numbersMapper.toNumberDto(numbersService.updateNumber(numberId, numberRequest));
     }
 
     @PatchMapping(path = ASSIGNMENT_SERVICE_URL)
     @ResponseStatus(HttpStatus.OK)
     public AssignmentDto updateAssignment(@Valid @RequestBody UpdateAssignmentRequest assignmentRequest,
-                                          @PathVariable("id") UUID numberId) throws EventNotificationPublishingFailedException {
-        AssignmentDto assignmentDto = assignmentMapper.toAssignmentDto(numbersService.updateAssignment(numberId, assignmentRequest));
-        NumberDto numberDto = numbersMapper.toNumberDto(numbersService.getNumber(numberId));
-        notificationService.push(Event.ASSIGNMENT_UPDATED, numberDto);
-        return assignmentDto;
+                                          @PathVariable("id") UUID numberId) {
+        return assignmentMapper.toAssignmentDto(numbersService.updateAssignment(numberId, assignmentRequest));
     }
 
     @PutMapping(path = ASSIGNMENT_SERVICE_URL)
@@ -168,18 +162,13 @@ public class NumbersController {
     public AssignmentDto reassignNumber(@PathVariable("id") UUID numberId, @Valid @RequestBody AssignNumberRequest assignNumberRequest)
                                     throws ServiceAccountManagementException {
         AssignmentEntity assignmentEntity = assignmentMapper.toAssignmentEntity(assignNumberRequest);
-        final AssignmentEntity newAssignmentEntity = numbersService.reassignNumber(numberId, assignmentEntity);
-        newAssignmentEntity.getNumberEntity().setAssignedTo(newAssignmentEntity);
-        final NumberDto numberDto = this.numbersMapper.toNumberDto(newAssignmentEntity.getNumberEntity());
-        notificationService.push(Event.NUMBER_REASSIGNED, numberDto);
-        return assignmentMapper.toAssignmentDto(newAssignmentEntity);
+        return assignmentMapper.toAssignmentDto(numbersService.reassignNumber(numberId, assignmentEntity));
     }
 
     @DeleteMapping(path = "/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteNumber(@PathVariable("id") UUID numberId) throws EventNotificationPublishingFailedException {
-        NumberDto numberDto = numbersMapper.toNumberDto(numbersService.deleteNumber(numberId));
-        notificationService.push(Event.NUMBER_DELETED, numberDto);
+    public void deleteNumber(@PathVariable("id") UUID numberId) {
+        numbersService.deleteNumber(numberId);
     }
 
     private void addVendorAccountMdcValues(String vendorId, String accountId) {
@@ -189,7 +178,7 @@ public class NumbersController {
 
     private void deleteCallableNumber(NumberEntity number) throws HttpStatusCodeException {
         if (number.getCapabilities().contains(ServiceType.CALL)) {
-            callableNumbersService.deleteCallableNumber(number.getId());
+            callableNumbersService.deleteCallableNumber(number);
         }
     }
 }
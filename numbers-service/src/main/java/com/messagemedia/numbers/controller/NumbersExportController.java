@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.repository.projections.NumberView;
+import com.messagemedia.numbers.repository.search.CompiledSearch;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
+import com.messagemedia.numbers.service.NumbersService;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import static com.messagemedia.numbers.controller.NumbersController.NUMBERS_SERVICE_URL;
+
+/**
+ * Streams every number matching a search as newline delimited JSON, one {@link NumberDto} per line, for consumers that
+ * need the whole inventory rather than a page of it.
+ */
+@RestController
+@RequestMapping(value = NUMBERS_SERVICE_URL)
+public class NumbersExportController {
+
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final NumbersService numbersService;
+    private final NumbersMapper numbersMapper;
+    private final ObjectWriter numberWriter;
+    private final int flushRows;
+
+    @Autowired
+    public NumbersExportController(NumbersService numbersService, NumbersMapper numbersMapper, ObjectMapper objectMapper,
+                                   @Value("${numbers.service.export.flushRows}") int flushRows) {
+        this.numbersService = numbersService;
+        this.numbersMapper = numbersMapper;
+        this.numberWriter = objectMapper.writerFor(NumberDto.class);
+        this.flushRows = flushRows;
+    }
+
+    /**
+     * The page size is ignored and the token, when given, is where the export starts. The search is compiled before
+     * the response is committed, so invalid filters still get a 400.
+     */
+    @GetMapping(path = "/export")
+    public ResponseEntity<StreamingResponseBody> exportNumbers(
+            @Valid NumberSearchRequest request,
+            @RequestParam(name = "matchMode", required = false) PhoneNumberPattern.Mode matchMode,
+            @RequestParam(name = "includeAssignment", defaultValue = "true") boolean includeAssignment) {
+        CompiledSearch export = numbersService.prepareExport(request, matchMode);
+        StreamingResponseBody body = outputStream -> {
+            NdjsonWriter writer = new NdjsonWriter(outputStream, includeAssignment);
+            try {
+                numbersService.exportNumbers(export, writer);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            outputStream.flush();
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Writes each number as it is read and flushes every {@code flushRows} lines, so the response goes out in chunks
+     * and nothing accumulates on the heap.
+     */
+    private final class NdjsonWriter implements Consumer<NumberView> {
+
+        private final OutputStream outputStream;
+        private final boolean includeAssignment;
+        private int unflushed;
+
+        private NdjsonWriter(OutputStream outputStream, boolean includeAssignment) {
+            this.outputStream = outputStream;
+            this.includeAssignment = includeAssignment;
+        }
+
+        @Override
+        public void accept(NumberView view) {
+            NumberDto number = numbersMapper.toNumberDtoFromView(view);
+            if (!includeAssignment) {
+                number.setAssignedTo(null);
+            }
+            try {
+                outputStream.write(numberWriter.writeValueAsBytes(number));
+                outputStream.write('\n');
+                if (++unflushed == flushRows) {
+                    outputStream.flush();
+                    unflushed = 0;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -48,7 +48,7 @@ public class NumbersForwardController {
     @GetMapping(path = FORWARD_SERVICE_URL)
     @ResponseStatus(HttpStatus.OK)
     public NumberForwardDto getForwardNumber(@PathVariable("id") UUID numberId) throws NumberNotFoundException {
-        CallableNumberDto callableNumberDto = callableNumbersService.getCallableNumber(numberId);
+        CallableNumberDto callableNumberDto = callableNumbersService.getCallableNumber(numbersService.getCachedNumber(numberId));
         NumberForwardDto numberForwardDto = new NumberForwardDto();
 
         if (callableNumberDto == null || callableNumberDto.getRoutingProfile() == null) {
@@ -79,18 +79,18 @@ public class NumbersForwardController {
         //Get and Set VendorAccountId
         String vendorAccountId = numberEntity.getVendorAccountIdString();
 
-        CallableNumberDto callableNumberDto = callableNumbersService.getCallableNumber(numberId);
+        CallableNumberDto callableNumberDto = callableNumbersService.getCallableNumber(numberEntity);
         if (callableNumberDto == null) {
             callableNumbersService.createCustomer(vendorAccountId);
             CallableNumberRoutingProfileCreateResponse routingProfile = callableNumbersService.createRoutingProfile(
                     numberForwardCreateRequest.getDestination(), vendorAccountId);
-            callableNumbersService.createCallableNumber(numberId, vendorAccountId, routingProfile.getId());
+            callableNumbersService.createCallableNumber(numberEntity, vendorAccountId, routingProfile.getId());
             return ResponseEntity.status(HttpStatus.CREATED).body(new NumberForwardDto(numberForwardCreateRequest.getDestination()));
         } else {
             if (!callableNumberDto.getRoutingProfile().getNumber().equals(numberForwardCreateRequest.getDestination())) {
                 CallableNumberRoutingProfileCreateResponse routingProfile = callableNumbersService.createRoutingProfile(
                         numberForwardCreateRequest.getDestination(),  vendorAccountId);
-                callableNumbersService.updateCallableNumber(numberId, vendorAccountId, routingProfile.getId());
+                callableNumbersService.updateCallableNumber(numberEntity, vendorAccountId, routingProfile.getId());
                 return ResponseEntity.status(HttpStatus.OK).body(new NumberForwardDto(numberForwardCreateRequest.getDestination()));
             }
         }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.domainmodels.accounts.VendorId;
+import com.messagemedia.numbers.model.dto.NumberLookupRequest;
+import com.messagemedia.numbers.model.dto.RatePlanResponse;
+import com.messagemedia.numbers.model.dto.RatePlanResult;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.service.NumbersService;
+import com.messagemedia.numbers.service.billing.RatePlanResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.messagemedia.numbers.controller.RatePlanController.RATE_PLANS_URL;
+
+/**
+ * Resolves the billing rate plans of numbers for billing reconciliation, the same way billing notifications do.
+ */
+@RestController
+@RequestMapping(value = RATE_PLANS_URL, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+public class RatePlanController {
+
+    static final String RATE_PLANS_URL = "/v1/billing/rate-plans";
+
+    private final NumbersService numbersService;
+    private final RatePlanResolver ratePlanResolver;
+
+    @Autowired
+    public RatePlanController(NumbersService numbersService, RatePlanResolver ratePlanResolver) {
+        this.numbersService = numbersService;
+        this.ratePlanResolver = ratePlanResolver;
+    }
+
+    /**
+     * Takes number ids or E.164 phone numbers like {@code POST /v1/numbers/lookup} and resolves each assigned number
+     * for its current account.
+     */
+    @PostMapping(path = "/resolve")
+    @ResponseStatus(HttpStatus.OK)
+    public RatePlanResponse resolveRatePlans(@RequestBody NumberLookupRequest request) {
+        List<String> items = request.getItems();
+        List<Optional<NumberEntity>> numbers = numbersService.lookupNumbers(items);
+        List<RatePlanResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            String item = items.get(i);
+            results.add(numbers.get(i)
+                    .map(number -> toResult(item, number))
+                    .orElseGet(() -> new RatePlanResult(item, false, null, null, null, null)));
+        }
+        return new RatePlanResponse(results);
+    }
+
+    @PostMapping(path = "/refresh")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void refresh() {
+        ratePlanResolver.refresh();
+    }
+
+    private RatePlanResult toResult(String item, NumberEntity number) {
+        AssignmentEntity assignment = number.getAssignedTo();
+        if (assignment == null) {
+            return new RatePlanResult(item, true, number.getId(), null, null, ratePlanResolver.resolve(null, number).orElse(null));
+        }
+        return new RatePlanResult(item, true, number.getId(), assignment.getVendorId(), assignment.getAccountId(),
+                ratePlanResolver.resolve(new VendorId(assignment.getVendorId()), number).orElse(null));
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.numbers.exception.RouteNotFoundException;
+import com.messagemedia.numbers.model.dto.RouteDto;
+import com.messagemedia.numbers.service.routing.RoutingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.messagemedia.numbers.controller.RoutingController.ROUTING_URL;
+
+@RestController
+@RequestMapping(value = ROUTING_URL, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+public class RoutingController {
+
+    static final String ROUTING_URL = "/v1/routing";
+
+    private final RoutingService routingService;
+
+    @Autowired
+    public RoutingController(RoutingService routingService) {
+        this.routingService = routingService;
+    }
+
+    @GetMapping(path = "/{phoneNumber}")
+    public RouteDto getRoute(@PathVariable("phoneNumber") String phoneNumber) {
+        return routingService.getRoute(phoneNumber)
+                .map(route -> new RouteDto(phoneNumber, route.getVendorId(), route.getAccountId(), route.getCallbackUrl(),
+                        route.isDedicatedReceiver()))
+                .orElseThrow(() -> new RouteNotFoundException(phoneNumber));
+    }
+}
@@ -133,6 +133,54 @@ public class NumbersControllerAdvice extends DefaultExceptionHandlerControllerAd
         return toStandardRestControllerError("Number capability not available", e);
     }
 
+    @ExceptionHandler(value = {NumberLookupRequestInvalidException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public StandardRestControllerError catchNumberLookupRequestInvalidException(NumberLookupRequestInvalidException e) {
+        return toStandardRestControllerError(BAD_REQUEST_MESSAGE, e);
+    }
+
+    @ExceptionHandler(value = {NumberBatchRequestInvalidException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public StandardRestControllerError catchNumberBatchRequestInvalidException(NumberBatchRequestInvalidException e) {
+        return toStandardRestControllerError(BAD_REQUEST_MESSAGE, e);
+    }
+
+    @ExceptionHandler(value = {NumberSearchPatternInvalidException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public StandardRestControllerError catchNumberSearchPatternInvalidException(NumberSearchPatternInvalidException e) {
+        return toStandardRestControllerError(BAD_REQUEST_MESSAGE, e);
+    }
+
+    @ExceptionHandler(value = {BulkJobRequestInvalidException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public StandardRestControllerError catchBulkJobRequestInvalidException(BulkJobRequestInvalidException e) {
+        return toStandardRestControllerError(BAD_REQUEST_MESSAGE, e);
+    }
+
+    @ExceptionHandler(value = {BulkJobNotFoundException.class})
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public StandardRestControllerError catchBulkJobNotFoundException(BulkJobNotFoundException e) {
+        return toStandardRestControllerError("Bulk job not found", e);
+    }
+
+    @ExceptionHandler(value = {NumberImportRequestInvalidException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public StandardRestControllerError catchNumberImportRequestInvalidException(NumberImportRequestInvalidException e) {
+        return toStandardRestControllerError(BAD_REQUEST_MESSAGE, e);
+    }
+
+    @ExceptionHandler(value = {NumberImportNotFoundException.class})
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public StandardRestControllerError catchNumberImportNotFoundException(NumberImportNotFoundException e) {
+        return toStandardRestControllerError("Number import not found", e);
+    }
+
+    @ExceptionHandler(value = {RouteNotFoundException.class})
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public StandardRestControllerError catchRouteNotFoundException(RouteNotFoundException e) {
+        return toStandardRestControllerError("Route not found", e);
+    }
+
     private StandardRestControllerError toStandardRestControllerError(String msg, Exception e) {
         LOGGER.errorWithReason(msg, e.getMessage(), e);
         return new StandardRestControllerError(ExceptionUtils.getRootCauseMessage(e));
@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.exception;
+
+public class BulkJobRequestInvalidException extends RuntimeException {
+
+    public BulkJobRequestInvalidException(int size, int maxRows) {
+        super(String.format("Bulk job must contain between 1 and %d rows but had %d", maxRows, size));
+    }
+
+    public BulkJobRequestInvalidException(String reason) {
+        super(String.format("Bulk job request is invalid: %s", reason));
+    }
+}
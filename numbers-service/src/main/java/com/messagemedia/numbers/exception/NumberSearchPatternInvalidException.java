@@ -0,0 +1,16 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.exception;
+
+public class NumberSearchPatternInvalidException extends RuntimeException {
+
+    public NumberSearchPatternInvalidException(String pattern, String reason) {
+        super(String.format("Phone number pattern {%s} is not allowed: %s", pattern, reason));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * The outcome of replaying or draining the billing notification queue and the notifications left in it.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BillingNotificationQueueDto {
+
+    private final int notifications;
+    private final long pending;
+    private final long parked;
+
+    @JsonCreator
+    public BillingNotificationQueueDto(@JsonProperty("notifications") int notifications,
+                                       @JsonProperty("pending") long pending,
+                                       @JsonProperty("parked") long parked) {
+        this.notifications = notifications;
+        this.pending = pending;
+        this.parked = parked;
+    }
+
+    /**
+     * @return the notifications replayed or sent
+     */
+    public int getNotifications() {
+        return notifications;
+    }
+
+    public long getPending() {
+        return pending;
+    }
+
+    public long getParked() {
+        return parked;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("notifications", this.notifications)
+                .append("pending", this.pending)
+                .append("parked", this.parked)
+                .toString();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkAssignmentRequest {
+
+    /**
+     * Why the job was run, e.g. a support ticket.
+     */
+    private final String note;
+    private final List<BulkAssignmentRow> rows;
+
+    @JsonCreator
+    public BulkAssignmentRequest(@JsonProperty("note") String note,
+                                 @JsonProperty("rows") List<BulkAssignmentRow> rows) {
+        this.note = note;
+        this.rows = rows;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public List<BulkAssignmentRow> getRows() {
+        return rows;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("note", this.note)
+                .append("rows", this.rows)
+                .toString();
+    }
+}
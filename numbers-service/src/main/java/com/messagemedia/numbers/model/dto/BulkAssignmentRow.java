@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One number to assign in a bulk assignment job, identified by its id or, when there is no id, its phone number.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkAssignmentRow {
+
+    private final UUID numberId;
+    private final String phoneNumber;
+    private final String vendorId;
+    private final String accountId;
+    private final String callbackUrl;
+    private final Map<String, String> metadata;
+    private final String label;
+
+    @JsonCreator
+    public BulkAssignmentRow(@JsonProperty("numberId") UUID numberId,
+                             @JsonProperty("phoneNumber") String phoneNumber,
+                             @JsonProperty("vendorId") String vendorId,
+                             @JsonProperty("accountId") String accountId,
+                             @JsonProperty("callbackUrl") String callbackUrl,
+                             @JsonProperty("metadata") Map<String, String> metadata,
+                             @JsonProperty("label") String label) {
+        this.numberId = numberId;
+        this.phoneNumber = phoneNumber;
+        this.vendorId = vendorId;
+        this.accountId = accountId;
+        this.callbackUrl = callbackUrl;
+        this.metadata = metadata;
+        this.label = label;
+    }
+
+    public UUID getNumberId() {
+        return numberId;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getCallbackUrl() {
+        return callbackUrl;
+    }
+
+    public Map<String, String> getMetadata() {
+        return metadata;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("numberId", this.numberId)
+                .append("phoneNumber", this.phoneNumber)
+                .append("vendorId", this.vendorId)
+                .append("accountId", this.accountId)
+                .append("callbackUrl", this.callbackUrl)
+                .append("metadata", this.metadata)
+                .append("label", this.label)
+                .toString();
+    }
+}
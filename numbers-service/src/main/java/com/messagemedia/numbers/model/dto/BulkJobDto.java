@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.messagemedia.numbers.repository.entities.BulkJobStatus;
+import com.messagemedia.numbers.repository.entities.BulkJobType;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkJobDto {
+
+    private final UUID id;
+    private final BulkJobType type;
+    private final BulkJobStatus status;
+    private final String note;
+    private final int total;
+    private final int succeeded;
+    private final int failed;
+    private final OffsetDateTime created;
+    private final OffsetDateTime updated;
+    private final OffsetDateTime completed;
+
+    @JsonCreator
+    public BulkJobDto(@JsonProperty("id") UUID id,
+                      @JsonProperty("type") BulkJobType type,
+                      @JsonProperty("status") BulkJobStatus status,
+                      @JsonProperty("note") String note,
+                      @JsonProperty("total") int total,
+                      @JsonProperty("succeeded") int succeeded,
+                      @JsonProperty("failed") int failed,
+                      @JsonProperty("created") OffsetDateTime created,
+                      @JsonProperty("updated") OffsetDateTime updated,
+                      @JsonProperty("completed") OffsetDateTime completed) {
+        this.id = id;
+        this.type = type;
+        this.status = status;
+        this.note = note;
+        this.total = total;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.created = created;
+        this.updated = updated;
+        this.completed = completed;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public BulkJobType getType() {
+        return type;
+    }
+
+    public BulkJobStatus getStatus() {
+        return status;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public OffsetDateTime getCreated() {
+        return created;
+    }
+
+    public OffsetDateTime getUpdated() {
+        return updated;
+    }
+
+    public OffsetDateTime getCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("id", this.id)
+                .append("type", this.type)
+                .append("status", this.status)
+                .append("note", this.note)
+                .append("total", this.total)
+                .append("succeeded", this.succeeded)
+                .append("failed", this.failed)
+                .append("created", this.created)
+                .append("updated", this.updated)
+                .append("completed", this.completed)
+                .toString();
+    }
+}
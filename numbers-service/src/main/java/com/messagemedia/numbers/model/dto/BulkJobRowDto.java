@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.messagemedia.numbers.repository.entities.BulkJobRowStatus;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkJobRowDto {
+
+    private final int row;
+    private final String item;
+    private final BulkJobRowStatus status;
+    private final String message;
+
+    @JsonCreator
+    public BulkJobRowDto(@JsonProperty("row") int row,
+                         @JsonProperty("item") String item,
+                         @JsonProperty("status") BulkJobRowStatus status,
+                         @JsonProperty("message") String message) {
+        this.row = row;
+        this.item = item;
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public String getItem() {
+        return item;
+    }
+
+    public BulkJobRowStatus getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("row", this.row)
+                .append("item", this.item)
+                .append("status", this.status)
+                .append("message", this.message)
+                .toString();
+    }
+}
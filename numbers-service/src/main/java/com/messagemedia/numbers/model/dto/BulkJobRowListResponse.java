@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkJobRowListResponse {
+
+    private final List<BulkJobRowDto> rows;
+
+    /**
+     * The {@code fromRow} of the next page, null when there are no more rows.
+     */
+    private final Integer nextRow;
+
+    @JsonCreator
+    public BulkJobRowListResponse(@JsonProperty("rows") List<BulkJobRowDto> rows,
+                                  @JsonProperty("nextRow") Integer nextRow) {
+        this.rows = rows;
+        this.nextRow = nextRow;
+    }
+
+    public List<BulkJobRowDto> getRows() {
+        return rows;
+    }
+
+    public Integer getNextRow() {
+        return nextRow;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("rows", this.rows)
+                .append("nextRow", this.nextRow)
+                .toString();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.UUID;
+
+/**
+ * One number to move from one account to another of the same vendor in an account migration job.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkMigrationRow {
+
+    private final UUID numberId;
+    private final String vendorId;
+    private final String fromAccountId;
+    private final String toAccountId;
+
+    @JsonCreator
+    public BulkMigrationRow(@JsonProperty("numberId") UUID numberId,
+                            @JsonProperty("vendorId") String vendorId,
+                            @JsonProperty("fromAccountId") String fromAccountId,
+                            @JsonProperty("toAccountId") String toAccountId) {
+        this.numberId = numberId;
+        this.vendorId = vendorId;
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+    }
+
+    public UUID getNumberId() {
+        return numberId;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public String getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public String getToAccountId() {
+        return toAccountId;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("numberId", this.numberId)
+                .append("vendorId", this.vendorId)
+                .append("fromAccountId", this.fromAccountId)
+                .append("toAccountId", this.toAccountId)
+                .toString();
+    }
+}
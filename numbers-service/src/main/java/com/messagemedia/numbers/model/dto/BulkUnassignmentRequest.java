@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Unassigns either every number assigned to an account or the numbers with the given ids.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkUnassignmentRequest {
+
+    /**
+     * Why the job was run, e.g. a support ticket.
+     */
+    private final String note;
+    private final String vendorId;
+    private final String accountId;
+    private final List<UUID> numberIds;
+
+    @JsonCreator
+    public BulkUnassignmentRequest(@JsonProperty("note") String note,
+                                   @JsonProperty("vendorId") String vendorId,
+                                   @JsonProperty("accountId") String accountId,
+                                   @JsonProperty("numberIds") List<UUID> numberIds) {
+        this.note = note;
+        this.vendorId = vendorId;
+        this.accountId = accountId;
+        this.numberIds = numberIds;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public List<UUID> getNumberIds() {
+        return numberIds;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("note", this.note)
+                .append("vendorId", this.vendorId)
+                .append("accountId", this.accountId)
+                .append("numberIds", this.numberIds)
+                .toString();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.UUID;
+
+/**
+ * One number to unassign in a bulk unassignment job. When the account is given the number is only unassigned while it
+ * is still assigned to that account.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkUnassignmentRow {
+
+    private final UUID numberId;
+    private final String vendorId;
+    private final String accountId;
+
+    @JsonCreator
+    public BulkUnassignmentRow(@JsonProperty("numberId") UUID numberId,
+                               @JsonProperty("vendorId") String vendorId,
+                               @JsonProperty("accountId") String accountId) {
+        this.numberId = numberId;
+        this.vendorId = vendorId;
+        this.accountId = accountId;
+    }
+
+    public UUID getNumberId() {
+        return numberId;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("numberId", this.numberId)
+                .append("vendorId", this.vendorId)
+                .append("accountId", this.accountId)
+                .toString();
+    }
+}
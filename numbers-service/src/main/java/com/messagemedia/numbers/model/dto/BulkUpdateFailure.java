@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.UUID;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkUpdateFailure {
+
+    private final UUID numberId;
+    private final String message;
+
+    @JsonCreator
+    public BulkUpdateFailure(@JsonProperty("numberId") UUID numberId,
+                             @JsonProperty("message") String message) {
+        this.numberId = numberId;
+        this.message = message;
+    }
+
+    public UUID getNumberId() {
+        return numberId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("numberId", this.numberId)
+                .append("message", this.message)
+                .toString();
+    }
+}
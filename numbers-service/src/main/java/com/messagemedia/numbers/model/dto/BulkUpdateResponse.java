@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkUpdateResponse {
+
+    private final int matched;
+    private final int updated;
+    private final int failed;
+    private final List<BulkUpdateFailure> failures;
+
+    @JsonCreator
+    public BulkUpdateResponse(@JsonProperty("matched") int matched,
+                              @JsonProperty("updated") int updated,
+                              @JsonProperty("failed") int failed,
+                              @JsonProperty("failures") List<BulkUpdateFailure> failures) {
+        this.matched = matched;
+        this.updated = updated;
+        this.failed = failed;
+        this.failures = failures;
+    }
+
+    public int getMatched() {
+        return matched;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * The first failures, the rest are only counted.
+     */
+    public List<BulkUpdateFailure> getFailures() {
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("matched", this.matched)
+                .append("updated", this.updated)
+                .append("failed", this.failed)
+                .append("failures", this.failures)
+                .toString();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.messagemedia.numbers.service.client.models.RegisterNumberRequest;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import javax.validation.Valid;
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NumberBatchRegisterRequest {
+
+    @Valid
+    private final List<RegisterNumberRequest> items;
+
+    @JsonCreator
+    public NumberBatchRegisterRequest(@JsonProperty("items") List<RegisterNumberRequest> items) {
+        this.items = items;
+    }
+
+    public List<RegisterNumberRequest> getItems() {
+        return items;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("items", this.items)
+                .toString();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NumberBatchRegisterResponse {
+
+    private final int created;
+    private final int duplicates;
+    private final List<NumberBatchRegisterResult> results;
+
+    @JsonCreator
+    public NumberBatchRegisterResponse(@JsonProperty("created") int created,
+                                       @JsonProperty("duplicates") int duplicates,
+                                       @JsonProperty("results") List<NumberBatchRegisterResult> results) {
+        this.created = created;
+        this.duplicates = duplicates;
+        this.results = results;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public List<NumberBatchRegisterResult> getResults() {
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("created", this.created)
+                .append("duplicates", this.duplicates)
+                .append("results", this.results)
+                .toString();
+    }
+}
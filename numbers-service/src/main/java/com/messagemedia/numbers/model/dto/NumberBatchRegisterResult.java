@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NumberBatchRegisterResult {
+
+    public enum Outcome {
+        CREATED,
+        /**
+         * The phone number is already registered or appears earlier in the same request.
+         */
+        DUPLICATE
+    }
+
+    private final String phoneNumber;
+    private final Outcome outcome;
+    private final NumberDto number;
+
+    @JsonCreator
+    public NumberBatchRegisterResult(@JsonProperty("phoneNumber") String phoneNumber,
+                                     @JsonProperty("outcome") Outcome outcome,
+                                     @JsonProperty("number") NumberDto number) {
+        this.phoneNumber = phoneNumber;
+        this.outcome = outcome;
+        this.number = number;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public NumberDto getNumber() {
+        return number;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("phoneNumber", this.phoneNumber)
+                .append("outcome", this.outcome)
+                .append("number", this.number)
+                .toString();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.messagemedia.numbers.repository.entities.NumberImportStatus;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NumberImportDto {
+
+    private final UUID id;
+    private final NumberImportStatus status;
+    private final String note;
+    private final long total;
+
+    /**
+     * Rows skipped because their phone number was already registered.
+     */
+    private final long existing;
+
+    private final long staged;
+    private final long imported;
+
+    /**
+     * Staged rows which were not imported once the import completed, repeated within the file or registered meanwhile.
+     */
+    private final long duplicates;
+
+    private final long rejected;
+
+    /**
+     * Rows read per second since the import was submitted.
+     */
+    private final double rowsPerSecond;
+
+    private final String message;
+    private final OffsetDateTime created;
+    private final OffsetDateTime updated;
+    private final OffsetDateTime completed;
+
+    @JsonCreator
+    public NumberImportDto(@JsonProperty("id") UUID id,
+                           @JsonProperty("status") NumberImportStatus status,
+                           @JsonProperty("note") String note,
+                           @JsonProperty("total") long total,
+                           @JsonProperty("existing") long existing,
+                           @JsonProperty("staged") long staged,
+                           @JsonProperty("imported") long imported,
+                           @JsonProperty("duplicates") long duplicates,
+                           @JsonProperty("rejected") long rejected,
+                           @JsonProperty("rowsPerSecond") double rowsPerSecond,
+                           @JsonProperty("message") String message,
+                           @JsonProperty("created") OffsetDateTime created,
+                           @JsonProperty("updated") OffsetDateTime updated,
+                           @JsonProperty("completed") OffsetDateTime completed) {
+        this.id = id;
+        this.status = status;
+        this.note = note;
+        this.total = total;
+        this.existing = existing;
+        this.staged = staged;
+        this.imported = imported;
+        this.duplicates = duplicates;
+        this.rejected = rejected;
+        this.rowsPerSecond = rowsPerSecond;
+        this.message = message;
+        this.created = created;
+        this.updated = updated;
+        this.completed = completed;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public NumberImportStatus getStatus() {
+        return status;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getExisting() {
+        return existing;
+    }
+
+    public long getStaged() {
+        return staged;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public OffsetDateTime getCreated() {
+        return created;
+    }
+
+    public OffsetDateTime getUpdated() {
+        return updated;
+    }
+
+    public OffsetDateTime getCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("id", this.id)
+                .append("status", this.status)
+                .append("note", this.note)
+                .append("total", this.total)
+                .append("existing", this.existing)
+                .append("staged", this.staged)
+                .append("imported", this.imported)
+                .append("duplicates", this.duplicates)
+                .append("rejected", this.rejected)
+                .append("rowsPerSecond", this.rowsPerSecond)
+                .append("message", this.message)
+                .append("created", this.created)
+                .append("updated", this.updated)
+                .append("completed", this.completed)
+                .toString();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NumberImportRejectionDto {
+
+    private final long line;
+    private final String content;
+    private final String reason;
+
+    @JsonCreator
+    public NumberImportRejectionDto(@JsonProperty("line") long line,
+                                    @JsonProperty("content") String content,
+                                    @JsonProperty("reason") String reason) {
+        this.line = line;
+        this.content = content;
+        this.reason = reason;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("line", this.line)
+                .append("content", this.content)
+                .append("reason", this.reason)
+                .toString();
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NumberImportRejectionListResponse {
+
+    private final List<NumberImportRejectionDto> rejections;
+
+    /**
+     * The {@code fromLine} of the next page, null when there are no more rejections.
+     */
+    private final Long nextLine;
+
+    @JsonCreator
+    public NumberImportRejectionListResponse(@JsonProperty("rejections") List<NumberImportRejectionDto> rejections,
+                                             @JsonProperty("nextLine") Long nextLine) {
+        this.rejections = rejections;
+        this.nextLine = nextLine;
+    }
+
+    public List<NumberImportRejectionDto> getRejections() {
+        return rejections;
+    }
+
+    public Long getNextLine() {
+        return nextLine;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("rejections", this.rejections)
+                .append("nextLine", this.nextLine)
+                .toString();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NumberLookupResult {
+
+    private final String item;
+    private final boolean found;
+    private final NumberDto number;
+
+    @JsonCreator
+    public NumberLookupResult(@JsonProperty("item") String item,
+                              @JsonProperty("found") boolean found,
+                              @JsonProperty("number") NumberDto number) {
+        this.item = item;
+        this.found = found;
+        this.number = number;
+    }
+
+    public String getItem() {
+        return item;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public NumberDto getNumber() {
+        return number;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("item", this.item)
+                .append("found", this.found)
+                .append("number", this.number)
+                .toString();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RatePlanResponse {
+
+    private final List<RatePlanResult> results;
+
+    @JsonCreator
+    public RatePlanResponse(@JsonProperty("results") List<RatePlanResult> results) {
+        this.results = results;
+    }
+
+    public List<RatePlanResult> getResults() {
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("results", this.results)
+                .toString();
+    }
+}
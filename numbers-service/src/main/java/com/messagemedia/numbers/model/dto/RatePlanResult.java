@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.UUID;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RatePlanResult {
+
+    private final String item;
+    private final boolean found;
+    private final UUID numberId;
+    private final String vendorId;
+    private final String accountId;
+    private final String ratePlanId;
+
+    @JsonCreator
+    public RatePlanResult(@JsonProperty("item") String item,
+                          @JsonProperty("found") boolean found,
+                          @JsonProperty("numberId") UUID numberId,
+                          @JsonProperty("vendorId") String vendorId,
+                          @JsonProperty("accountId") String accountId,
+                          @JsonProperty("ratePlanId") String ratePlanId) {
+        this.item = item;
+        this.found = found;
+        this.numberId = numberId;
+        this.vendorId = vendorId;
+        this.accountId = accountId;
+        this.ratePlanId = ratePlanId;
+    }
+
+    public String getItem() {
+        return item;
+    }
+
+    /**
+     * @return whether the item matched a number, a number without a rate plan has a null rate plan id
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    public UUID getNumberId() {
+        return numberId;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getRatePlanId() {
+        return ratePlanId;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("item", this.item)
+                .append("found", this.found)
+                .append("numberId", this.numberId)
+                .append("vendorId", this.vendorId)
+                .append("accountId", this.accountId)
+                .append("ratePlanId", this.ratePlanId)
+                .toString();
+    }
+}
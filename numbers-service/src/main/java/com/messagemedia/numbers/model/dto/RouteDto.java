@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RouteDto {
+
+    private final String phoneNumber;
+    private final String vendorId;
+    private final String accountId;
+    private final String callbackUrl;
+    private final boolean dedicatedReceiver;
+
+    @JsonCreator
+    public RouteDto(@JsonProperty("phoneNumber") String phoneNumber,
+                    @JsonProperty("vendorId") String vendorId,
+                    @JsonProperty("accountId") String accountId,
+                    @JsonProperty("callbackUrl") String callbackUrl,
+                    @JsonProperty("dedicatedReceiver") boolean dedicatedReceiver) {
+        this.phoneNumber = phoneNumber;
+        this.vendorId = vendorId;
+        this.accountId = accountId;
+        this.callbackUrl = callbackUrl;
+        this.dedicatedReceiver = dedicatedReceiver;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getCallbackUrl() {
+        return callbackUrl;
+    }
+
+    public boolean isDedicatedReceiver() {
+        return dedicatedReceiver;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("phoneNumber", this.phoneNumber)
+                .append("vendorId", this.vendorId)
+                .append("accountId", this.accountId)
+                .append("callbackUrl", this.callbackUrl)
+                .append("dedicatedReceiver", this.dedicatedReceiver)
+                .toString();
+    }
+}
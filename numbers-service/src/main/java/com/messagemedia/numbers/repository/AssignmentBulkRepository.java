@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.service.client.models.UpdateAssignmentRequest;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface AssignmentBulkRepository {
+
+    /**
+     * Soft deletes the given assignments and makes their numbers available after {@code availableAfter} with one
+     * statement per table. Envers does not see SQL it did not write, so the changes are recorded in the history tables
+     * under one new revision, the same rows Envers writes for {@code disassociateAssignment}.
+     */
+    void unassignAll(Collection<UUID> assignmentIds, Collection<UUID> numberIds, OffsetDateTime availableAfter, OffsetDateTime now);
+
+    /**
+     * Moves the given assignments to {@code accountId} of the same vendor, keeping their callback url, metadata and
+     * label: each is soft deleted and copied to a new assignment with the id at the same position of
+     * {@code newAssignmentIds}. Recorded in the history tables like {@link #unassignAll}.
+     */
+    void reassignAll(List<UUID> assignmentIds, List<UUID> newAssignmentIds, String accountId, OffsetDateTime now);
+
+    /**
+     * Applies the fields set in {@code patch} to the given assignments with one statement, the same change
+     * {@code NumbersService.updateAssignment} makes to one. Recorded in the history tables like {@link #unassignAll}.
+     */
+    void updateAll(Collection<UUID> assignmentIds, UpdateAssignmentRequest patch, OffsetDateTime now);
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.service.client.models.UpdateAssignmentRequest;
+import org.hibernate.envers.RevisionType;
+import org.postgresql.util.HStoreConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.repository.search.NumberSearchCompiler.toArrayLiteral;
+
+public class AssignmentBulkRepositoryImpl implements AssignmentBulkRepository {
+
+    private static final String DELETE_ASSIGNMENTS = "UPDATE assignment SET deleted = ? "
+            + "WHERE id = ANY(CAST(? AS uuid[])) AND deleted IS NULL";
+
+    // same changes as NumbersService.disassociateAssignment, US toll free numbers also lose their status
+    private static final String RELEASE_NUMBERS = "UPDATE number SET availableafter = ?, dedicatedreceiver = false, updated = ?, "
+            + "status = CASE WHEN country = 'US' AND type = 'TOLL_FREE' THEN NULL ELSE status END "
+            + "WHERE id = ANY(CAST(? AS uuid[]))";
+
+    // same as NumberEntity.setLastAssignee, for the numbers of the given assignments
+    private static final String RECORD_LAST_ASSIGNEES = "UPDATE number n SET lastvendorid = a.vendorid, lastaccountid = a.accountid "
+            + "FROM assignment a WHERE a.numberid = n.id AND a.id = ANY(CAST(? AS uuid[]))";
+
+    // Envers takes revision numbers from hibernate_sequence
+    static final String INSERT_REVISION = "INSERT INTO revinfo (rev, revtstmp) VALUES (nextval('hibernate_sequence'), ?) RETURNING rev";
+
+    private static final String AUDIT_ASSIGNMENTS = "INSERT INTO assignment_history "
+            + "(id, numberid, vendorid, accountid, created, callbackurl, externalmetadata, label, rev, revtype) "
+            + "SELECT id, numberid, vendorid, accountid, created, callbackurl, externalmetadata, label, ?, ? "
+            + "FROM assignment WHERE id = ANY(CAST(? AS uuid[]))";
+
+    private static final String COPY_ASSIGNMENTS = "INSERT INTO assignment "
+            + "(id, numberid, vendorid, accountid, callbackurl, externalmetadata, label, created) "
+            + "SELECT m.newid, a.numberid, a.vendorid, ?, a.callbackurl, a.externalmetadata, a.label, ? "
+            + "FROM assignment a JOIN unnest(CAST(? AS uuid[]), CAST(? AS uuid[])) AS m(oldid, newid) ON a.id = m.oldid";
+
+    static final String AUDIT_NUMBERS = "INSERT INTO number_history "
+            + "(id, phonenumber, providerid, country, type, classification, capabilities, created, updated, availableafter, "
+            + "dedicatedreceiver, status, rev, revtype) "
+            + "SELECT id, phonenumber, providerid, country, type, classification, capabilities, created, updated, availableafter, "
+            + "dedicatedreceiver, status, ?, ? "
+            + "FROM number WHERE id = ANY(CAST(? AS uuid[]))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public AssignmentBulkRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void unassignAll(Collection<UUID> assignmentIds, Collection<UUID> numberIds, OffsetDateTime availableAfter, OffsetDateTime now) {
+        String assignments = toArrayLiteral(assignmentIds);
+        String numbers = toArrayLiteral(numberIds);
+        Timestamp timestamp = Timestamp.from(now.toInstant());
+
+        jdbcTemplate.update(DELETE_ASSIGNMENTS, timestamp, assignments);
+        jdbcTemplate.update(RELEASE_NUMBERS, Timestamp.from(availableAfter.toInstant()), timestamp, numbers);
+        jdbcTemplate.update(RECORD_LAST_ASSIGNEES, assignments);
+
+        Integer revision = jdbcTemplate.queryForObject(INSERT_REVISION, Integer.class, now.toInstant().toEpochMilli());
+        jdbcTemplate.update(AUDIT_ASSIGNMENTS, revision, RevisionType.DEL.getRepresentation(), assignments);
+        jdbcTemplate.update(AUDIT_NUMBERS, revision, RevisionType.MOD.getRepresentation(), numbers);
+    }
+
+    @Override
+    public void reassignAll(List<UUID> assignmentIds, List<UUID> newAssignmentIds, String accountId, OffsetDateTime now) {
+        String assignments = toArrayLiteral(assignmentIds);
+        String newAssignments = toArrayLiteral(newAssignmentIds);
+        Timestamp timestamp = Timestamp.from(now.toInstant());
+
+        jdbcTemplate.update(DELETE_ASSIGNMENTS, timestamp, assignments);
+        jdbcTemplate.update(COPY_ASSIGNMENTS, accountId, timestamp, assignments, newAssignments);
+        jdbcTemplate.update(RECORD_LAST_ASSIGNEES, newAssignments);
+
+        Integer revision = jdbcTemplate.queryForObject(INSERT_REVISION, Integer.class, now.toInstant().toEpochMilli());
+        jdbcTemplate.update(AUDIT_ASSIGNMENTS, revision, RevisionType.DEL.getRepresentation(), assignments);
+        jdbcTemplate.update(AUDIT_ASSIGNMENTS, revision, RevisionType.ADD.getRepresentation(), newAssignments);
+    }
+
+    @Override
+    public void updateAll(Collection<UUID> assignmentIds, UpdateAssignmentRequest patch, OffsetDateTime now) {
+        List<String> columns = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        if (patch.getCallbackUrl() != null) {
+            columns.add("callbackurl = ?");
+            values.add(patch.getCallbackUrl().get());
+        }
+        if (patch.getMetadata() != null) {
+            columns.add("externalmetadata = CAST(? AS hstore)");
+            values.add(patch.getMetadata().get() == null ? null : HStoreConverter.toString(patch.getMetadata().get()));
+        }
+        if (patch.getLabel() != null) {
+            columns.add("label = ?");
+            values.add(patch.getLabel().get());
+        }
+        String assignments = toArrayLiteral(assignmentIds);
+        values.add(assignments);
+        jdbcTemplate.update("UPDATE assignment SET " + String.join(", ", columns) + " WHERE id = ANY(CAST(? AS uuid[]))",
+                values.toArray());
+
+        Integer revision = jdbcTemplate.queryForObject(INSERT_REVISION, Integer.class, now.toInstant().toEpochMilli());
+        jdbcTemplate.update(AUDIT_ASSIGNMENTS, revision, RevisionType.MOD.getRepresentation(), assignments);
+    }
+}
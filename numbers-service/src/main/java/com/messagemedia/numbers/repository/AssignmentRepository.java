@@ -9,12 +9,52 @@
 package com.messagemedia.numbers.repository;
 
 import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface AssignmentRepository extends JpaRepository<AssignmentEntity, UUID> {
+public interface AssignmentRepository extends JpaRepository<AssignmentEntity, UUID>, AssignmentBulkRepository {
+
+    /**
+     * Streams every active assignment as [phoneNumber, vendorId, accountId, callbackUrl, dedicatedReceiver].
+     * Must be consumed inside a transaction so the driver can use a cursor.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "5000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select n.phoneNumber, a.vendorId, a.accountId, a.callbackUrl, n.dedicatedReceiver from AssignmentEntity a join a.numberEntity n")
+    Stream<Object[]> streamActiveRoutes();
+
+    /**
+     * The active assignments of the given phone numbers, in the shape of {@link #streamActiveRoutes()}. A phone number
+     * without one is not assigned or no longer exists.
+     */
+    @Query("select n.phoneNumber, a.vendorId, a.accountId, a.callbackUrl, n.dedicatedReceiver from AssignmentEntity a join a.numberEntity n "
+            + "where n.phoneNumber in :phoneNumbers")
+    List<Object[]> findActiveRoutes(@Param("phoneNumbers") Collection<String> phoneNumbers);
+
+    /**
+     * The first page of the ids of the numbers assigned to the account, in id order.
+     */
+    @Query("select a.numberId from AssignmentEntity a where a.vendorId = :vendorId and a.accountId = :accountId order by a.numberId")
+    List<UUID> findNumberIdsByAccount(@Param("vendorId") String vendorId, @Param("accountId") String accountId, Pageable pageable);
 
+    /**
+     * The page of the ids of the numbers assigned to the account which follows {@code after}, in id order.
+     */
+    @Query("select a.numberId from AssignmentEntity a where a.vendorId = :vendorId and a.accountId = :accountId and a.numberId > :after "
+            + "order by a.numberId")
+    List<UUID> findNumberIdsByAccountAfter(@Param("vendorId") String vendorId, @Param("accountId") String accountId,
+                                           @Param("after") UUID after, Pageable pageable);
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.entities.BillingNotificationAction;
+import com.messagemedia.numbers.repository.projections.BillingNotification;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface BillingNotificationQueueRepository {
+
+    /**
+     * Queues the notifications, due at the given time. A notification equal to a queued one, by account, rate plan,
+     * number and action, replaces it and is sent after the other notifications of its number instead. A leased one is
+     * not replaced, it may be on its way already, the equal notification is queued behind it. The ids of the given
+     * notifications are ignored.
+     *
+     * @return the ids of the queued notifications
+     */
+    List<Long> enqueue(List<BillingNotification> notifications, OffsetDateTime now, OffsetDateTime due);
+
+    /**
+     * Deletes the notifications of the account with the given action for any of the numbers which are still held,
+     * that is not due yet, never attempted and not leased.
+     *
+     * @return the numbers whose notifications were deleted
+     */
+    List<UUID> deleteHeld(String vendorId, String accountId, BillingNotificationAction action, Collection<UUID> numberIds,
+                          OffsetDateTime now);
+
+    /**
+     * Leases those of the notifications which are due and the oldest pending notification of their number until the
+     * given time, when they are due again unless an outcome was recorded. Rows another worker is claiming are skipped
+     * rather than waited for. The claim is a single statement, the notifications are sent after it has committed.
+     */
+    List<BillingNotification> claim(Collection<Long> ids, OffsetDateTime now, OffsetDateTime lease);
+
+    /**
+     * Leases up to {@code limit} due notifications like {@link #claim(Collection, OffsetDateTime, OffsetDateTime)}
+     * does, ordered by seq.
+     */
+    List<BillingNotification> claimDue(int limit, OffsetDateTime now, OffsetDateTime lease);
+
+    /**
+     * Deletes the notification unless its lease has run out and it was claimed again or queued again since.
+     */
+    void deleteNotification(long id, OffsetDateTime lease);
+
+    /**
+     * Counts a failed attempt and keeps the notification until the given time, if the lease still holds. It is dropped
+     * instead when an equal notification was queued while it was leased.
+     */
+    void reschedule(long id, OffsetDateTime lease, OffsetDateTime nextAttempt, String error);
+
+    /**
+     * Counts a failed attempt and keeps the notification without sending it again until it is replayed, if the lease
+     * still holds. It is dropped instead when an equal notification was queued while it was leased.
+     */
+    void park(long id, OffsetDateTime lease, String error);
+
+    /**
+     * Makes the parked notifications, of one account when the vendor and account are given, due again with their
+     * attempts reset.
+     *
+     * @return the number of notifications replayed
+     */
+    int replayParked(String vendorId, String accountId, OffsetDateTime now);
+
+    /**
+     * Makes every pending notification which is waiting for a retry, and not leased, due at the given time.
+     */
+    void makeDue(OffsetDateTime now);
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.entities.BillingNotificationAction;
+import com.messagemedia.numbers.repository.projections.BillingNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.repository.search.NumberSearchCompiler.toArrayLiteral;
+
+public class BillingNotificationQueueRepositoryImpl implements BillingNotificationQueueRepository {
+
+    private static final String COLUMNS = "q.id, q.vendorid, q.accountid, q.rateplanid, q.numberid, q.action, q.attempts";
+
+    // a parked notification does not hold back the later notifications of its number
+    private static final String OLDEST_OF_NUMBER = "NOT q.parked "
+            + "AND NOT EXISTS (SELECT 1 FROM billing_notification_queue p WHERE p.numberid = q.numberid AND NOT p.parked AND p.seq < q.seq) ";
+
+    // the key only covers unleased rows, a leased notification may be on its way already so an equal one queued meanwhile
+    // is a new row sent after it
+    private static final String UNLEASED_KEY = "ON CONFLICT (vendorid, accountid, rateplanid, numberid, action) WHERE leaseduntil IS NULL ";
+
+    private static final String ENQUEUE = "INSERT INTO billing_notification_queue "
+            + "(vendorid, accountid, rateplanid, numberid, action, created, nextattempt) VALUES (?, ?, ?, ?, ?, ?, ?) "
+            + UNLEASED_KEY + "DO UPDATE SET "
+            + "seq = nextval('billing_notification_seq'), attempts = 0, nextattempt = EXCLUDED.nextattempt, parked = FALSE, "
+            + "lasterror = NULL "
+            + "RETURNING id";
+
+    // a failed notification gives up its lease by being moved back under the key, unless an equal one was queued while it
+    // was leased, which replaces it
+    private static final String RELEASE = "WITH released AS (DELETE FROM billing_notification_queue WHERE id = ? AND leaseduntil = ? "
+            + "RETURNING *) "
+            + "INSERT INTO billing_notification_queue "
+            + "(id, seq, vendorid, accountid, rateplanid, numberid, action, created, attempts, nextattempt, parked, lasterror) "
+            + "SELECT id, seq, vendorid, accountid, rateplanid, numberid, action, created, attempts + 1, %s, %s, ? FROM released "
+            + UNLEASED_KEY + "DO NOTHING";
+
+    private static final String RESCHEDULE = String.format(RELEASE, "CAST(? AS timestamptz)", "parked");
+
+    private static final String PARK = String.format(RELEASE, "nextattempt", "TRUE");
+
+    // the claimed rows are due again once the lease runs out, and hold back the later notifications of their numbers until then
+    private static final String LEASE = "leased AS (UPDATE billing_notification_queue q SET nextattempt = ?, leaseduntil = ? "
+            + "FROM claimed c WHERE q.id = c.id RETURNING q.seq, " + COLUMNS + ") "
+            + "SELECT id, vendorid, accountid, rateplanid, numberid, action, attempts FROM leased ORDER BY seq";
+
+    private static final String CLAIM = "WITH claimed AS (SELECT q.id FROM billing_notification_queue q "
+            + "WHERE q.id = ANY(CAST(? AS bigint[])) AND q.nextattempt <= ? AND " + OLDEST_OF_NUMBER
+            + "FOR UPDATE SKIP LOCKED), " + LEASE;
+
+    private static final String CLAIM_DUE = "WITH claimed AS (SELECT q.id FROM billing_notification_queue q "
+            + "WHERE q.nextattempt <= ? AND " + OLDEST_OF_NUMBER
+            + "ORDER BY q.seq LIMIT ? FOR UPDATE SKIP LOCKED), " + LEASE;
+
+    private static final RowMapper<BillingNotification> NOTIFICATION_MAPPER = (rs, rowNum) -> new BillingNotification(rs.getLong("id"),
+            rs.getString("vendorid"), rs.getString("accountid"), rs.getString("rateplanid"), (UUID) rs.getObject("numberid"),
+            BillingNotificationAction.valueOf(rs.getString("action")), rs.getInt("attempts"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BillingNotificationQueueRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Long> enqueue(List<BillingNotification> notifications, OffsetDateTime now, OffsetDateTime due) {
+        Timestamp created = Timestamp.from(now.toInstant());
+        Timestamp nextAttempt = Timestamp.from(due.toInstant());
+        // one statement per notification, a multi row upsert fails when two of its rows conflict with each other
+        List<Long> ids = new ArrayList<>(notifications.size());
+        for (BillingNotification notification : notifications) {
+            ids.add(jdbcTemplate.queryForObject(ENQUEUE, Long.class, notification.getVendorId(), notification.getAccountId(),
+                    notification.getRatePlanId(), notification.getNumberId(), notification.getAction().name(), created, nextAttempt));
+        }
+        return ids;
+    }
+
+    @Override
+    public List<UUID> deleteHeld(String vendorId, String accountId, BillingNotificationAction action, Collection<UUID> numberIds,
+                                 OffsetDateTime now) {
+        return jdbcTemplate.query("DELETE FROM billing_notification_queue "
+                        + "WHERE vendorid = ? AND accountid = ? AND action = ? AND numberid = ANY(CAST(? AS uuid[])) "
+                        + "AND attempts = 0 AND NOT parked AND leaseduntil IS NULL AND nextattempt > ? RETURNING numberid",
+                (rs, rowNum) -> (UUID) rs.getObject("numberid"),
+                vendorId, accountId, action.name(), toArrayLiteral(numberIds), Timestamp.from(now.toInstant()));
+    }
+
+    @Override
+    public List<BillingNotification> claim(Collection<Long> ids, OffsetDateTime now, OffsetDateTime lease) {
+        Timestamp leasedUntil = Timestamp.from(lease.toInstant());
+        return jdbcTemplate.query(CLAIM, NOTIFICATION_MAPPER, toArrayLiteral(ids), Timestamp.from(now.toInstant()),
+                leasedUntil, leasedUntil);
+    }
+
+    @Override
+    public List<BillingNotification> claimDue(int limit, OffsetDateTime now, OffsetDateTime lease) {
+        Timestamp leasedUntil = Timestamp.from(lease.toInstant());
+        return jdbcTemplate.query(CLAIM_DUE, NOTIFICATION_MAPPER, Timestamp.from(now.toInstant()), limit, leasedUntil, leasedUntil);
+    }
+
+    @Override
+    public void deleteNotification(long id, OffsetDateTime lease) {
+        jdbcTemplate.update("DELETE FROM billing_notification_queue WHERE id = ? AND leaseduntil = ?", id, Timestamp.from(lease.toInstant()));
+    }
+
+    @Override
+    public void reschedule(long id, OffsetDateTime lease, OffsetDateTime nextAttempt, String error) {
+        jdbcTemplate.update(RESCHEDULE, id, Timestamp.from(lease.toInstant()), Timestamp.from(nextAttempt.toInstant()), error);
+    }
+
+    @Override
+    public void park(long id, OffsetDateTime lease, String error) {
+        jdbcTemplate.update(PARK, id, Timestamp.from(lease.toInstant()), error);
+    }
+
+    @Override
+    public int replayParked(String vendorId, String accountId, OffsetDateTime now) {
+        return jdbcTemplate.update("UPDATE billing_notification_queue SET parked = FALSE, attempts = 0, nextattempt = ? "
+                        + "WHERE parked AND (CAST(? AS varchar) IS NULL OR vendorid = ?) AND (CAST(? AS varchar) IS NULL OR accountid = ?)",
+                Timestamp.from(now.toInstant()), vendorId, vendorId, accountId, accountId);
+    }
+
+    @Override
+    public void makeDue(OffsetDateTime now) {
+        Timestamp timestamp = Timestamp.from(now.toInstant());
+        jdbcTemplate.update("UPDATE billing_notification_queue SET nextattempt = ? WHERE NOT parked AND leaseduntil IS NULL AND nextattempt > ?",
+                timestamp, timestamp);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.entities.BulkJobEntity;
+import com.messagemedia.numbers.repository.entities.BulkJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface BulkJobRepository extends JpaRepository<BulkJobEntity, UUID>, BulkJobRowRepository {
+
+    String QUEUED = "com.messagemedia.numbers.repository.entities.BulkJobStatus.QUEUED";
+    String RUNNING = "com.messagemedia.numbers.repository.entities.BulkJobStatus.RUNNING";
+    String CLAIMABLE = "(j.status = " + QUEUED + " or (j.status = " + RUNNING + " and (j.heartbeat is null or j.heartbeat < :staleBefore)))";
+
+    /**
+     * Selects the jobs which are queued, or running without a heartbeat since {@code staleBefore}, oldest first.
+     */
+    @Query("select j.id from BulkJobEntity j where " + CLAIMABLE + " order by j.created")
+    List<UUID> findClaimable(@Param("staleBefore") OffsetDateTime staleBefore);
+
+    /**
+     * Starts the job, or takes it over when its owner has not sent a heartbeat since {@code staleBefore}, so only one
+     * instance runs it.
+     *
+     * @return 1 when the job was claimed, 0 otherwise
+     */
+    @Modifying
+    @Query("update BulkJobEntity j set j.status = " + RUNNING + ", j.owner = :owner, j.heartbeat = :now, j.updated = :now "
+            + "where j.id = :id and " + CLAIMABLE)
+    int claim(@Param("id") UUID id, @Param("owner") String owner, @Param("now") OffsetDateTime now,
+              @Param("staleBefore") OffsetDateTime staleBefore);
+
+    /**
+     * Renews the lease of the running jobs of the owner.
+     */
+    @Modifying
+    @Query("update BulkJobEntity j set j.heartbeat = :now where j.owner = :owner and j.status = " + RUNNING)
+    int heartbeat(@Param("owner") String owner, @Param("now") OffsetDateTime now);
+
+    /**
+     * Gives up the lease of a running job, so another instance resumes it straight away.
+     */
+    @Modifying
+    @Query("update BulkJobEntity j set j.heartbeat = null where j.id = :id and j.owner = :owner and j.status = " + RUNNING)
+    int release(@Param("id") UUID id, @Param("owner") String owner);
+
+    @Modifying
+    @Query("update BulkJobEntity j set j.status = :to, j.updated = :now, j.completed = :now "
+            + "where j.id = :id and j.owner = :owner and j.status = " + RUNNING)
+    int complete(@Param("id") UUID id, @Param("owner") String owner, @Param("to") BulkJobStatus to,
+                 @Param("now") OffsetDateTime now);
+
+    /**
+     * Adds the outcomes of a processed chunk to the counters of the job, in the transaction of the chunk. Updates
+     * nothing once another instance has taken the job over, so the chunk can be rolled back.
+     */
+    @Modifying
+    @Query("update BulkJobEntity j set j.succeeded = j.succeeded + :succeeded, j.failed = j.failed + :failed, j.updated = :now "
+            + "where j.id = :id and j.owner = :owner")
+    int addProgress(@Param("id") UUID id, @Param("owner") String owner, @Param("succeeded") int succeeded,
+                    @Param("failed") int failed, @Param("now") OffsetDateTime now);
+}
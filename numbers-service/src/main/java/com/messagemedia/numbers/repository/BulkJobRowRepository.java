@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.entities.BulkJobRowStatus;
+import com.messagemedia.numbers.repository.projections.BulkJobRow;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface BulkJobRowRepository {
+
+    /**
+     * Inserts the rows of a new job with JDBC batches.
+     */
+    void insertRows(UUID jobId, List<BulkJobRow> rows);
+
+    /**
+     * Selects the rows from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive) which have not been processed
+     * yet, ordered by index.
+     */
+    List<BulkJobRow> findPendingRows(UUID jobId, int fromIndex, int toIndex);
+
+    /**
+     * Stores the status and message of the given processed rows.
+     */
+    void updateOutcomes(UUID jobId, List<BulkJobRow> rows);
+
+    /**
+     * Selects up to {@code limit} rows from {@code fromIndex} on, ordered by index and optionally only those with the
+     * given status.
+     */
+    List<BulkJobRow> findRows(UUID jobId, BulkJobRowStatus status, int fromIndex, int limit);
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.entities.BulkJobRowStatus;
+import com.messagemedia.numbers.repository.projections.BulkJobRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.stream.Collectors.toList;
+
+public class BulkJobRowRepositoryImpl implements BulkJobRowRepository {
+
+    private static final String SELECT = "SELECT rowindex, item, payload, status, message FROM bulk_job_row ";
+
+    private static final RowMapper<BulkJobRow> ROW_MAPPER = (rs, rowNum) -> new BulkJobRow(rs.getInt("rowindex"),
+            rs.getString("item"), rs.getString("payload"), BulkJobRowStatus.valueOf(rs.getString("status")), rs.getString("message"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BulkJobRowRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertRows(UUID jobId, List<BulkJobRow> rows) {
+        jdbcTemplate.batchUpdate("INSERT INTO bulk_job_row (jobid, rowindex, item, payload, status, message) VALUES (?, ?, ?, ?, ?, ?)",
+                rows.stream()
+                        .map(row -> new Object[]{jobId, row.getRowIndex(), row.getItem(), row.getPayload(), row.getStatus().name(), row.getMessage()})
+                        .collect(toList()));
+    }
+
+    @Override
+    public List<BulkJobRow> findPendingRows(UUID jobId, int fromIndex, int toIndex) {
+        return jdbcTemplate.query(SELECT + "WHERE jobid = ? AND rowindex >= ? AND rowindex < ? AND status = ? ORDER BY rowindex",
+                ROW_MAPPER, jobId, fromIndex, toIndex, BulkJobRowStatus.PENDING.name());
+    }
+
+    @Override
+    public void updateOutcomes(UUID jobId, List<BulkJobRow> rows) {
+        jdbcTemplate.batchUpdate("UPDATE bulk_job_row SET status = ?, message = ? WHERE jobid = ? AND rowindex = ?",
+                rows.stream()
+                        .map(row -> new Object[]{row.getStatus().name(), row.getMessage(), jobId, row.getRowIndex()})
+                        .collect(toList()));
+    }
+
+    @Override
+    public List<BulkJobRow> findRows(UUID jobId, BulkJobRowStatus status, int fromIndex, int limit) {
+        if (status == null) {
+            return jdbcTemplate.query(SELECT + "WHERE jobid = ? AND rowindex >= ? ORDER BY rowindex LIMIT ?",
+                    ROW_MAPPER, jobId, fromIndex, limit);
+        }
+        return jdbcTemplate.query(SELECT + "WHERE jobid = ? AND rowindex >= ? AND status = ? ORDER BY rowindex LIMIT ?",
+                ROW_MAPPER, jobId, fromIndex, status.name(), limit);
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.service.client.models.UpdateNumberRequest;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+public interface NumberBulkRepository {
+
+    /**
+     * Applies the fields set in {@code patch} to the given numbers with one statement, the same change
+     * {@code NumbersService.updateNumber} makes to one, so the numbers must already have been checked against it.
+     * Envers does not see SQL it did not write, so the numbers are recorded in the history table under one new revision.
+     */
+    void updateAll(Collection<UUID> numberIds, UpdateNumberRequest patch, OffsetDateTime now);
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.service.client.models.Status;
+import com.messagemedia.numbers.service.client.models.UpdateNumberRequest;
+import org.hibernate.envers.RevisionType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.repository.AssignmentBulkRepositoryImpl.AUDIT_NUMBERS;
+import static com.messagemedia.numbers.repository.AssignmentBulkRepositoryImpl.INSERT_REVISION;
+import static com.messagemedia.numbers.repository.search.NumberSearchCompiler.toArrayLiteral;
+
+public class NumberBulkRepositoryImpl implements NumberBulkRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public NumberBulkRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void updateAll(Collection<UUID> numberIds, UpdateNumberRequest patch, OffsetDateTime now) {
+        List<String> columns = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        if (patch.getAvailableAfter() != null) {
+            OffsetDateTime availableAfter = patch.getAvailableAfter().get();
+            columns.add("availableafter = ?");
+            values.add(availableAfter == null ? null : Timestamp.from(availableAfter.toInstant()));
+        } else if (patch.hasStatus() && (patch.getStatus() == Status.UNVERIFIED || patch.getStatus() == Status.ASSIGNED)) {
+            // as NumbersService.updateTollFreeNumberStatus, these statuses are only valid for assigned numbers
+            columns.add("availableafter = NULL");
+        }
+        if (patch.getClassification() != null) {
+            columns.add("classification = CAST(? AS classification)");
+            values.add(patch.getClassification().name());
+        }
+        if (patch.getCapabilities() != null) {
+            // capabilitiesmask follows through trg_number_capabilities_mask
+            columns.add("capabilities = CAST(? AS service_type[])");
+            values.add(toArrayLiteral(patch.getCapabilities()));
+        }
+        if (patch.getDedicatedReceiver() != null) {
+            columns.add("dedicatedreceiver = ?");
+            values.add(patch.getDedicatedReceiver());
+        }
+        if (patch.getProviderId() != null) {
+            columns.add("providerid = ?");
+            values.add(patch.getProviderId());
+        }
+        if (patch.hasStatus()) {
+            columns.add("status = CAST(? AS status)");
+            values.add(patch.getStatus() == null ? null : patch.getStatus().name());
+        }
+        columns.add("updated = ?");
+        values.add(Timestamp.from(now.toInstant()));
+        String numbers = toArrayLiteral(numberIds);
+        values.add(numbers);
+        jdbcTemplate.update("UPDATE number SET " + String.join(", ", columns) + " WHERE id = ANY(CAST(? AS uuid[]))",
+                values.toArray());
+
+        Integer revision = jdbcTemplate.queryForObject(INSERT_REVISION, Integer.class, now.toInstant().toEpochMilli());
+        jdbcTemplate.update(AUDIT_NUMBERS, revision, RevisionType.MOD.getRepresentation(), numbers);
+    }
+}
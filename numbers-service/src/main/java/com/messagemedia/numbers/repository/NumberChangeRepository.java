@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.projections.NumberChange;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface NumberChangeRepository {
+
+    /**
+     * @return the current transaction snapshot, which tells the transactions committed by now from the ones still
+     * running
+     */
+    String findChangeSnapshot();
+
+    /**
+     * Selects the distinct changes committed since the given snapshot was taken. Changes of transactions which are still
+     * running show up in a later call from the same snapshot.
+     */
+    List<NumberChange> findChangesSince(String snapshot);
+
+    /**
+     * @return the number of changes deleted
+     */
+    int deleteChangesBefore(OffsetDateTime created);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.projections.NumberChange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public class NumberChangeRepositoryImpl implements NumberChangeRepository {
+
+    // transaction ids are handed out when a transaction starts but its changes show once it commits, so the changes are
+    // the ones of the transactions which were running or not started yet when the snapshot was taken
+    private static final String CHANGES_SINCE = "SELECT DISTINCT numberid, phonenumber FROM number_change "
+            + "WHERE txid >= txid_snapshot_xmin(CAST(? AS txid_snapshot)) "
+            + "AND NOT txid_visible_in_snapshot(txid, CAST(? AS txid_snapshot))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public NumberChangeRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public String findChangeSnapshot() {
+        return jdbcTemplate.queryForObject("SELECT CAST(txid_current_snapshot() AS text)", String.class);
+    }
+
+    @Override
+    public List<NumberChange> findChangesSince(String snapshot) {
+        return jdbcTemplate.query(CHANGES_SINCE,
+                (rs, rowNum) -> new NumberChange((UUID) rs.getObject("numberid"), rs.getString("phonenumber")), snapshot, snapshot);
+    }
+
+    @Override
+    public int deleteChangesBefore(OffsetDateTime created) {
+        return jdbcTemplate.update("DELETE FROM number_change WHERE created < ?", Timestamp.from(created.toInstant()));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.entities.NumberImportEntity;
+import com.messagemedia.numbers.repository.entities.NumberImportStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface NumberImportRepository extends JpaRepository<NumberImportEntity, UUID>, NumberImportStagingRepository {
+
+    /**
+     * Moves the import from one status to another, so only one caller wins a transition.
+     *
+     * @return 1 when the import was in the {@code from} status, 0 otherwise
+     */
+    @Modifying
+    @Query("update NumberImportEntity i set i.status = :to, i.updated = :now where i.id = :id and i.status = :from")
+    int updateStatus(@Param("id") UUID id, @Param("from") NumberImportStatus from, @Param("to") NumberImportStatus to,
+                     @Param("now") OffsetDateTime now);
+
+    /**
+     * Stores the counters of an import which is being staged, they only ever grow so they are written as they are.
+     */
+    @Modifying
+    @Query("update NumberImportEntity i set i.total = :total, i.existing = :existing, i.staged = :staged, i.rejected = :rejected, "
+            + "i.updated = :now where i.id = :id")
+    int updateProgress(@Param("id") UUID id, @Param("total") long total, @Param("existing") long existing,
+                       @Param("staged") long staged, @Param("rejected") long rejected, @Param("now") OffsetDateTime now);
+
+    @Modifying
+    @Query("update NumberImportEntity i set i.status = :to, i.imported = :imported, i.message = :message, i.updated = :now, "
+            + "i.completed = :now where i.id = :id and i.status = :from")
+    int complete(@Param("id") UUID id, @Param("from") NumberImportStatus from, @Param("to") NumberImportStatus to,
+                 @Param("imported") long imported, @Param("message") String message, @Param("now") OffsetDateTime now);
+
+    /**
+     * Selects the imports in one of the given statuses whose owner has not sent a heartbeat since {@code staleBefore}.
+     */
+    @Query("select i from NumberImportEntity i where i.status in :statuses and (i.heartbeat is null or i.heartbeat < :staleBefore)")
+    List<NumberImportEntity> findAbandoned(@Param("statuses") Collection<NumberImportStatus> statuses,
+                                           @Param("staleBefore") OffsetDateTime staleBefore);
+
+    /**
+     * Renews the lease of the imports of the owner which are in one of the given statuses.
+     */
+    @Modifying
+    @Query("update NumberImportEntity i set i.heartbeat = :now where i.owner = :owner and i.status in :statuses")
+    int heartbeat(@Param("owner") String owner, @Param("statuses") Collection<NumberImportStatus> statuses,
+                  @Param("now") OffsetDateTime now);
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.projections.NumberImportRejection;
+import com.messagemedia.numbers.repository.projections.NumberImportRow;
+import com.messagemedia.numbers.repository.projections.NumberView;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public interface NumberImportStagingRepository {
+
+    /**
+     * Counts the phone numbers of the numbers which are not deleted.
+     */
+    long countPhoneNumbers();
+
+    /**
+     * Reads the phone number of every number which is not deleted with a cursor, so it must be called inside a
+     * transaction.
+     */
+    void forEachPhoneNumber(Consumer<String> consumer);
+
+    /**
+     * Opens a COPY into {@code NUMBER_IMPORT_STAGING} on a connection of its own, outside of any transaction, so the
+     * rows are streamed to the database as they are written and nothing is kept on the heap.
+     */
+    StagingCopy openStagingCopy(UUID importId);
+
+    /**
+     * Inserts the staged rows of the import into {@code NUMBER} with one statement, the first line wins when a phone
+     * number is staged more than once and phone numbers which are registered by then are skipped. Envers does not see
+     * SQL it did not write, so the new numbers are recorded in the history table under one new revision.
+     *
+     * @return the number of numbers inserted
+     */
+    long mergeStaged(UUID importId, OffsetDateTime now);
+
+    /**
+     * Reads the numbers the staged rows of the import were merged into with a cursor, so it must be called inside the
+     * transaction of the merge, before the staged rows are deleted.
+     */
+    void forEachMerged(UUID importId, Consumer<NumberView> consumer);
+
+    void deleteStaged(UUID importId);
+
+    void insertRejections(UUID importId, List<NumberImportRejection> rejections);
+
+    /**
+     * Selects up to {@code limit} rejected lines from {@code fromLine} on, ordered by line number.
+     */
+    List<NumberImportRejection> findRejections(UUID importId, long fromLine, int limit);
+
+    interface StagingCopy extends AutoCloseable {
+
+        void write(NumberImportRow row);
+
+        /**
+         * Ends the COPY, which makes the rows visible.
+         *
+         * @return the number of rows copied
+         */
+        long finish();
+
+        /**
+         * Cancels the COPY when it has not been finished and releases the connection.
+         */
+        @Override
+        void close();
+    }
+}
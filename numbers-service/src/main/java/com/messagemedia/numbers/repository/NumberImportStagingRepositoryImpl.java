@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.projections.NumberImportRejection;
+import com.messagemedia.numbers.repository.projections.NumberImportRow;
+import com.messagemedia.numbers.repository.projections.NumberView;
+import com.messagemedia.numbers.repository.search.NumberSearchCompiler;
+import com.messagemedia.numbers.repository.search.NumberViewRowMapper;
+import com.messagemedia.numbers.service.client.models.ServiceType;
+import org.hibernate.envers.RevisionType;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static com.messagemedia.numbers.repository.AssignmentBulkRepositoryImpl.INSERT_REVISION;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+public class NumberImportStagingRepositoryImpl implements NumberImportStagingRepository {
+
+    private static final int FETCH_SIZE = 10000;
+    private static final int COPY_BUFFER_CHARS = 1 << 16;
+
+    private static final String SELECT_PHONE_NUMBERS = "SELECT phonenumber FROM number WHERE deleted IS NULL";
+
+    private static final String COPY_STAGING = "COPY number_import_staging "
+            + "(importid, linenumber, id, phonenumber, providerid, country, type, classification, capabilities, dedicatedreceiver) "
+            + "FROM STDIN WITH (FORMAT csv)";
+
+    // conflicts with uidx_phonenumber_deleted_partial are numbers registered since the import checked them
+    private static final String MERGE_STAGED = "WITH inserted AS ("
+            + "INSERT INTO number (id, phonenumber, providerid, country, type, classification, capabilities, created, updated, "
+            + "dedicatedreceiver) "
+            + "SELECT DISTINCT ON (phonenumber) id, phonenumber, providerid, country, type, classification, capabilities, ?, ?, "
+            + "dedicatedreceiver "
+            + "FROM number_import_staging WHERE importid = ? ORDER BY phonenumber, linenumber "
+            + "ON CONFLICT (phonenumber) WHERE deleted IS NULL DO NOTHING "
+            + "RETURNING id, phonenumber, providerid, country, type, classification, capabilities, created, updated, availableafter, "
+            + "dedicatedreceiver, status) "
+            + "INSERT INTO number_history "
+            + "(id, phonenumber, providerid, country, type, classification, capabilities, created, updated, availableafter, "
+            + "dedicatedreceiver, status, rev, revtype) "
+            + "SELECT id, phonenumber, providerid, country, type, classification, capabilities, created, updated, availableafter, "
+            + "dedicatedreceiver, status, ?, ? FROM inserted";
+
+    // the staged ids are new, so a staged row whose id is in NUMBER was inserted by the merge
+    private static final String SELECT_MERGED = NumberSearchCompiler.SELECT
+            + " JOIN number_import_staging s ON s.id = n.id"
+            + " LEFT JOIN assignment a ON a.numberid = n.id AND a.deleted IS NULL"
+            + " WHERE s.importid = ?";
+
+    private static final RowMapper<NumberImportRejection> REJECTION_MAPPER = (rs, rowNum) ->
+            new NumberImportRejection(rs.getLong("linenumber"), rs.getString("line"), rs.getString("reason"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public NumberImportStagingRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public long countPhoneNumbers() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM number WHERE deleted IS NULL", Long.class);
+    }
+
+    @Override
+    public void forEachPhoneNumber(Consumer<String> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_PHONE_NUMBERS);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getString(1)));
+    }
+
+    @Override
+    public StagingCopy openStagingCopy(UUID importId) {
+        Connection connection = DataSourceUtils.getConnection(jdbcTemplate.getDataSource());
+        try {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+            return new PgStagingCopy(importId, connection, copyIn);
+        } catch (SQLException e) {
+            DataSourceUtils.releaseConnection(connection, jdbcTemplate.getDataSource());
+            throw jdbcTemplate.getExceptionTranslator().translate("openStagingCopy", COPY_STAGING, e);
+        }
+    }
+
+    @Override
+    public long mergeStaged(UUID importId, OffsetDateTime now) {
+        Integer revision = jdbcTemplate.queryForObject(INSERT_REVISION, Integer.class, now.toInstant().toEpochMilli());
+        Timestamp timestamp = Timestamp.from(now.toInstant());
+        return jdbcTemplate.update(MERGE_STAGED, timestamp, timestamp, importId, revision, RevisionType.ADD.getRepresentation());
+    }
+
+    @Override
+    public void forEachMerged(UUID importId, Consumer<NumberView> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_MERGED);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setObject(1, importId);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(NumberViewRowMapper.INSTANCE.mapRow(rs, rs.getRow())));
+    }
+
+    @Override
+    public void deleteStaged(UUID importId) {
+        jdbcTemplate.update("DELETE FROM number_import_staging WHERE importid = ?", importId);
+    }
+
+    @Override
+    public void insertRejections(UUID importId, List<NumberImportRejection> rejections) {
+        jdbcTemplate.batchUpdate("INSERT INTO number_import_rejection (importid, linenumber, line, reason) VALUES (?, ?, ?, ?)",
+                rejections.stream()
+                        .map(rejection -> new Object[]{importId, rejection.getLineNumber(), rejection.getLine(), rejection.getReason()})
+                        .collect(toList()));
+    }
+
+    @Override
+    public List<NumberImportRejection> findRejections(UUID importId, long fromLine, int limit) {
+        return jdbcTemplate.query("SELECT linenumber, line, reason FROM number_import_rejection "
+                + "WHERE importid = ? AND linenumber >= ? ORDER BY linenumber LIMIT ?", REJECTION_MAPPER, importId, fromLine, limit);
+    }
+
+    /**
+     * Buffers rows as CSV and hands them to the driver in blocks of about {@link #COPY_BUFFER_CHARS} characters. Every
+     * value has been validated when the row was read, only the capabilities array needs quoting.
+     */
+    private final class PgStagingCopy implements StagingCopy {
+
+        private final String importId;
+        private final Connection connection;
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 256);
+
+        private PgStagingCopy(UUID importId, Connection connection, CopyIn copyIn) {
+            this.importId = importId.toString();
+            this.connection = connection;
+            this.copyIn = copyIn;
+        }
+
+        @Override
+        public void write(NumberImportRow row) {
+            buffer.append(importId).append(',')
+                    .append(row.getLineNumber()).append(',')
+                    .append(row.getId()).append(',')
+                    .append(row.getPhoneNumber()).append(',')
+                    .append(row.getProviderId()).append(',')
+                    .append(row.getCountry()).append(',')
+                    .append(row.getType().name()).append(',')
+                    .append(row.getClassification().name()).append(',')
+                    .append(row.getCapabilities().stream().map(ServiceType::name).collect(joining(",", "\"{", "}\""))).append(',')
+                    .append(row.isDedicatedReceiver()).append('\n');
+            if (buffer.length() >= COPY_BUFFER_CHARS) {
+                flush();
+            }
+        }
+
+        @Override
+        public long finish() {
+            flush();
+            try {
+                long copied = copyIn.endCopy();
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+                return copied;
+            } catch (SQLException e) {
+                throw jdbcTemplate.getExceptionTranslator().translate("finishStagingCopy", COPY_STAGING, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            } catch (SQLException e) {
+                throw jdbcTemplate.getExceptionTranslator().translate("cancelStagingCopy", COPY_STAGING, e);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, jdbcTemplate.getDataSource());
+            }
+        }
+
+        private void flush() {
+            if (buffer.length() == 0) {
+                return;
+            }
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            buffer.setLength(0);
+            try {
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+            } catch (SQLException e) {
+                throw jdbcTemplate.getExceptionTranslator().translate("writeStagingCopy", COPY_STAGING, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.projections.NumberView;
+import com.messagemedia.numbers.repository.search.CompiledSearch;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
+import com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest;
+import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public interface NumberViewRepository {
+
+    /**
+     * Selects up to {@code limit} numbers matching the request, ordered by id, straight into {@link NumberView}s. A null
+     * match mode treats the matching pattern as a regular expression.
+     */
+    List<NumberView> findViews(NumberSearchRequest request, PhoneNumberPattern.Mode matchMode, int limit);
+
+    /**
+     * Selects up to {@code limit} numbers assigned to the requested vendor accounts, ordered by id, straight into
+     * {@link NumberView}s.
+     */
+    List<NumberView> findViews(NumberAssignmentSearchRequest request, PhoneNumberPattern.Mode matchMode, int limit);
+
+    /**
+     * Selects the next {@code limit} numbers matching the request after {@code after} (from the start when null), for
+     * walking every match a chunk at a time.
+     *
+     * @return number id to the id of its assignment (null when unassigned), in id order
+     */
+    Map<UUID, UUID> findIds(NumberSearchRequest request, PhoneNumberPattern.Mode matchMode, UUID after, int limit);
+
+    /**
+     * Selects the next {@code limit} numbers assigned to the requested vendor accounts after {@code after} (from the
+     * start when null), for walking every match a chunk at a time.
+     *
+     * @return number id to the id of its assignment, in id order
+     */
+    Map<UUID, UUID> findIds(NumberAssignmentSearchRequest request, PhoneNumberPattern.Mode matchMode, UUID after, int limit);
+
+    /**
+     * Compiles the statement selecting every number matching the request, so invalid filters are rejected before
+     * anything is read.
+     */
+    CompiledSearch compileExport(NumberSearchRequest request, PhoneNumberPattern.Mode matchMode);
+
+    /**
+     * Reads the numbers of a compiled search through a server side cursor of {@code fetchSize} rows and hands each one
+     * to the consumer as it is read. PostgreSQL only opens a cursor when auto commit is off, so this must run in a
+     * transaction.
+     */
+    void streamViews(CompiledSearch search, int fetchSize, Consumer<NumberView> consumer);
+}
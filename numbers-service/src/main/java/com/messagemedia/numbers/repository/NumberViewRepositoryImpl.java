@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.projections.NumberView;
+import com.messagemedia.numbers.repository.search.CompiledSearch;
+import com.messagemedia.numbers.repository.search.NumberSearchCompiler;
+import com.messagemedia.numbers.repository.search.NumberViewRowMapper;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
+import com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest;
+import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public class NumberViewRepositoryImpl implements NumberViewRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NumberSearchCompiler numberSearchCompiler;
+
+    @Autowired
+    public NumberViewRepositoryImpl(JdbcTemplate jdbcTemplate, NumberSearchCompiler numberSearchCompiler) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.numberSearchCompiler = numberSearchCompiler;
+    }
+
+    @Override
+    public List<NumberView> findViews(NumberSearchRequest request, PhoneNumberPattern.Mode matchMode, int limit) {
+        return query(numberSearchCompiler.compile(request, matchMode, limit));
+    }
+
+    @Override
+    public List<NumberView> findViews(NumberAssignmentSearchRequest request, PhoneNumberPattern.Mode matchMode, int limit) {
+        return query(numberSearchCompiler.compile(request, matchMode, limit));
+    }
+
+    @Override
+    public Map<UUID, UUID> findIds(NumberSearchRequest request, PhoneNumberPattern.Mode matchMode, UUID after, int limit) {
+        return queryIds(numberSearchCompiler.compileIds(request, matchMode, after, limit));
+    }
+
+    @Override
+    public Map<UUID, UUID> findIds(NumberAssignmentSearchRequest request, PhoneNumberPattern.Mode matchMode, UUID after, int limit) {
+        return queryIds(numberSearchCompiler.compileIds(request, matchMode, after, limit));
+    }
+
+    @Override
+    public CompiledSearch compileExport(NumberSearchRequest request, PhoneNumberPattern.Mode matchMode) {
+        return numberSearchCompiler.compileExport(request, matchMode);
+    }
+
+    @Override
+    public void streamViews(CompiledSearch search, int fetchSize, Consumer<NumberView> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(search.getSql(), ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            new ArgumentPreparedStatementSetter(search.getParameters()).setValues(statement);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(NumberViewRowMapper.INSTANCE.mapRow(rs, rs.getRow())));
+    }
+
+    private List<NumberView> query(CompiledSearch search) {
+        return jdbcTemplate.query(search.getSql(), search.getParameters(), NumberViewRowMapper.INSTANCE);
+    }
+
+    private Map<UUID, UUID> queryIds(CompiledSearch search) {
+        Map<UUID, UUID> ids = new LinkedHashMap<>();
+        jdbcTemplate.query(search.getSql(), search.getParameters(),
+                (RowCallbackHandler) rs -> ids.put((UUID) rs.getObject("id"), (UUID) rs.getObject("assignment_id")));
+        return ids;
+    }
+}
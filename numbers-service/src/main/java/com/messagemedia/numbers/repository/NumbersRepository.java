@@ -11,10 +11,39 @@ package com.messagemedia.numbers.repository;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface NumbersRepository extends JpaRepository<NumberEntity, UUID>, JpaSpecificationExecutor<NumberEntity> {
+public interface NumbersRepository extends JpaRepository<NumberEntity, UUID>, JpaSpecificationExecutor<NumberEntity>,
+        NumberViewRepository, NumberBulkRepository, NumberChangeRepository {
+
+    /**
+     * The given phone numbers that belong to a number which is not deleted, i.e. would conflict with
+     * {@code uidx_phonenumber_deleted_partial}.
+     */
+    @Query("select n.phoneNumber from NumberEntity n where n.phoneNumber in :phoneNumbers")
+    List<String> findRegisteredPhoneNumbers(@Param("phoneNumbers") Collection<String> phoneNumbers);
+
+    /**
+     * Loads and row locks the numbers with the given ids, in id order so concurrent callers lock in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select n from NumberEntity n where n.id in :ids order by n.id")
+    List<NumberEntity> findAllByIdForUpdate(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Loads and row locks the numbers with the given phone numbers, in id order so concurrent callers lock in the same
+     * order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select n from NumberEntity n where n.phoneNumber in :phoneNumbers order by n.id")
+    List<NumberEntity> findAllByPhoneNumberForUpdate(@Param("phoneNumbers") Collection<String> phoneNumbers);
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.projections.EventState;
+import com.messagemedia.numbers.repository.projections.OutboxEvent;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public interface ProvisioningOutboxEventRepository {
+
+    /**
+     * Inserts the events with JDBC batches, due at the given time. The ids of the given events are ignored, the events
+     * of a number are relayed in the order they are inserted.
+     */
+    void insertEvents(List<OutboxEvent> events, OffsetDateTime now, OffsetDateTime due);
+
+    /**
+     * Selects and locks the latest event of each of the numbers, keyed by number id. A number whose latest event is
+     * locked, because a relay is publishing it, is left out rather than waited for. Must be called inside a
+     * transaction, which holds the locks.
+     */
+    Map<UUID, OutboxEvent> lockLatestEvents(Collection<UUID> numberIds);
+
+    /**
+     * Replaces the payloads of the events, keyed by event id.
+     */
+    void updatePayloads(Map<Long, String> payloads);
+
+    /**
+     * Selects and locks up to {@code limit} due events, ordered by id. Only the oldest event of each number is
+     * selected, so a later event of a number is never published before an earlier one, and rows another relay has
+     * locked are skipped rather than waited for. Must be called inside a transaction, which holds the locks.
+     */
+    List<OutboxEvent> claimDue(int limit, OffsetDateTime now);
+
+    void deleteEvents(List<Long> ids);
+
+    /**
+     * Counts a failed attempt for each of the events and keeps them until the given time.
+     */
+    void reschedule(Map<Long, OffsetDateTime> nextAttempts, String error);
+
+    /**
+     * @return the state last published in a delta format of each of the numbers which has one, keyed by number id
+     */
+    Map<UUID, EventState> findStates(Collection<UUID> numberIds);
+
+    /**
+     * Inserts the states or replaces the current states of their numbers.
+     */
+    void saveStates(List<EventState> states);
+
+    void deleteStates(Collection<UUID> numberIds);
+}
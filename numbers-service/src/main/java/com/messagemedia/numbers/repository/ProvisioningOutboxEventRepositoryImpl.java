@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository;
+
+import com.messagemedia.numbers.repository.projections.EventState;
+import com.messagemedia.numbers.repository.projections.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.repository.search.NumberSearchCompiler.toArrayLiteral;
+import static java.util.stream.Collectors.toList;
+
+public class ProvisioningOutboxEventRepositoryImpl implements ProvisioningOutboxEventRepository {
+
+    // the locks of the outer select do not apply to the subquery, so a number whose oldest event is locked by another
+    // relay is skipped as a whole instead of having its next event published
+    private static final String CLAIM_DUE = "SELECT o.id, o.numberid, o.event, o.payload, o.attempts FROM provisioning_outbox o "
+            + "WHERE o.nextattempt <= ? "
+            + "AND NOT EXISTS (SELECT 1 FROM provisioning_outbox p WHERE p.numberid = o.numberid AND p.id < o.id) "
+            + "ORDER BY o.id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String LOCK_LATEST = "SELECT o.id, o.numberid, o.event, o.payload, o.attempts FROM provisioning_outbox o "
+            + "WHERE o.numberid = ANY(CAST(? AS uuid[])) "
+            + "AND NOT EXISTS (SELECT 1 FROM provisioning_outbox n WHERE n.numberid = o.numberid AND n.id > o.id) "
+            + "FOR UPDATE SKIP LOCKED";
+
+    private static final RowMapper<OutboxEvent> EVENT_MAPPER = (rs, rowNum) -> new OutboxEvent(rs.getLong("id"),
+            (UUID) rs.getObject("numberid"), rs.getString("event"), rs.getString("payload"), rs.getInt("attempts"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ProvisioningOutboxEventRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertEvents(List<OutboxEvent> events, OffsetDateTime now, OffsetDateTime due) {
+        Timestamp created = Timestamp.from(now.toInstant());
+        Timestamp nextAttempt = Timestamp.from(due.toInstant());
+        jdbcTemplate.batchUpdate("INSERT INTO provisioning_outbox (numberid, event, payload, created, nextattempt) VALUES (?, ?, ?, ?, ?)",
+                events.stream()
+                        .map(event -> new Object[]{event.getNumberId(), event.getEvent(), event.getPayload(), created, nextAttempt})
+                        .collect(toList()));
+    }
+
+    @Override
+    public Map<UUID, OutboxEvent> lockLatestEvents(Collection<UUID> numberIds) {
+        Map<UUID, OutboxEvent> latest = new HashMap<>();
+        jdbcTemplate.query(LOCK_LATEST, EVENT_MAPPER, toArrayLiteral(numberIds))
+                .forEach(event -> latest.put(event.getNumberId(), event));
+        return latest;
+    }
+
+    @Override
+    public void updatePayloads(Map<Long, String> payloads) {
+        jdbcTemplate.batchUpdate("UPDATE provisioning_outbox SET payload = ? WHERE id = ?",
+                payloads.entrySet().stream()
+                        .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                        .collect(toList()));
+    }
+
+    @Override
+    public List<OutboxEvent> claimDue(int limit, OffsetDateTime now) {
+        return jdbcTemplate.query(CLAIM_DUE, EVENT_MAPPER, Timestamp.from(now.toInstant()), limit);
+    }
+
+    @Override
+    public void deleteEvents(List<Long> ids) {
+        jdbcTemplate.update("DELETE FROM provisioning_outbox WHERE id = ANY(CAST(? AS bigint[]))", toArrayLiteral(ids));
+    }
+
+    @Override
+    public void reschedule(Map<Long, OffsetDateTime> nextAttempts, String error) {
+        jdbcTemplate.batchUpdate("UPDATE provisioning_outbox SET attempts = attempts + 1, nextattempt = ?, lasterror = ? WHERE id = ?",
+                nextAttempts.entrySet().stream()
+                        .map(entry -> new Object[]{Timestamp.from(entry.getValue().toInstant()), error, entry.getKey()})
+                        .collect(toList()));
+    }
+
+    @Override
+    public Map<UUID, EventState> findStates(Collection<UUID> numberIds) {
+        Map<UUID, EventState> states = new HashMap<>();
+        jdbcTemplate.query("SELECT numberid, version, state FROM provisioning_event_state WHERE numberid = ANY(CAST(? AS uuid[]))",
+                (rs, rowNum) -> new EventState((UUID) rs.getObject("numberid"), rs.getLong("version"), rs.getString("state")),
+                toArrayLiteral(numberIds))
+                .forEach(state -> states.put(state.getNumberId(), state));
+        return states;
+    }
+
+    @Override
+    public void saveStates(List<EventState> states) {
+        jdbcTemplate.batchUpdate("INSERT INTO provisioning_event_state (numberid, version, state) VALUES (?, ?, ?) "
+                        + "ON CONFLICT (numberid) DO UPDATE SET version = EXCLUDED.version, state = EXCLUDED.state",
+                states.stream()
+                        .map(state -> new Object[]{state.getNumberId(), state.getVersion(), state.getState()})
+                        .collect(toList()));
+    }
+
+    @Override
+    public void deleteStates(Collection<UUID> numberIds) {
+        jdbcTemplate.update("DELETE FROM provisioning_event_state WHERE numberid = ANY(CAST(? AS uuid[]))", toArrayLiteral(numberIds));
+    }
+}
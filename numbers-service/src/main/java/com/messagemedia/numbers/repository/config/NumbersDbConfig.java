@@ -9,12 +9,14 @@
 package com.messagemedia.numbers.repository.config;
 
 import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.messagemedia.numbers.repository.search.NumberSearchCompiler;
 import org.flywaydb.core.Flyway;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -86,6 +88,8 @@ public class NumbersDbConfig {
         flyway.setDataSource(dataSource);
         flyway.setValidateOnMigrate(true);
         flyway.setBaselineOnMigrate(true);
+        // migrations which build indexes concurrently or backfill in batches run outside a transaction
+        flyway.setMixed(true);
         flyway.migrate();
         return flyway;
     }
@@ -98,6 +102,19 @@ public class NumbersDbConfig {
         return txManager;
     }
 
+    /**
+     * Runs native statements on the connection of the current JPA transaction, see {@link #transactionManager}.
+     */
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public NumberSearchCompiler numberSearchCompiler() {
+        return new NumberSearchCompiler();
+    }
+
     @Bean
     public LocalContainerEntityManagerFactoryBean entityManagerFactory(JpaVendorAdapter jpaVendorAdapter, DataSource dataSource) {
         LocalContainerEntityManagerFactoryBean entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
@@ -117,6 +134,10 @@ public class NumbersDbConfig {
         properties.put("hibernate.validator.apply_to_ddl", "false");
         properties.put("org.hibernate.envers.audit_table_suffix", "_HISTORY");
         properties.put("org.hibernate.envers.store_data_at_delete", "true");
+        // numbers assign their own ids, so inserts (and their audit rows) can be sent as JDBC batches
+        properties.put("hibernate.jdbc.batch_size", "100");
+        properties.put("hibernate.order_inserts", "true");
+        properties.put("hibernate.order_updates", "true");
         return properties;
     }
 
@@ -8,35 +8,27 @@
 
 package com.messagemedia.numbers.repository.config;
 
-import com.mchange.v2.c3p0.C3P0ProxyConnection;
 import org.hibernate.HibernateException;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.usertype.UserType;
 import org.springframework.core.GenericTypeResolver;
 
 import java.io.Serializable;
-import java.lang.reflect.Method;
 import java.sql.*;
-import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Objects;
 import java.util.Set;
-
-import static java.util.stream.Collectors.toSet;
+import java.util.stream.Collectors;
 
 public abstract class PostgresEnumSetType<T extends Enum<T>> implements UserType {
 
     private static final int[] SQL_TYPES = {Types.ARRAY};
     private final Class<T> enumType;
-    private final String pgEnumTypeName;
 
-    /**
-     * @param pgEnumTypeName : name of enum type of postgres
-     */
     @SuppressWarnings("unchecked")
-    public PostgresEnumSetType(String pgEnumTypeName) {
+    public PostgresEnumSetType() {
         this.enumType = (Class<T>) GenericTypeResolver.resolveTypeArgument(getClass(),
                 PostgresEnumSetType.class);
-        this.pgEnumTypeName = pgEnumTypeName;
     }
 
     @Override
@@ -71,8 +63,11 @@ public abstract class PostgresEnumSetType<T extends Enum<T>> implements UserType
         if (array == null) {
             return null;
         }
-        String[] javaArray = (String[]) array.getArray();
-        return Arrays.stream(javaArray).map(p -> Enum.valueOf(enumType, p)).collect(toSet());
+        EnumSet<T> values = EnumSet.noneOf(enumType);
+        for (String value : (String[]) array.getArray()) {
+            values.add(Enum.valueOf(enumType, value));
+        }
+        return values;
     }
 
     @SuppressWarnings("unchecked")
@@ -82,15 +77,9 @@ public abstract class PostgresEnumSetType<T extends Enum<T>> implements UserType
         if (value == null) {
             st.setNull(index, Types.ARRAY);
         } else {
-            String[] strArr = ((Set<T>) value).stream().map(p -> p.toString()).toArray(String[]::new);
-            try {
-                Method method = Connection.class.getMethod("createArrayOf", new Class<?>[]{String.class, Object[].class});
-                Array array = (Array) ((C3P0ProxyConnection) st.getConnection()).rawConnectionOperation(
-                        method, C3P0ProxyConnection.RAW_CONNECTION, new Object[]{pgEnumTypeName, strArr});
-                st.setArray(index, array);
-            } catch (Exception e) {
-                throw new HibernateException(e);
-            }
+            // bound as an untyped array literal, the server casts it to the column type so no JDBC array is needed
+            String literal = ((Set<T>) value).stream().map(Enum::name).collect(Collectors.joining(",", "{", "}"));
+            st.setObject(index, literal, Types.OTHER);
         }
     }
 
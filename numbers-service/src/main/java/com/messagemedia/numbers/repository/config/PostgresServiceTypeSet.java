@@ -12,7 +12,4 @@ import com.messagemedia.numbers.service.client.models.ServiceType;
 
 public class PostgresServiceTypeSet extends PostgresEnumSetType<ServiceType> {
 
-    public PostgresServiceTypeSet() {
-        super("service_type");
-    }
 }
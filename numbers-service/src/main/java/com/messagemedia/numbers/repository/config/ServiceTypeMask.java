@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.config;
+
+import com.messagemedia.numbers.service.client.models.ServiceType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a set of {@link ServiceType}s as the bits of the {@code number.capabilitiesMask} column. The bit of each
+ * service type is fixed, it must match the {@code service_type_mask} database function and can never be reused.
+ */
+public final class ServiceTypeMask {
+
+    private static final Map<ServiceType, Short> BITS = new EnumMap<>(ServiceType.class);
+
+    static {
+        BITS.put(ServiceType.SMS, (short) 1);
+        BITS.put(ServiceType.MMS, (short) 2);
+        BITS.put(ServiceType.TTS, (short) 4);
+        BITS.put(ServiceType.CALL, (short) 8);
+    }
+
+    private static final short ALL = (short) BITS.values().stream().mapToInt(Short::intValue).reduce(0, (a, b) -> a | b);
+
+    private ServiceTypeMask() {
+    }
+
+    public static short toMask(Collection<ServiceType> serviceTypes) {
+        int mask = 0;
+        if (serviceTypes != null) {
+            for (ServiceType serviceType : serviceTypes) {
+                mask |= bit(serviceType);
+            }
+        }
+        return (short) mask;
+    }
+
+    public static EnumSet<ServiceType> toServiceTypes(short mask) {
+        EnumSet<ServiceType> serviceTypes = EnumSet.noneOf(ServiceType.class);
+        for (Map.Entry<ServiceType, Short> entry : BITS.entrySet()) {
+            if ((mask & entry.getValue()) != 0) {
+                serviceTypes.add(entry.getKey());
+            }
+        }
+        return serviceTypes;
+    }
+
+    /**
+     * Every mask that shares at least one service type with the given mask. Matching these with equality instead of a
+     * bitwise and lets the database use the index on the column.
+     */
+    public static List<Short> masksIntersecting(short mask) {
+        List<Short> masks = new ArrayList<>();
+        for (int candidate = 1; candidate <= ALL; candidate++) {
+            if ((candidate & ~ALL) == 0 && (candidate & mask) != 0) {
+                masks.add((short) candidate);
+            }
+        }
+        return masks;
+    }
+
+    private static short bit(ServiceType serviceType) {
+        Short bit = BITS.get(serviceType);
+        if (bit == null) {
+            throw new IllegalArgumentException(String.format("No capability bit for service type {%s}", serviceType));
+        }
+        return bit;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.entities;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+@Entity
+@Table(name = "billing_notification_queue")
+public class BillingNotificationEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long seq;
+
+    @Column(nullable = false)
+    private String vendorId;
+
+    @Column(nullable = false)
+    private String accountId;
+
+    @Column(nullable = false)
+    private String ratePlanId;
+
+    @Column(nullable = false)
+    private UUID numberId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BillingNotificationAction action;
+
+    @Column(nullable = false)
+    private OffsetDateTime created;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private OffsetDateTime nextAttempt;
+
+    @Column(nullable = false)
+    private boolean parked;
+
+    @Column
+    private String lastError;
+
+    @Column
+    private OffsetDateTime leasedUntil;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public void setVendorId(String vendorId) {
+        this.vendorId = vendorId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getRatePlanId() {
+        return ratePlanId;
+    }
+
+    public void setRatePlanId(String ratePlanId) {
+        this.ratePlanId = ratePlanId;
+    }
+
+    public UUID getNumberId() {
+        return numberId;
+    }
+
+    public void setNumberId(UUID numberId) {
+        this.numberId = numberId;
+    }
+
+    public BillingNotificationAction getAction() {
+        return action;
+    }
+
+    public void setAction(BillingNotificationAction action) {
+        this.action = action;
+    }
+
+    public OffsetDateTime getCreated() {
+        return created;
+    }
+
+    public void setCreated(OffsetDateTime created) {
+        this.created = created;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public OffsetDateTime getNextAttempt() {
+        return nextAttempt;
+    }
+
+    public void setNextAttempt(OffsetDateTime nextAttempt) {
+        this.nextAttempt = nextAttempt;
+    }
+
+    public boolean isParked() {
+        return parked;
+    }
+
+    public void setParked(boolean parked) {
+        this.parked = parked;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public OffsetDateTime getLeasedUntil() {
+        return leasedUntil;
+    }
+
+    public void setLeasedUntil(OffsetDateTime leasedUntil) {
+        this.leasedUntil = leasedUntil;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BillingNotificationEntity entity = (BillingNotificationEntity) o;
+        return Objects.equals(id, entity.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("id", id)
+                .append("seq", seq)
+                .append("vendorId", vendorId)
+                .append("accountId", accountId)
+                .append("ratePlanId", ratePlanId)
+                .append("numberId", numberId)
+                .append("action", action)
+                .append("attempts", attempts)
+                .append("nextAttempt", nextAttempt)
+                .append("parked", parked)
+                .append("lastError", lastError)
+                .append("leasedUntil", leasedUntil)
+                .toString();
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.entities;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A bulk operation over many numbers and its progress. The rows of the job and their outcomes are kept in
+ * {@code BULK_JOB_ROW}, see {@link com.messagemedia.numbers.repository.BulkJobRowRepository}.
+ */
+@Entity
+@Table(name = "bulk_job")
+public class BulkJobEntity {
+
+    @Id
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BulkJobType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BulkJobStatus status;
+
+    @Column
+    private String note;
+
+    @Column(nullable = false)
+    private int total;
+
+    @Column(nullable = false)
+    private int succeeded;
+
+    @Column(nullable = false)
+    private int failed;
+
+    @Column(nullable = false)
+    private OffsetDateTime created;
+
+    @Column(nullable = false)
+    private OffsetDateTime updated;
+
+    @Column
+    private OffsetDateTime completed;
+
+    @Column
+    private String owner;
+
+    @Column
+    private OffsetDateTime heartbeat;
+
+    public BulkJobEntity() {
+        this.id = UUID.randomUUID();
+    }
+
+    public BulkJobEntity(BulkJobType type, String note, int total) {
+        this();
+        this.type = type;
+        this.note = note;
+        this.total = total;
+        this.status = BulkJobStatus.QUEUED;
+    }
+
+    @PrePersist
+    public void onPrePersist() {
+        OffsetDateTime now = OffsetDateTime.now();
+        created = now;
+        updated = now;
+    }
+
+    @PreUpdate
+    public void onPreUpdate() {
+        updated = OffsetDateTime.now();
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public BulkJobType getType() {
+        return type;
+    }
+
+    public void setType(BulkJobType type) {
+        this.type = type;
+    }
+
+    public BulkJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(BulkJobStatus status) {
+        this.status = status;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public void setNote(String note) {
+        this.note = note;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(int succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public OffsetDateTime getCreated() {
+        return created;
+    }
+
+    public void setCreated(OffsetDateTime created) {
+        this.created = created;
+    }
+
+    public OffsetDateTime getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(OffsetDateTime updated) {
+        this.updated = updated;
+    }
+
+    public OffsetDateTime getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(OffsetDateTime completed) {
+        this.completed = completed;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public OffsetDateTime getHeartbeat() {
+        return heartbeat;
+    }
+
+    public void setHeartbeat(OffsetDateTime heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BulkJobEntity entity = (BulkJobEntity) o;
+        return Objects.equals(id, entity.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("id", id)
+                .append("type", type)
+                .append("status", status)
+                .append("note", note)
+                .append("total", total)
+                .append("succeeded", succeeded)
+                .append("failed", failed)
+                .append("created", created)
+                .append("updated", updated)
+                .append("completed", completed)
+                .append("owner", owner)
+                .append("heartbeat", heartbeat)
+                .toString();
+    }
+}
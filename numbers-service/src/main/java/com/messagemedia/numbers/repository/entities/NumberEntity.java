@@ -10,6 +10,7 @@ package com.messagemedia.numbers.repository.entities;
 
 import com.messagemedia.numbers.repository.config.PostgresEnumType;
 import com.messagemedia.numbers.repository.config.PostgresServiceTypeSet;
+import com.messagemedia.numbers.repository.config.ServiceTypeMask;
 import com.messagemedia.numbers.service.client.models.Classification;
 import com.messagemedia.numbers.service.client.models.NumberType;
 import com.messagemedia.numbers.service.client.models.ServiceType;
@@ -68,6 +69,13 @@ public class NumberEntity {
     @Column(nullable = false)
     private Set<ServiceType> capabilities;
 
+    /**
+     * {@link #capabilities} as {@link ServiceTypeMask} bits, for indexed filtering.
+     */
+    @Column(nullable = false)
+    @NotAudited
+    private short capabilitiesMask;
+
     @Column
     private OffsetDateTime availableAfter;
 
@@ -89,6 +97,17 @@ public class NumberEntity {
     @Column
     private Status status;
 
+    /**
+     * Vendor and account of the most recently created assignment, kept after the number is unassigned.
+     */
+    @Column
+    @NotAudited
+    private String lastVendorId;
+
+    @Column
+    @NotAudited
+    private String lastAccountId;
+
     public NumberEntity() {
         this.id = UUID.randomUUID();
     }
@@ -102,11 +121,13 @@ public class NumberEntity {
         availableAfter = now;
         created = now;
         updated = now;
+        capabilitiesMask = ServiceTypeMask.toMask(capabilities);
     }
 
     @PreUpdate
     public void onPreUpdate() {
         updated = OffsetDateTime.now();
+        capabilitiesMask = ServiceTypeMask.toMask(capabilities);
     }
 
     public UUID getId() {
@@ -187,6 +208,11 @@ public class NumberEntity {
 
     public void setCapabilities(Set<ServiceType> capabilities) {
         this.capabilities = capabilities;
+        this.capabilitiesMask = ServiceTypeMask.toMask(capabilities);
+    }
+
+    public short getCapabilitiesMask() {
+        return capabilitiesMask;
     }
 
     public AssignmentEntity getAssignedTo() {
@@ -217,6 +243,27 @@ public class NumberEntity {
         this.status = numberStatus;
     }
 
+    public String getLastVendorId() {
+        return lastVendorId;
+    }
+
+    public void setLastVendorId(String lastVendorId) {
+        this.lastVendorId = lastVendorId;
+    }
+
+    public String getLastAccountId() {
+        return lastAccountId;
+    }
+
+    public void setLastAccountId(String lastAccountId) {
+        this.lastAccountId = lastAccountId;
+    }
+
+    public void setLastAssignee(AssignmentEntity assignment) {
+        this.lastVendorId = assignment.getVendorId();
+        this.lastAccountId = assignment.getAccountId();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -247,9 +294,12 @@ public class NumberEntity {
                 .append("updated", updated)
                 .append("availableAfter", availableAfter)
                 .append("capabilities", capabilities)
+                .append("capabilitiesMask", capabilitiesMask)
                 .append("assignedTo", assignedTo)
                 .append("dedicatedReceiver", dedicatedReceiver)
                 .append("status", status)
+                .append("lastVendorId", lastVendorId)
+                .append("lastAccountId", lastAccountId)
                 .toString();
     }
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.entities;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A CSV inventory import and its progress. Rows which could not be read are kept in {@code NUMBER_IMPORT_REJECTION},
+ * see {@link com.messagemedia.numbers.repository.NumberImportStagingRepository}.
+ */
+@Entity
+@Table(name = "number_import")
+public class NumberImportEntity {
+
+    @Id
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private NumberImportStatus status;
+
+    @Column
+    private String note;
+
+    @Column(nullable = false)
+    private long total;
+
+    @Column(nullable = false)
+    private long existing;
+
+    @Column(nullable = false)
+    private long staged;
+
+    @Column(nullable = false)
+    private long imported;
+
+    @Column(nullable = false)
+    private long rejected;
+
+    @Column
+    private String message;
+
+    @Column(nullable = false)
+    private OffsetDateTime created;
+
+    @Column(nullable = false)
+    private OffsetDateTime updated;
+
+    @Column
+    private OffsetDateTime completed;
+
+    @Column
+    private String owner;
+
+    @Column
+    private OffsetDateTime heartbeat;
+
+    public NumberImportEntity() {
+        this.id = UUID.randomUUID();
+    }
+
+    public NumberImportEntity(String note) {
+        this();
+        this.note = note;
+        this.status = NumberImportStatus.QUEUED;
+    }
+
+    @PrePersist
+    public void onPrePersist() {
+        OffsetDateTime now = OffsetDateTime.now();
+        created = now;
+        updated = now;
+    }
+
+    @PreUpdate
+    public void onPreUpdate() {
+        updated = OffsetDateTime.now();
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public NumberImportStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(NumberImportStatus status) {
+        this.status = status;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public void setNote(String note) {
+        this.note = note;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getExisting() {
+        return existing;
+    }
+
+    public void setExisting(long existing) {
+        this.existing = existing;
+    }
+
+    public long getStaged() {
+        return staged;
+    }
+
+    public void setStaged(long staged) {
+        this.staged = staged;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public OffsetDateTime getCreated() {
+        return created;
+    }
+
+    public void setCreated(OffsetDateTime created) {
+        this.created = created;
+    }
+
+    public OffsetDateTime getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(OffsetDateTime updated) {
+        this.updated = updated;
+    }
+
+    public OffsetDateTime getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(OffsetDateTime completed) {
+        this.completed = completed;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public OffsetDateTime getHeartbeat() {
+        return heartbeat;
+    }
+
+    public void setHeartbeat(OffsetDateTime heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        NumberImportEntity entity = (NumberImportEntity) o;
+        return Objects.equals(id, entity.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("id", id)
+                .append("status", status)
+                .append("note", note)
+                .append("total", total)
+                .append("existing", existing)
+                .append("staged", staged)
+                .append("imported", imported)
+                .append("rejected", rejected)
+                .append("message", message)
+                .append("created", created)
+                .append("updated", updated)
+                .append("completed", completed)
+                .append("owner", owner)
+                .append("heartbeat", heartbeat)
+                .toString();
+    }
+}
@@ -9,6 +9,7 @@
 package com.messagemedia.numbers.repository.mappers;
 
 import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.projections.AssignmentView;
 import com.messagemedia.numbers.service.client.models.AssignNumberRequest;
 import com.messagemedia.numbers.service.client.models.AssignmentDto;
 import java.util.List;
@@ -29,4 +30,6 @@ public interface AssignmentMapper {
     AssignmentDto toAssignmentDto(AssignmentEntity assignmentEntity);
 
     List<AssignmentDto> toAssignmentDtoList(List<AssignmentEntity> assignmentEntityList);
+
+    AssignmentDto toAssignmentDtoFromView(AssignmentView assignmentView);
 }
@@ -9,6 +9,7 @@
 package com.messagemedia.numbers.repository.mappers;
 
 import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.projections.NumberView;
 import com.messagemedia.numbers.service.client.models.NumberAssignmentDto;
 import com.messagemedia.numbers.service.client.models.NumberDto;
 import org.mapstruct.Mapper;
@@ -30,4 +31,13 @@ public interface NumberAssignmentMapper {
 
     @Mapping(ignore = true, target = "assignedTo")
     NumberDto toNumberDto(NumberEntity numberEntity);
+
+    @Mapping(source = "numberView", target = "number")
+    @Mapping(source = "numberView.assignedTo", target = "assignment")
+    NumberAssignmentDto toNumberAssignmentDtoFromView(NumberView numberView);
+
+    List<NumberAssignmentDto> toNumberAssignmentDtoListFromViews(List<NumberView> list);
+
+    @Mapping(ignore = true, target = "assignedTo")
+    NumberDto toNumberDtoFromView(NumberView numberView);
 }
@@ -9,6 +9,7 @@
 package com.messagemedia.numbers.repository.mappers;
 
 import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.projections.NumberView;
 import com.messagemedia.numbers.service.client.models.NumberDto;
 import com.messagemedia.numbers.service.client.models.RegisterNumberRequest;
 import org.mapstruct.Mapper;
@@ -26,4 +27,8 @@ public interface NumbersMapper {
     NumberDto toNumberDto(NumberEntity numberEntity);
 
     List<NumberDto> toNumberDtoList(List<NumberEntity> list);
+
+    NumberDto toNumberDtoFromView(NumberView numberView);
+
+    List<NumberDto> toNumberDtoListFromViews(List<NumberView> list);
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.projections;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Read-only copy of an active assignment, built by {@link NumberView}.
+ */
+public final class AssignmentView {
+
+    private final UUID id;
+    private final UUID numberId;
+    private final String vendorId;
+    private final String accountId;
+    private final String callbackUrl;
+    private final Map<String, String> metadata;
+    private final OffsetDateTime created;
+    private final String label;
+
+    public AssignmentView(UUID id, UUID numberId, String vendorId, String accountId, String callbackUrl,
+                          Map<String, String> metadata, OffsetDateTime created, String label) {
+        this.id = id;
+        this.numberId = numberId;
+        this.vendorId = vendorId;
+        this.accountId = accountId;
+        this.callbackUrl = callbackUrl;
+        this.metadata = metadata;
+        this.created = created;
+        this.label = label;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getNumberId() {
+        return numberId;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getCallbackUrl() {
+        return callbackUrl;
+    }
+
+    public Map<String, String> getMetadata() {
+        return metadata;
+    }
+
+    public OffsetDateTime getCreated() {
+        return created;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("id", id)
+                .append("numberId", numberId)
+                .append("vendorId", vendorId)
+                .append("accountId", accountId)
+                .append("callbackUrl", callbackUrl)
+                .append("metadata", metadata)
+                .append("created", created)
+                .append("label", label)
+                .toString();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.projections;
+
+import com.messagemedia.numbers.repository.entities.BillingNotificationAction;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.UUID;
+
+public final class BillingNotification {
+
+    private final long id;
+    private final String vendorId;
+    private final String accountId;
+    private final String ratePlanId;
+    private final UUID numberId;
+    private final BillingNotificationAction action;
+    private final int attempts;
+
+    public BillingNotification(long id, String vendorId, String accountId, String ratePlanId, UUID numberId,
+                               BillingNotificationAction action, int attempts) {
+        this.id = id;
+        this.vendorId = vendorId;
+        this.accountId = accountId;
+        this.ratePlanId = ratePlanId;
+        this.numberId = numberId;
+        this.action = action;
+        this.attempts = attempts;
+    }
+
+    public static BillingNotification pending(String vendorId, String accountId, String ratePlanId, UUID numberId,
+                                              BillingNotificationAction action) {
+        return new BillingNotification(0, vendorId, accountId, ratePlanId, numberId, action, 0);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getRatePlanId() {
+        return ratePlanId;
+    }
+
+    public UUID getNumberId() {
+        return numberId;
+    }
+
+    public BillingNotificationAction getAction() {
+        return action;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("id", id)
+                .append("vendorId", vendorId)
+                .append("accountId", accountId)
+                .append("ratePlanId", ratePlanId)
+                .append("numberId", numberId)
+                .append("action", action)
+                .append("attempts", attempts)
+                .toString();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.projections;
+
+import com.messagemedia.numbers.repository.entities.BulkJobRowStatus;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * One row of a {@link com.messagemedia.numbers.repository.entities.BulkJobEntity}: the submitted payload as JSON, the
+ * number it is about and, once processed, its outcome.
+ */
+public final class BulkJobRow {
+
+    private final int rowIndex;
+    private final String item;
+    private final String payload;
+    private final BulkJobRowStatus status;
+    private final String message;
+
+    public BulkJobRow(int rowIndex, String item, String payload, BulkJobRowStatus status, String message) {
+        this.rowIndex = rowIndex;
+        this.item = item;
+        this.payload = payload;
+        this.status = status;
+        this.message = message;
+    }
+
+    public static BulkJobRow pending(int rowIndex, String item, String payload) {
+        return new BulkJobRow(rowIndex, item, payload, BulkJobRowStatus.PENDING, null);
+    }
+
+    public BulkJobRow withOutcome(BulkJobRowStatus status, String message) {
+        return new BulkJobRow(rowIndex, item, payload, status, message);
+    }
+
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
+    public String getItem() {
+        return item;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public BulkJobRowStatus getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("rowIndex", rowIndex)
+                .append("item", item)
+                .append("status", status)
+                .append("message", message)
+                .toString();
+    }
+}
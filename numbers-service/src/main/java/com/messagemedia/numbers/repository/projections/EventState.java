@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.projections;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.UUID;
+
+public final class EventState {
+
+    private final UUID numberId;
+    private final long version;
+    private final String state;
+
+    public EventState(UUID numberId, long version, String state) {
+        this.numberId = numberId;
+        this.version = version;
+        this.state = state;
+    }
+
+    public UUID getNumberId() {
+        return numberId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("numberId", numberId)
+                .append("version", version)
+                .toString();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.projections;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.UUID;
+
+/**
+ * A number changed by some transaction, with the phone number it had before or after the change.
+ */
+public final class NumberChange {
+
+    private final UUID numberId;
+    private final String phoneNumber;
+
+    public NumberChange(UUID numberId, String phoneNumber) {
+        this.numberId = numberId;
+        this.phoneNumber = phoneNumber;
+    }
+
+    public UUID getNumberId() {
+        return numberId;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("numberId", numberId)
+                .append("phoneNumber", phoneNumber)
+                .toString();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.projections;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * A line of a {@link com.messagemedia.numbers.repository.entities.NumberImportEntity} which could not be read, and why.
+ */
+public final class NumberImportRejection {
+
+    private final long lineNumber;
+    private final String line;
+    private final String reason;
+
+    public NumberImportRejection(long lineNumber, String line, String reason) {
+        this.lineNumber = lineNumber;
+        this.line = line;
+        this.reason = reason;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("lineNumber", lineNumber)
+                .append("line", line)
+                .append("reason", reason)
+                .toString();
+    }
+}
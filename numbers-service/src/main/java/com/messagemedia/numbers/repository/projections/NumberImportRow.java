@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.projections;
+
+import com.messagemedia.numbers.service.client.models.Classification;
+import com.messagemedia.numbers.service.client.models.NumberType;
+import com.messagemedia.numbers.service.client.models.ServiceType;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A valid line of a {@link com.messagemedia.numbers.repository.entities.NumberImportEntity}, as copied into
+ * {@code NUMBER_IMPORT_STAGING}.
+ */
+public final class NumberImportRow {
+
+    private final long lineNumber;
+    private final UUID id;
+    private final String phoneNumber;
+    private final UUID providerId;
+    private final String country;
+    private final NumberType type;
+    private final Classification classification;
+    private final Set<ServiceType> capabilities;
+    private final boolean dedicatedReceiver;
+
+    public NumberImportRow(long lineNumber, String phoneNumber, UUID providerId, String country, NumberType type,
+                           Classification classification, Set<ServiceType> capabilities, boolean dedicatedReceiver) {
+        this.lineNumber = lineNumber;
+        this.id = UUID.randomUUID();
+        this.phoneNumber = phoneNumber;
+        this.providerId = providerId;
+        this.country = country;
+        this.type = type;
+        this.classification = classification;
+        this.capabilities = capabilities;
+        this.dedicatedReceiver = dedicatedReceiver;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public UUID getProviderId() {
+        return providerId;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public NumberType getType() {
+        return type;
+    }
+
+    public Classification getClassification() {
+        return classification;
+    }
+
+    public Set<ServiceType> getCapabilities() {
+        return capabilities;
+    }
+
+    public boolean isDedicatedReceiver() {
+        return dedicatedReceiver;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("lineNumber", lineNumber)
+                .append("id", id)
+                .append("phoneNumber", phoneNumber)
+                .append("providerId", providerId)
+                .append("country", country)
+                .append("type", type)
+                .append("classification", classification)
+                .append("capabilities", capabilities)
+                .append("dedicatedReceiver", dedicatedReceiver)
+                .toString();
+    }
+}
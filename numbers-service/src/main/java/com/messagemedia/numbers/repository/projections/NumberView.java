@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.projections;
+
+import com.messagemedia.numbers.service.client.models.Classification;
+import com.messagemedia.numbers.service.client.models.NumberType;
+import com.messagemedia.numbers.service.client.models.ServiceType;
+import com.messagemedia.numbers.service.client.models.Status;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.time.OffsetDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Read-only row of a number and its active assignment, read straight from a search result so listing never hydrates
+ * (and snapshots) managed entities.
+ */
+public final class NumberView {
+
+    private final UUID id;
+    private final String phoneNumber;
+    private final UUID providerId;
+    private final String country;
+    private final NumberType type;
+    private final Classification classification;
+    private final Set<ServiceType> capabilities;
+    private final OffsetDateTime availableAfter;
+    private final OffsetDateTime created;
+    private final OffsetDateTime updated;
+    private final boolean dedicatedReceiver;
+    private final Status status;
+    private final AssignmentView assignedTo;
+
+    public NumberView(UUID id, String phoneNumber, UUID providerId, String country, NumberType type,
+                      Classification classification, Set<ServiceType> capabilities, OffsetDateTime availableAfter,
+                      OffsetDateTime created, OffsetDateTime updated, boolean dedicatedReceiver, Status status,
+                      AssignmentView assignedTo) {
+        this.id = id;
+        this.phoneNumber = phoneNumber;
+        this.providerId = providerId;
+        this.country = country;
+        this.type = type;
+        this.classification = classification;
+        this.capabilities = capabilities;
+        this.availableAfter = availableAfter;
+        this.created = created;
+        this.updated = updated;
+        this.dedicatedReceiver = dedicatedReceiver;
+        this.status = status;
+        this.assignedTo = assignedTo;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public UUID getProviderId() {
+        return providerId;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public NumberType getType() {
+        return type;
+    }
+
+    public Classification getClassification() {
+        return classification;
+    }
+
+    public Set<ServiceType> getCapabilities() {
+        return capabilities;
+    }
+
+    public OffsetDateTime getAvailableAfter() {
+        return availableAfter;
+    }
+
+    public OffsetDateTime getCreated() {
+        return created;
+    }
+
+    public OffsetDateTime getUpdated() {
+        return updated;
+    }
+
+    public boolean isDedicatedReceiver() {
+        return dedicatedReceiver;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public AssignmentView getAssignedTo() {
+        return assignedTo;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("id", id)
+                .append("phoneNumber", phoneNumber)
+                .append("providerId", providerId)
+                .append("country", country)
+                .append("type", type)
+                .append("classification", classification)
+                .append("capabilities", capabilities)
+                .append("availableAfter", availableAfter)
+                .append("created", created)
+                .append("updated", updated)
+                .append("dedicatedReceiver", dedicatedReceiver)
+                .append("status", status)
+                .append("assignedTo", assignedTo)
+                .toString();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.projections;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.UUID;
+
+/**
+ * A provisioning event of the outbox: the event notification as JSON, the number it is about and how often publishing
+ * it has failed so far.
+ */
+public final class OutboxEvent {
+
+    private final long id;
+    private final UUID numberId;
+    private final String event;
+    private final String payload;
+    private final int attempts;
+
+    public OutboxEvent(long id, UUID numberId, String event, String payload, int attempts) {
+        this.id = id;
+        this.numberId = numberId;
+        this.event = event;
+        this.payload = payload;
+        this.attempts = attempts;
+    }
+
+    public static OutboxEvent pending(UUID numberId, String event, String payload) {
+        return new OutboxEvent(0, numberId, event, payload, 0);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public UUID getNumberId() {
+        return numberId;
+    }
+
+    /**
+     * @return the name of the event, null for events enqueued before the type was recorded
+     */
+    public String getEvent() {
+        return event;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("id", id)
+                .append("numberId", numberId)
+                .append("event", event)
+                .append("attempts", attempts)
+                .toString();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.search;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * A canonical search statement and the values to bind to it, in order.
+ */
+public final class CompiledSearch {
+
+    private final int shape;
+    private final String sql;
+    private final Object[] parameters;
+
+    CompiledSearch(int shape, String sql, Object[] parameters) {
+        this.shape = shape;
+        this.sql = sql;
+        this.parameters = parameters;
+    }
+
+    public int getShape() {
+        return shape;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public Object[] getParameters() {
+        return parameters.clone();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("shape", shape)
+                .append("sql", sql)
+                .append("parameters", parameters)
+                .toString();
+    }
+}
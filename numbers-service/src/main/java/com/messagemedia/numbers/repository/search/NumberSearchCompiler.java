@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.search;
+
+import com.messagemedia.numbers.exception.NumberSearchPatternInvalidException;
+import com.messagemedia.numbers.exception.VendorAccountRequiredException;
+import com.messagemedia.numbers.repository.config.ServiceTypeMask;
+import com.messagemedia.numbers.service.client.models.BaseNumberSearchRequest;
+import com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest;
+import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
+import com.messagemedia.numbers.service.metrics.MetricsSource;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Compiles number and number assignment search requests into a small set of canonical native statements.
+ * <p>
+ * Which filters a request uses is its shape. Every request with the same shape gets exactly the same SQL text, no
+ * matter how many accounts or service types it asks for: the assignment is joined once and lists are bound as a single
+ * array parameter ({@code = ANY(?)}). That keeps the statement cache of each connection and the server side prepared
+ * statements warm. The SQL for a shape is built once and cached.
+ * <p>
+ * Phone number patterns are the exception, each literal pattern is its own predicate so it can use the phone number
+ * indexes. Their match modes are part of the statement key and the number of patterns is capped.
+ */
+public class NumberSearchCompiler implements MetricsSource {
+
+    public static final String SELECT = "SELECT n.id, n.phonenumber, n.providerid, n.country, n.type, n.classification,"
+            + " n.capabilitiesmask, n.availableafter, n.created, n.updated, n.dedicatedreceiver, n.status,"
+            + " a.id AS assignment_id, a.vendorid, a.accountid, a.callbackurl, a.externalmetadata,"
+            + " a.created AS assignment_created, a.label"
+            + " FROM number n";
+    static final String SELECT_IDS = "SELECT n.id, a.id AS assignment_id FROM number n";
+
+    private static final String ALL_ACCOUNTS = "all";
+    private static final int ASSIGNMENT_SEARCH = 1;
+    private static final int MAX_MATCHING_PATTERNS = 20;
+    // filters backed by an index, a regular expression is only evaluated on what they leave. Service types are not, the
+    // capabilities mask has a handful of values and each matches a large share of the inventory, and neither is a
+    // country or a classification on its own
+    private static final int SELECTIVE = Filter.VENDOR.bit() | Filter.ACCOUNTS.bit() | Filter.REGEX_PREFIX.bit();
+    private static final int COUNTRY_CLASSIFICATION = Filter.COUNTRY.bit() | Filter.CLASSIFICATION.bit();
+
+    private final ConcurrentMap<String, String> statements = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder compilations = new LongAdder();
+
+    /**
+     * Filters in the order their predicates appear in the statement (and their values are bound).
+     */
+    enum Filter {
+        VENDOR("a.vendorid = ?"),
+        ACCOUNTS("a.accountid = ANY(CAST(? AS text[]))"),
+        TOKEN("n.id >= ?"),
+        COUNTRY("n.country = ?"),
+        CLASSIFICATION("n.classification = CAST(? AS classification)"),
+        ASSIGNED("a.id IS NOT NULL"),
+        UNASSIGNED("a.id IS NULL"),
+        // the literal start of a regular expression, so it is only evaluated on the numbers found by the prefix index
+        REGEX_PREFIX("n.phonenumber LIKE ?"),
+        // rendered from the match modes of the search
+        MATCHING(null),
+        LABEL("a.label ~ ?"),
+        ANY_SERVICE_TYPE("n.capabilitiesmask = ANY(CAST(? AS smallint[]))"),
+        EXACT_SERVICE_TYPES("n.capabilitiesmask = ?"),
+        AVAILABLE_BY("(n.availableafter IS NULL OR n.availableafter <= ?)"),
+        STATUS("n.status = CAST(? AS status)"),
+        // keyset of the id statements, which walk all matches a chunk at a time
+        AFTER("n.id > ?");
+
+        private final String predicate;
+        private final boolean bound;
+
+        Filter(String predicate) {
+            this.predicate = predicate;
+            this.bound = predicate == null || predicate.indexOf('?') >= 0;
+        }
+
+        int bit() {
+            return 1 << (ordinal() + 1);
+        }
+    }
+
+    public CompiledSearch compile(NumberSearchRequest request, PhoneNumberPattern.Mode matchMode, int limit) {
+        return compile(numberSearch(request, matchMode), limit);
+    }
+
+    /**
+     * Same statement as {@link #compile(NumberSearchRequest, PhoneNumberPattern.Mode, int)} without the limit, for
+     * reading every matching number through a cursor.
+     */
+    public CompiledSearch compileExport(NumberSearchRequest request, PhoneNumberPattern.Mode matchMode) {
+        return compile(numberSearch(request, matchMode), null);
+    }
+
+    /**
+     * Ids (and assignment ids) of up to {@code limit} numbers matching the request that come after {@code after}, from
+     * the start when null, in id order.
+     */
+    public CompiledSearch compileIds(NumberSearchRequest request, PhoneNumberPattern.Mode matchMode, UUID after, int limit) {
+        return compileIds(numberSearch(request, matchMode), after, limit);
+    }
+
+    private static Search numberSearch(NumberSearchRequest request, PhoneNumberPattern.Mode matchMode) {
+        Search search = new Search(0);
+        addCommon(search, request);
+        if (request.getAssigned() != null) {
+            search.add(request.getAssigned() ? Filter.ASSIGNED : Filter.UNASSIGNED, null);
+        }
+        if (StringUtils.isNotEmpty(request.getMatching())) {
+            addMatching(search, singletonList(request.getMatching()), matchMode);
+        }
+        if (request.getAvailableBy() != null) {
+            search.add(Filter.AVAILABLE_BY, Timestamp.from(request.getAvailableBy().toInstant()));
+        }
+        return search;
+    }
+
+    public CompiledSearch compile(NumberAssignmentSearchRequest request, PhoneNumberPattern.Mode matchMode, int limit) {
+        return compile(assignmentSearch(request, matchMode), limit);
+    }
+
+    /**
+     * Ids (and assignment ids) of up to {@code limit} numbers assigned to the requested vendor accounts that come after
+     * {@code after}, from the start when null, in id order.
+     */
+    public CompiledSearch compileIds(NumberAssignmentSearchRequest request, PhoneNumberPattern.Mode matchMode, UUID after, int limit) {
+        return compileIds(assignmentSearch(request, matchMode), after, limit);
+    }
+
+    private static Search assignmentSearch(NumberAssignmentSearchRequest request, PhoneNumberPattern.Mode matchMode) {
+        if (!(StringUtils.isNotBlank(request.getVendorId()) && StringUtils.isNotBlank(request.getAccountId()))) {
+            throw new VendorAccountRequiredException();
+        }
+        Search search = new Search(ASSIGNMENT_SEARCH);
+        search.add(Filter.VENDOR, request.getVendorId());
+        if (ArrayUtils.isEmpty(request.getAccounts())) {
+            search.add(Filter.ACCOUNTS, toArrayLiteral(singletonList(request.getAccountId())));
+        } else if (!(request.getAccounts().length == 1 && ALL_ACCOUNTS.equals(request.getAccounts()[0]))) {
+            search.add(Filter.ACCOUNTS, toArrayLiteral(Arrays.asList(request.getAccounts())));
+        }
+        addCommon(search, request);
+        if (StringUtils.isNotEmpty(request.getLabel())) {
+            search.add(Filter.LABEL, request.getLabel().trim());
+        }
+        if (ArrayUtils.isNotEmpty(request.getMatchings())) {
+            addMatching(search, Arrays.asList(request.getMatchings()), matchMode);
+        } else if (StringUtils.isNotEmpty(request.getMatching())) {
+            addMatching(search, singletonList(request.getMatching()), matchMode);
+        }
+        if (request.getStatus() != null) {
+            search.add(Filter.STATUS, request.getStatus().name());
+        }
+        return search;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "numberSearchCompiler";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("shapes", statements.size());
+        metrics.put("hits", hits.sum());
+        metrics.put("compilations", compilations.sum());
+        return metrics;
+    }
+
+    private static void addCommon(Search search, BaseNumberSearchRequest request) {
+        if (request.getToken() != null) {
+            search.add(Filter.TOKEN, request.getToken());
+        }
+        if (StringUtils.isNotEmpty(request.getCountry())) {
+            search.add(Filter.COUNTRY, request.getCountry().toUpperCase());
+        }
+        if (request.getClassification() != null) {
+            search.add(Filter.CLASSIFICATION, request.getClassification().name());
+        }
+        if (ArrayUtils.isNotEmpty(request.getServiceTypes())) {
+            short mask = ServiceTypeMask.toMask(Arrays.asList(request.getServiceTypes()));
+            if (Boolean.TRUE.equals(request.getExactServiceTypes())) {
+                search.add(Filter.EXACT_SERVICE_TYPES, mask);
+            } else {
+                search.add(Filter.ANY_SERVICE_TYPE, toArrayLiteral(ServiceTypeMask.masksIntersecting(mask)));
+            }
+        }
+    }
+
+    /**
+     * Literal patterns are bound one per predicate, grouped by mode so the same modes always render the same statement.
+     * All regular expressions are joined into one alternation.
+     */
+    private static void addMatching(Search search, List<String> matchings, PhoneNumberPattern.Mode matchMode) {
+        if (matchings.size() > MAX_MATCHING_PATTERNS) {
+            throw new NumberSearchPatternInvalidException(String.join(",", matchings),
+                    String.format("at most %d patterns can be matched at once", MAX_MATCHING_PATTERNS));
+        }
+        List<PhoneNumberPattern> patterns = matchings.stream()
+                .map(matching -> PhoneNumberPattern.of(matching, matchMode))
+                .sorted(Comparator.comparing(PhoneNumberPattern::getMode))
+                .collect(Collectors.toList());
+        StringBuilder modes = new StringBuilder();
+        List<Object> values = new ArrayList<>();
+        List<String> regexes = new ArrayList<>();
+        for (PhoneNumberPattern pattern : patterns) {
+            switch (pattern.getMode()) {
+                case REGEX:
+                    regexes.add(pattern.getValue());
+                    continue;
+                case EXACT:
+                    values.add(pattern.getValue());
+                    break;
+                default:
+                    values.add(pattern.toLikePattern());
+            }
+            modes.append(pattern.getMode().ordinal());
+        }
+        String regexPrefix = patterns.size() == 1 ? patterns.get(0).getRegexPrefix() : null;
+        if (regexPrefix != null) {
+            search.add(Filter.REGEX_PREFIX, PhoneNumberPattern.of(regexPrefix, PhoneNumberPattern.Mode.PREFIX).toLikePattern());
+        }
+        if (!regexes.isEmpty()) {
+            search.regex = String.join("|", regexes);
+            modes.append(PhoneNumberPattern.Mode.REGEX.ordinal());
+            values.add(search.regex);
+        }
+        search.matchModes = modes.toString();
+        search.add(Filter.MATCHING, values);
+    }
+
+    private CompiledSearch compileIds(Search search, UUID after, int limit) {
+        if (after != null) {
+            search.add(Filter.AFTER, after);
+        }
+        return compile(search, limit, true);
+    }
+
+    private CompiledSearch compile(Search search, Integer limit) {
+        return compile(search, limit, false);
+    }
+
+    private CompiledSearch compile(Search search, Integer limit, boolean idsOnly) {
+        if (search.regex != null && !isSelective(search.shape)) {
+            throw new NumberSearchPatternInvalidException(search.regex, "a regular expression needs a vendor account"
+                    + " filter, a country and classification filter or a literal start such as ^+61, use a prefix, suffix,"
+                    + " contains or exact match mode instead");
+        }
+        boolean limited = limit != null;
+        String key = search.shape + ":" + search.matchModes + (limited ? "" : ":all") + (idsOnly ? ":ids" : "");
+        String sql = statements.get(key);
+        if (sql == null) {
+            sql = statements.computeIfAbsent(key, k -> {
+                compilations.increment();
+                return render(idsOnly ? SELECT_IDS : SELECT, search.shape, search.matchModes, limited);
+            });
+        } else {
+            hits.increment();
+        }
+        List<Object> parameters = new ArrayList<>();
+        for (Filter filter : Filter.values()) {
+            if (filter.bound && (search.shape & filter.bit()) != 0) {
+                if (filter == Filter.MATCHING) {
+                    parameters.addAll((List<?>) search.values[filter.ordinal()]);
+                } else {
+                    parameters.add(search.values[filter.ordinal()]);
+                }
+            }
+        }
+        if (limited) {
+            parameters.add(limit);
+        }
+        return new CompiledSearch(search.shape, sql, parameters.toArray());
+    }
+
+    private static boolean isSelective(int shape) {
+        return (shape & SELECTIVE) != 0 || (shape & COUNTRY_CLASSIFICATION) == COUNTRY_CLASSIFICATION;
+    }
+
+    static String render(String select, int shape, String matchModes, boolean limited) {
+        StringBuilder sql = new StringBuilder(select)
+                .append((shape & ASSIGNMENT_SEARCH) != 0 ? " JOIN" : " LEFT JOIN")
+                .append(" assignment a ON a.numberid = n.id AND a.deleted IS NULL")
+                .append(" WHERE n.deleted IS NULL");
+        for (Filter filter : Filter.values()) {
+            if ((shape & filter.bit()) != 0) {
+                sql.append(" AND ").append(filter == Filter.MATCHING ? matchingPredicate(matchModes) : filter.predicate);
+            }
+        }
+        sql.append(" ORDER BY n.id");
+        return limited ? sql.append(" LIMIT ?").toString() : sql.toString();
+    }
+
+    private static String matchingPredicate(String matchModes) {
+        PhoneNumberPattern.Mode[] modes = PhoneNumberPattern.Mode.values();
+        String predicate = matchModes.chars()
+                .mapToObj(mode -> matchingPredicate(modes[mode - '0']))
+                .collect(Collectors.joining(" OR "));
+        return matchModes.length() == 1 ? predicate : "(" + predicate + ")";
+    }
+
+    private static String matchingPredicate(PhoneNumberPattern.Mode mode) {
+        switch (mode) {
+            case PREFIX:
+            case CONTAINS:
+                return "n.phonenumber LIKE ?";
+            case SUFFIX:
+                return "reverse(n.phonenumber) LIKE ?";
+            case EXACT:
+                return "n.phonenumber = ?";
+            default:
+                return "n.phonenumber ~ ?";
+        }
+    }
+
+    /**
+     * Renders values as a PostgreSQL array literal, bound as text and cast in the statement because the pooled
+     * connections cannot create JDBC arrays.
+     */
+    public static String toArrayLiteral(Collection<?> values) {
+        return values.stream()
+                .map(String::valueOf)
+                .map(value -> '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"')
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private static final class Search {
+
+        private final Object[] values = new Object[Filter.values().length];
+        private int shape;
+        private String matchModes = "";
+        private String regex;
+
+        private Search(int kind) {
+            this.shape = kind;
+        }
+
+        private void add(Filter filter, Object value) {
+            shape |= filter.bit();
+            values[filter.ordinal()] = value;
+        }
+    }
+}
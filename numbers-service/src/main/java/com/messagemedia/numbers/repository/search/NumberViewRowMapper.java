@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.search;
+
+import com.messagemedia.numbers.repository.config.ServiceTypeMask;
+import com.messagemedia.numbers.repository.projections.AssignmentView;
+import com.messagemedia.numbers.repository.projections.NumberView;
+import com.messagemedia.numbers.service.client.models.Classification;
+import com.messagemedia.numbers.service.client.models.NumberType;
+import com.messagemedia.numbers.service.client.models.Status;
+import org.postgresql.util.HStoreConverter;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Maps a row selected by {@link NumberSearchCompiler#SELECT} to a {@link NumberView}.
+ */
+public class NumberViewRowMapper implements RowMapper<NumberView> {
+
+    public static final NumberViewRowMapper INSTANCE = new NumberViewRowMapper();
+
+    @Override
+    public NumberView mapRow(ResultSet rs, int rowNum) throws SQLException {
+        UUID id = (UUID) rs.getObject("id");
+        UUID assignmentId = (UUID) rs.getObject("assignment_id");
+        AssignmentView assignment = assignmentId == null ? null : new AssignmentView(
+                assignmentId,
+                id,
+                rs.getString("vendorid"),
+                rs.getString("accountid"),
+                rs.getString("callbackurl"),
+                toMap(rs.getString("externalmetadata")),
+                toOffsetDateTime(rs, "assignment_created"),
+                rs.getString("label"));
+        String status = rs.getString("status");
+        return new NumberView(
+                id,
+                rs.getString("phonenumber"),
+                (UUID) rs.getObject("providerid"),
+                rs.getString("country"),
+                NumberType.valueOf(rs.getString("type")),
+                Classification.valueOf(rs.getString("classification")),
+                ServiceTypeMask.toServiceTypes(rs.getShort("capabilitiesmask")),
+                toOffsetDateTime(rs, "availableafter"),
+                toOffsetDateTime(rs, "created"),
+                toOffsetDateTime(rs, "updated"),
+                rs.getBoolean("dedicatedreceiver"),
+                status == null ? null : Status.valueOf(status),
+                assignment);
+    }
+
+    /**
+     * The driver returns timestamps at UTC, they are moved to the default zone of the JVM as Hibernate reads them for
+     * the entities, so a number serializes the same whichever way it was read.
+     */
+    private static OffsetDateTime toOffsetDateTime(ResultSet rs, String column) throws SQLException {
+        OffsetDateTime value = rs.getObject(column, OffsetDateTime.class);
+        return value == null ? null : value.atZoneSameInstant(ZoneId.systemDefault()).toOffsetDateTime();
+    }
+
+    private static Map<String, String> toMap(String hstore) {
+        return hstore == null ? null : HStoreConverter.fromString(hstore);
+    }
+}
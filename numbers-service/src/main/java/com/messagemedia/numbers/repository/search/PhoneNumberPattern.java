@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.search;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A phone number to match and how to match it. Prefix, suffix, contains and exact matches are literal and are served by
+ * the phone number indexes, a regular expression always needs a scan of whatever the other filters leave.
+ * <p>
+ * When no mode is given the value is a regular expression, as it has always been. Expressions that are really a
+ * literal number (optionally anchored or wrapped in {@code .*}) are rewritten to the equivalent literal match.
+ */
+public final class PhoneNumberPattern {
+
+    public enum Mode {
+        PREFIX,
+        SUFFIX,
+        CONTAINS,
+        EXACT,
+        REGEX
+    }
+
+    // ^ , leading .* , a leading plus (raw, [+] or \+) , digits , trailing .* , $
+    private static final Pattern LITERAL_REGEX = Pattern.compile("(\\^)?(\\.\\*)?(\\+|\\[\\+]|\\\\\\+)?([0-9]+)(\\.\\*)?(\\$)?");
+    // ^ , a leading plus (raw, [+] or \+) , digits , and whatever follows the literal start
+    private static final Pattern ANCHORED_REGEX = Pattern.compile("\\^(\\+|\\[\\+]|\\\\\\+)?([0-9]+)(.*)");
+
+    private final Mode mode;
+    private final String value;
+
+    private PhoneNumberPattern(Mode mode, String value) {
+        this.mode = mode;
+        this.value = value;
+    }
+
+    public static PhoneNumberPattern of(String matching, Mode mode) {
+        String value = matching.trim();
+        if (mode == null) {
+            return fromRegex(value);
+        }
+        return mode == Mode.REGEX ? new PhoneNumberPattern(Mode.REGEX, regex(value)) : new PhoneNumberPattern(mode, value);
+    }
+
+    private static PhoneNumberPattern fromRegex(String regex) {
+        Matcher matcher = LITERAL_REGEX.matcher(regex);
+        if (!matcher.matches()) {
+            return new PhoneNumberPattern(Mode.REGEX, regex(regex));
+        }
+        String literal = (matcher.group(3) == null ? "" : "+") + matcher.group(4);
+        boolean anchoredStart = matcher.group(1) != null && matcher.group(2) == null;
+        boolean anchoredEnd = matcher.group(6) != null && matcher.group(5) == null;
+        if (anchoredStart) {
+            return new PhoneNumberPattern(anchoredEnd ? Mode.EXACT : Mode.PREFIX, literal);
+        }
+        return new PhoneNumberPattern(anchoredEnd ? Mode.SUFFIX : Mode.CONTAINS, literal);
+    }
+
+    /**
+     * Numbers start with a +, a search for +123456789 should find that number without the caller escaping the plus.
+     */
+    private static String regex(String matching) {
+        return matching.startsWith("+") ? matching.replace("+", "[+]") : matching;
+    }
+
+    /**
+     * The literal start every number matched by this regular expression has, or null when it has none. A quantifier on
+     * the last digit takes that digit off the start, and an alternation anywhere means there is no single start.
+     */
+    public String getRegexPrefix() {
+        if (mode != Mode.REGEX || value.indexOf('|') >= 0) {
+            return null;
+        }
+        Matcher matcher = ANCHORED_REGEX.matcher(value);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String digits = matcher.group(2);
+        String rest = matcher.group(3);
+        if (!rest.isEmpty() && "*?{".indexOf(rest.charAt(0)) >= 0) {
+            digits = digits.substring(0, digits.length() - 1);
+        }
+        if (digits.isEmpty()) {
+            return null;
+        }
+        return (matcher.group(1) == null ? "" : "+") + digits;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * The literal number, or the regular expression for {@link Mode#REGEX}.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * The {@code LIKE} pattern for literal modes. Suffixes are matched as a prefix of the reversed number so they can
+     * use an index on {@code reverse(phonenumber)}.
+     */
+    public String toLikePattern() {
+        switch (mode) {
+            case PREFIX:
+                return escapeLike(value) + "%";
+            case SUFFIX:
+                return escapeLike(new StringBuilder(value).reverse().toString()) + "%";
+            case CONTAINS:
+                return "%" + escapeLike(value) + "%";
+            default:
+                throw new IllegalStateException(String.format("No LIKE pattern for match mode {%s}", mode));
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PhoneNumberPattern that = (PhoneNumberPattern) o;
+        return mode == that.mode && Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mode, value);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("mode", mode)
+                .append("value", value)
+                .toString();
+    }
+}
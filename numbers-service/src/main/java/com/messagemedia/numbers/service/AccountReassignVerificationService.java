@@ -7,25 +7,49 @@
  */
 package com.messagemedia.numbers.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.messagemedia.domainmodels.accounts.AccountId;
 import com.messagemedia.domainmodels.accounts.VendorAccountId;
+import com.messagemedia.numbers.service.cache.AccountHierarchyCache;
 import com.messagemedia.numbers.service.helper.AccountsHolder;
-import com.messagemedia.service.accountmanagement.client.ContextualServiceAccountManagementClientFactory;
+import com.messagemedia.numbers.service.metrics.MetricsSource;
 import com.messagemedia.service.accountmanagement.client.exception.ServiceAccountManagementException;
 import com.messagemedia.service.accountmanagement.client.model.account.Account;
 import com.messagemedia.service.accountmanagement.client.model.account.Type;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+/**
+ * Verifies that a number may move between two accounts of a vendor. The ancestor chains of both accounts are loaded
+ * concurrently from the {@link AccountHierarchyCache} and the verdict for the pair is kept for a short time, so
+ * repeated reassignments between the same accounts do not walk the hierarchy again.
+ */
 @Service
-public class AccountReassignVerificationService {
+public class AccountReassignVerificationService implements MetricsSource {
 
-    private final ContextualServiceAccountManagementClientFactory contextualServiceAccountManagementClientFactory;
+    private final AccountHierarchyCache accountHierarchyCache;
+    private final Cache<List<VendorAccountId>, Boolean> verdicts;
 
     @Autowired
-    public AccountReassignVerificationService(ContextualServiceAccountManagementClientFactory contextualServiceAccountManagementClientFactory) {
-        this.contextualServiceAccountManagementClientFactory = contextualServiceAccountManagementClientFactory;
+    public AccountReassignVerificationService(AccountHierarchyCache accountHierarchyCache,
+                                              @Value("${numbers.service.cache.accounts.verdictExpireAfterWriteSeconds}")
+                                                  long verdictExpireAfterWriteSeconds) {
+        this.accountHierarchyCache = accountHierarchyCache;
+        this.verdicts = Caffeine.newBuilder()
+            .expireAfterWrite(verdictExpireAfterWriteSeconds, TimeUnit.SECONDS)
+            .recordStats()
+            .build();
     }
 
     public boolean verifyAccountRelationship(VendorAccountId vendorAccountId, VendorAccountId otherVendorAccountId)
@@ -34,27 +58,58 @@ public class AccountReassignVerificationService {
                 || vendorAccountId.equals(otherVendorAccountId)) {
             return false;
         }
-        final Account account = this.getAccount(vendorAccountId);
-        final Account theOther = this.getAccount(otherVendorAccountId);
-        return verify(account, theOther, new AccountsHolder().add(account), new AccountsHolder().add(theOther)).isPresent();
+        final List<VendorAccountId> pair = Arrays.asList(vendorAccountId, otherVendorAccountId);
+        final Boolean verdict = verdicts.getIfPresent(pair);
+        if (verdict != null) {
+            return verdict;
+        }
+        final boolean related = verify(vendorAccountId, otherVendorAccountId).isPresent();
+        verdicts.put(pair, related);
+        return related;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "accountReassignVerification";
     }
 
-    private Optional<Account> verify(Account account, Account theOther, AccountsHolder ancestorsCurrent, AccountsHolder ancestorsTheOther)
+    @Override
+    public Map<String, Object> getMetrics() {
+        CacheStats stats = verdicts.stats();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("verdicts", verdicts.estimatedSize());
+        metrics.put("verdictHits", stats.hitCount());
+        metrics.put("verdictMisses", stats.missCount());
+        metrics.put("verdictHitRate", stats.hitRate());
+        return metrics;
+    }
+
+    private Optional<Account> verify(VendorAccountId vendorAccountId, VendorAccountId otherVendorAccountId)
         throws ServiceAccountManagementException {
-        if (ancestorsCurrent.isEnd() && ancestorsTheOther.isEnd()) {
-            return Optional.empty();
+        final CompletableFuture<List<Account>> ancestry = accountHierarchyCache.getAncestryAsync(vendorAccountId);
+        final CompletableFuture<List<Account>> otherAncestry = accountHierarchyCache.getAncestryAsync(otherVendorAccountId);
+        final AccountsHolder ancestorsCurrent;
+        final AccountsHolder ancestorsTheOther;
+        try {
+            ancestorsCurrent = toAccountsHolder(ancestry.join());
+            ancestorsTheOther = toAccountsHolder(otherAncestry.join());
+        } catch (CompletionException e) {
+            throw AccountHierarchyCache.unwrap(e);
         }
-        final AccountsHolder ancestorsOfCurrent = getAncestors(account, ancestorsCurrent);
-        final AccountsHolder ancestorsOfTheOther = getAncestors(theOther, ancestorsTheOther);
-        final Optional<Account> common = ancestorsOfCurrent.intersect(ancestorsOfTheOther);
-        if (!common.isPresent()) {
-            return verify(ancestorsCurrent.getLast().get(), ancestorsOfTheOther.getLast().get(), ancestorsOfCurrent, ancestorsOfTheOther);
-        } else if (common.get().getType() == Type.INTERNAL) {
+        // the common ancestors are the same tail of both chains, so the first one found is the closest
+        final Optional<Account> common = ancestorsCurrent.intersect(ancestorsTheOther);
+        if (common.isPresent() && common.get().getType() == Type.INTERNAL) {
             return verifyCommonAncestors(common.get());
         }
         return common;
     }
 
+    private static AccountsHolder toAccountsHolder(List<Account> ancestry) {
+        final AccountsHolder accountsHolder = new AccountsHolder();
+        ancestry.forEach(accountsHolder::add);
+        return accountsHolder;
+    }
+
     private Optional<Account> verifyCommonAncestors(Account account) throws ServiceAccountManagementException {
         final Optional<AccountId> parentAccountId = account.getParentAccount();
         if (parentAccountId.isPresent()) {
@@ -76,25 +131,8 @@ public class AccountReassignVerificationService {
         return acct.getType() == Type.INTERNAL && !isSpecial;
     }
 
-    private AccountsHolder getAncestors(Account account, AccountsHolder accountsHolder) throws ServiceAccountManagementException {
-        if (accountsHolder.isEnd()) {
-            return accountsHolder;
-        }
-        final Optional<AccountId> optParentId = account.getParentAccount();
-        if (optParentId.isPresent()) {
-            final Account parent = this.getAccount(new VendorAccountId(account.getVendorAccountId().getVendorId().getVendorId(),
-                optParentId.get().getAccountId()));
-            accountsHolder.add(parent);
-        } else {
-            accountsHolder.end();
-        }
-        return accountsHolder;
-    }
-
     private Account getAccount(VendorAccountId vendorAccountId) throws ServiceAccountManagementException {
-        return contextualServiceAccountManagementClientFactory.createContextualClient(
-            new VendorAccountId(vendorAccountId.getVendorId().getVendorId(),
-                vendorAccountId.getAccountId().getAccountId())).getAccount(vendorAccountId.getAccountId());
+        return accountHierarchyCache.getAccount(vendorAccountId);
     }
 
 }
@@ -8,27 +8,13 @@
 
 package com.messagemedia.numbers.service;
 
-import com.messagemedia.numbers.repository.entities.AssignmentEntity;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
 import java.time.OffsetDateTime;
-import java.util.List;
-import org.apache.commons.collections.CollectionUtils;
-import org.hibernate.envers.AuditReader;
-import org.hibernate.envers.RevisionType;
-import org.hibernate.envers.query.AuditEntity;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AssignmentVerificationService {
 
-    private final AuditReader auditReader;
-
-    @Autowired
-    public AssignmentVerificationService(AuditReader auditReader) {
-        this.auditReader = auditReader;
-    }
-
     public boolean isValidForNewAssignment(NumberEntity numberEntity, String vendorId, String accountId) {
         OffsetDateTime availableAfter = numberEntity.getAvailableAfter();
         return availableAfter != null
@@ -37,21 +23,6 @@ public class AssignmentVerificationService {
     }
 
     private boolean isLastAccountAssignedToNumber(NumberEntity numberEntity, String vendorId, String accountId) {
-        final List<AssignmentEntity> resultList = getAllAssignmentEntityInCreationEvent(numberEntity);
-        if (CollectionUtils.isEmpty(resultList)) {
-            return false;
-        }
-        return vendorId.equals(resultList.get(0).getVendorId()) && accountId.equals(resultList.get(0).getAccountId());
-    }
-
-    private List<AssignmentEntity> getAllAssignmentEntityInCreationEvent(NumberEntity numberEntity) {
-        return this.auditReader
-                .createQuery()
-                .forRevisionsOfEntity(AssignmentEntity.class, true, true)
-                .add(AuditEntity.property("numberEntity").eq(numberEntity))
-                .add(AuditEntity.revisionType().eq(RevisionType.ADD))
-                .addOrder(AuditEntity.property("created").desc())
-                .setMaxResults(1)
-                .getResultList();
+        return vendorId.equals(numberEntity.getLastVendorId()) && accountId.equals(numberEntity.getLastAccountId());
     }
 }
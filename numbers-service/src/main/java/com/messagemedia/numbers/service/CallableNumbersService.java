@@ -35,7 +35,6 @@ import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
-import java.util.Optional;
 import java.util.UUID;
 import java.util.List;
 
@@ -61,7 +60,19 @@ public class CallableNumbersService {
     }
 
     public CallableNumberDto getCallableNumber(UUID numberId) {
-        String responseString = getCallableNumberRaw(numberId);
+        if (NO_CALLABLE_NUMBERS_URL_VALUE.equals(callableNumbersUrl))  {
+            LOGGER.warn(INVALID_CALLABLE_NUMBERS_URL);
+            return null;
+        }
+
+        return getCallableNumber(getNumberEntity(numberId));
+    }
+
+    /**
+     * As {@link #getCallableNumber(UUID)} for a number the caller has loaded already.
+     */
+    public CallableNumberDto getCallableNumber(NumberEntity numberEntity) {
+        String responseString = getCallableNumberRaw(numberEntity);
 
         try {
             return MAPPER.readFrom(responseString, CallableNumberDto.class);
@@ -72,13 +83,13 @@ public class CallableNumbersService {
         return null;
     }
 
-    private String getCallableNumberRaw(UUID numberId) throws NumberNotFoundException {
+    private String getCallableNumberRaw(NumberEntity numberEntity) {
         if (NO_CALLABLE_NUMBERS_URL_VALUE.equals(callableNumbersUrl))  {
             LOGGER.warn(INVALID_CALLABLE_NUMBERS_URL);
             return null;
         }
 
-        NumberEntity numberEntity = getAndValidateNumberEntity(numberId);
+        validateCallable(numberEntity);
 
         try {
             String url = String.format("%s/numbers/%s", callableNumbersUrl, numberEntity.getPhoneNumber());
@@ -96,7 +107,19 @@ public class CallableNumbersService {
             return;
         }
 
-        NumberEntity numberEntity = getAndValidateNumberEntity(numberId);
+        deleteCallableNumber(getNumberEntity(numberId));
+    }
+
+    /**
+     * As {@link #deleteCallableNumber(UUID)} for a number the caller has loaded already.
+     */
+    public void deleteCallableNumber(NumberEntity numberEntity) {
+        if (NO_CALLABLE_NUMBERS_URL_VALUE.equals(callableNumbersUrl))  {
+            LOGGER.warn(INVALID_CALLABLE_NUMBERS_URL);
+            return;
+        }
+
+        validateCallable(numberEntity);
 
         try {
             String url = String.format("%s/numbers/%s", callableNumbersUrl, numberEntity.getPhoneNumber());
@@ -173,7 +196,19 @@ public class CallableNumbersService {
             return null;
         }
 
-        NumberEntity numberEntity = getAndValidateNumberEntity(numberId);
+        return createCallableNumber(getNumberEntity(numberId), vendorAccountId, routingProfileId);
+    }
+
+    /**
+     * As {@link #createCallableNumber(UUID, String, String)} for a number the caller has loaded already.
+     */
+    public CallableNumberCreateResponse createCallableNumber(NumberEntity numberEntity, String vendorAccountId, String routingProfileId) {
+        if (NO_CALLABLE_NUMBERS_URL_VALUE.equals(callableNumbersUrl))  {
+            LOGGER.warn(INVALID_CALLABLE_NUMBERS_URL);
+            return null;
+        }
+
+        validateCallable(numberEntity);
 
         CallableNumberCreateRequest createNumberRequest = new CallableNumberCreateRequest(
                 vendorAccountId, numberEntity.getPhoneNumber(), routingProfileId);
@@ -193,7 +228,19 @@ public class CallableNumbersService {
             return;
         }
 
-        NumberEntity numberEntity = getAndValidateNumberEntity(numberId);
+        updateCallableNumber(getNumberEntity(numberId), vendorAccountId, routingProfileId);
+    }
+
+    /**
+     * As {@link #updateCallableNumber(UUID, String, String)} for a number the caller has loaded already.
+     */
+    public void updateCallableNumber(NumberEntity numberEntity, String vendorAccountId, String routingProfileId) {
+        if (NO_CALLABLE_NUMBERS_URL_VALUE.equals(callableNumbersUrl))  {
+            LOGGER.warn(INVALID_CALLABLE_NUMBERS_URL);
+            return;
+        }
+
+        validateCallable(numberEntity);
 
         CallableNumberUpdateRequest updateCallableNumberRequest = new CallableNumberUpdateRequest(routingProfileId, vendorAccountId);
 
@@ -201,17 +248,13 @@ public class CallableNumbersService {
         restTemplate.put(url, updateCallableNumberRequest);
     }
 
-    private NumberEntity getAndValidateNumberEntity(UUID numberId) {
-        Optional <NumberEntity> numberEntity = numbersRepository.findById(numberId);
-
-        if (!numberEntity.isPresent()) {
-            throw new NumberNotFoundException(numberId);
-        }
+    private NumberEntity getNumberEntity(UUID numberId) {
+        return numbersRepository.findById(numberId).orElseThrow(() -> new NumberNotFoundException(numberId));
+    }
 
-        if (!numberEntity.get().getCapabilities().contains(ServiceType.CALL)) {
-            throw new NumberCapabilityNotAvailableException(numberId, ServiceType.CALL);
+    private static void validateCallable(NumberEntity numberEntity) {
+        if (!numberEntity.getCapabilities().contains(ServiceType.CALL)) {
+            throw new NumberCapabilityNotAvailableException(numberEntity.getId(), ServiceType.CALL);
         }
-
-        return numberEntity.get();
     }
 }
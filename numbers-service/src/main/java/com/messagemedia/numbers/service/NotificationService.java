@@ -8,28 +8,156 @@
 
 package com.messagemedia.numbers.service;
 
+import com.messagemedia.framework.json.JsonFastMapper;
 import com.messagemedia.numbers.exception.EventNotificationPublishingFailedException;
+import com.messagemedia.numbers.repository.ProvisioningOutboxRepository;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.mappers.AssignmentMapper;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.repository.projections.OutboxEvent;
 import com.messagemedia.numbers.service.client.models.Event;
 import com.messagemedia.numbers.service.client.models.EventNotification;
 import com.messagemedia.numbers.service.client.models.NumberDto;
-import com.messagemedia.numbers.sqs.SQSQueuePublisher;
+import com.messagemedia.numbers.service.metrics.MetricsSource;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Enqueues provisioning events in the outbox in the transaction of the change they are about, so an event is published
+ * exactly when its change commits. {@link com.messagemedia.numbers.service.outbox.ProvisioningOutboxRelay} publishes
+ * them to the provisioning queue.
+ * <p>
+ * With a coalescing window events are only due once the window has passed. An update that arrives while the previous
+ * event of its number is still pending is folded into that event, which then carries the latest state of the number
+ * under its own type. Creations, assignments, unassignments and deletions are never folded away.
+ */
 @Service
-public class NotificationService {
+public class NotificationService implements MetricsSource {
 
-    private final SQSQueuePublisher provisioningSQSQueuePublisher;
+    /**
+     * The events which only carry the new state of a number, with the pending events each of them can be folded into.
+     */
+    private static final Map<Event, Set<Event>> FOLDED_INTO = new EnumMap<>(Event.class);
+
+    static {
+        FOLDED_INTO.put(Event.NUMBER_UPDATED,
+                EnumSet.of(Event.NUMBER_CREATED, Event.NUMBER_ASSIGNED, Event.NUMBER_REASSIGNED, Event.NUMBER_UPDATED));
+        FOLDED_INTO.put(Event.ASSIGNMENT_UPDATED,
+                EnumSet.of(Event.NUMBER_ASSIGNED, Event.NUMBER_REASSIGNED, Event.ASSIGNMENT_UPDATED));
+    }
+
+    private final ProvisioningOutboxRepository outboxRepository;
+    private final NumbersMapper numbersMapper;
+    private final AssignmentMapper assignmentMapper;
+    private final JsonFastMapper mapper;
+    private final long coalesceWindowMillis;
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
 
     @Autowired
-    public NotificationService(@Qualifier("provisioningSQSQueuePublisher") SQSQueuePublisher provisioningSQSQueuePublisher) {
-        this.provisioningSQSQueuePublisher = provisioningSQSQueuePublisher;
+    public NotificationService(ProvisioningOutboxRepository outboxRepository,
+                               NumbersMapper numbersMapper,
+                               AssignmentMapper assignmentMapper,
+                               JsonFastMapper mapper,
+                               @Value("${numbers.service.outbox.coalesceWindowMillis}") long coalesceWindowMillis) {
+        this.outboxRepository = outboxRepository;
+        this.numbersMapper = numbersMapper;
+        this.assignmentMapper = assignmentMapper;
+        this.mapper = mapper;
+        this.coalesceWindowMillis = coalesceWindowMillis;
+    }
+
+    /**
+     * Enqueues an event about the number and the given assignment, which is the removed one when the number has been
+     * unassigned.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void push(Event event, NumberEntity numberEntity, AssignmentEntity assignmentEntity)
+            throws EventNotificationPublishingFailedException {
+        NumberDto numberDto = numbersMapper.toNumberDto(numberEntity);
+        numberDto.setAssignedTo(assignmentMapper.toAssignmentDto(assignmentEntity));
+        push(event, numberDto);
     }
 
+    @Transactional(propagation = Propagation.MANDATORY)
     public void push(Event event, NumberDto numberDto) throws EventNotificationPublishingFailedException {
-        EventNotification eventNotification = new EventNotification(event, convertToNumberWithoutAssignment(numberDto), numberDto.getAssignedTo());
-        provisioningSQSQueuePublisher.publish(eventNotification);
+        pushAll(event, Collections.singletonList(numberDto));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void pushAll(Event event, List<NumberDto> numberDtos) throws EventNotificationPublishingFailedException {
+        if (numberDtos.isEmpty()) {
+            return;
+        }
+        Set<Event> foldedInto = coalesceWindowMillis > 0 ? FOLDED_INTO.get(event) : null;
+        Map<UUID, OutboxEvent> pending = foldedInto == null ? Collections.emptyMap()
+                : outboxRepository.lockLatestEvents(numberDtos.stream().map(NumberDto::getId).collect(toList()));
+        List<OutboxEvent> events = new ArrayList<>(numberDtos.size());
+        Map<Long, String> folded = new HashMap<>();
+        for (NumberDto numberDto : numberDtos) {
+            OutboxEvent latest = pending.get(numberDto.getId());
+            if (latest != null && latest.getEvent() != null && foldedInto.contains(Event.valueOf(latest.getEvent()))) {
+                Event latestEvent = Event.valueOf(latest.getEvent());
+                folded.put(latest.getId(), toJson(latestEvent, toEventNotification(latestEvent, numberDto)));
+            } else {
+                events.add(OutboxEvent.pending(numberDto.getId(), event.name(), toJson(event, toEventNotification(event, numberDto))));
+            }
+        }
+        if (!folded.isEmpty()) {
+            outboxRepository.updatePayloads(folded);
+            coalesced.add(numberDtos.size() - events.size());
+        }
+        if (!events.isEmpty()) {
+            OffsetDateTime now = OffsetDateTime.now();
+            outboxRepository.insertEvents(events, now, now.plus(coalesceWindowMillis, ChronoUnit.MILLIS));
+            enqueued.add(events.size());
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "provisioningNotifications";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enqueued", enqueued.sum());
+        metrics.put("coalesced", coalesced.sum());
+        return metrics;
+    }
+
+    private EventNotification toEventNotification(Event event, NumberDto numberDto) {
+        return new EventNotification(event, convertToNumberWithoutAssignment(numberDto), numberDto.getAssignedTo());
+    }
+
+    private String toJson(Event event, EventNotification eventNotification) {
+        try {
+            return mapper.toJsonString(eventNotification);
+        } catch (IOException e) {
+            throw new EventNotificationPublishingFailedException("Unable to serialize event notification: " + event, e);
+        }
     }
 
     private NumberDto convertToNumberWithoutAssignment(NumberDto numberDto) {
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service;
+
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.numbers.exception.NumberBatchRequestInvalidException;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.service.client.models.Event;
+import com.messagemedia.numbers.service.event.NumberChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Registers numbers in bulk.
+ * <p>
+ * Numbers are written in chunks, each in its own transaction, so a chunk is inserted with JDBC batches and audited
+ * under a single revision. Phone numbers that are already registered (or repeated within the request) are reported
+ * as duplicates instead of failing the request. The provisioning events of a chunk are enqueued in its transaction.
+ */
+@Service
+public class NumberRegistrationService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NumberRegistrationService.class);
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    private final NumbersRepository numbersRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final NotificationService notificationService;
+    private final NumbersMapper numbersMapper;
+    private final TransactionTemplate chunkTransaction;
+    private final int maxItems;
+    private final int chunkSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public NumberRegistrationService(NumbersRepository numbersRepository,
+                                     ApplicationEventPublisher eventPublisher,
+                                     NotificationService notificationService,
+                                     NumbersMapper numbersMapper,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${numbers.service.batch.maxItems}") int maxItems,
+                                     @Value("${numbers.service.batch.chunkSize}") int chunkSize) {
+        this.numbersRepository = numbersRepository;
+        this.eventPublisher = eventPublisher;
+        this.notificationService = notificationService;
+        this.numbersMapper = numbersMapper;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.maxItems = maxItems;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return one entry per given number in the same order, empty when the phone number is a duplicate
+     */
+    public List<Optional<NumberEntity>> registerNumbers(List<NumberEntity> numbers) {
+        if (numbers == null || numbers.isEmpty() || numbers.size() > maxItems || numbers.contains(null)) {
+            throw new NumberBatchRequestInvalidException(numbers == null ? 0 : numbers.size(), maxItems);
+        }
+        Set<String> requested = new HashSet<>();
+        List<Optional<NumberEntity>> results = new ArrayList<>(numbers.size());
+        for (int from = 0; from < numbers.size(); from += chunkSize) {
+            List<NumberEntity> chunk = numbers.subList(from, Math.min(from + chunkSize, numbers.size()));
+            // repeats within the request are duplicates of the first occurrence, whichever chunk it lands in
+            List<NumberEntity> candidates = chunk.stream().filter(number -> requested.add(number.getPhoneNumber())).collect(toList());
+            Set<NumberEntity> created = registerChunk(candidates);
+            chunk.forEach(number -> results.add(created.contains(number) ? Optional.of(number) : Optional.empty()));
+        }
+        return results;
+    }
+
+    private Set<NumberEntity> registerChunk(List<NumberEntity> candidates) {
+        if (candidates.isEmpty()) {
+            return Collections.emptySet();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return chunkTransaction.execute(status -> insertChunk(candidates));
+            } catch (DataIntegrityViolationException e) {
+                // a concurrent registration committed one of the phone numbers after the check, it is seen on retry
+                if (attempt == MAX_CHUNK_ATTEMPTS) {
+                    throw e;
+                }
+                LOGGER.warnWithReason("Retrying chunk", "Chunk of {} numbers conflicted with a concurrent registration",
+                        candidates.size());
+            }
+        }
+    }
+
+    private Set<NumberEntity> insertChunk(List<NumberEntity> candidates) {
+        Set<String> registered = new HashSet<>(numbersRepository.findRegisteredPhoneNumbers(
+                candidates.stream().map(NumberEntity::getPhoneNumber).collect(toList())));
+        List<NumberEntity> created = new ArrayList<>();
+        for (NumberEntity number : candidates) {
+            if (!registered.contains(number.getPhoneNumber())) {
+                // persist rather than save, the id is already set so save would merge and select every row first
+                entityManager.persist(number);
+                created.add(number);
+                eventPublisher.publishEvent(NumberChangedEvent.unassigned(number));
+            }
+        }
+        if (!created.isEmpty()) {
+            notificationService.pushAll(Event.NUMBER_CREATED, numbersMapper.toNumberDtoList(created));
+        }
+        return new HashSet<>(created);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service;
+
+import com.messagemedia.numbers.exception.NotUsTollFreeNumberException;
+import com.messagemedia.numbers.exception.NumberAvailableAfterUpdateException;
+import com.messagemedia.numbers.exception.NumberNotFoundException;
+import com.messagemedia.numbers.exception.TollFreeNumberUpdateStatusException;
+import com.messagemedia.numbers.model.dto.BulkUpdateFailure;
+import com.messagemedia.numbers.model.dto.BulkUpdateResponse;
+import com.messagemedia.numbers.repository.AssignmentRepository;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
+import com.messagemedia.numbers.service.client.models.Event;
+import com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
+import com.messagemedia.numbers.service.client.models.UpdateAssignmentRequest;
+import com.messagemedia.numbers.service.client.models.UpdateNumberRequest;
+import com.messagemedia.numbers.service.event.NumberChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Applies one update to every number, or every assignment, matching a search.
+ * <p>
+ * Matches are walked in id order a chunk at a time, each chunk in its own transaction. The numbers of a chunk are
+ * locked and checked against the update with the rules of {@code PATCH /v1/numbers/{id}} and
+ * {@code PATCH /v1/numbers/{id}/assignment}, then the numbers that pass are updated with one statement. Numbers that
+ * fail are left as they are and counted, the first few are reported with the reason. The events of a chunk are
+ * enqueued in its transaction.
+ */
+@Service
+public class NumbersBulkUpdateService {
+
+    private final NumbersRepository numbersRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final NumbersService numbersService;
+    private final NotificationService notificationService;
+    private final NumbersMapper numbersMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+    private final int maxFailures;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public NumbersBulkUpdateService(NumbersRepository numbersRepository,
+                                    AssignmentRepository assignmentRepository,
+                                    NumbersService numbersService,
+                                    NotificationService notificationService,
+                                    NumbersMapper numbersMapper,
+                                    ApplicationEventPublisher eventPublisher,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${numbers.service.bulk.update.chunkSize}") int chunkSize,
+                                    @Value("${numbers.service.bulk.update.maxFailures}") int maxFailures) {
+        this.numbersRepository = numbersRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.numbersService = numbersService;
+        this.notificationService = notificationService;
+        this.numbersMapper = numbersMapper;
+        this.eventPublisher = eventPublisher;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxFailures = maxFailures;
+    }
+
+    public BulkUpdateResponse updateNumbers(NumberSearchRequest filter, PhoneNumberPattern.Mode matchMode, UpdateNumberRequest patch) {
+        NumbersService.verifyNotEmpty(patch);
+        return walk(Event.NUMBER_UPDATED, after -> numbersRepository.findIds(filter, matchMode, after, chunkSize),
+                (ids, chunk) -> updateNumberChunk(ids, patch, chunk));
+    }
+
+    public BulkUpdateResponse updateAssignments(NumberAssignmentSearchRequest filter, PhoneNumberPattern.Mode matchMode,
+                                                UpdateAssignmentRequest patch) {
+        NumbersService.verifyNotEmpty(patch);
+        return walk(Event.ASSIGNMENT_UPDATED, after -> numbersRepository.findIds(filter, matchMode, after, chunkSize),
+                (ids, chunk) -> updateAssignmentChunk(ids, patch, chunk));
+    }
+
+    private BulkUpdateResponse walk(Event event, Function<UUID, Map<UUID, UUID>> nextIds,
+                                    BiFunction<Map<UUID, UUID>, Chunk, Chunk> update) {
+        int matched = 0;
+        int updated = 0;
+        int failed = 0;
+        List<BulkUpdateFailure> failures = new ArrayList<>();
+        UUID after = null;
+        while (true) {
+            UUID from = after;
+            Chunk chunk = chunkTransaction.execute(status -> {
+                Map<UUID, UUID> ids = nextIds.apply(from);
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                Chunk applied = update.apply(ids, new Chunk(ids));
+                if (!applied.updated.isEmpty()) {
+                    notificationService.pushAll(event, applied.updated);
+                }
+                return applied;
+            });
+            if (chunk == null) {
+                break;
+            }
+            matched += chunk.matched;
+            updated += chunk.updated.size();
+            failed += chunk.failures.size();
+            chunk.failures.stream().limit(maxFailures - failures.size()).forEach(failures::add);
+            if (chunk.matched < chunkSize) {
+                break;
+            }
+            after = chunk.last;
+        }
+        return new BulkUpdateResponse(matched, updated, failed, failures);
+    }
+
+    private Chunk updateNumberChunk(Map<UUID, UUID> ids, UpdateNumberRequest patch, Chunk chunk) {
+        Map<UUID, NumberEntity> numbers = lock(ids);
+        List<NumberEntity> valid = new ArrayList<>(numbers.size());
+        for (UUID numberId : ids.keySet()) {
+            NumberEntity number = numbers.get(numberId);
+            if (number == null) {
+                chunk.fail(numberId, new NumberNotFoundException(numberId).getMessage());
+                continue;
+            }
+            try {
+                numbersService.applyNumberUpdate(number, patch);
+                valid.add(number);
+            } catch (NotUsTollFreeNumberException | TollFreeNumberUpdateStatusException | NumberAvailableAfterUpdateException e) {
+                chunk.fail(numberId, e.getMessage());
+            }
+        }
+        if (valid.isEmpty()) {
+            return chunk;
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        numbersRepository.updateAll(valid.stream().map(NumberEntity::getId).collect(toList()), patch, now);
+        valid.forEach(number -> {
+            number.setUpdated(now);
+            eventPublisher.publishEvent(NumberChangedEvent.of(number));
+            chunk.updated.add(numbersMapper.toNumberDto(number));
+        });
+        return chunk;
+    }
+
+    private Chunk updateAssignmentChunk(Map<UUID, UUID> ids, UpdateAssignmentRequest patch, Chunk chunk) {
+        Map<UUID, NumberEntity> numbers = lock(ids);
+        List<NumberEntity> valid = new ArrayList<>(numbers.size());
+        for (Map.Entry<UUID, UUID> match : ids.entrySet()) {
+            NumberEntity number = numbers.get(match.getKey());
+            if (number == null) {
+                chunk.fail(match.getKey(), new NumberNotFoundException(match.getKey()).getMessage());
+            } else if (number.getAssignedTo() == null || !Objects.equals(match.getValue(), number.getAssignedTo().getId())) {
+                // unassigned, or even assigned to another account, since it was matched
+                chunk.fail(match.getKey(), String.format("Number id {%s} is no longer assigned to assignment {%s}",
+                        match.getKey(), match.getValue()));
+            } else {
+                numbersService.applyAssignmentUpdate(number, patch);
+                valid.add(number);
+            }
+        }
+        if (valid.isEmpty()) {
+            return chunk;
+        }
+        assignmentRepository.updateAll(valid.stream().map(number -> number.getAssignedTo().getId()).collect(toList()), patch,
+                OffsetDateTime.now());
+        valid.forEach(number -> {
+            AssignmentEntity assignment = number.getAssignedTo();
+            eventPublisher.publishEvent(NumberChangedEvent.assigned(number, assignment));
+            chunk.updated.add(numbersMapper.toNumberDto(number));
+        });
+        return chunk;
+    }
+
+    private Map<UUID, NumberEntity> lock(Map<UUID, UUID> ids) {
+        Map<UUID, NumberEntity> numbers = new HashMap<>();
+        numbersRepository.findAllByIdForUpdate(ids.keySet()).forEach(number -> numbers.put(number.getId(), number));
+        // the entities only describe the change from here on, the SQL makes it
+        entityManager.clear();
+        return numbers;
+    }
+
+    private static final class Chunk {
+
+        private final int matched;
+        private final UUID last;
+        private final List<NumberDto> updated = new ArrayList<>();
+        private final List<BulkUpdateFailure> failures = new ArrayList<>();
+
+        private Chunk(Map<UUID, UUID> ids) {
+            this.matched = ids.size();
+            UUID lastId = null;
+            for (UUID id : ids.keySet()) {
+                lastId = id;
+            }
+            this.last = lastId;
+        }
+
+        private void fail(UUID numberId, String message) {
+            failures.add(new BulkUpdateFailure(numberId, message));
+        }
+    }
+}
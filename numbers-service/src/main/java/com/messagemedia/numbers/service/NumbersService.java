@@ -18,6 +18,7 @@ import com.messagemedia.numbers.exception.InvalidAccountRelationshipException;
 import com.messagemedia.numbers.exception.NotUsTollFreeNumberException;
 import com.messagemedia.numbers.exception.NumberAlreadyAssignedException;
 import com.messagemedia.numbers.exception.NumberAvailableAfterUpdateException;
+import com.messagemedia.numbers.exception.NumberLookupRequestInvalidException;
 import com.messagemedia.numbers.exception.NumberNotAssignedException;
 import com.messagemedia.numbers.exception.NumberNotAvailableException;
 import com.messagemedia.numbers.exception.NumberNotFoundException;
@@ -27,99 +28,208 @@ import com.messagemedia.numbers.repository.AssignmentRepository;
 import com.messagemedia.numbers.repository.NumbersRepository;
 import com.messagemedia.numbers.repository.entities.AssignmentEntity;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.projections.NumberView;
+import com.messagemedia.numbers.repository.search.CompiledSearch;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
 import com.messagemedia.numbers.service.billing.SlackMessage;
+import com.messagemedia.numbers.service.cache.NumberCache;
+import com.messagemedia.numbers.service.client.models.Event;
 import com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest;
 import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
 import com.messagemedia.numbers.service.client.models.NumberType;
 import com.messagemedia.numbers.service.client.models.Status;
 import com.messagemedia.numbers.service.client.models.UpdateAssignmentRequest;
 import com.messagemedia.numbers.service.client.models.UpdateNumberRequest;
+import com.messagemedia.numbers.service.billing.BillingNotificationService;
+import com.messagemedia.numbers.service.event.NumberChangedEvent;
 import com.messagemedia.numbers.service.event.SlackNotificationEvent;
-import com.messagemedia.numbers.specification.NumberAssignmentSearchSpecification;
-import com.messagemedia.numbers.specification.NumberSearchSpecification;
+import com.messagemedia.numbers.specification.NumberLookupSpecification;
 import com.messagemedia.service.accountmanagement.client.exception.ServiceAccountManagementException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 import static java.lang.Boolean.FALSE;
 import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toList;
 
 @Service
 public class NumbersService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NumbersService.class);
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-fA-F]{8}(-[0-9a-fA-F]{4}){3}-[0-9a-fA-F]{12}");
 
     private final NumbersRepository numbersRepository;
     private final AssignmentRepository assignmentRepository;
     private final AssignmentVerificationService assignmentVerificationService;
+    private final NumberCache numberCache;
     private final ApplicationEventPublisher eventPublisher;
+    private final NotificationService notificationService;
+    private final BillingNotificationService billingNotificationService;
     private final String slackNotificationUrl;
 
     @Value("${numbers.service.availability.graceperiod.days}")
     private int extendAvailableAfterDays;
 
+    @Value("${numbers.service.lookup.maxItems}")
+    private int lookupMaxItems;
+
+    @Value("${numbers.service.export.fetchSize}")
+    private int exportFetchSize;
+
     private final AccountReassignVerificationService accountReassignVerificationService;
 
     @Autowired
     public NumbersService(NumbersRepository numbersRepository, AssignmentRepository assignmentRepository,
                           AccountReassignVerificationService accountReassignVerificationService,
                           AssignmentVerificationService assignmentVerificationService,
+                          NumberCache numberCache,
                           ApplicationEventPublisher eventPublisher,
+                          NotificationService notificationService,
+                          BillingNotificationService billingNotificationService,
                           @Value("${service.numbers-service.slack-notification.assigned-tfn.url:NONE}") String slackNotificationUrl) {
         this.numbersRepository = numbersRepository;
         this.assignmentRepository = assignmentRepository;
         this.accountReassignVerificationService = accountReassignVerificationService;
         this.assignmentVerificationService = assignmentVerificationService;
+        this.numberCache = numberCache;
         this.eventPublisher = eventPublisher;
+        this.notificationService = notificationService;
+        this.billingNotificationService = billingNotificationService;
         this.slackNotificationUrl = slackNotificationUrl;
     }
 
-    public NumberListResult getNumbers(NumberSearchRequest request) {
-        Pageable pageable = PageRequest.of(0, request.getPageSize() + 1, new Sort(Sort.Direction.ASC, "id"));
-        // Requesting (pageSize + 1) numbers as the ID of the last number is used as the token to the next page.
-        List<NumberEntity> numbers = numbersRepository.findAll(new NumberSearchSpecification(request), pageable).getContent();
-        return getNumberListResult(request.getPageSize(), numbers);
+    /**
+     * Reads a page of numbers into {@link NumberView}s without managed entities or a count query. Requesting
+     * (pageSize + 1) numbers as the ID of the last number is used as the token to the next page. The match mode says
+     * how the matching pattern is compared, null keeps it a regular expression.
+     */
+    @Transactional(readOnly = true)
+    public NumberViewListResult getNumbers(NumberSearchRequest request, PhoneNumberPattern.Mode matchMode) {
+        List<NumberView> numbers = numbersRepository.findViews(request, matchMode, request.getPageSize() + 1);
+        return getNumberViewListResult(request.getPageSize(), numbers);
     }
 
-    private NumberListResult getNumberListResult(int requestedPageSize, List<NumberEntity> numbers) {
-        UUID token = null;
-        if (numbers.size() == requestedPageSize + 1) {
-            token = numbers.get(requestedPageSize).getId();
-            numbers = numbers.subList(0, requestedPageSize);
+    /**
+     * Compiles the export of every number matching the request, so an invalid filter is reported before the export
+     * starts streaming.
+     */
+    public CompiledSearch prepareExport(NumberSearchRequest request, PhoneNumberPattern.Mode matchMode) {
+        return numbersRepository.compileExport(request, matchMode);
+    }
+
+    /**
+     * Hands every number of a prepared export to the consumer as it is read from the cursor, nothing is collected.
+     */
+    @Transactional(readOnly = true)
+    public void exportNumbers(CompiledSearch export, Consumer<NumberView> consumer) {
+        numbersRepository.streamViews(export, exportFetchSize, consumer);
+    }
+
+    /**
+     * Resolves number ids and phone numbers with a single query. The result is in the order of the items, with an
+     * empty value for each item that did not match a number.
+     */
+    @Transactional(readOnly = true)
+    public List<Optional<NumberEntity>> lookupNumbers(List<String> items) {
+        if (items == null || items.isEmpty() || items.size() > lookupMaxItems) {
+            throw new NumberLookupRequestInvalidException(items == null ? 0 : items.size(), lookupMaxItems);
+        }
+        Set<UUID> ids = new HashSet<>();
+        Set<String> phoneNumbers = new HashSet<>();
+        for (String item : items) {
+            if (item == null) {
+                continue;
+            }
+            if (UUID_PATTERN.matcher(item.trim()).matches()) {
+                ids.add(UUID.fromString(item.trim()));
+            } else {
+                phoneNumbers.add(item.trim());
+            }
         }
-        return new NumberListResult(numbers, token);
+
+        Map<UUID, NumberEntity> byId = new HashMap<>();
+        Map<String, NumberEntity> byPhoneNumber = new HashMap<>();
+        if (!ids.isEmpty() || !phoneNumbers.isEmpty()) {
+            for (NumberEntity number : numbersRepository.findAll(new NumberLookupSpecification(ids, phoneNumbers))) {
+                byId.put(number.getId(), number);
+                byPhoneNumber.put(number.getPhoneNumber(), number);
+            }
+        }
+        return items.stream()
+                .map(item -> {
+                    if (item == null) {
+                        return Optional.<NumberEntity>empty();
+                    }
+                    String key = item.trim();
+                    return UUID_PATTERN.matcher(key).matches()
+                            ? Optional.ofNullable(byId.get(UUID.fromString(key)))
+                            : Optional.ofNullable(byPhoneNumber.get(key));
+                })
+                .collect(toList());
     }
 
+    @Transactional
     public NumberEntity registerNumber(NumberEntity numberEntity) {
         Objects.requireNonNull(numberEntity);
-        return numbersRepository.save(numberEntity);
+        NumberEntity saved = numbersRepository.save(numberEntity);
+        eventPublisher.publishEvent(NumberChangedEvent.unassigned(numberEntity));
+        enqueueNotification(Event.NUMBER_CREATED, numberEntity, null);
+        return saved;
     }
 
-    public NumberListResult getNumberAssignments(NumberAssignmentSearchRequest request) {
-        Pageable pageable = PageRequest.of(0, request.getPageSize() + 1, new Sort(Sort.Direction.ASC, "id"));
-        List<NumberEntity> numbers = numbersRepository.findAll(new NumberAssignmentSearchSpecification(request), pageable).getContent();
-        return getNumberListResult(request.getPageSize(), numbers);
+    /**
+     * Reads a page of the numbers assigned to an account, see {@link #getNumbers(NumberSearchRequest,
+     * PhoneNumberPattern.Mode)}.
+     */
+    @Transactional(readOnly = true)
+    public NumberViewListResult getNumberAssignments(NumberAssignmentSearchRequest request, PhoneNumberPattern.Mode matchMode) {
+        List<NumberView> numbers = numbersRepository.findViews(request, matchMode, request.getPageSize() + 1);
+        return getNumberViewListResult(request.getPageSize(), numbers);
+    }
+
+    private NumberViewListResult getNumberViewListResult(int requestedPageSize, List<NumberView> numbers) {
+        UUID token = null;
+        if (numbers.size() == requestedPageSize + 1) {
+            token = numbers.get(requestedPageSize).getId();
+            numbers = numbers.subList(0, requestedPageSize);
+        }
+        return new NumberViewListResult(numbers, token);
     }
 
     @Transactional
     public AssignmentEntity assignNumberToAccount(UUID numberId, AssignmentEntity assignmentEntity) {
         Objects.requireNonNull(assignmentEntity);
-
         NumberEntity numberEntity = getNumber(numberId);
+        AssignmentEntity assignment = assignNumber(numberEntity, assignmentEntity);
+        numberEntity.setAssignedTo(assignment);
+        enqueueNotification(Event.NUMBER_ASSIGNED, numberEntity, assignment);
+        billingNotificationService.sendAddNotification(new VendorAccountId(assignment.getVendorId(), assignment.getAccountId()), numberEntity);
+        return assignment;
+    }
 
+    /**
+     * Assigns an already loaded number in the caller's transaction. Nothing is written when the number cannot be
+     * assigned, so callers assigning many numbers in one transaction can report the exception and carry on.
+     */
+    public AssignmentEntity assignNumber(NumberEntity numberEntity, AssignmentEntity assignmentEntity) {
+        UUID numberId = numberEntity.getId();
         if (numberEntity.getAssignedTo() != null) {
             throw new NumberAlreadyAssignedException(numberId);
         }
@@ -132,6 +242,7 @@ public class NumbersService {
 
         //indicate that this number is not available
         numberEntity.setAvailableAfter(null);
+        numberEntity.setLastAssignee(assignmentEntity);
         numbersRepository.save(numberEntity);
 
         assignmentEntity.setNumberEntity(numberEntity);
@@ -145,6 +256,7 @@ public class NumbersService {
                     "assign");
         }
 
+        eventPublisher.publishEvent(NumberChangedEvent.assigned(numberEntity, assignmentEntity));
         return assignmentEntity;
     }
 
@@ -162,20 +274,39 @@ public class NumbersService {
         VendorAccountId newAssignee = new VendorAccountId(assignmentEntity.getVendorId(), assignmentEntity.getAccountId());
         VendorAccountId currentAssignee = new VendorAccountId(currentAssignment.getVendorId(), currentAssignment.getAccountId());
 
-        if (!this.accountReassignVerificationService.verifyAccountRelationship(newAssignee, currentAssignee)) {
-            throw new InvalidAccountRelationshipException(newAssignee);
-        }
+        verifyReassignment(currentAssignee, newAssignee);
 
         assignmentRepository.delete(currentAssignment);
         assignmentEntity.setNumberEntity(numberEntity);
         assignmentEntity = assignmentRepository.save(assignmentEntity);
+        numberEntity.setLastAssignee(assignmentEntity);
+
+        publishReassigned(numberEntity, assignmentEntity);
+        numberEntity.setAssignedTo(assignmentEntity);
+        enqueueNotification(Event.NUMBER_REASSIGNED, numberEntity, assignmentEntity);
+        return assignmentEntity;
+    }
+
+    /**
+     * Checks once that numbers can be moved between the two accounts, for callers reassigning many numbers of one
+     * account to another.
+     */
+    public void verifyReassignment(VendorAccountId currentAssignee, VendorAccountId newAssignee) throws ServiceAccountManagementException {
+        if (!this.accountReassignVerificationService.verifyAccountRelationship(newAssignee, currentAssignee)) {
+            throw new InvalidAccountRelationshipException(newAssignee);
+        }
+    }
 
+    /**
+     * Publishes the events of a reassigned number, in the caller's transaction.
+     */
+    public void publishReassigned(NumberEntity numberEntity, AssignmentEntity assignmentEntity) {
         if (isUsTollFreeNumber(numberEntity)) {
             publishEvent(numberEntity.getPhoneNumber(), new VendorAccountId(assignmentEntity.getVendorId(), assignmentEntity.getAccountId()),
                     "reassign");
         }
 
-        return assignmentEntity;
+        eventPublisher.publishEvent(NumberChangedEvent.assigned(numberEntity, assignmentEntity));
     }
 
     public AssignmentEntity loadAssignmentDetailsByNumberId(UUID numberId) {
@@ -195,6 +326,7 @@ public class NumbersService {
         assignmentRepository.delete(assignedTo);
         number.setAvailableAfter(OffsetDateTime.now().plusDays(extendAvailableAfterDays));
         number.setAssignedTo(null);
+        number.setLastAssignee(assignedTo);
         number.setDedicatedReceiver(FALSE);
 
         if (isUsTollFreeNumber(number)) {
@@ -202,25 +334,67 @@ public class NumbersService {
         }
 
         numbersRepository.save(number);
+        eventPublisher.publishEvent(NumberChangedEvent.unassigned(number));
+        enqueueNotification(Event.NUMBER_UNASSIGNED, number, assignedTo);
+        billingNotificationService.sendRemoveNotification(new VendorAccountId(assignedTo.getVendorId(), assignedTo.getAccountId()), number);
         return assignedTo;
     }
 
+    /**
+     * Ids of up to {@code limit} numbers currently assigned to the account that come after {@code after}, from the
+     * start when null, in id order.
+     */
+    @Transactional(readOnly = true)
+    public List<UUID> findAssignedNumberIds(String vendorId, String accountId, UUID after, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return after == null
+                ? assignmentRepository.findNumberIdsByAccount(vendorId, accountId, page)
+                : assignmentRepository.findNumberIdsByAccountAfter(vendorId, accountId, after, page);
+    }
+
     public NumberEntity getNumber(UUID numberId) {
         Objects.requireNonNull(numberId);
         return numbersRepository.findById(numberId)
                 .orElseThrow(() -> new NumberNotFoundException(numberId));
     }
 
+    /**
+     * Returns a detached snapshot of the number served from {@link NumberCache}, which may be a change feed poll behind
+     * the database. Only for numbers handed back to the caller, anything deciding what may happen to the number reads
+     * it with {@link #getNumber(UUID)}.
+     */
+    public NumberEntity getCachedNumber(UUID numberId) {
+        Objects.requireNonNull(numberId);
+        return numberCache.get(numberId)
+                .orElseThrow(() -> new NumberNotFoundException(numberId));
+    }
+
     @Transactional
     public NumberEntity updateNumber(UUID numberId, UpdateNumberRequest numberRequest) {
+        verifyNotEmpty(numberRequest);
+
+        NumberEntity numberEntity = getNumber(numberId);
+        applyNumberUpdate(numberEntity, numberRequest);
+
+        NumberEntity saved = numbersRepository.save(numberEntity);
+        eventPublisher.publishEvent(NumberChangedEvent.of(numberEntity));
+        enqueueNotification(Event.NUMBER_UPDATED, numberEntity, numberEntity.getAssignedTo());
+        return saved;
+    }
+
+    public static void verifyNotEmpty(UpdateNumberRequest numberRequest) {
         Objects.requireNonNull(numberRequest);
 
         if (numberRequest.isEmpty()) {
             throw new NumberUpdateRequestEmptyException(String.format("request body is invalid: %s", Objects.toString(numberRequest)));
         }
+    }
 
-        NumberEntity numberEntity = getNumber(numberId);
-
+    /**
+     * Checks the update against the number and applies it to the entity without saving it, so bulk updates enforce
+     * the same rules as a single one.
+     */
+    public void applyNumberUpdate(NumberEntity numberEntity, UpdateNumberRequest numberRequest) {
         if (numberRequest.hasStatus()) {
             if (!isUsTollFreeNumber(numberEntity)) {
                 throw new NotUsTollFreeNumberException(numberEntity.getId());
@@ -231,7 +405,7 @@ public class NumbersService {
         // the assigned number should not change availableAfter to non-null
         if (numberEntity.getAssignedTo() != null
                 && !Optional.ofNullable(numberRequest.getAvailableAfter()).map(ValueWithNull::isExplicitNull).orElse(true)) {
-            throw new NumberAvailableAfterUpdateException(numberId);
+            throw new NumberAvailableAfterUpdateException(numberEntity.getId());
         }
 
         // update existed fields
@@ -240,41 +414,66 @@ public class NumbersService {
         ofNullable(numberRequest.getCapabilities()).ifPresent(numberEntity::setCapabilities);
         ofNullable(numberRequest.getDedicatedReceiver()).ifPresent(numberEntity::setDedicatedReceiver);
         ofNullable(numberRequest.getProviderId()).ifPresent(numberEntity::setProviderId);
-
-        return numbersRepository.save(numberEntity);
     }
 
+    @Transactional
     public AssignmentEntity updateAssignment(UUID numberId, UpdateAssignmentRequest assignmentRequest) {
+        verifyNotEmpty(assignmentRequest);
+
+        NumberEntity numberEntity = getNumber(numberId);
+        AssignmentEntity assignmentEntity = applyAssignmentUpdate(numberEntity, assignmentRequest);
+
+        AssignmentEntity saved = assignmentRepository.save(assignmentEntity);
+        eventPublisher.publishEvent(NumberChangedEvent.assigned(numberEntity, assignmentEntity));
+        enqueueNotification(Event.ASSIGNMENT_UPDATED, numberEntity, assignmentEntity);
+        return saved;
+    }
+
+    public static void verifyNotEmpty(UpdateAssignmentRequest assignmentRequest) {
         Objects.requireNonNull(assignmentRequest);
 
         if (assignmentRequest.isEmpty()) {
             throw new AssignmentUpdateRequestEmptyException(String.format("request body is invalid: %s", Objects.toString(assignmentRequest)));
         }
+    }
 
-        NumberEntity numberEntity = getNumber(numberId);
-
+    /**
+     * Applies the update to the assignment of the number without saving it.
+     */
+    public AssignmentEntity applyAssignmentUpdate(NumberEntity numberEntity, UpdateAssignmentRequest assignmentRequest) {
         AssignmentEntity assignmentEntity = numberEntity.getAssignedTo();
         if (assignmentEntity == null) {
-            throw new NumberNotAssignedException(numberId);
+            throw new NumberNotAssignedException(numberEntity.getId());
         }
 
         // update existed fields
         ofNullable(assignmentRequest.getCallbackUrl()).ifPresent(callbackUrl -> assignmentEntity.setCallbackUrl(callbackUrl.get()));
         ofNullable(assignmentRequest.getMetadata()).ifPresent(metadata -> assignmentEntity.setExternalMetadata(metadata.get()));
         ofNullable(assignmentRequest.getLabel()).ifPresent(label -> assignmentEntity.setLabel(label.get()));
-
-        return assignmentRepository.save(assignmentEntity);
+        return assignmentEntity;
     }
 
+    @Transactional
     public NumberEntity deleteNumber(UUID numberId) {
         NumberEntity numberEntity = getNumber(numberId);
         if (numberEntity.getAssignedTo() != null) {
             throw new DeleteAssignedNumberException(numberId);
         }
         numbersRepository.deleteById(numberId);
+        eventPublisher.publishEvent(NumberChangedEvent.unassigned(numberEntity));
+        enqueueNotification(Event.NUMBER_DELETED, numberEntity, null);
         return numberEntity;
     }
 
+    /**
+     * Enqueues the provisioning event of a change in its transaction. The change is flushed first so the event carries
+     * the timestamps it writes.
+     */
+    private void enqueueNotification(Event event, NumberEntity numberEntity, AssignmentEntity assignmentEntity) {
+        numbersRepository.flush();
+        notificationService.push(event, numberEntity, assignmentEntity);
+    }
+
     private boolean isUsTollFreeNumber(NumberEntity numberEntity) {
         return "US".equals(numberEntity.getCountry()) && numberEntity.getType() == NumberType.TOLL_FREE;
     }
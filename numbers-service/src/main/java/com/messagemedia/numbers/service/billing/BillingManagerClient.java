@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.billing;
+
+import com.messagemedia.domainmodels.accounts.VendorAccountId;
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.numbers.repository.entities.BillingNotificationAction;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Sends rate plan notifications to the add-on billing manager and failures which need a person to Slack.
+ */
+@Component
+public class BillingManagerClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BillingManagerClient.class);
+
+    // Can't have blank SSM property values so we default to 'NONE' when no URL supplied
+    private static final String NO_SLACK_URL_VALUE = "NONE";
+
+    private static final String ADD_ON_ASSIGNMENT_URL_PART = "/v1/addOn/assignment";
+
+    private final RestTemplate restTemplate;
+    private final String addOnAssignmentUrl;
+    private final String slackNotificationUrl;
+
+    @Autowired
+    public BillingManagerClient(RestTemplate restTemplate,
+                                @Value("${service.add-on-billing-manager.endpoint}") String billingManagerUrl,
+                                @Value("${service.numbers-service.slack-notification.url:NONE}") String slackNotificationUrl) {
+        this.restTemplate = restTemplate;
+        this.addOnAssignmentUrl = billingManagerUrl + ADD_ON_ASSIGNMENT_URL_PART;
+        this.slackNotificationUrl = slackNotificationUrl;
+    }
+
+    /**
+     * @return how the billing manager took the notification, never throws
+     */
+    public Delivery send(BillingNotificationAction action, String ratePlanId, VendorAccountId vendorAccountId) {
+        String actionName = actionName(action);
+        try {
+            restTemplate.exchange(addOnAssignmentUrl, action == BillingNotificationAction.ADD ? HttpMethod.POST : HttpMethod.DELETE,
+                    new HttpEntity<>(new BillingNotificationRequest(ratePlanId), getRequestHeaders(vendorAccountId)), Void.class);
+            LOGGER.info("{} successful for rate plan {}", actionName, ratePlanId);
+            return Delivery.SENT;
+        } catch (HttpStatusCodeException e) {
+            return handleStatusCodeException(e, actionName);
+        } catch (RestClientException e) {
+            LOGGER.errorWithReason(String.format("Failed to %s rate plan", actionName), e.getMessage());
+            return Delivery.retry(e.getMessage());
+        }
+    }
+
+    /**
+     * Posts on the slack executor, so a slow Slack holds up neither the caller's transaction nor the queue worker.
+     */
+    @Async("slackExecutor")
+    public void sendSlackNotification(String message, VendorAccountId vendorAccountId, String ratePlanId, BillingNotificationAction action) {
+        if (StringUtils.isNotBlank(slackNotificationUrl) && !NO_SLACK_URL_VALUE.equals(slackNotificationUrl)) {
+            try {
+                restTemplate.postForObject(slackNotificationUrl,
+                        new SlackMessage(String.format("Failed to %s rate plan for account.\n"
+                                + "Account : %s\n"
+                                + "Rate Plan ID : %s\n"
+                                + "Reason : %s", actionName(action), vendorAccountId.toColonString(), ratePlanId, message)), String.class);
+            } catch (Exception e) {
+                LOGGER.warnWithReason("Failed to post notification to slack", e.getMessage(), e);
+            }
+        }
+    }
+
+    static String actionName(BillingNotificationAction action) {
+        return action == BillingNotificationAction.ADD ? "add" : "remove";
+    }
+
+    private HttpHeaders getRequestHeaders(VendorAccountId vendorAccountId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_UTF8_VALUE);
+        headers.add("Vendor-Id", vendorAccountId.getVendorId().getVendorId());
+        headers.add("Effective-Account-Id", vendorAccountId.getAccountId().getAccountId());
+        return headers;
+    }
+
+    private Delivery handleStatusCodeException(HttpStatusCodeException exception, String action) {
+        String errorMessage = String.format("Failed to %s rate plan", action);
+        if (exception.getStatusCode().equals(HttpStatus.NOT_FOUND)) {
+            LOGGER.warnWithReason(errorMessage, "Billing account not found");
+            return Delivery.rejected("Billing account not found in Zuora");
+        } else if (exception.getStatusCode().equals(HttpStatus.BAD_REQUEST)) {
+            LOGGER.warnWithReason(errorMessage, "Currency mismatch");
+            return Delivery.rejected("Currency mismatch in Zuora");
+        } else if (exception.getStatusCode().equals(HttpStatus.UNPROCESSABLE_ENTITY)) {
+            LOGGER.warnWithReason(errorMessage, "Rate plan id does not exist");
+            return Delivery.rejected("Rate plan id does not exist in Zuora");
+        } else if (exception.getStatusCode().equals(HttpStatus.INTERNAL_SERVER_ERROR)) {
+            String reason = "Unknown billing management internal server error";
+            LOGGER.errorWithReason(errorMessage, reason);
+            return Delivery.retry(reason);
+        } else {
+            String reason = "Unexpected status code=" + exception.getStatusCode();
+            LOGGER.errorWithReason(errorMessage, reason);
+            return exception.getStatusCode().is5xxServerError() || exception.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS
+                    ? Delivery.retry(reason) : Delivery.rejected(reason);
+        }
+    }
+
+    /**
+     * The outcome of sending a notification: sent, worth retrying because the billing manager could not take it right
+     * now, or rejected because of something a person has to fix first.
+     */
+    public static final class Delivery {
+
+        private static final Delivery SENT = new Delivery(true, false, null);
+
+        private final boolean sent;
+        private final boolean retryable;
+        private final String reason;
+
+        private Delivery(boolean sent, boolean retryable, String reason) {
+            this.sent = sent;
+            this.retryable = retryable;
+            this.reason = reason;
+        }
+
+        static Delivery retry(String reason) {
+            return new Delivery(false, true, reason);
+        }
+
+        static Delivery rejected(String reason) {
+            return new Delivery(false, false, reason);
+        }
+
+        public boolean isSent() {
+            return sent;
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
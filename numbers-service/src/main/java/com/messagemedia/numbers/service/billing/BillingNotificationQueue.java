@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.billing;
+
+import com.messagemedia.domainmodels.accounts.VendorAccountId;
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.numbers.repository.BillingNotificationRepository;
+import com.messagemedia.numbers.repository.entities.BillingNotificationAction;
+import com.messagemedia.numbers.repository.projections.BillingNotification;
+import com.messagemedia.numbers.service.billing.BillingManagerClient.Delivery;
+import com.messagemedia.numbers.service.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Durable queue of the rate plan notifications for the add-on billing manager.
+ * <p>
+ * Notifications are written to the database in the transaction of the change they are about and deleted once the
+ * billing manager has accepted them, so neither a billing manager outage nor a restart loses one. Each is sent once
+ * straight away after its transaction commits and, when that attempt does not happen or the billing manager cannot take
+ * it, retried by a worker with an exponential backoff, in order per number. Notifications
+ * the billing manager rejects, or which run out of attempts, are parked and posted to Slack until they are replayed.
+ * <p>
+ * Notifications are claimed with a lease in a short transaction of their own and sent outside of it, so no connection
+ * or row lock is held while the billing manager is called. A notification whose lease runs out before its outcome is
+ * recorded, because the worker failed or the billing manager was slow, is due again and can be sent more than once.
+ * <p>
+ * With a netting window new notifications are held for the window instead of being sent straight away. A notification
+ * for a number whose opposite notification is still held cancels it and is dropped itself, so a number assigned and
+ * unassigned again within the window costs the billing manager nothing.
+ */
+@Component
+public class BillingNotificationQueue implements MetricsSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BillingNotificationQueue.class);
+    private static final int MAX_BACKOFF_SHIFT = 30;
+
+    private final BillingNotificationRepository billingNotificationRepository;
+    private final BillingManagerClient billingManagerClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    // the first attempt runs after the commit of the transaction which queued the notifications, possibly on its thread
+    private final TransactionTemplate newTransaction;
+    private final int batchSize;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int maxAttempts;
+    private final long nettingWindowMillis;
+    private final long leaseMillis;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder parked = new LongAdder();
+    private final LongAdder netted = new LongAdder();
+
+    @Autowired
+    public BillingNotificationQueue(BillingNotificationRepository billingNotificationRepository,
+                                    BillingManagerClient billingManagerClient,
+                                    ApplicationEventPublisher eventPublisher,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${numbers.service.billing.queue.batchSize}") int batchSize,
+                                    @Value("${numbers.service.billing.queue.baseBackoffMillis}") long baseBackoffMillis,
+                                    @Value("${numbers.service.billing.queue.maxBackoffMillis}") long maxBackoffMillis,
+                                    @Value("${numbers.service.billing.queue.maxAttempts}") int maxAttempts,
+                                    @Value("${numbers.service.billing.queue.nettingWindowMillis}") long nettingWindowMillis,
+                                    @Value("${numbers.service.billing.queue.leaseMillis}") long leaseMillis) {
+        this.billingNotificationRepository = billingNotificationRepository;
+        this.billingManagerClient = billingManagerClient;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.maxAttempts = maxAttempts;
+        this.nettingWindowMillis = nettingWindowMillis;
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * Cancels the held notifications with the opposite action of the account for the numbers.
+     *
+     * @return the numbers whose notification with the given action nets out and should not be sent
+     */
+    public Set<UUID> net(String vendorId, String accountId, BillingNotificationAction action, Collection<UUID> numberIds) {
+        if (nettingWindowMillis <= 0 || numberIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        BillingNotificationAction opposite = action == BillingNotificationAction.ADD ? BillingNotificationAction.REMOVE : BillingNotificationAction.ADD;
+        Set<UUID> cancelled = new HashSet<>(transaction.execute(status ->
+                billingNotificationRepository.deleteHeld(vendorId, accountId, opposite, numberIds, OffsetDateTime.now())));
+        netted.add(cancelled.size());
+        return cancelled;
+    }
+
+    /**
+     * Queues the notifications in the caller's transaction, to be sent once it commits. With a netting window the
+     * notifications are held and all sent by the worker.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(List<BillingNotification> notifications) {
+        OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime due = now.plus(Math.max(nettingWindowMillis, 0), ChronoUnit.MILLIS);
+        List<Long> ids = billingNotificationRepository.enqueue(notifications, now, due);
+        if (nettingWindowMillis <= 0) {
+            eventPublisher.publishEvent(new BillingNotificationsQueuedEvent(ids));
+        }
+    }
+
+    /**
+     * Sends the notifications queued by a committed transaction, leaving those the billing manager cannot take now to
+     * the worker. A notification whose task is dropped stays queued and is sent by the worker as well.
+     */
+    @Async("billingExecutor")
+    @TransactionalEventListener
+    public void onQueued(BillingNotificationsQueuedEvent event) {
+        OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime lease = lease(now);
+        deliver(newTransaction.execute(status -> billingNotificationRepository.claim(event.getIds(), now, lease)), lease);
+    }
+
+    /**
+     * Sends due notifications in batches until one comes back short.
+     */
+    @Scheduled(fixedDelayString = "${numbers.service.billing.queue.pollDelayMillis}")
+    public void relay() {
+        relayDue();
+    }
+
+    /**
+     * Sends every pending notification now, including those waiting for their next attempt.
+     *
+     * @return the number of notifications the billing manager accepted
+     */
+    public int drain() {
+        transaction.execute(status -> {
+            billingNotificationRepository.makeDue(OffsetDateTime.now());
+            return null;
+        });
+        return relayDue();
+    }
+
+    /**
+     * Makes the parked notifications, of one account when the vendor and account are given, pending again.
+     *
+     * @return the number of notifications replayed
+     */
+    public int replay(String vendorId, String accountId) {
+        int replayed = transaction.execute(status -> billingNotificationRepository.replayParked(vendorId, accountId, OffsetDateTime.now()));
+        LOGGER.info("Replaying {} parked billing notifications", replayed);
+        return replayed;
+    }
+
+    public long countPending() {
+        return billingNotificationRepository.countByParked(false);
+    }
+
+    public long countParked() {
+        return billingNotificationRepository.countByParked(true);
+    }
+
+    private int relayDue() {
+        int accepted = 0;
+        int claimed;
+        do {
+            OffsetDateTime now = OffsetDateTime.now();
+            OffsetDateTime lease = lease(now);
+            List<BillingNotification> notifications = newTransaction.execute(status ->
+                    billingNotificationRepository.claimDue(batchSize, now, lease));
+            claimed = notifications.size();
+            accepted += deliver(notifications, lease);
+        } while (claimed == batchSize);
+        return accepted;
+    }
+
+    /**
+     * Sends the leased notifications and records each outcome in a transaction of its own.
+     *
+     * @return the number of notifications the billing manager accepted
+     */
+    private int deliver(List<BillingNotification> notifications, OffsetDateTime lease) {
+        int accepted = 0;
+        for (BillingNotification notification : notifications) {
+            VendorAccountId vendorAccountId = new VendorAccountId(notification.getVendorId(), notification.getAccountId());
+            Delivery delivery = billingManagerClient.send(notification.getAction(), notification.getRatePlanId(), vendorAccountId);
+            if (delivery.isSent()) {
+                record(() -> billingNotificationRepository.deleteNotification(notification.getId(), lease));
+                sent.increment();
+                accepted++;
+            } else if (delivery.isRetryable() && notification.getAttempts() + 1 < maxAttempts) {
+                OffsetDateTime nextAttempt = OffsetDateTime.now().plus(backoffMillis(notification.getAttempts()), ChronoUnit.MILLIS);
+                record(() -> billingNotificationRepository.reschedule(notification.getId(), lease, nextAttempt, delivery.getReason()));
+                retried.increment();
+            } else {
+                String reason = delivery.isRetryable()
+                        ? String.format("%s, gave up after %d attempts", delivery.getReason(), notification.getAttempts() + 1)
+                        : delivery.getReason();
+                record(() -> billingNotificationRepository.park(notification.getId(), lease, reason));
+                parked.increment();
+                billingManagerClient.sendSlackNotification(reason, vendorAccountId, notification.getRatePlanId(), notification.getAction());
+            }
+        }
+        return accepted;
+    }
+
+    private void record(Runnable outcome) {
+        newTransaction.execute(status -> {
+            outcome.run();
+            return null;
+        });
+    }
+
+    private OffsetDateTime lease(OffsetDateTime now) {
+        // truncated to what the database stores, the outcome statements match the lease exactly
+        return now.plus(leaseMillis, ChronoUnit.MILLIS).truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    long backoffMillis(int attempts) {
+        return Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempts, MAX_BACKOFF_SHIFT));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "billingNotifications";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pending", countPending());
+        metrics.put("parked", countParked());
+        metrics.put("sent", sent.sum());
+        metrics.put("retried", retried.sum());
+        metrics.put("parkedSinceStart", parked.sum());
+        metrics.put("netted", netted.sum());
+        return metrics;
+    }
+}
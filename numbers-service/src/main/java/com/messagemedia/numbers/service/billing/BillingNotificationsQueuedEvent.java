@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.billing;
+
+import java.util.List;
+
+/**
+ * Published by {@link BillingNotificationQueue#enqueue(List)} with the notifications to send once their transaction
+ * has committed.
+ */
+public final class BillingNotificationsQueuedEvent {
+
+    private final List<Long> ids;
+
+    BillingNotificationsQueuedEvent(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.billing;
+
+import com.messagemedia.domainmodels.accounts.VendorId;
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.numbers.repository.BillingRatePlanRepository;
+import com.messagemedia.numbers.repository.entities.BillingRatePlanEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.service.client.models.Classification;
+import com.messagemedia.numbers.service.client.models.NumberType;
+import com.messagemedia.numbers.service.client.models.ServiceType;
+import com.messagemedia.numbers.service.metrics.MetricsSource;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves the billing rate plan of a number from an in-memory copy of {@code BILLING_RATE_PLAN}.
+ * <p>
+ * The table is small and only changes with migrations, so it is loaded once the context is up and reloaded on a
+ * schedule or through {@link #refresh()}. Each load builds a new immutable index which replaces the previous one, so
+ * lookups are hash lookups which never wait for a load.
+ */
+@Component
+public class RatePlanResolver implements SmartInitializingSingleton, MetricsSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RatePlanResolver.class);
+
+    private static final VendorId SMS_BROADCAST = new VendorId("SMSBroadcast");
+    private static final String COUNTRY_CODE_AU = "AU";
+
+    private final BillingRatePlanRepository billingRatePlanRepository;
+    private final String smsBroadcastRatePlanId;
+    private final String callableNumberRatePlanId;
+    private final LongAdder refreshes = new LongAdder();
+
+    private volatile RatePlanIndex index = new RatePlanIndex(Collections.emptyList());
+
+    @Autowired
+    public RatePlanResolver(BillingRatePlanRepository billingRatePlanRepository,
+                            @Value("${numbers.service.billingManagement.smsBroadcastRatePlanId}") String smsBroadcastRatePlanId,
+                            @Value("${numbers.service.billingManagement.callableNumberRatePlanId}") String callableNumberRatePlanId) {
+        this.billingRatePlanRepository = billingRatePlanRepository;
+        this.smsBroadcastRatePlanId = smsBroadcastRatePlanId;
+        this.callableNumberRatePlanId = callableNumberRatePlanId;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${numbers.service.billing.ratePlans.refreshMillis}",
+            initialDelayString = "${numbers.service.billing.ratePlans.refreshMillis}")
+    public void refresh() {
+        // ordered so that the first plan of a key wins the same way on every load
+        RatePlanIndex loaded = new RatePlanIndex(billingRatePlanRepository.findAll(Sort.by("id")));
+        index = loaded;
+        refreshes.increment();
+        LOGGER.info("Loaded {} rate plans", loaded.size);
+    }
+
+    /**
+     * @param vendorId the vendor the number is assigned to, null when it is not assigned
+     * @return the rate plan the number is billed on, empty when there is none
+     */
+    public Optional<String> resolve(VendorId vendorId, NumberEntity number) {
+        if (SMS_BROADCAST.equals(vendorId)) {
+            return Optional.of(smsBroadcastRatePlanId);
+        }
+        Set<ServiceType> capabilities = number.getCapabilities() == null ? Collections.emptySet() : number.getCapabilities();
+        if (Objects.equals(number.getCountry(), COUNTRY_CODE_AU)) {
+            // hardcoded rate plan for AU numbers with CALL capability
+            if (capabilities.contains(ServiceType.CALL)) {
+                return Optional.of(callableNumberRatePlanId);
+            }
+            // AU numbers with MMS capability are billed by classification whatever their other capabilities
+            if (capabilities.contains(ServiceType.MMS)) {
+                return Optional.ofNullable(index.byClassification.get(
+                        new RatePlanKey(number.getCountry(), number.getType(), number.getClassification(), null)));
+            }
+        }
+        return Optional.ofNullable(index.byCapabilities.get(
+                new RatePlanKey(number.getCountry(), number.getType(), number.getClassification(), capabilities)));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "ratePlans";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", index.size);
+        metrics.put("refreshes", refreshes.sum());
+        return metrics;
+    }
+
+    private static final class RatePlanIndex {
+
+        private final int size;
+        private final Map<RatePlanKey, String> byCapabilities;
+        private final Map<RatePlanKey, String> byClassification;
+
+        private RatePlanIndex(List<BillingRatePlanEntity> ratePlans) {
+            Map<RatePlanKey, String> capabilities = new HashMap<>();
+            Map<RatePlanKey, String> classifications = new HashMap<>();
+            for (BillingRatePlanEntity ratePlan : ratePlans) {
+                capabilities.putIfAbsent(new RatePlanKey(ratePlan.getCountry(), ratePlan.getType(), ratePlan.getClassification(),
+                        ratePlan.getCapabilities()), ratePlan.getRatePlanId());
+                classifications.putIfAbsent(new RatePlanKey(ratePlan.getCountry(), ratePlan.getType(), ratePlan.getClassification(), null),
+                        ratePlan.getRatePlanId());
+            }
+            this.size = ratePlans.size();
+            this.byCapabilities = Collections.unmodifiableMap(capabilities);
+            this.byClassification = Collections.unmodifiableMap(classifications);
+        }
+    }
+
+    private static final class RatePlanKey {
+
+        private final String country;
+        private final NumberType type;
+        private final Classification classification;
+        private final Set<ServiceType> capabilities;
+        private final int hash;
+
+        private RatePlanKey(String country, NumberType type, Classification classification, Collection<ServiceType> capabilities) {
+            this.country = country;
+            this.type = type;
+            this.classification = classification;
+            this.capabilities = capabilities == null ? null
+                    : capabilities.isEmpty() ? EnumSet.noneOf(ServiceType.class) : EnumSet.copyOf(capabilities);
+            this.hash = Objects.hash(country, type, classification, this.capabilities);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RatePlanKey key = (RatePlanKey) o;
+            return Objects.equals(country, key.country)
+                    && type == key.type
+                    && classification == key.classification
+                    && Objects.equals(capabilities, key.capabilities);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
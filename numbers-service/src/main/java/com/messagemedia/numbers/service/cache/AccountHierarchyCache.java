@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.messagemedia.domainmodels.accounts.AccountId;
+import com.messagemedia.domainmodels.accounts.VendorAccountId;
+import com.messagemedia.numbers.service.helper.AccountsHolder;
+import com.messagemedia.numbers.service.metrics.MetricsSource;
+import com.messagemedia.service.accountmanagement.client.ContextualServiceAccountManagementClientFactory;
+import com.messagemedia.service.accountmanagement.client.exception.ServiceAccountManagementException;
+import com.messagemedia.service.accountmanagement.client.model.account.Account;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of AMS accounts and of their ancestor chains, keyed by vendor account id.
+ * <p>
+ * Entries older than the refresh time are reloaded on the AMS executor the next time they are read, while the old
+ * value keeps being served, so a hierarchy that is in use is not fetched on the caller's thread again. Entries that
+ * are not read are dropped once they expire. A chain is built from cached accounts, so chains sharing ancestors only
+ * fetch each ancestor once.
+ */
+@Component
+public class AccountHierarchyCache implements MetricsSource {
+
+    private final ContextualServiceAccountManagementClientFactory contextualServiceAccountManagementClientFactory;
+    private final Executor executor;
+    private final LoadingCache<VendorAccountId, Account> accounts;
+    private final LoadingCache<VendorAccountId, List<Account>> ancestries;
+    private final LongAdder amsCalls = new LongAdder();
+    private final LongAdder amsFailures = new LongAdder();
+    private final LongAdder amsNanos = new LongAdder();
+    private final LongAccumulator amsMaxNanos = new LongAccumulator(Math::max, 0);
+
+    @Autowired
+    public AccountHierarchyCache(ContextualServiceAccountManagementClientFactory contextualServiceAccountManagementClientFactory,
+                                 @Qualifier("amsExecutor") Executor executor,
+                                 @Value("${numbers.service.cache.accounts.maximumSize}") long maximumSize,
+                                 @Value("${numbers.service.cache.accounts.expireAfterWriteSeconds}") long expireAfterWriteSeconds,
+                                 @Value("${numbers.service.cache.accounts.refreshAfterWriteSeconds}") long refreshAfterWriteSeconds) {
+        this.contextualServiceAccountManagementClientFactory = contextualServiceAccountManagementClientFactory;
+        this.executor = executor;
+        this.accounts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .refreshAfterWrite(refreshAfterWriteSeconds, TimeUnit.SECONDS)
+                .executor(executor)
+                .recordStats()
+                .build(this::fetchAccount);
+        this.ancestries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .refreshAfterWrite(refreshAfterWriteSeconds, TimeUnit.SECONDS)
+                .executor(executor)
+                .recordStats()
+                .build(this::loadAncestry);
+    }
+
+    public Account getAccount(VendorAccountId vendorAccountId) throws ServiceAccountManagementException {
+        try {
+            return accounts.get(vendorAccountId);
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * The account followed by its ancestors, up to the vendor's own account or the first account without a parent.
+     */
+    public List<Account> getAncestry(VendorAccountId vendorAccountId) throws ServiceAccountManagementException {
+        try {
+            return ancestries.get(vendorAccountId);
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Loads the ancestry on the AMS executor, a failed load completes the future with a {@link CompletionException}
+     * that {@link #unwrap(CompletionException)} turns back into the AMS exception.
+     */
+    public CompletableFuture<List<Account>> getAncestryAsync(VendorAccountId vendorAccountId) {
+        return CompletableFuture.supplyAsync(() -> ancestries.get(vendorAccountId), executor);
+    }
+
+    public void invalidateAll() {
+        accounts.invalidateAll();
+        ancestries.invalidateAll();
+    }
+
+    public static ServiceAccountManagementException unwrap(CompletionException e) {
+        Throwable cause = e;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof ServiceAccountManagementException) {
+            return (ServiceAccountManagementException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        throw e;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "accountHierarchy";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        putStats(metrics, "accounts", accounts.estimatedSize(), accounts.stats());
+        putStats(metrics, "ancestries", ancestries.estimatedSize(), ancestries.stats());
+        long calls = amsCalls.sum();
+        metrics.put("amsCalls", calls);
+        metrics.put("amsFailures", amsFailures.sum());
+        metrics.put("amsAverageLatencyNanos", calls == 0 ? 0 : amsNanos.sum() / calls);
+        metrics.put("amsMaxLatencyNanos", amsMaxNanos.get());
+        return metrics;
+    }
+
+    private static void putStats(Map<String, Object> metrics, String name, long size, CacheStats stats) {
+        metrics.put(name + "Size", size);
+        metrics.put(name + "Hits", stats.hitCount());
+        metrics.put(name + "Misses", stats.missCount());
+        metrics.put(name + "HitRate", stats.hitRate());
+        metrics.put(name + "Refreshes", stats.loadCount() - stats.missCount());
+    }
+
+    private List<Account> loadAncestry(VendorAccountId vendorAccountId) throws ServiceAccountManagementException {
+        Account account = getAccount(vendorAccountId);
+        AccountsHolder ancestry = new AccountsHolder().add(account);
+        while (!ancestry.isEnd()) {
+            Optional<AccountId> parentId = account.getParentAccount();
+            if (!parentId.isPresent()) {
+                ancestry.end();
+            } else {
+                account = getAccount(new VendorAccountId(vendorAccountId.getVendorId().getVendorId(), parentId.get().getAccountId()));
+                ancestry.add(account);
+            }
+        }
+        return Collections.unmodifiableList(ancestry.getAccounts());
+    }
+
+    private Account fetchAccount(VendorAccountId vendorAccountId) throws ServiceAccountManagementException {
+        long start = System.nanoTime();
+        amsCalls.increment();
+        try {
+            return contextualServiceAccountManagementClientFactory.createContextualClient(
+                new VendorAccountId(vendorAccountId.getVendorId().getVendorId(),
+                    vendorAccountId.getAccountId().getAccountId())).getAccount(vendorAccountId.getAccountId());
+        } catch (ServiceAccountManagementException | RuntimeException e) {
+            amsFailures.increment();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            amsNanos.add(elapsed);
+            amsMaxNanos.accumulate(elapsed);
+        }
+    }
+}
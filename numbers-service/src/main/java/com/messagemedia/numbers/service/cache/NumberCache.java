@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.projections.NumberChange;
+import com.messagemedia.numbers.service.event.NumberChangedEvent;
+import com.messagemedia.numbers.service.event.NumberChangesPolledEvent;
+import com.messagemedia.numbers.service.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Read-through cache of number and assignment snapshots keyed by number id.
+ * <p>
+ * Entries are weighed by their approximate heap size and evicted by frequency (W-TinyLFU). Concurrent misses on the
+ * same id are collapsed into a single load and ids that do not exist are remembered for a short time. The cache only
+ * holds detached copies and every caller gets its own copy, so a caller mutating the result cannot change the cache.
+ * <p>
+ * Entries are invalidated after commit by the {@link NumberChangedEvent} every write path of this instance publishes,
+ * and by the {@link NumberChangesPolledEvent} for changes made by other instances or straight in the database, so an
+ * entry is at most a feed poll delay behind the database. The time to live bounds it when the feed fails. Registering
+ * a number records no change, so a remembered miss only ends with its short time to live. Callers which decide whether
+ * a number may be assigned, changed or used read the database instead.
+ */
+@Component
+public class NumberCache implements MetricsSource {
+
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int NUMBER_OVERHEAD = 320;
+    private static final int ASSIGNMENT_OVERHEAD = 224;
+    private static final int METADATA_ENTRY_OVERHEAD = 80;
+
+    private final NumbersRepository numbersRepository;
+    private final Cache<UUID, Snapshot> cache;
+    private final LongAdder notFound = new LongAdder();
+
+    @Autowired
+    public NumberCache(NumbersRepository numbersRepository,
+                       @Value("${numbers.service.cache.numbers.maximumWeight}") long maximumWeight,
+                       @Value("${numbers.service.cache.numbers.expireAfterWriteSeconds}") long expireAfterWriteSeconds,
+                       @Value("${numbers.service.cache.numbers.missExpireAfterWriteSeconds}") long missExpireAfterWriteSeconds) {
+        this.numbersRepository = numbersRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((UUID id, Snapshot snapshot) -> snapshot.weight)
+                .expireAfter(new SnapshotExpiry(TimeUnit.SECONDS.toNanos(expireAfterWriteSeconds),
+                        TimeUnit.SECONDS.toNanos(missExpireAfterWriteSeconds)))
+                .recordStats()
+                .build();
+    }
+
+    public Optional<NumberEntity> get(UUID numberId) {
+        Snapshot snapshot = cache.get(numberId, this::load);
+        if (snapshot.number == null) {
+            notFound.increment();
+            return Optional.empty();
+        }
+        return Optional.of(copyOf(snapshot.number));
+    }
+
+    public void invalidate(UUID numberId) {
+        cache.invalidate(numberId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNumberChanged(NumberChangedEvent event) {
+        invalidate(event.getNumberId());
+    }
+
+    @EventListener
+    public void onNumberChangesPolled(NumberChangesPolledEvent event) {
+        cache.invalidateAll(event.getChanges().stream().map(NumberChange::getNumberId).collect(toSet()));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "numberCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", cache.estimatedSize());
+        metrics.put("weight", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+        metrics.put("hits", stats.hitCount());
+        metrics.put("notFound", notFound.sum());
+        metrics.put("misses", stats.missCount());
+        metrics.put("hitRate", stats.hitRate());
+        metrics.put("loadFailures", stats.loadFailureCount());
+        metrics.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+        metrics.put("evictions", stats.evictionCount());
+        metrics.put("evictionWeight", stats.evictionWeight());
+        return metrics;
+    }
+
+    private Snapshot load(UUID numberId) {
+        return numbersRepository.findById(numberId)
+                .map(number -> new Snapshot(copyOf(number)))
+                .orElse(Snapshot.MISSING);
+    }
+
+    static NumberEntity copyOf(NumberEntity source) {
+        NumberEntity number = new NumberEntity();
+        number.setId(source.getId());
+        number.setPhoneNumber(source.getPhoneNumber());
+        number.setProviderId(source.getProviderId());
+        number.setCountry(source.getCountry());
+        number.setType(source.getType());
+        number.setClassification(source.getClassification());
+        number.setCapabilities(source.getCapabilities() == null ? null : new HashSet<>(source.getCapabilities()));
+        number.setAvailableAfter(source.getAvailableAfter());
+        number.setCreated(source.getCreated());
+        number.setUpdated(source.getUpdated());
+        number.setDedicatedReceiver(source.isDedicatedReceiver());
+        number.setStatus(source.getStatus());
+        number.setLastVendorId(source.getLastVendorId());
+        number.setLastAccountId(source.getLastAccountId());
+        AssignmentEntity sourceAssignment = source.getAssignedTo();
+        if (sourceAssignment != null) {
+            AssignmentEntity assignment = new AssignmentEntity();
+            assignment.setId(sourceAssignment.getId());
+            assignment.setNumberEntity(number);
+            assignment.setNumberId(source.getId());
+            assignment.setVendorId(sourceAssignment.getVendorId());
+            assignment.setAccountId(sourceAssignment.getAccountId());
+            assignment.setCallbackUrl(sourceAssignment.getCallbackUrl());
+            assignment.setExternalMetadata(sourceAssignment.getExternalMetadata() == null
+                    ? null : new HashMap<>(sourceAssignment.getExternalMetadata()));
+            assignment.setCreated(sourceAssignment.getCreated());
+            assignment.setDeleted(sourceAssignment.getDeleted());
+            assignment.setLabel(sourceAssignment.getLabel());
+            number.setAssignedTo(assignment);
+        }
+        return number;
+    }
+
+    private static int weigh(NumberEntity number) {
+        int weight = ENTRY_OVERHEAD + NUMBER_OVERHEAD + chars(number.getPhoneNumber()) + chars(number.getCountry());
+        AssignmentEntity assignment = number.getAssignedTo();
+        if (assignment != null) {
+            weight += ASSIGNMENT_OVERHEAD + chars(assignment.getVendorId()) + chars(assignment.getAccountId())
+                    + chars(assignment.getCallbackUrl()) + chars(assignment.getLabel());
+            if (assignment.getExternalMetadata() != null) {
+                for (Map.Entry<String, String> entry : assignment.getExternalMetadata().entrySet()) {
+                    weight += METADATA_ENTRY_OVERHEAD + chars(entry.getKey()) + chars(entry.getValue());
+                }
+            }
+        }
+        return weight;
+    }
+
+    private static int chars(String value) {
+        return value == null ? 0 : 2 * value.length();
+    }
+
+    private static final class Snapshot {
+
+        private static final Snapshot MISSING = new Snapshot(null);
+
+        private final NumberEntity number;
+        private final int weight;
+
+        private Snapshot(NumberEntity number) {
+            this.number = number;
+            this.weight = number == null ? ENTRY_OVERHEAD : weigh(number);
+        }
+    }
+
+    /**
+     * Keeps found numbers for the regular time to live and misses only briefly, so a number registered shortly
+     * after a lookup becomes visible quickly.
+     */
+    private static final class SnapshotExpiry implements Expiry<UUID, Snapshot> {
+
+        private final long foundNanos;
+        private final long missingNanos;
+
+        private SnapshotExpiry(long foundNanos, long missingNanos) {
+            this.foundNanos = foundNanos;
+            this.missingNanos = missingNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(UUID id, Snapshot snapshot, long currentTime) {
+            return snapshot.number == null ? missingNanos : foundNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(UUID id, Snapshot snapshot, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, snapshot, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(UUID id, Snapshot snapshot, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
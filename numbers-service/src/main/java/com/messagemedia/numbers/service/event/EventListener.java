@@ -31,7 +31,7 @@ public class EventListener {
         this.restTemplate = restTemplate;
     }
 
-    @Async
+    @Async("slackExecutor")
     @TransactionalEventListener
     public void onEvent(final @NonNull SlackNotificationEvent event) {
         String slackNotificationUrl = event.getSlackUrl();
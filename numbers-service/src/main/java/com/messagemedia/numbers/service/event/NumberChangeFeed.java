@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.event;
+
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.projections.NumberChange;
+import com.messagemedia.numbers.service.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Polls the numbers changed by any instance, or straight in the database, and publishes them as a
+ * {@link NumberChangesPolledEvent}, so in-memory copies of numbers see a change made elsewhere within a poll delay.
+ * <p>
+ * Triggers on the number and assignment tables record every change in the transaction which makes it. Each poll keeps
+ * the transaction snapshot it was taken from and reads the changes committed since the previous one, so a change is
+ * published once however long its transaction ran. When a poll fails the snapshot is kept and the next poll reads the
+ * changes again. Recorded changes are deleted once older than the retention, a feed which fails for longer misses them
+ * and the in-memory copies rely on their own reload or expiry.
+ */
+@Component
+public class NumberChangeFeed implements MetricsSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NumberChangeFeed.class);
+
+    private final NumbersRepository numbersRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long retentionMillis;
+    private final LongAdder published = new LongAdder();
+    private String snapshot;
+
+    @Autowired
+    public NumberChangeFeed(NumbersRepository numbersRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${numbers.service.changes.retentionMillis}") long retentionMillis) {
+        this.numbersRepository = numbersRepository;
+        this.eventPublisher = eventPublisher;
+        this.retentionMillis = retentionMillis;
+        // taken before any copy is loaded, so a change committed after a copy read the database is never missed
+        this.snapshot = numbersRepository.findChangeSnapshot();
+    }
+
+    @Scheduled(fixedDelayString = "${numbers.service.changes.pollDelayMillis}")
+    public synchronized void poll() {
+        // the changes are read after the next snapshot is taken, so they include everything it saw as committed
+        String next = numbersRepository.findChangeSnapshot();
+        List<NumberChange> changes = numbersRepository.findChangesSince(snapshot);
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new NumberChangesPolledEvent(changes));
+            published.add(changes.size());
+        }
+        snapshot = next;
+    }
+
+    @Scheduled(fixedDelayString = "${numbers.service.changes.purgeMillis}")
+    public void purge() {
+        int deleted = numbersRepository.deleteChangesBefore(OffsetDateTime.now().minus(retentionMillis, ChronoUnit.MILLIS));
+        if (deleted > 0) {
+            LOGGER.info("Purged {} number changes", deleted);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "numberChanges";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("published", published.sum());
+        return metrics;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.event;
+
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.service.routing.RoutingEntry;
+
+import java.util.UUID;
+
+/**
+ * Published by the write paths of {@link com.messagemedia.numbers.service.NumbersService} with the state of a number
+ * as it was when the change was made. A null route means the number is no longer assigned (or no longer exists).
+ */
+public final class NumberChangedEvent {
+
+    private final UUID numberId;
+    private final String phoneNumber;
+    private final RoutingEntry route;
+
+    private NumberChangedEvent(UUID numberId, String phoneNumber, RoutingEntry route) {
+        this.numberId = numberId;
+        this.phoneNumber = phoneNumber;
+        this.route = route;
+    }
+
+    public static NumberChangedEvent assigned(NumberEntity number, AssignmentEntity assignment) {
+        return new NumberChangedEvent(number.getId(), number.getPhoneNumber(),
+                new RoutingEntry(assignment.getVendorId(), assignment.getAccountId(), assignment.getCallbackUrl(), number.isDedicatedReceiver()));
+    }
+
+    public static NumberChangedEvent unassigned(NumberEntity number) {
+        return new NumberChangedEvent(number.getId(), number.getPhoneNumber(), null);
+    }
+
+    public static NumberChangedEvent of(NumberEntity number) {
+        return number.getAssignedTo() == null ? unassigned(number) : assigned(number, number.getAssignedTo());
+    }
+
+    public UUID getNumberId() {
+        return numberId;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public RoutingEntry getRoute() {
+        return route;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.event;
+
+import com.messagemedia.numbers.repository.projections.NumberChange;
+
+import java.util.List;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Published by the {@link NumberChangeFeed} with the numbers changed since its previous poll, by any instance or straight
+ * in the database. It only names the numbers, listeners read their current state back.
+ */
+public final class NumberChangesPolledEvent {
+
+    private final List<NumberChange> changes;
+
+    public NumberChangesPolledEvent(List<NumberChange> changes) {
+        this.changes = changes;
+    }
+
+    public List<NumberChange> getChanges() {
+        return changes;
+    }
+
+    public Set<String> getPhoneNumbers() {
+        return changes.stream().map(NumberChange::getPhoneNumber).collect(toSet());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.executor;
+
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.numbers.service.metrics.MetricsSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named thread pool with a bounded queue which reports its threads, queue and task latencies on
+ * {@code GET /v1/metrics}.
+ * <p>
+ * When all threads are busy and the queue is full the {@link OverflowPolicy} decides: either the submitting thread
+ * runs the task itself, which slows the producer down to the pace of the pool, or the task is dropped. Threads can be
+ * virtual on runtimes which have them, falling back to platform threads elsewhere.
+ */
+public class InstrumentedExecutor implements Executor, MetricsSource, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InstrumentedExecutor.class);
+
+    public enum OverflowPolicy {
+        /**
+         * The submitting thread runs the task, for work which must not be lost.
+         */
+        CALLER_RUNS,
+        /**
+         * The task is dropped with a warning, for best effort work.
+         */
+        DISCARD
+    }
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder ranOnCaller = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0);
+
+    public InstrumentedExecutor(String name, int threads, int queueCapacity, OverflowPolicy overflowPolicy, boolean virtualThreads) {
+        this.name = name;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory(name + "-", virtualThreads), rejectionHandler(overflowPolicy));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submitted.increment();
+        executor.execute(new TimedTask(task, System.nanoTime()));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return name;
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long tasks = completed.sum() + failed.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("activeThreads", executor.getActiveCount());
+        metrics.put("poolSize", executor.getPoolSize());
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("queueRemainingCapacity", executor.getQueue().remainingCapacity());
+        metrics.put("submitted", submitted.sum());
+        metrics.put("completed", completed.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("ranOnCaller", ranOnCaller.sum());
+        metrics.put("discarded", discarded.sum());
+        metrics.put("averageQueueMillis", tasks == 0 ? 0.0 : queueNanos.sum() / 1e6 / tasks);
+        metrics.put("maxQueueMillis", maxQueueNanos.get() / 1e6);
+        metrics.put("averageRunMillis", tasks == 0 ? 0.0 : runNanos.sum() / 1e6 / tasks);
+        metrics.put("maxRunMillis", maxRunNanos.get() / 1e6);
+        return metrics;
+    }
+
+    private RejectedExecutionHandler rejectionHandler(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == OverflowPolicy.DISCARD) {
+            return (task, pool) -> {
+                discarded.increment();
+                LOGGER.warnWithReason("Task discarded", "Executor {} is saturated", name);
+            };
+        }
+        return (task, pool) -> {
+            if (pool.isShutdown()) {
+                discarded.increment();
+                return;
+            }
+            ranOnCaller.increment();
+            task.run();
+        };
+    }
+
+    /**
+     * Creates virtual threads through reflection, so the service still compiles for and runs on Java 8.
+     */
+    static ThreadFactory threadFactory(String prefix, boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+                Method factory = builderType.getMethod("factory");
+                return (ThreadFactory) factory.invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                LOGGER.info("Virtual threads are not available on Java {}, {} uses platform threads",
+                        System.getProperty("java.version"), prefix);
+            }
+        }
+        return new CustomizableThreadFactory(prefix);
+    }
+
+    private final class TimedTask implements Runnable {
+
+        private final Runnable task;
+        private final long submittedNanos;
+
+        private TimedTask(Runnable task, long submittedNanos) {
+            this.task = task;
+            this.submittedNanos = submittedNanos;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            long waited = start - submittedNanos;
+            queueNanos.add(waited);
+            maxQueueNanos.accumulate(waited);
+            boolean succeeded = false;
+            try {
+                task.run();
+                succeeded = true;
+            } finally {
+                long ran = System.nanoTime() - start;
+                runNanos.add(ran);
+                maxRunNanos.accumulate(ran);
+                if (succeeded) {
+                    completed.increment();
+                } else {
+                    failed.increment();
+                }
+            }
+        }
+    }
+}
@@ -11,8 +11,10 @@ package com.messagemedia.numbers.service.helper;
 import com.google.common.collect.Sets;
 import com.messagemedia.domainmodels.accounts.VendorAccountId;
 import com.messagemedia.service.accountmanagement.client.model.account.Account;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.apache.commons.collections4.CollectionUtils;
@@ -43,6 +45,10 @@ public class AccountsHolder {
         return Optional.of(accounts.get(vendorAccountId));
     }
 
+    public List<Account> getAccounts() {
+        return new ArrayList<>(accounts.values());
+    }
+
     public Optional<Account> intersect(AccountsHolder accountsHolder) {
         Collection<VendorAccountId> vendorAccountIds = Sets.intersection(this.accounts.keySet(), accountsHolder.accounts.keySet());
         return vendorAccountIds.stream().map(v -> accounts.get(v)).findFirst();
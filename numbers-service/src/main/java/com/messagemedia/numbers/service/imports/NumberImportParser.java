@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.imports;
+
+import com.messagemedia.numbers.repository.projections.NumberImportRow;
+import com.messagemedia.numbers.service.client.models.Classification;
+import com.messagemedia.numbers.service.client.models.NumberType;
+import com.messagemedia.numbers.service.client.models.ServiceType;
+import com.messagemedia.numbers.service.routing.PhoneNumberKey;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the lines of an inventory file:
+ * {@code phoneNumber,providerId,country,type,classification,capabilities[,dedicatedReceiver]} where the capabilities
+ * are separated by {@code |}, e.g. {@code +61491570156,b9c7...,AU,MOBILE,BRONZE,SMS|MMS,false}.
+ */
+final class NumberImportParser {
+
+    static final String HEADER_COLUMN = "phoneNumber";
+
+    private static final Pattern COUNTRY = Pattern.compile("[A-Z]{2}");
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-fA-F]{8}(-[0-9a-fA-F]{4}){3}-[0-9a-fA-F]{12}");
+
+    private NumberImportParser() {
+    }
+
+    static boolean isHeader(String line) {
+        return line.trim().regionMatches(true, 0, HEADER_COLUMN, 0, HEADER_COLUMN.length());
+    }
+
+    /**
+     * @throws IllegalArgumentException with the reason when the line is not a valid number
+     */
+    static NumberImportRow parse(long lineNumber, String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != 6 && columns.length != 7) {
+            throw new IllegalArgumentException(String.format("expected 6 or 7 columns but got %d", columns.length));
+        }
+        String phoneNumber = columns[0].trim();
+        if (PhoneNumberKey.pack(phoneNumber) == PhoneNumberKey.INVALID) {
+            throw new IllegalArgumentException(String.format("invalid phoneNumber {%s}", phoneNumber));
+        }
+        String providerId = columns[1].trim();
+        if (!UUID_PATTERN.matcher(providerId).matches()) {
+            throw new IllegalArgumentException(String.format("invalid providerId {%s}", providerId));
+        }
+        String country = columns[2].trim();
+        if (!COUNTRY.matcher(country).matches()) {
+            throw new IllegalArgumentException(String.format("invalid country {%s}", country));
+        }
+        NumberType type = valueOf(NumberType.class, "type", columns[3]);
+        Classification classification = valueOf(Classification.class, "classification", columns[4]);
+        Set<ServiceType> capabilities = EnumSet.noneOf(ServiceType.class);
+        for (String capability : columns[5].split("\\|")) {
+            if (StringUtils.isNotBlank(capability)) {
+                capabilities.add(valueOf(ServiceType.class, "capability", capability));
+            }
+        }
+        if (capabilities.isEmpty()) {
+            throw new IllegalArgumentException("capabilities are required");
+        }
+        boolean dedicatedReceiver = false;
+        if (columns.length == 7 && StringUtils.isNotBlank(columns[6])) {
+            String value = columns[6].trim();
+            if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+                throw new IllegalArgumentException(String.format("invalid dedicatedReceiver {%s}", value));
+            }
+            dedicatedReceiver = Boolean.parseBoolean(value);
+        }
+        return new NumberImportRow(lineNumber, phoneNumber, UUID.fromString(providerId), country, type, classification,
+                capabilities, dedicatedReceiver);
+    }
+
+    private static <E extends Enum<E>> E valueOf(Class<E> type, String column, String value) {
+        String name = value.trim().toUpperCase();
+        for (E constant : type.getEnumConstants()) {
+            if (constant.name().equals(name)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException(String.format("unknown %s {%s}", column, value.trim()));
+    }
+}
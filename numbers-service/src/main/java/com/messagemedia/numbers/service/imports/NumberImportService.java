@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.imports;
+
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.numbers.exception.NumberImportNotFoundException;
+import com.messagemedia.numbers.exception.NumberImportRequestInvalidException;
+import com.messagemedia.numbers.repository.NumberImportRepository;
+import com.messagemedia.numbers.repository.NumberImportStagingRepository.StagingCopy;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.NumberImportEntity;
+import com.messagemedia.numbers.repository.entities.NumberImportStatus;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.repository.projections.NumberImportRejection;
+import com.messagemedia.numbers.repository.projections.NumberImportRow;
+import com.messagemedia.numbers.service.NotificationService;
+import com.messagemedia.numbers.service.client.models.Event;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Imports provider inventory files of millions of numbers in the background.
+ * <p>
+ * The file is spooled to disk before the call returns and then read line by line. Phone numbers which are already
+ * registered are skipped through a {@link PhoneNumberBloomFilter} of every registered phone number, only its positives
+ * are looked up. New rows are streamed into a staging table with COPY and merged into {@code NUMBER} with one
+ * conflict-aware insert, so neither the file nor the new numbers are held on the heap or go through Hibernate. Imports
+ * run one at a time and report their progress and the lines which could not be read.
+ * <p>
+ * The spooled file only lives on the instance which took the import, which keeps a heartbeat on its unfinished imports.
+ * An import whose instance stopped sending heartbeats for longer than the lease cannot be resumed, so any instance fails
+ * it with the reason and deletes its staged rows, at startup and periodically after. The merge commits together with
+ * the completion, so a failed import never leaves numbers behind.
+ * <p>
+ * Imported numbers are new and unassigned, so no caches or routes need to change. Their {@code NUMBER_CREATED} events
+ * are read back from the merged rows with a cursor and enqueued in batches in the transaction of the merge.
+ */
+@Service
+public class NumberImportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NumberImportService.class);
+    private static final int MAX_LINE_LENGTH = 1000;
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    private static final Set<NumberImportStatus> UNFINISHED =
+            EnumSet.of(NumberImportStatus.QUEUED, NumberImportStatus.STAGING, NumberImportStatus.MERGING);
+    private static final String INTERRUPTED = "Interrupted when the instance importing the file stopped, submit the file again";
+
+    private final NumberImportRepository numberImportRepository;
+    private final NumbersRepository numbersRepository;
+    private final NotificationService notificationService;
+    private final NumbersMapper numbersMapper;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final double falsePositiveRate;
+    private final int verifyBatchSize;
+    private final int progressRows;
+    private final int maxRejections;
+    private final int notificationBatchSize;
+    private final long leaseMillis;
+    private final String owner = UUID.randomUUID().toString();
+    private final Executor importExecutor;
+
+    @Autowired
+    public NumberImportService(NumberImportRepository numberImportRepository,
+                               NumbersRepository numbersRepository,
+                               NotificationService notificationService,
+                               NumbersMapper numbersMapper,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${numbers.service.import.falsePositiveRate}") double falsePositiveRate,
+                               @Value("${numbers.service.import.verifyBatchSize}") int verifyBatchSize,
+                               @Value("${numbers.service.import.progressRows}") int progressRows,
+                               @Value("${numbers.service.import.maxRejections}") int maxRejections,
+                               @Value("${numbers.service.import.notificationBatchSize}") int notificationBatchSize,
+                               @Value("${numbers.service.import.leaseMillis}") long leaseMillis,
+                               @Qualifier("numberImportExecutor") Executor importExecutor) {
+        this.numberImportRepository = numberImportRepository;
+        this.numbersRepository = numbersRepository;
+        this.notificationService = notificationService;
+        this.numbersMapper = numbersMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.falsePositiveRate = falsePositiveRate;
+        this.verifyBatchSize = verifyBatchSize;
+        this.progressRows = progressRows;
+        this.maxRejections = maxRejections;
+        this.notificationBatchSize = notificationBatchSize;
+        this.leaseMillis = leaseMillis;
+        this.importExecutor = importExecutor;
+    }
+
+    /**
+     * Spools the file to disk, stores the import and queues it.
+     */
+    public NumberImportEntity submit(String note, InputStream csv) {
+        Path file = spool(csv);
+        NumberImportEntity saved;
+        try {
+            NumberImportEntity numberImport = new NumberImportEntity(note);
+            numberImport.setOwner(owner);
+            numberImport.setHeartbeat(OffsetDateTime.now());
+            saved = transaction.execute(status -> numberImportRepository.save(numberImport));
+        } catch (RuntimeException e) {
+            delete(file);
+            throw e;
+        }
+        importExecutor.execute(() -> run(saved.getId(), file));
+        return saved;
+    }
+
+    public NumberImportEntity getImport(UUID importId) {
+        return numberImportRepository.findById(importId).orElseThrow(() -> new NumberImportNotFoundException(importId));
+    }
+
+    public List<NumberImportRejection> getRejections(UUID importId, long fromLine, int pageSize) {
+        getImport(importId);
+        return numberImportRepository.findRejections(importId, fromLine, pageSize);
+    }
+
+    /**
+     * Fails the imports nobody is running any more, those left by a stopped instance included.
+     */
+    @Scheduled(fixedDelayString = "${numbers.service.import.recoverMillis}")
+    public void failAbandoned() {
+        OffsetDateTime staleBefore = OffsetDateTime.now().minus(leaseMillis, ChronoUnit.MILLIS);
+        for (NumberImportEntity abandoned : numberImportRepository.findAbandoned(UNFINISHED, staleBefore)) {
+            Integer failed = transaction.execute(status -> {
+                int completed = numberImportRepository.complete(abandoned.getId(), abandoned.getStatus(), NumberImportStatus.FAILED,
+                        0, INTERRUPTED, OffsetDateTime.now());
+                if (completed > 0) {
+                    numberImportRepository.deleteStaged(abandoned.getId());
+                }
+                return completed;
+            });
+            if (failed != null && failed > 0) {
+                LOGGER.warnWithReason("Number import failed", "Import {} was {} when its instance stopped", abandoned.getId(),
+                        abandoned.getStatus());
+            }
+        }
+    }
+
+    /**
+     * Renews the lease of the imports this instance holds.
+     */
+    @Scheduled(fixedDelayString = "${numbers.service.import.heartbeatMillis}")
+    public void heartbeat() {
+        transaction.execute(status -> numberImportRepository.heartbeat(owner, UNFINISHED, OffsetDateTime.now()));
+    }
+
+    void run(UUID importId, Path file) {
+        try {
+            Integer claimed = transaction.execute(status ->
+                    numberImportRepository.updateStatus(importId, NumberImportStatus.QUEUED, NumberImportStatus.STAGING, OffsetDateTime.now()));
+            if (claimed == null || claimed == 0) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            NumberImportStatus current = NumberImportStatus.STAGING;
+            NumberImportStatus outcome = NumberImportStatus.FAILED;
+            String message = null;
+            try {
+                Staging staging = stage(importId, file);
+                transition(importId, NumberImportStatus.STAGING, NumberImportStatus.MERGING);
+                current = NumberImportStatus.MERGING;
+                Long merged = transaction.execute(status -> {
+                    OffsetDateTime now = OffsetDateTime.now();
+                    long inserted = numberImportRepository.mergeStaged(importId, now);
+                    pushCreated(importId);
+                    numberImportRepository.deleteStaged(importId);
+                    if (numberImportRepository.complete(importId, NumberImportStatus.MERGING, NumberImportStatus.COMPLETED,
+                            inserted, null, now) == 0) {
+                        throw new IllegalStateException(String.format("Number import {%s} is no longer merging", importId));
+                    }
+                    return inserted;
+                });
+                long imported = merged == null ? 0 : merged;
+                outcome = NumberImportStatus.COMPLETED;
+                LOGGER.info("Number import {} read {} rows, {} existing, {} staged, {} imported and {} rejected", importId,
+                        staging.total, staging.existing, staging.staged, imported, staging.rejected);
+            } catch (RuntimeException e) {
+                LOGGER.errorWithReason("Number import failed", e.getMessage(), e);
+                message = ExceptionUtils.getRootCauseMessage(e);
+                discardStaged(importId);
+            } finally {
+                NumberImportStatus from = current;
+                NumberImportStatus to = outcome;
+                String finalMessage = message;
+                if (to != NumberImportStatus.COMPLETED) {
+                    transaction.execute(status ->
+                            numberImportRepository.complete(importId, from, to, 0, finalMessage, OffsetDateTime.now()));
+                }
+                LOGGER.info("Number import {} {} in {} ms", importId, to, System.currentTimeMillis() - start);
+            }
+        } finally {
+            delete(file);
+        }
+    }
+
+    private void pushCreated(UUID importId) {
+        List<NumberDto> created = new ArrayList<>(notificationBatchSize);
+        numberImportRepository.forEachMerged(importId, number -> {
+            created.add(numbersMapper.toNumberDtoFromView(number));
+            if (created.size() >= notificationBatchSize) {
+                notificationService.pushAll(Event.NUMBER_CREATED, created);
+                created.clear();
+            }
+        });
+        notificationService.pushAll(Event.NUMBER_CREATED, created);
+    }
+
+    private void transition(UUID importId, NumberImportStatus from, NumberImportStatus to) {
+        Integer moved = transaction.execute(status -> numberImportRepository.updateStatus(importId, from, to, OffsetDateTime.now()));
+        if (moved == null || moved == 0) {
+            throw new IllegalStateException(String.format("Number import {%s} is no longer %s", importId, from));
+        }
+    }
+
+    private Staging stage(UUID importId, Path file) {
+        PhoneNumberBloomFilter registered = loadRegisteredPhoneNumbers();
+        Staging staging = new Staging(importId);
+        try (StagingCopy copy = numberImportRepository.openStagingCopy(importId);
+             BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == BYTE_ORDER_MARK) {
+                    line = line.substring(1);
+                }
+                if (StringUtils.isBlank(line) || (lineNumber == 1 && NumberImportParser.isHeader(line))) {
+                    continue;
+                }
+                staging.total++;
+                NumberImportRow row;
+                try {
+                    row = NumberImportParser.parse(lineNumber, line);
+                } catch (IllegalArgumentException e) {
+                    staging.reject(lineNumber, line, e.getMessage());
+                    row = null;
+                }
+                if (row != null && registered.mightContain(row.getPhoneNumber())) {
+                    staging.candidates.add(row);
+                    if (staging.candidates.size() >= verifyBatchSize) {
+                        verify(staging, copy);
+                    }
+                } else if (row != null) {
+                    copy.write(row);
+                    staging.staged++;
+                }
+                if (staging.total % progressRows == 0) {
+                    saveProgress(staging);
+                }
+            }
+            verify(staging, copy);
+            staging.staged = copy.finish();
+            saveProgress(staging);
+            return staging;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PhoneNumberBloomFilter loadRegisteredPhoneNumbers() {
+        long start = System.currentTimeMillis();
+        PhoneNumberBloomFilter filter = readOnlyTransaction.execute(status -> {
+            PhoneNumberBloomFilter loaded = new PhoneNumberBloomFilter(numberImportRepository.countPhoneNumbers(), falsePositiveRate);
+            numberImportRepository.forEachPhoneNumber(loaded::put);
+            return loaded;
+        });
+        LOGGER.info("Loaded registered phone numbers into {} bits with {} hashes in {} ms", filter.getBitCount(),
+                filter.getHashCount(), System.currentTimeMillis() - start);
+        return filter;
+    }
+
+    /**
+     * Looks up the phone numbers the filter might have seen, the ones which turn out not to be registered are false
+     * positives and are staged like any other new row.
+     */
+    private void verify(Staging staging, StagingCopy copy) {
+        if (staging.candidates.isEmpty()) {
+            return;
+        }
+        Set<String> existing = new HashSet<>(numbersRepository.findRegisteredPhoneNumbers(
+                staging.candidates.stream().map(NumberImportRow::getPhoneNumber).collect(toList())));
+        for (NumberImportRow row : staging.candidates) {
+            if (existing.contains(row.getPhoneNumber())) {
+                staging.existing++;
+            } else {
+                copy.write(row);
+                staging.staged++;
+            }
+        }
+        staging.candidates.clear();
+    }
+
+    private void saveProgress(Staging staging) {
+        transaction.execute(status -> {
+            if (!staging.rejections.isEmpty()) {
+                numberImportRepository.insertRejections(staging.importId, staging.rejections);
+                staging.rejections.clear();
+            }
+            return numberImportRepository.updateProgress(staging.importId, staging.total, staging.existing, staging.staged,
+                    staging.rejected, OffsetDateTime.now());
+        });
+    }
+
+    private void discardStaged(UUID importId) {
+        try {
+            transaction.execute(status -> {
+                numberImportRepository.deleteStaged(importId);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            LOGGER.errorWithReason("Staged rows of number import not deleted", e.getMessage(), e);
+        }
+    }
+
+    private static Path spool(InputStream csv) {
+        Path file;
+        try {
+            file = Files.createTempFile("number-import-", ".csv");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            if (Files.copy(csv, file, StandardCopyOption.REPLACE_EXISTING) == 0) {
+                throw new NumberImportRequestInvalidException("the file is empty");
+            }
+            return file;
+        } catch (IOException e) {
+            delete(file);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            delete(file);
+            throw e;
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warnWithReason("Spooled number import not deleted", e.getMessage());
+        }
+    }
+
+    /**
+     * Counters and buffers of the import being staged, only used by the import thread.
+     */
+    private final class Staging {
+
+        private final UUID importId;
+        private final List<NumberImportRow> candidates = new ArrayList<>();
+        private final List<NumberImportRejection> rejections = new ArrayList<>();
+        private long total;
+        private long existing;
+        private long staged;
+        private long rejected;
+
+        private Staging(UUID importId) {
+            this.importId = importId;
+        }
+
+        private void reject(long lineNumber, String line, String reason) {
+            if (rejected++ < maxRejections) {
+                rejections.add(new NumberImportRejection(lineNumber, StringUtils.abbreviate(line, MAX_LINE_LENGTH), reason));
+            }
+        }
+    }
+}
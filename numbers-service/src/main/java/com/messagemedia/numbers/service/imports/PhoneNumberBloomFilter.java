@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.imports;
+
+/**
+ * Bloom filter of phone numbers: {@link #mightContain(String)} is never false for a phone number which was put, and
+ * true for one which was not with about the false positive rate it was sized for.
+ * <p>
+ * The bits live in a primitive long array, so ten million phone numbers at 1% take about 12 MB. The k bit indexes of
+ * a phone number are derived from one 64 bit hash by double hashing. Not thread safe.
+ */
+public final class PhoneNumberBloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    public PhoneNumberBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException(String.format("Invalid false positive rate {%s}", falsePositiveRate));
+        }
+        long insertions = Math.max(1, expectedInsertions);
+        long optimalBits = (long) Math.ceil(-insertions * Math.log(falsePositiveRate) / (LN2 * LN2));
+        long words = Math.max(1, (optimalBits + 63) >>> 6);
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Too many expected insertions {%d}", expectedInsertions));
+        }
+        this.bits = new long[(int) words];
+        this.bitCount = words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / insertions * LN2));
+    }
+
+    public void put(String phoneNumber) {
+        long hash = hash(phoneNumber);
+        long hash1 = hash;
+        long hash2 = mix(hash + 0x9E3779B97F4A7C15L) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    public boolean mightContain(String phoneNumber) {
+        long hash = hash(phoneNumber);
+        long hash1 = hash;
+        long hash2 = mix(hash + 0x9E3779B97F4A7C15L) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * FNV-1a over the characters, finished with the MurmurHash3 mixer so the bits are spread evenly even though phone
+     * numbers only differ in a few trailing digits.
+     */
+    private static long hash(String phoneNumber) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            hash ^= phoneNumber.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
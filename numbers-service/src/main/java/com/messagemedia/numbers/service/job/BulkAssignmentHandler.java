@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.job;
+
+import com.messagemedia.domainmodels.accounts.VendorAccountId;
+import com.messagemedia.numbers.exception.NumberAlreadyAssignedException;
+import com.messagemedia.numbers.exception.NumberNotAvailableException;
+import com.messagemedia.numbers.exception.NumberNotFoundException;
+import com.messagemedia.numbers.model.dto.BulkAssignmentRow;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.BulkJobType;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.mappers.AssignmentMapper;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.service.NotificationService;
+import com.messagemedia.numbers.service.NumbersService;
+import com.messagemedia.numbers.service.billing.BillingNotificationService;
+import com.messagemedia.numbers.service.client.models.AssignNumberRequest;
+import com.messagemedia.numbers.service.client.models.Event;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Assigns numbers to accounts the way {@link NumbersService#assignNumberToAccount} does, for a chunk at a time. The
+ * numbers of a chunk are loaded and locked with two queries. The chunk's NUMBER_ASSIGNED events are enqueued in its
+ * transaction and its billing notifications are sent in bulk once it has committed.
+ */
+@Component
+public class BulkAssignmentHandler implements BulkJobHandler<BulkAssignmentRow> {
+
+    private final NumbersRepository numbersRepository;
+    private final NumbersService numbersService;
+    private final NotificationService notificationService;
+    private final BillingNotificationService billingNotificationService;
+    private final NumbersMapper numbersMapper;
+    private final AssignmentMapper assignmentMapper;
+
+    @Autowired
+    public BulkAssignmentHandler(NumbersRepository numbersRepository,
+                                 NumbersService numbersService,
+                                 NotificationService notificationService,
+                                 BillingNotificationService billingNotificationService,
+                                 NumbersMapper numbersMapper,
+                                 AssignmentMapper assignmentMapper) {
+        this.numbersRepository = numbersRepository;
+        this.numbersService = numbersService;
+        this.notificationService = notificationService;
+        this.billingNotificationService = billingNotificationService;
+        this.numbersMapper = numbersMapper;
+        this.assignmentMapper = assignmentMapper;
+    }
+
+    @Override
+    public BulkJobType getType() {
+        return BulkJobType.ASSIGN;
+    }
+
+    @Override
+    public Class<BulkAssignmentRow> getRowType() {
+        return BulkAssignmentRow.class;
+    }
+
+    @Override
+    public String describe(BulkAssignmentRow row) {
+        return row.getNumberId() != null ? row.getNumberId().toString() : row.getPhoneNumber();
+    }
+
+    @Override
+    public BulkChunkResult process(List<BulkAssignmentRow> rows) {
+        Set<UUID> ids = new HashSet<>();
+        Set<String> phoneNumbers = new HashSet<>();
+        for (BulkAssignmentRow row : rows) {
+            if (row.getNumberId() != null) {
+                ids.add(row.getNumberId());
+            } else if (row.getPhoneNumber() != null) {
+                phoneNumbers.add(row.getPhoneNumber());
+            }
+        }
+        Map<UUID, NumberEntity> byId = new HashMap<>();
+        Map<String, NumberEntity> byPhoneNumber = new HashMap<>();
+        if (!ids.isEmpty()) {
+            numbersRepository.findAllByIdForUpdate(ids).forEach(number -> byId.put(number.getId(), number));
+        }
+        if (!phoneNumbers.isEmpty()) {
+            numbersRepository.findAllByPhoneNumberForUpdate(phoneNumbers).forEach(number -> byPhoneNumber.put(number.getPhoneNumber(), number));
+        }
+
+        List<BulkRowOutcome> outcomes = new ArrayList<>(rows.size());
+        List<NumberEntity> assigned = new ArrayList<>();
+        Map<VendorAccountId, List<NumberEntity>> assignedByAccount = new LinkedHashMap<>();
+        for (BulkAssignmentRow row : rows) {
+            if (StringUtils.isAnyBlank(row.getVendorId(), row.getAccountId())) {
+                outcomes.add(BulkRowOutcome.failed("vendorId and accountId are required"));
+                continue;
+            }
+            NumberEntity number = row.getNumberId() != null ? byId.get(row.getNumberId()) : byPhoneNumber.get(row.getPhoneNumber());
+            if (number == null) {
+                outcomes.add(BulkRowOutcome.failed(row.getNumberId() != null
+                        ? new NumberNotFoundException(row.getNumberId()).getMessage()
+                        : String.format("Phone number {%s} does not exist", row.getPhoneNumber())));
+                continue;
+            }
+            try {
+                AssignmentEntity assignment = numbersService.assignNumber(number, assignmentMapper.toAssignmentEntity(
+                        new AssignNumberRequest(row.getVendorId(), row.getAccountId(), row.getCallbackUrl(), row.getMetadata(), row.getLabel())));
+                // so a later row for the same number in this chunk sees it as assigned
+                number.setAssignedTo(assignment);
+                assigned.add(number);
+                assignedByAccount.computeIfAbsent(new VendorAccountId(row.getVendorId(), row.getAccountId()), account -> new ArrayList<>())
+                        .add(number);
+                outcomes.add(BulkRowOutcome.succeeded());
+            } catch (NumberAlreadyAssignedException | NumberNotAvailableException e) {
+                outcomes.add(BulkRowOutcome.failed(e.getMessage()));
+            }
+        }
+
+        if (!assigned.isEmpty()) {
+            notificationService.pushAll(Event.NUMBER_ASSIGNED, numbersMapper.toNumberDtoList(assigned));
+        }
+        assignedByAccount.forEach(billingNotificationService::sendAddNotifications);
+        return new BulkChunkResult(outcomes, null);
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.job;
+
+import java.util.List;
+
+/**
+ * The outcome of every row of a chunk, in row order, and the side effects to run once the chunk has committed.
+ */
+public final class BulkChunkResult {
+
+    private static final Runnable NOTHING = () -> { };
+
+    private final List<BulkRowOutcome> outcomes;
+    private final Runnable afterCommit;
+
+    public BulkChunkResult(List<BulkRowOutcome> outcomes, Runnable afterCommit) {
+        this.outcomes = outcomes;
+        this.afterCommit = afterCommit == null ? NOTHING : afterCommit;
+    }
+
+    public List<BulkRowOutcome> getOutcomes() {
+        return outcomes;
+    }
+
+    public Runnable getAfterCommit() {
+        return afterCommit;
+    }
+}
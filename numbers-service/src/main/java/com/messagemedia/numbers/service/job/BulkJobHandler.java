@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.job;
+
+import com.messagemedia.numbers.repository.entities.BulkJobType;
+
+import java.util.List;
+
+/**
+ * Processes the rows of one {@link BulkJobType} for {@link BulkJobService}.
+ *
+ * @param <R> the row payload, stored as JSON between submission and processing
+ */
+public interface BulkJobHandler<R> {
+
+    BulkJobType getType();
+
+    Class<R> getRowType();
+
+    /**
+     * The number a row is about, reported next to its outcome.
+     */
+    String describe(R row);
+
+    /**
+     * Processes a chunk of rows in a single transaction. Rows that cannot be processed should be reported as failed
+     * without writing anything for them. An exception rolls the whole chunk back, after which its rows are retried one
+     * at a time.
+     */
+    BulkChunkResult process(List<R> rows);
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.job;
+
+import com.messagemedia.framework.json.JsonFastMapper;
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.numbers.exception.BulkJobNotFoundException;
+import com.messagemedia.numbers.exception.BulkJobRequestInvalidException;
+import com.messagemedia.numbers.repository.BulkJobRepository;
+import com.messagemedia.numbers.repository.entities.BulkJobEntity;
+import com.messagemedia.numbers.repository.entities.BulkJobRowStatus;
+import com.messagemedia.numbers.repository.entities.BulkJobStatus;
+import com.messagemedia.numbers.repository.entities.BulkJobType;
+import com.messagemedia.numbers.repository.projections.BulkJobRow;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs bulk jobs in the background.
+ * <p>
+ * A submitted job and its rows are stored before anything is processed, so callers poll the job for progress and per
+ * row outcomes. Jobs run one at a time. The rows of a job are processed in chunks, each in its own transaction, with
+ * at most {@code parallelism} chunks in flight. The outcomes of a chunk commit together with its changes and its side
+ * effects (events, billing) only run once it has committed.
+ * <p>
+ * An instance claims a job before running it and keeps a heartbeat on it. Jobs which are still queued, or whose owner
+ * stopped sending heartbeats for longer than the lease, are claimed by any instance, at startup and periodically after,
+ * and resumed from the rows which are still pending. A chunk only commits while its instance still owns the job.
+ */
+@Service
+public class BulkJobService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkJobService.class);
+
+    private final BulkJobRepository bulkJobRepository;
+    private final JsonFastMapper mapper;
+    private final TransactionTemplate transaction;
+    private final Map<BulkJobType, BulkJobHandler<?>> handlers = new EnumMap<>(BulkJobType.class);
+    private final int maxRows;
+    private final int chunkSize;
+    private final int parallelism;
+    private final long leaseMillis;
+    private final String owner = UUID.randomUUID().toString();
+    private final Set<UUID> scheduled = ConcurrentHashMap.newKeySet();
+    private final Executor jobExecutor;
+    private final Executor chunkExecutor;
+
+    @Autowired
+    public BulkJobService(BulkJobRepository bulkJobRepository,
+                          JsonFastMapper mapper,
+                          PlatformTransactionManager transactionManager,
+                          List<BulkJobHandler<?>> handlers,
+                          @Value("${numbers.service.bulk.maxRows}") int maxRows,
+                          @Value("${numbers.service.bulk.chunkSize}") int chunkSize,
+                          @Value("${numbers.service.bulk.parallelism}") int parallelism,
+                          @Value("${numbers.service.bulk.leaseMillis}") long leaseMillis,
+                          @Qualifier("bulkJobExecutor") Executor jobExecutor,
+                          @Qualifier("bulkJobChunkExecutor") Executor chunkExecutor) {
+        this.bulkJobRepository = bulkJobRepository;
+        this.mapper = mapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        handlers.forEach(handler -> this.handlers.put(handler.getType(), handler));
+        this.maxRows = maxRows;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.leaseMillis = leaseMillis;
+        this.jobExecutor = jobExecutor;
+        this.chunkExecutor = chunkExecutor;
+    }
+
+    /**
+     * Stores the job and its rows and queues it.
+     */
+    public <R> BulkJobEntity submit(BulkJobType type, String note, List<R> rows) {
+        if (rows == null || rows.isEmpty() || rows.size() > maxRows) {
+            throw new BulkJobRequestInvalidException(rows == null ? 0 : rows.size(), maxRows);
+        }
+        BulkJobHandler<R> handler = handler(type);
+        List<BulkJobRow> jobRows = toJobRows(handler, rows, 0);
+        BulkJobEntity job = transaction.execute(status -> {
+            // the rows are written with JDBC, which does not flush the job they reference
+            BulkJobEntity saved = bulkJobRepository.saveAndFlush(new BulkJobEntity(type, note, rows.size()));
+            bulkJobRepository.insertRows(saved.getId(), jobRows);
+            return saved;
+        });
+        schedule(job.getId());
+        return job;
+    }
+
+    /**
+     * Stores a job whose rows are read page by page, each page no larger than a submitted job may be, and queues it.
+     * The job is not limited to {@code maxRows} and no more than a page of rows is held at once. A job without rows is
+     * stored as completed.
+     */
+    public <R> BulkJobEntity submitPages(BulkJobType type, String note, BulkRowPages<R> pages) {
+        BulkJobHandler<R> handler = handler(type);
+        BulkJobEntity job = transaction.execute(status -> {
+            BulkJobEntity saved = bulkJobRepository.saveAndFlush(new BulkJobEntity(type, note, 0));
+            int total = 0;
+            List<R> page = pages.next(null, maxRows);
+            while (!page.isEmpty()) {
+                bulkJobRepository.insertRows(saved.getId(), toJobRows(handler, page, total));
+                total += page.size();
+                page = page.size() < maxRows ? Collections.emptyList() : pages.next(page.get(page.size() - 1), maxRows);
+            }
+            saved.setTotal(total);
+            if (total == 0) {
+                saved.setStatus(BulkJobStatus.COMPLETED);
+                saved.setCompleted(OffsetDateTime.now());
+            }
+            return saved;
+        });
+        if (job.getStatus() == BulkJobStatus.QUEUED) {
+            schedule(job.getId());
+        }
+        return job;
+    }
+
+    /**
+     * Schedules the jobs nobody is running, those left queued or running by a stopped instance included.
+     */
+    @Scheduled(fixedDelayString = "${numbers.service.bulk.recoverMillis}")
+    public void recover() {
+        List<UUID> claimable = bulkJobRepository.findClaimable(staleBefore(OffsetDateTime.now()));
+        claimable.forEach(this::schedule);
+    }
+
+    /**
+     * Renews the lease of the jobs this instance runs.
+     */
+    @Scheduled(fixedDelayString = "${numbers.service.bulk.heartbeatMillis}")
+    public void heartbeat() {
+        transaction.execute(status -> bulkJobRepository.heartbeat(owner, OffsetDateTime.now()));
+    }
+
+    public BulkJobEntity getJob(UUID jobId) {
+        return bulkJobRepository.findById(jobId).orElseThrow(() -> new BulkJobNotFoundException(jobId));
+    }
+
+    public List<BulkJobRow> getRows(UUID jobId, BulkJobRowStatus status, int fromRow, int pageSize) {
+        getJob(jobId);
+        return bulkJobRepository.findRows(jobId, status, fromRow, pageSize);
+    }
+
+    private void schedule(UUID jobId) {
+        if (scheduled.add(jobId)) {
+            jobExecutor.execute(() -> {
+                try {
+                    run(jobId);
+                } finally {
+                    scheduled.remove(jobId);
+                }
+            });
+        }
+    }
+
+    void run(UUID jobId) {
+        OffsetDateTime now = OffsetDateTime.now();
+        Integer claimed = transaction.execute(status -> bulkJobRepository.claim(jobId, owner, now, staleBefore(now)));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+        BulkJobEntity job = getJob(jobId);
+        BulkJobHandler<?> handler = handler(job.getType());
+        long start = System.currentTimeMillis();
+        BulkJobStatus outcome = BulkJobStatus.COMPLETED;
+        Semaphore inFlight = new Semaphore(parallelism);
+        AtomicBoolean leaseLost = new AtomicBoolean();
+        try {
+            try {
+                for (int from = 0; from < job.getTotal() && !leaseLost.get(); from += chunkSize) {
+                    inFlight.acquire();
+                    submitChunk(jobId, handler, from, Math.min(from + chunkSize, job.getTotal()), inFlight, leaseLost);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.errorWithReason("Bulk job failed", e.getMessage(), e);
+                outcome = BulkJobStatus.FAILED;
+            }
+            // chunks already handed out still record their outcomes, so the job only ends once they are done
+            inFlight.acquire(parallelism);
+        } catch (InterruptedException e) {
+            // shutting down, another instance resumes the job
+            transaction.execute(status -> bulkJobRepository.release(jobId, owner));
+            LOGGER.info("Bulk job {} released after {} ms", jobId, System.currentTimeMillis() - start);
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (leaseLost.get()) {
+            LOGGER.warnWithReason("Bulk job taken over", "Job {} lost its lease to another instance", jobId);
+            return;
+        }
+        BulkJobStatus finalStatus = outcome;
+        transaction.execute(status -> bulkJobRepository.complete(jobId, owner, finalStatus, OffsetDateTime.now()));
+        LOGGER.info("Bulk job {} of {} rows {} in {} ms", jobId, job.getTotal(), finalStatus, System.currentTimeMillis() - start);
+    }
+
+    private void submitChunk(UUID jobId, BulkJobHandler<?> handler, int from, int to, Semaphore inFlight, AtomicBoolean leaseLost) {
+        try {
+            chunkExecutor.execute(() -> {
+                try {
+                    process(jobId, handler, bulkJobRepository.findPendingRows(jobId, from, to));
+                } catch (LeaseLostException e) {
+                    leaseLost.set(true);
+                } catch (RuntimeException e) {
+                    LOGGER.errorWithReason("Bulk job chunk failed", e.getMessage(), e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            // the chunk was never handed out
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private <R> void process(UUID jobId, BulkJobHandler<R> handler, List<BulkJobRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        BulkChunkResult result;
+        try {
+            result = transaction.execute(status -> {
+                List<R> payloads = new ArrayList<>(rows.size());
+                rows.forEach(row -> payloads.add(fromJson(row.getPayload(), handler.getRowType())));
+                BulkChunkResult processed = handler.process(payloads);
+                record(jobId, rows, processed.getOutcomes());
+                return processed;
+            });
+        } catch (LeaseLostException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            if (rows.size() > 1) {
+                LOGGER.warnWithReason("Retrying bulk job chunk row by row", e.getMessage());
+                rows.forEach(row -> process(jobId, handler, Collections.singletonList(row)));
+            } else {
+                transaction.execute(status -> {
+                    record(jobId, rows, Collections.singletonList(BulkRowOutcome.failed(ExceptionUtils.getRootCauseMessage(e))));
+                    return null;
+                });
+            }
+            return;
+        }
+        try {
+            result.getAfterCommit().run();
+        } catch (RuntimeException e) {
+            // the chunk is committed, so its rows keep their outcome
+            LOGGER.errorWithReason("Bulk job side effects failed", e.getMessage(), e);
+        }
+    }
+
+    private void record(UUID jobId, List<BulkJobRow> rows, List<BulkRowOutcome> outcomes) {
+        if (outcomes.size() != rows.size()) {
+            throw new IllegalStateException(String.format("Expected %d outcomes but got %d", rows.size(), outcomes.size()));
+        }
+        List<BulkJobRow> processed = new ArrayList<>(rows.size());
+        int succeeded = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            BulkRowOutcome outcome = outcomes.get(i);
+            if (outcome.isSucceeded()) {
+                succeeded++;
+            }
+            processed.add(rows.get(i).withOutcome(outcome.isSucceeded() ? BulkJobRowStatus.SUCCEEDED : BulkJobRowStatus.FAILED,
+                    outcome.getMessage()));
+        }
+        if (bulkJobRepository.addProgress(jobId, owner, succeeded, rows.size() - succeeded, OffsetDateTime.now()) == 0) {
+            throw new LeaseLostException();
+        }
+        bulkJobRepository.updateOutcomes(jobId, processed);
+    }
+
+    private <R> List<BulkJobRow> toJobRows(BulkJobHandler<R> handler, List<R> rows, int fromIndex) {
+        List<BulkJobRow> jobRows = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            R row = rows.get(i);
+            if (row == null) {
+                throw new BulkJobRequestInvalidException(String.format("row %d is empty", fromIndex + i));
+            }
+            jobRows.add(BulkJobRow.pending(fromIndex + i, handler.describe(row), toJson(row)));
+        }
+        return jobRows;
+    }
+
+    private OffsetDateTime staleBefore(OffsetDateTime now) {
+        return now.minus(leaseMillis, ChronoUnit.MILLIS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> BulkJobHandler<R> handler(BulkJobType type) {
+        BulkJobHandler<?> handler = handlers.get(type);
+        if (handler == null) {
+            throw new IllegalStateException(String.format("No handler for bulk job type {%s}", type));
+        }
+        return (BulkJobHandler<R>) handler;
+    }
+
+    private String toJson(Object row) {
+        try {
+            return mapper.toJsonString(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <R> R fromJson(String payload, Class<R> rowType) {
+        try {
+            return mapper.readFrom(payload, rowType);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(String.format("Unreadable row payload {%s}", payload), e);
+        }
+    }
+
+    /**
+     * Rolls back a chunk of a job another instance has taken over.
+     */
+    private static final class LeaseLostException extends RuntimeException {
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.job;
+
+import com.messagemedia.numbers.exception.NumberNotAssignedException;
+import com.messagemedia.numbers.exception.NumberNotFoundException;
+import com.messagemedia.numbers.model.dto.BulkMigrationRow;
+import com.messagemedia.numbers.repository.AssignmentRepository;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.BulkJobType;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.service.NotificationService;
+import com.messagemedia.numbers.service.NumbersService;
+import com.messagemedia.numbers.service.client.models.Event;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Reassigns numbers between two accounts whose relationship was verified once when the job was submitted, see
+ * {@link NumbersService#verifyReassignment}. The assignments of a chunk are moved with set based SQL and keep their
+ * callback url, metadata and label. The chunk's NUMBER_REASSIGNED events are enqueued in its transaction.
+ */
+@Component
+public class BulkMigrationHandler implements BulkJobHandler<BulkMigrationRow> {
+
+    private final NumbersRepository numbersRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final NumbersService numbersService;
+    private final NotificationService notificationService;
+    private final NumbersMapper numbersMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public BulkMigrationHandler(NumbersRepository numbersRepository,
+                                AssignmentRepository assignmentRepository,
+                                NumbersService numbersService,
+                                NotificationService notificationService,
+                                NumbersMapper numbersMapper) {
+        this.numbersRepository = numbersRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.numbersService = numbersService;
+        this.notificationService = notificationService;
+        this.numbersMapper = numbersMapper;
+    }
+
+    @Override
+    public BulkJobType getType() {
+        return BulkJobType.MIGRATE;
+    }
+
+    @Override
+    public Class<BulkMigrationRow> getRowType() {
+        return BulkMigrationRow.class;
+    }
+
+    @Override
+    public String describe(BulkMigrationRow row) {
+        return Objects.toString(row.getNumberId(), null);
+    }
+
+    @Override
+    public BulkChunkResult process(List<BulkMigrationRow> rows) {
+        Map<UUID, NumberEntity> numbers = new HashMap<>();
+        numbersRepository.findAllByIdForUpdate(rows.stream().map(BulkMigrationRow::getNumberId).filter(Objects::nonNull).collect(toSet()))
+                .forEach(number -> numbers.put(number.getId(), number));
+
+        List<BulkRowOutcome> outcomes = new ArrayList<>(rows.size());
+        // the rows of a job all move to the same account, rows of other pairs are not mixed into one statement
+        Map<String, Map<NumberEntity, AssignmentEntity>> migrated = new LinkedHashMap<>();
+        Set<NumberEntity> seen = new HashSet<>();
+        for (BulkMigrationRow row : rows) {
+            NumberEntity number = row.getNumberId() == null ? null : numbers.get(row.getNumberId());
+            if (number == null) {
+                outcomes.add(BulkRowOutcome.failed(new NumberNotFoundException(row.getNumberId()).getMessage()));
+                continue;
+            }
+            AssignmentEntity assignment = seen.add(number) ? number.getAssignedTo() : null;
+            if (assignment == null) {
+                outcomes.add(BulkRowOutcome.failed(new NumberNotAssignedException(row.getNumberId()).getMessage()));
+            } else if (!Objects.equals(row.getVendorId(), assignment.getVendorId())
+                    || !Objects.equals(row.getFromAccountId(), assignment.getAccountId())) {
+                outcomes.add(BulkRowOutcome.failed(String.format("Number id {%s} is no longer assigned to {%s:%s}",
+                        row.getNumberId(), row.getVendorId(), row.getFromAccountId())));
+            } else {
+                migrated.computeIfAbsent(row.getToAccountId(), account -> new LinkedHashMap<>()).put(number, assignment);
+                outcomes.add(BulkRowOutcome.succeeded());
+            }
+        }
+        if (migrated.isEmpty()) {
+            return new BulkChunkResult(outcomes, null);
+        }
+
+        // the entities only describe the change from here on, the SQL below makes it
+        entityManager.clear();
+        OffsetDateTime now = OffsetDateTime.now();
+        List<NumberDto> numberDtos = new ArrayList<>();
+        migrated.forEach((accountId, moved) -> {
+            List<UUID> assignmentIds = new ArrayList<>(moved.size());
+            List<UUID> newAssignmentIds = new ArrayList<>(moved.size());
+            List<NumberEntity> movedNumbers = new ArrayList<>(moved.size());
+            moved.forEach((number, assignment) -> {
+                AssignmentEntity newAssignment = copyOf(assignment, number, accountId, now);
+                assignmentIds.add(assignment.getId());
+                newAssignmentIds.add(newAssignment.getId());
+                number.setAssignedTo(newAssignment);
+                movedNumbers.add(number);
+            });
+            assignmentRepository.reassignAll(assignmentIds, newAssignmentIds, accountId, now);
+            movedNumbers.forEach(number -> {
+                numbersService.publishReassigned(number, number.getAssignedTo());
+                numberDtos.add(numbersMapper.toNumberDto(number));
+            });
+        });
+
+        notificationService.pushAll(Event.NUMBER_REASSIGNED, numberDtos);
+        return new BulkChunkResult(outcomes, null);
+    }
+
+    private static AssignmentEntity copyOf(AssignmentEntity source, NumberEntity number, String accountId, OffsetDateTime created) {
+        AssignmentEntity assignment = new AssignmentEntity();
+        assignment.setNumberEntity(number);
+        assignment.setNumberId(number.getId());
+        assignment.setVendorId(source.getVendorId());
+        assignment.setAccountId(accountId);
+        assignment.setCallbackUrl(source.getCallbackUrl());
+        assignment.setExternalMetadata(source.getExternalMetadata());
+        assignment.setLabel(source.getLabel());
+        assignment.setCreated(created);
+        return assignment;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.job;
+
+/**
+ * What happened to one row of a bulk job chunk.
+ */
+public final class BulkRowOutcome {
+
+    private static final BulkRowOutcome SUCCEEDED = new BulkRowOutcome(true, null);
+
+    private final boolean succeeded;
+    private final String message;
+
+    private BulkRowOutcome(boolean succeeded, String message) {
+        this.succeeded = succeeded;
+        this.message = message;
+    }
+
+    public static BulkRowOutcome succeeded() {
+        return SUCCEEDED;
+    }
+
+    public static BulkRowOutcome failed(String message) {
+        return new BulkRowOutcome(false, message);
+    }
+
+    public boolean isSucceeded() {
+        return succeeded;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
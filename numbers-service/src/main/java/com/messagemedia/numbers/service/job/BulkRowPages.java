@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.job;
+
+import java.util.List;
+
+/**
+ * Reads the rows of a job for {@link BulkJobService#submitPages} a page at a time, keyed by the last row read.
+ *
+ * @param <R> the row payload
+ */
+@FunctionalInterface
+public interface BulkRowPages<R> {
+
+    /**
+     * Up to {@code limit} rows after {@code last}, or from the start when it is null, in a stable order.
+     */
+    List<R> next(R last, int limit);
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.job;
+
+import com.messagemedia.domainmodels.accounts.VendorAccountId;
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.numbers.exception.NumberNotAssignedException;
+import com.messagemedia.numbers.exception.NumberNotFoundException;
+import com.messagemedia.numbers.model.dto.BulkUnassignmentRow;
+import com.messagemedia.numbers.repository.AssignmentRepository;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.BulkJobType;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.mappers.AssignmentMapper;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.service.CallableNumbersService;
+import com.messagemedia.numbers.service.NotificationService;
+import com.messagemedia.numbers.service.billing.BillingNotificationService;
+import com.messagemedia.numbers.service.client.models.Event;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import com.messagemedia.numbers.service.client.models.NumberType;
+import com.messagemedia.numbers.service.client.models.ServiceType;
+import com.messagemedia.numbers.service.event.NumberChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Unassigns numbers the way {@code DELETE /v1/numbers/{id}/assignment} does, for a chunk at a time. The assignments of
+ * a chunk are soft deleted and their numbers released with set based SQL, and its NUMBER_UNASSIGNED events are
+ * enqueued in its transaction. Once the chunk has committed its callable number deletes run on the shared
+ * {@code callableNumbersExecutor} and its billing removes are sent as one asynchronous task per account.
+ */
+@Component
+public class BulkUnassignmentHandler implements BulkJobHandler<BulkUnassignmentRow> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkUnassignmentHandler.class);
+
+    private final NumbersRepository numbersRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final CallableNumbersService callableNumbersService;
+    private final NotificationService notificationService;
+    private final BillingNotificationService billingNotificationService;
+    private final NumbersMapper numbersMapper;
+    private final AssignmentMapper assignmentMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int extendAvailableAfterDays;
+    private final Executor callableNumbersExecutor;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public BulkUnassignmentHandler(NumbersRepository numbersRepository,
+                                   AssignmentRepository assignmentRepository,
+                                   CallableNumbersService callableNumbersService,
+                                   NotificationService notificationService,
+                                   BillingNotificationService billingNotificationService,
+                                   NumbersMapper numbersMapper,
+                                   AssignmentMapper assignmentMapper,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${numbers.service.availability.graceperiod.days}") int extendAvailableAfterDays,
+                                   @Qualifier("callableNumbersExecutor") Executor callableNumbersExecutor) {
+        this.numbersRepository = numbersRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.callableNumbersService = callableNumbersService;
+        this.notificationService = notificationService;
+        this.billingNotificationService = billingNotificationService;
+        this.numbersMapper = numbersMapper;
+        this.assignmentMapper = assignmentMapper;
+        this.eventPublisher = eventPublisher;
+        this.extendAvailableAfterDays = extendAvailableAfterDays;
+        this.callableNumbersExecutor = callableNumbersExecutor;
+    }
+
+    @Override
+    public BulkJobType getType() {
+        return BulkJobType.UNASSIGN;
+    }
+
+    @Override
+    public Class<BulkUnassignmentRow> getRowType() {
+        return BulkUnassignmentRow.class;
+    }
+
+    @Override
+    public String describe(BulkUnassignmentRow row) {
+        return Objects.toString(row.getNumberId(), null);
+    }
+
+    @Override
+    public BulkChunkResult process(List<BulkUnassignmentRow> rows) {
+        Map<UUID, NumberEntity> numbers = new HashMap<>();
+        numbersRepository.findAllByIdForUpdate(rows.stream().map(BulkUnassignmentRow::getNumberId).filter(Objects::nonNull).collect(toSet()))
+                .forEach(number -> numbers.put(number.getId(), number));
+
+        List<BulkRowOutcome> outcomes = new ArrayList<>(rows.size());
+        Map<NumberEntity, AssignmentEntity> unassigned = new LinkedHashMap<>();
+        for (BulkUnassignmentRow row : rows) {
+            if (row.getNumberId() == null) {
+                outcomes.add(BulkRowOutcome.failed("numberId is required"));
+                continue;
+            }
+            NumberEntity number = numbers.get(row.getNumberId());
+            if (number == null) {
+                outcomes.add(BulkRowOutcome.failed(new NumberNotFoundException(row.getNumberId()).getMessage()));
+                continue;
+            }
+            AssignmentEntity assignment = unassigned.containsKey(number) ? null : number.getAssignedTo();
+            if (assignment == null) {
+                outcomes.add(BulkRowOutcome.failed(new NumberNotAssignedException(row.getNumberId()).getMessage()));
+            } else if (row.getAccountId() != null && !(Objects.equals(row.getVendorId(), assignment.getVendorId())
+                    && Objects.equals(row.getAccountId(), assignment.getAccountId()))) {
+                outcomes.add(BulkRowOutcome.failed(String.format("Number id {%s} is no longer assigned to {%s:%s}",
+                        row.getNumberId(), row.getVendorId(), row.getAccountId())));
+            } else {
+                unassigned.put(number, assignment);
+                outcomes.add(BulkRowOutcome.succeeded());
+            }
+        }
+        if (unassigned.isEmpty()) {
+            return new BulkChunkResult(outcomes, null);
+        }
+
+        // the entities only describe the change from here on, the SQL below makes it
+        entityManager.clear();
+        OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime availableAfter = now.plusDays(extendAvailableAfterDays);
+        assignmentRepository.unassignAll(unassigned.values().stream().map(AssignmentEntity::getId).collect(toList()),
+                unassigned.keySet().stream().map(NumberEntity::getId).collect(toList()), availableAfter, now);
+
+        List<NumberDto> numberDtos = new ArrayList<>(unassigned.size());
+        Map<VendorAccountId, List<NumberEntity>> unassignedByAccount = new LinkedHashMap<>();
+        unassigned.forEach((number, assignment) -> {
+            number.setAssignedTo(null);
+            number.setAvailableAfter(availableAfter);
+            number.setDedicatedReceiver(false);
+            number.setUpdated(now);
+            if ("US".equals(number.getCountry()) && number.getType() == NumberType.TOLL_FREE) {
+                number.setStatus(null);
+            }
+            eventPublisher.publishEvent(NumberChangedEvent.unassigned(number));
+
+            NumberDto numberDto = numbersMapper.toNumberDto(number);
+            numberDto.setAssignedTo(assignmentMapper.toAssignmentDto(assignment));
+            numberDtos.add(numberDto);
+            unassignedByAccount.computeIfAbsent(new VendorAccountId(assignment.getVendorId(), assignment.getAccountId()),
+                    account -> new ArrayList<>()).add(number);
+        });
+        List<NumberEntity> callableNumbers = unassigned.keySet().stream()
+                .filter(number -> number.getCapabilities().contains(ServiceType.CALL))
+                .collect(toList());
+        notificationService.pushAll(Event.NUMBER_UNASSIGNED, numberDtos);
+        unassignedByAccount.forEach(billingNotificationService::sendRemoveNotifications);
+
+        return new BulkChunkResult(outcomes, () -> {
+            List<CompletableFuture<Void>> callableDeletes = callableNumbers.stream()
+                    .map(number -> CompletableFuture.runAsync(() -> deleteCallableNumber(number), callableNumbersExecutor))
+                    .collect(toList());
+            // waiting keeps the chunks in flight, and so the callable number calls, bounded
+            CompletableFuture.allOf(callableDeletes.toArray(new CompletableFuture[0])).join();
+        });
+    }
+
+    private void deleteCallableNumber(NumberEntity number) {
+        try {
+            callableNumbersService.deleteCallableNumber(number);
+        } catch (RuntimeException e) {
+            LOGGER.warnWithReason("Failed to delete callable number of unassigned number", e.getMessage(), e);
+        }
+    }
+}
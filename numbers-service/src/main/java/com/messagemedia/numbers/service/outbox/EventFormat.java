@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.outbox;
+
+/**
+ * The formats provisioning events can be published in, announced to consumers by the {@code contentType} message
+ * attribute. Binary formats are base64 encoded, SQS message bodies being text.
+ */
+public enum EventFormat {
+
+    /**
+     * The full event as JSON, as consumers have always received it.
+     */
+    JSON("application/json", false, false),
+    CBOR("application/cbor", true, false),
+    /**
+     * Updates only carry the fields which changed since the previous event of the number, see
+     * {@link ProvisioningEventEncoder}.
+     */
+    JSON_DELTA("application/vnd.numbers-event-delta+json", false, true),
+    CBOR_DELTA("application/vnd.numbers-event-delta+cbor", true, true);
+
+    private final String contentType;
+    private final boolean binary;
+    private final boolean delta;
+
+    EventFormat(String contentType, boolean binary, boolean delta) {
+        this.contentType = contentType;
+        this.binary = binary;
+        this.delta = delta;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
+}
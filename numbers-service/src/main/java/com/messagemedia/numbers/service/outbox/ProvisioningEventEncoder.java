@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.messagemedia.numbers.exception.EventNotificationPublishingFailedException;
+import com.messagemedia.numbers.repository.ProvisioningOutboxRepository;
+import com.messagemedia.numbers.repository.projections.EventState;
+import com.messagemedia.numbers.repository.projections.OutboxEvent;
+import com.messagemedia.numbers.service.client.models.Event;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Encodes the provisioning events of the outbox in the configured {@link EventFormat} when they are published. The
+ * outbox itself always holds the full JSON event.
+ * <p>
+ * In a delta format every event carries the {@code version} of its number, counted per published event. A
+ * {@link Event#NUMBER_UPDATED} or {@link Event#ASSIGNMENT_UPDATED} only carries the fields of {@code number} and
+ * {@code assignment} which changed since the event of {@code baseVersion}: a missing field is unchanged and a null
+ * field was removed. All other events are sent in full. A consumer which does not hold {@code baseVersion} fetches the
+ * number instead of applying the delta.
+ */
+@Component
+public class ProvisioningEventEncoder {
+
+    static final String NUMBER = "number";
+    static final String ASSIGNMENT = "assignment";
+    static final String VERSION = "version";
+    static final String BASE_VERSION = "baseVersion";
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory());
+
+    private final ProvisioningOutboxRepository outboxRepository;
+    private final EventFormat format;
+
+    @Autowired
+    public ProvisioningEventEncoder(ProvisioningOutboxRepository outboxRepository,
+                                    @Value("${numbers.service.outbox.eventFormat}") EventFormat format) {
+        this.outboxRepository = outboxRepository;
+        this.format = format;
+    }
+
+    public EventFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Encodes events of distinct numbers. The states the delta formats compute the next deltas against are only saved
+     * by {@link #saveStates(EncodedEvents)}, once the messages have been published.
+     */
+    public EncodedEvents encode(List<OutboxEvent> events) throws EventNotificationPublishingFailedException {
+        EncodedEvents encoded = new EncodedEvents(events.size());
+        if (format == EventFormat.JSON) {
+            events.forEach(event -> encoded.messages.add(event.getPayload()));
+            return encoded;
+        }
+        Map<UUID, EventState> states = format.isDelta()
+                ? outboxRepository.findStates(events.stream().map(OutboxEvent::getNumberId).collect(toList()))
+                : Collections.emptyMap();
+        for (OutboxEvent event : events) {
+            try {
+                ObjectNode tree = (ObjectNode) JSON_MAPPER.readTree(event.getPayload());
+                if (format.isDelta()) {
+                    tree = toDelta(event, tree, states.get(event.getNumberId()), encoded);
+                }
+                encoded.messages.add(format.isBinary()
+                        ? Base64.getEncoder().encodeToString(CBOR_MAPPER.writeValueAsBytes(tree))
+                        : JSON_MAPPER.writeValueAsString(tree));
+            } catch (IOException | ClassCastException e) {
+                throw new EventNotificationPublishingFailedException("Unable to encode provisioning event " + event.getId(), e);
+            }
+        }
+        return encoded;
+    }
+
+    public void saveStates(EncodedEvents encoded) {
+        if (!encoded.states.isEmpty()) {
+            outboxRepository.saveStates(encoded.states);
+        }
+        if (!encoded.deleted.isEmpty()) {
+            outboxRepository.deleteStates(encoded.deleted);
+        }
+    }
+
+    private static ObjectNode toDelta(OutboxEvent event, ObjectNode full, EventState previous, EncodedEvents encoded)
+            throws IOException {
+        long version = previous == null ? 1 : previous.getVersion() + 1;
+        if (Event.NUMBER_DELETED.name().equals(event.getEvent())) {
+            encoded.deleted.add(event.getNumberId());
+        } else {
+            ObjectNode state = JsonNodeFactory.instance.objectNode();
+            state.set(NUMBER, full.get(NUMBER));
+            state.set(ASSIGNMENT, full.get(ASSIGNMENT));
+            encoded.states.add(new EventState(event.getNumberId(), version, JSON_MAPPER.writeValueAsString(state)));
+        }
+        if (previous != null && isUpdate(event)) {
+            JsonNode base = JSON_MAPPER.readTree(previous.getState());
+            setChanges(full, NUMBER, base.get(NUMBER));
+            setChanges(full, ASSIGNMENT, base.get(ASSIGNMENT));
+            full.put(BASE_VERSION, previous.getVersion());
+        }
+        full.put(VERSION, version);
+        return full;
+    }
+
+    private static boolean isUpdate(OutboxEvent event) {
+        return Event.NUMBER_UPDATED.name().equals(event.getEvent()) || Event.ASSIGNMENT_UPDATED.name().equals(event.getEvent());
+    }
+
+    /**
+     * Replaces the field of the event by the fields which changed since the base, or removes it when nothing changed.
+     */
+    private static void setChanges(ObjectNode event, String field, JsonNode base) {
+        JsonNode current = event.get(field);
+        if (isNull(base) && isNull(current)) {
+            event.remove(field);
+        } else if (isNull(base) || isNull(current) || !base.isObject() || !current.isObject()) {
+            event.set(field, current == null ? JsonNodeFactory.instance.nullNode() : current);
+        } else {
+            ObjectNode changes = JsonNodeFactory.instance.objectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = current.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> entry = fields.next();
+                if (!entry.getValue().equals(base.get(entry.getKey()))) {
+                    changes.set(entry.getKey(), entry.getValue());
+                }
+            }
+            Iterator<String> baseFields = base.fieldNames();
+            while (baseFields.hasNext()) {
+                String name = baseFields.next();
+                if (!current.has(name)) {
+                    changes.putNull(name);
+                }
+            }
+            if (changes.size() == 0) {
+                event.remove(field);
+            } else {
+                event.set(field, changes);
+            }
+        }
+    }
+
+    private static boolean isNull(JsonNode node) {
+        return node == null || node.isNull();
+    }
+
+    /**
+     * The messages of a batch of events, in the order of the events, and the states to keep once they are published.
+     */
+    public static final class EncodedEvents {
+
+        private final List<String> messages;
+        private final List<EventState> states = new ArrayList<>();
+        private final List<UUID> deleted = new ArrayList<>();
+
+        private EncodedEvents(int size) {
+            this.messages = new ArrayList<>(size);
+        }
+
+        public List<String> getMessages() {
+            return messages;
+        }
+    }
+}
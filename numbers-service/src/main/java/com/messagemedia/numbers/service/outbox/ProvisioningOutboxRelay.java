@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.outbox;
+
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.numbers.repository.ProvisioningOutboxRepository;
+import com.messagemedia.numbers.repository.projections.OutboxEvent;
+import com.messagemedia.numbers.service.metrics.MetricsSource;
+import com.messagemedia.numbers.service.outbox.ProvisioningEventEncoder.EncodedEvents;
+import com.messagemedia.numbers.sqs.SQSQueuePublisher;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Publishes the provisioning events of the outbox to the provisioning queue, in order per number.
+ * <p>
+ * Every round claims a batch of due events with {@code FOR UPDATE SKIP LOCKED}, publishes them and deletes them in the
+ * same transaction, so any number of service instances can relay at once without blocking each other or publishing an
+ * event twice. Events are encoded in the configured {@link EventFormat} on the way out. When publishing fails the batch
+ * is kept and retried with an exponential backoff. SQS may have accepted part of a failed batch, so delivery is at least
+ * once.
+ */
+@Component
+public class ProvisioningOutboxRelay implements MetricsSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProvisioningOutboxRelay.class);
+    private static final int MAX_BACKOFF_SHIFT = 30;
+
+    private final ProvisioningOutboxRepository outboxRepository;
+    private final SQSQueuePublisher provisioningSQSQueuePublisher;
+    private final ProvisioningEventEncoder eventEncoder;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @Autowired
+    public ProvisioningOutboxRelay(ProvisioningOutboxRepository outboxRepository,
+                                   @Qualifier("provisioningSQSQueuePublisher") SQSQueuePublisher provisioningSQSQueuePublisher,
+                                   ProvisioningEventEncoder eventEncoder,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${numbers.service.outbox.batchSize}") int batchSize,
+                                   @Value("${numbers.service.outbox.baseBackoffMillis}") long baseBackoffMillis,
+                                   @Value("${numbers.service.outbox.maxBackoffMillis}") long maxBackoffMillis) {
+        this.outboxRepository = outboxRepository;
+        this.provisioningSQSQueuePublisher = provisioningSQSQueuePublisher;
+        this.eventEncoder = eventEncoder;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Relays batches until one comes back short, so a backlog is drained without waiting for the next poll.
+     */
+    @Scheduled(fixedDelayString = "${numbers.service.outbox.pollDelayMillis}")
+    public void relay() {
+        int relayed;
+        do {
+            relayed = relayBatch();
+        } while (relayed == batchSize);
+    }
+
+    /**
+     * @return the number of events published, 0 when there was nothing due or publishing failed
+     */
+    int relayBatch() {
+        return transaction.execute(status -> {
+            List<OutboxEvent> events = outboxRepository.claimDue(batchSize, OffsetDateTime.now());
+            if (events.isEmpty()) {
+                return 0;
+            }
+            EncodedEvents encoded;
+            try {
+                encoded = eventEncoder.encode(events);
+                provisioningSQSQueuePublisher.publishMessages(encoded.getMessages(), eventEncoder.getFormat().getContentType());
+            } catch (RuntimeException e) {
+                LOGGER.warnWithReason("Provisioning events not published", "Retrying {} events: {}", events.size(), e.getMessage());
+                OffsetDateTime now = OffsetDateTime.now();
+                Map<Long, OffsetDateTime> nextAttempts = new LinkedHashMap<>();
+                events.forEach(event -> nextAttempts.put(event.getId(), now.plus(backoffMillis(event.getAttempts()), ChronoUnit.MILLIS)));
+                outboxRepository.reschedule(nextAttempts, ExceptionUtils.getRootCauseMessage(e));
+                failed.add(events.size());
+                return 0;
+            }
+            eventEncoder.saveStates(encoded);
+            outboxRepository.deleteEvents(events.stream().map(OutboxEvent::getId).collect(toList()));
+            published.add(events.size());
+            return events.size();
+        });
+    }
+
+    long backoffMillis(int attempts) {
+        return Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempts, MAX_BACKOFF_SHIFT));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "provisioningOutbox";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pending", outboxRepository.count());
+        metrics.put("published", published.sum());
+        metrics.put("failed", failed.sum());
+        return metrics;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.routing;
+
+/**
+ * Packs a phone number of up to 15 digits, with an optional leading '+', into a primitive long.
+ * <p>
+ * Layout: bits 0-49 hold the digits as a decimal value, bits 50-53 hold the digit count (so leading zeros survive)
+ * and bit 54 records the leading '+'. A valid key is therefore always positive and never zero.
+ */
+public final class PhoneNumberKey {
+
+    public static final long INVALID = -1L;
+
+    private static final int MAX_DIGITS = 15;
+    private static final int LENGTH_SHIFT = 50;
+    private static final int PLUS_SHIFT = 54;
+    private static final long VALUE_MASK = (1L << LENGTH_SHIFT) - 1;
+    private static final long LENGTH_MASK = 0xFL;
+
+    private PhoneNumberKey() {
+    }
+
+    public static long pack(String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.isEmpty()) {
+            return INVALID;
+        }
+        boolean plus = phoneNumber.charAt(0) == '+';
+        int start = plus ? 1 : 0;
+        int length = phoneNumber.length() - start;
+        if (length == 0 || length > MAX_DIGITS) {
+            return INVALID;
+        }
+        long value = 0;
+        for (int i = start; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value | ((long) length << LENGTH_SHIFT) | (plus ? 1L << PLUS_SHIFT : 0L);
+    }
+
+    public static String unpack(long key) {
+        if (key <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid phone number key {%d}", key));
+        }
+        int length = (int) ((key >>> LENGTH_SHIFT) & LENGTH_MASK);
+        char[] chars = new char[length];
+        long value = key & VALUE_MASK;
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        String digits = new String(chars);
+        return ((key >>> PLUS_SHIFT) & 1L) == 1L ? "+" + digits : digits;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.routing;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.Objects;
+
+/**
+ * Immutable routing information of an active assignment.
+ */
+public final class RoutingEntry {
+
+    private final String vendorId;
+    private final String accountId;
+    private final String callbackUrl;
+    private final boolean dedicatedReceiver;
+
+    public RoutingEntry(String vendorId, String accountId, String callbackUrl, boolean dedicatedReceiver) {
+        this.vendorId = vendorId;
+        this.accountId = accountId;
+        this.callbackUrl = callbackUrl;
+        this.dedicatedReceiver = dedicatedReceiver;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getCallbackUrl() {
+        return callbackUrl;
+    }
+
+    public boolean isDedicatedReceiver() {
+        return dedicatedReceiver;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RoutingEntry that = (RoutingEntry) o;
+        return dedicatedReceiver == that.dedicatedReceiver
+                && Objects.equals(vendorId, that.vendorId)
+                && Objects.equals(accountId, that.accountId)
+                && Objects.equals(callbackUrl, that.callbackUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(vendorId, accountId, callbackUrl, dedicatedReceiver);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("vendorId", vendorId)
+                .append("accountId", accountId)
+                .append("callbackUrl", callbackUrl)
+                .append("dedicatedReceiver", dedicatedReceiver)
+                .toString();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.routing;
+
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.numbers.repository.AssignmentRepository;
+import com.messagemedia.numbers.service.event.NumberChangeFeed;
+import com.messagemedia.numbers.service.event.NumberChangedEvent;
+import com.messagemedia.numbers.service.event.NumberChangesPolledEvent;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the phone number to active assignment routing table in memory. The table is built from the database once
+ * the context is up. The {@link NumberChangedEvent}s published after each commit of this instance are applied straight
+ * away, and the {@link NumberChangesPolledEvent}s of the {@link NumberChangeFeed} read back the routes of the numbers
+ * changed by any instance or straight in the database, so a route is at most a feed poll delay behind the database. The
+ * table is also rebuilt periodically, which only matters when the feed has failed for longer than its retention.
+ * <p>
+ * Routes are read back under the lock, one read after the other, so a route read later is never replaced by one read
+ * before it. The events of this instance may reach the table out of commit order, the feed corrects that.
+ */
+@Service
+public class RoutingService implements SmartInitializingSingleton {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoutingService.class);
+    private static final int READ_BATCH_SIZE = 1000;
+
+    private final AssignmentRepository assignmentRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    // guards the swap of the table, loading, reading routes back and the numbers changed while the table is loaded
+    private final Object lock = new Object();
+    private final Set<String> changedDuringLoad = new HashSet<>();
+
+    private volatile RoutingTable table = new RoutingTable();
+    private boolean loading;
+
+    @Autowired
+    public RoutingService(AssignmentRepository assignmentRepository, PlatformTransactionManager transactionManager) {
+        this.assignmentRepository = assignmentRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load();
+    }
+
+    @Scheduled(fixedDelayString = "${numbers.service.routing.reloadMillis}",
+            initialDelayString = "${numbers.service.routing.reloadMillis}")
+    public synchronized void load() {
+        long start = System.currentTimeMillis();
+        synchronized (lock) {
+            loading = true;
+            changedDuringLoad.clear();
+        }
+        RoutingTable loaded;
+        try {
+            loaded = readOnlyTransaction.execute(status -> {
+                try (Stream<Object[]> routes = assignmentRepository.streamActiveRoutes()) {
+                    return toRoutingTable(routes);
+                }
+            });
+            synchronized (lock) {
+                // the snapshot may predate changes committed while it streamed, the routes of those numbers are read
+                // back after it instead, so they are at least as recent as the snapshot
+                readBack(loaded, changedDuringLoad);
+                table = loaded;
+            }
+        } finally {
+            synchronized (lock) {
+                changedDuringLoad.clear();
+                loading = false;
+            }
+        }
+        LOGGER.info("Loaded {} routes in {} ms", loaded.size(), System.currentTimeMillis() - start);
+    }
+
+    public Optional<RoutingEntry> getRoute(String phoneNumber) {
+        return Optional.ofNullable(table.get(PhoneNumberKey.pack(phoneNumber)));
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNumberChanged(NumberChangedEvent event) {
+        synchronized (lock) {
+            // the current table keeps serving reads while a load runs, so it takes the change as well
+            apply(table, event.getPhoneNumber(), event.getRoute());
+            if (loading) {
+                changedDuringLoad.add(event.getPhoneNumber());
+            }
+        }
+    }
+
+    @EventListener
+    public void onNumberChangesPolled(NumberChangesPolledEvent event) {
+        Set<String> phoneNumbers = event.getPhoneNumbers();
+        synchronized (lock) {
+            readBack(table, phoneNumbers);
+            if (loading) {
+                changedDuringLoad.addAll(phoneNumbers);
+            }
+        }
+    }
+
+    private void readBack(RoutingTable routingTable, Collection<String> phoneNumbers) {
+        List<String> remaining = new ArrayList<>(phoneNumbers);
+        for (int from = 0; from < remaining.size(); from += READ_BATCH_SIZE) {
+            List<String> batch = remaining.subList(from, Math.min(from + READ_BATCH_SIZE, remaining.size()));
+            Map<String, RoutingEntry> routes = new HashMap<>();
+            assignmentRepository.findActiveRoutes(batch)
+                    .forEach(route -> routes.put((String) route[0], toRoutingEntry(route, new HashMap<>())));
+            batch.forEach(phoneNumber -> apply(routingTable, phoneNumber, routes.get(phoneNumber)));
+        }
+    }
+
+    private static void apply(RoutingTable routingTable, String phoneNumber, RoutingEntry route) {
+        long key = PhoneNumberKey.pack(phoneNumber);
+        if (key == PhoneNumberKey.INVALID) {
+            LOGGER.warnWithReason("Not routing number", "Phone number {} cannot be packed", phoneNumber);
+            return;
+        }
+        if (route == null) {
+            routingTable.remove(key);
+        } else {
+            routingTable.put(key, route);
+        }
+    }
+
+    private static RoutingTable toRoutingTable(Stream<Object[]> routes) {
+        RoutingTable routingTable = new RoutingTable();
+        // vendors, accounts and callback urls repeat across many numbers so share one instance of each
+        Map<String, String> strings = new HashMap<>();
+        routes.forEach(route -> {
+            long key = PhoneNumberKey.pack((String) route[0]);
+            if (key == PhoneNumberKey.INVALID) {
+                LOGGER.warnWithReason("Not routing number", "Phone number {} cannot be packed", route[0]);
+                return;
+            }
+            routingTable.put(key, toRoutingEntry(route, strings));
+        });
+        return routingTable;
+    }
+
+    private static RoutingEntry toRoutingEntry(Object[] route, Map<String, String> strings) {
+        return new RoutingEntry(share(strings, (String) route[1]), share(strings, (String) route[2]),
+                share(strings, (String) route[3]), Boolean.TRUE.equals(route[4]));
+    }
+
+    private static String share(Map<String, String> strings, String value) {
+        return value == null ? null : strings.computeIfAbsent(value, v -> v);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.routing;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open addressing (linear probing) hash table from a packed phone number key to its {@link RoutingEntry}.
+ * <p>
+ * Keys are kept in a primitive long array so a lookup touches two arrays and never allocates. Reads are lock free
+ * through an optimistic {@link StampedLock} stamp and only fall back to a read lock when a write raced with them.
+ */
+public final class RoutingTable {
+
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private Slots slots;
+    private int size;
+
+    public RoutingTable() {
+        this(0);
+    }
+
+    public RoutingTable(int expectedSize) {
+        this.slots = new Slots(capacityFor(expectedSize));
+    }
+
+    public RoutingEntry get(long key) {
+        if (key <= 0) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        RoutingEntry entry = find(slots, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                entry = find(slots, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return entry;
+    }
+
+    public void put(long key, RoutingEntry entry) {
+        if (key <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid phone number key {%d}", key));
+        }
+        if (entry == null) {
+            remove(key);
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > slots.keys.length) {
+                slots = rehash(slots, slots.keys.length * 2);
+            }
+            if (insert(slots, key, entry)) {
+                size++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(long key) {
+        if (key <= 0) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (delete(slots, key)) {
+                size--;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static RoutingEntry find(Slots slots, long key) {
+        long[] keys = slots.keys;
+        int mask = keys.length - 1;
+        int index = indexFor(key, mask);
+        // bounded so a racing writer can never keep an optimistic reader spinning
+        for (int probes = 0; probes <= mask; probes++) {
+            long current = keys[index];
+            if (current == key) {
+                return slots.values[index];
+            }
+            if (current == EMPTY) {
+                return null;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    private static boolean insert(Slots slots, long key, RoutingEntry entry) {
+        long[] keys = slots.keys;
+        int mask = keys.length - 1;
+        int index = indexFor(key, mask);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                slots.values[index] = entry;
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        slots.values[index] = entry;
+        keys[index] = key;
+        return true;
+    }
+
+    /**
+     * Backward shift deletion, which keeps probe chains intact without tombstones.
+     */
+    private static boolean delete(Slots slots, long key) {
+        long[] keys = slots.keys;
+        RoutingEntry[] values = slots.values;
+        int mask = keys.length - 1;
+        int hole = indexFor(key, mask);
+        while (keys[hole] != key) {
+            if (keys[hole] == EMPTY) {
+                return false;
+            }
+            hole = (hole + 1) & mask;
+        }
+        int next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            long current = keys[next];
+            if (current == EMPTY) {
+                break;
+            }
+            int home = indexFor(current, mask);
+            boolean reachable = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!reachable) {
+                keys[hole] = current;
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = null;
+        return true;
+    }
+
+    private static Slots rehash(Slots old, int capacity) {
+        Slots resized = new Slots(capacity);
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] != EMPTY) {
+                insert(resized, old.keys[i], old.values[i]);
+            }
+        }
+        return resized;
+    }
+
+    private static int indexFor(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static final class Slots {
+
+        private final long[] keys;
+        private final RoutingEntry[] values;
+
+        private Slots(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new RoutingEntry[capacity];
+        }
+    }
+}
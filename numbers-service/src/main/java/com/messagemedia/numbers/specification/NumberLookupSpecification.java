@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.specification;
+
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity_;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Matches numbers by id or phone number and fetches their active assignment in the same statement.
+ */
+public class NumberLookupSpecification implements Specification<NumberEntity> {
+
+    private final Collection<UUID> ids;
+    private final Collection<String> phoneNumbers;
+
+    public NumberLookupSpecification(Collection<UUID> ids, Collection<String> phoneNumbers) {
+        this.ids = ids;
+        this.phoneNumbers = phoneNumbers;
+    }
+
+    @Override
+    public Predicate toPredicate(Root<NumberEntity> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+        if (NumberEntity.class.equals(query.getResultType())) {
+            root.fetch(NumberEntity_.assignedTo, JoinType.LEFT);
+        }
+        List<Predicate> predicates = new ArrayList<>();
+        if (!ids.isEmpty()) {
+            predicates.add(root.get(NumberEntity_.id).in(ids));
+        }
+        if (!phoneNumbers.isEmpty()) {
+            predicates.add(root.get(NumberEntity_.phoneNumber).in(phoneNumbers));
+        }
+        return cb.or(predicates.toArray(new Predicate[]{}));
+    }
+}
@@ -9,30 +9,354 @@
 package com.messagemedia.numbers.sqs;
 
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.QueueAttributeName;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.messagemedia.framework.json.JsonFastMapper;
 import com.messagemedia.numbers.exception.EventNotificationPublishingFailedException;
+import com.messagemedia.numbers.service.metrics.MetricsSource;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
-public class SQSQueuePublisher {
+/**
+ * Publishes messages to a single SQS queue with SendMessageBatch.
+ * <p>
+ * With a buffer window the messages of concurrent callers are coalesced: a batch is sent as soon as it holds 10
+ * messages or 256 KiB, otherwise once the window has passed since its first message. Callers still block until their
+ * own messages are sent, so a returning call means SQS has accepted every message of it. Entries SQS fails without
+ * blaming the sender are retried on their own, up to the configured number of retries.
+ */
+public class SQSQueuePublisher implements MetricsSource, DisposableBean {
+
+    /**
+     * Most messages SQS accepts in a single SendMessageBatch call.
+     */
+    static final int MAX_BATCH_ENTRIES = 10;
+
+    /**
+     * Most bytes of message bodies SQS accepts in a single SendMessageBatch call.
+     */
+    static final int MAX_BATCH_BYTES = 256 * 1024;
+
+    /**
+     * The message attribute announcing the format of the body to consumers.
+     */
+    public static final String CONTENT_TYPE = "contentType";
+
+    private static final long RETRY_DELAY_MILLIS = 50;
 
     private final AmazonSQS amazonSqs;
     private final String queueUrl;
     private JsonFastMapper mapper;
+    private final long bufferWindowMillis;
+    private final int maxRetries;
+    private final ScheduledExecutorService flusher;
+
+    private final Object bufferLock = new Object();
+    private List<PendingMessage> buffer = new ArrayList<>(MAX_BATCH_ENTRIES);
+    private int bufferBytes;
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final LongAdder[] batchSizes = new LongAdder[MAX_BATCH_ENTRIES + 1];
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
 
     @Autowired
     public SQSQueuePublisher(AmazonSQS amazonSqs, String queueUrl, JsonFastMapper mapper) {
+        this(amazonSqs, queueUrl, mapper, 0, 0);
+    }
+
+    /**
+     * @param bufferWindowMillis how long a batch waits for more messages, 0 sends every call on its own
+     * @param maxRetries         how often a failed entry is sent again before its message fails
+     */
+    public SQSQueuePublisher(AmazonSQS amazonSqs, String queueUrl, JsonFastMapper mapper, long bufferWindowMillis, int maxRetries) {
         this.amazonSqs = amazonSqs;
         this.queueUrl = queueUrl;
         this.mapper = mapper;
+        this.bufferWindowMillis = bufferWindowMillis;
+        this.maxRetries = maxRetries;
+        this.flusher = bufferWindowMillis > 0
+                ? Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("sqs-publisher-")) : null;
+        for (int i = 0; i < batchSizes.length; i++) {
+            batchSizes[i] = new LongAdder();
+        }
     }
 
     public <T> void publish(T item) throws EventNotificationPublishingFailedException {
+        String message;
         try {
-            amazonSqs.sendMessage(queueUrl, mapper.toJsonString(item));
+            message = mapper.toJsonString(item);
         } catch (IOException e) {
             throw new EventNotificationPublishingFailedException("Unable to publish message to SQS queue: " + queueUrl, e);
         }
+        if (flusher == null) {
+            amazonSqs.sendMessage(queueUrl, message);
+            sent.increment();
+        } else {
+            publishMessages(Collections.singletonList(message));
+        }
+    }
+
+    /**
+     * Publishes the items with as few SendMessageBatch calls as SQS allows.
+     */
+    public <T> void publishAll(List<T> items) throws EventNotificationPublishingFailedException {
+        List<String> messages = new ArrayList<>(items.size());
+        for (T item : items) {
+            try {
+                messages.add(mapper.toJsonString(item));
+            } catch (IOException e) {
+                throw new EventNotificationPublishingFailedException("Unable to publish message to SQS queue: " + queueUrl, e);
+            }
+        }
+        publishMessages(messages);
+    }
+
+    /**
+     * Publishes message bodies which are already serialized, with as few SendMessageBatch calls as SQS allows.
+     */
+    public void publishMessages(List<String> messages) throws EventNotificationPublishingFailedException {
+        publishMessages(messages, null);
+    }
+
+    /**
+     * Publishes message bodies which are already serialized with a {@code contentType} attribute, which is left out
+     * when null.
+     */
+    public void publishMessages(List<String> messages, String contentType) throws EventNotificationPublishingFailedException {
+        List<PendingMessage> pending = new ArrayList<>(messages.size());
+        messages.forEach(message -> pending.add(new PendingMessage(message, contentType)));
+        if (flusher == null) {
+            toBatches(pending).forEach(this::sendBatch);
+        } else {
+            pending.forEach(this::buffer);
+        }
+        int failures = 0;
+        Throwable cause = null;
+        for (PendingMessage message : pending) {
+            try {
+                message.result.join();
+            } catch (CompletionException e) {
+                failures++;
+                cause = cause == null ? e.getCause() : cause;
+            }
+        }
+        if (failures > 0) {
+            throw new EventNotificationPublishingFailedException(String.format("Unable to publish %d of %d messages to SQS queue: %s",
+                    failures, pending.size(), queueUrl), cause);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flush();
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return queueUrl.substring(queueUrl.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (bufferLock) {
+            metrics.put("buffered", buffer.size());
+        }
+        try {
+            String depth = amazonSqs.getQueueAttributes(queueUrl,
+                    Collections.singletonList(QueueAttributeName.ApproximateNumberOfMessages.toString()))
+                    .getAttributes().get(QueueAttributeName.ApproximateNumberOfMessages.toString());
+            metrics.put("queueDepth", depth == null ? null : Long.valueOf(depth));
+        } catch (RuntimeException e) {
+            metrics.put("queueDepth", null);
+        }
+        long batches = 0;
+        long entries = 0;
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int size = 1; size < batchSizes.length; size++) {
+            long count = batchSizes[size].sum();
+            if (count > 0) {
+                histogram.put(String.valueOf(size), count);
+                batches += count;
+                entries += count * size;
+            }
+        }
+        metrics.put("sent", sent.sum());
+        metrics.put("retried", retried.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("batches", batches);
+        metrics.put("averageBatchSize", batches == 0 ? 0.0 : (double) entries / batches);
+        metrics.put("batchSizes", histogram);
+        return metrics;
+    }
+
+    private void buffer(PendingMessage message) {
+        List<List<PendingMessage>> ready = new ArrayList<>(2);
+        synchronized (bufferLock) {
+            if (!buffer.isEmpty() && bufferBytes + message.bytes > MAX_BATCH_BYTES) {
+                ready.add(drainBuffer());
+            }
+            buffer.add(message);
+            bufferBytes += message.bytes;
+            if (buffer.size() == MAX_BATCH_ENTRIES) {
+                ready.add(drainBuffer());
+            } else if (scheduledFlush == null) {
+                try {
+                    scheduledFlush = flusher.schedule(this::flush, bufferWindowMillis, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // shutting down, nothing would flush the buffer later
+                    ready.add(drainBuffer());
+                }
+            }
+        }
+        // full batches are sent by the caller which filled them, only the window expiry is left to the flusher
+        ready.forEach(this::sendBatch);
+    }
+
+    private void flush() {
+        List<PendingMessage> batch;
+        synchronized (bufferLock) {
+            batch = drainBuffer();
+        }
+        if (!batch.isEmpty()) {
+            sendBatch(batch);
+        }
+    }
+
+    private List<PendingMessage> drainBuffer() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        List<PendingMessage> drained = buffer;
+        buffer = new ArrayList<>(MAX_BATCH_ENTRIES);
+        bufferBytes = 0;
+        return drained;
+    }
+
+    private static List<List<PendingMessage>> toBatches(List<PendingMessage> messages) {
+        List<List<PendingMessage>> batches = new ArrayList<>();
+        List<PendingMessage> batch = new ArrayList<>(MAX_BATCH_ENTRIES);
+        int batchBytes = 0;
+        for (PendingMessage message : messages) {
+            if (batch.size() == MAX_BATCH_ENTRIES || !batch.isEmpty() && batchBytes + message.bytes > MAX_BATCH_BYTES) {
+                batches.add(batch);
+                batch = new ArrayList<>(MAX_BATCH_ENTRIES);
+                batchBytes = 0;
+            }
+            batch.add(message);
+            batchBytes += message.bytes;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Sends the batch and completes the result of each of its messages, it never throws.
+     */
+    private void sendBatch(List<PendingMessage> batch) {
+        batchSizes[batch.size()].increment();
+        List<PendingMessage> remaining = batch;
+        for (int attempt = 0; !remaining.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                retried.add(remaining.size());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MILLIS << (attempt - 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(remaining, new EventNotificationPublishingFailedException("Interrupted publishing to SQS queue: " + queueUrl, e));
+                    return;
+                }
+            }
+            List<SendMessageBatchRequestEntry> entries = new ArrayList<>(remaining.size());
+            for (int i = 0; i < remaining.size(); i++) {
+                PendingMessage message = remaining.get(i);
+                SendMessageBatchRequestEntry entry = new SendMessageBatchRequestEntry(String.valueOf(i), message.body);
+                if (message.contentType != null) {
+                    entry.addMessageAttributesEntry(CONTENT_TYPE, new MessageAttributeValue().withDataType("String")
+                            .withStringValue(message.contentType));
+                }
+                entries.add(entry);
+            }
+            SendMessageBatchResult result;
+            try {
+                result = amazonSqs.sendMessageBatch(queueUrl, entries);
+            } catch (RuntimeException e) {
+                if (attempt < maxRetries) {
+                    continue;
+                }
+                fail(remaining, e);
+                return;
+            }
+            boolean[] failedEntries = new boolean[remaining.size()];
+            List<PendingMessage> retry = new ArrayList<>();
+            if (result != null) {
+                for (BatchResultErrorEntry error : result.getFailed()) {
+                    int index = Integer.parseInt(error.getId());
+                    failedEntries[index] = true;
+                    if (attempt < maxRetries && !Boolean.TRUE.equals(error.getSenderFault())) {
+                        retry.add(remaining.get(index));
+                    } else {
+                        fail(Collections.singletonList(remaining.get(index)), new EventNotificationPublishingFailedException(
+                                String.format("SQS queue %s rejected message: %s %s", queueUrl, error.getCode(), error.getMessage()), null));
+                    }
+                }
+            }
+            for (int i = 0; i < remaining.size(); i++) {
+                if (!failedEntries[i]) {
+                    remaining.get(i).result.complete(null);
+                    sent.increment();
+                }
+            }
+            remaining = retry;
+        }
+    }
+
+    private void fail(List<PendingMessage> messages, RuntimeException e) {
+        messages.forEach(message -> message.result.completeExceptionally(e));
+        failed.add(messages.size());
+    }
+
+    private static final class PendingMessage {
+
+        private final String body;
+        private final String contentType;
+        private final int bytes;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PendingMessage(String body, String contentType) {
+            this.body = body;
+            this.contentType = contentType;
+            // attributes count towards the size limit with their name, data type and value
+            this.bytes = body.getBytes(StandardCharsets.UTF_8).length
+                    + (contentType == null ? 0 : CONTENT_TYPE.length() + "String".length() + contentType.length());
+        }
     }
 }
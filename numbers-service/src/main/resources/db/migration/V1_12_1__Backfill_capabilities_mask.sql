@@ -0,0 +1,34 @@
+-- Runs outside a transaction, so each statement commits on its own: the backfill updates the numbers a sixteenth of
+-- the id range at a time and never locks the whole table, and the index is built concurrently. Every statement can
+-- run again if the migration is retried
+
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= '00000000-0000-0000-0000-000000000000' AND id < '10000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= '10000000-0000-0000-0000-000000000000' AND id < '20000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= '20000000-0000-0000-0000-000000000000' AND id < '30000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= '30000000-0000-0000-0000-000000000000' AND id < '40000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= '40000000-0000-0000-0000-000000000000' AND id < '50000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= '50000000-0000-0000-0000-000000000000' AND id < '60000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= '60000000-0000-0000-0000-000000000000' AND id < '70000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= '70000000-0000-0000-0000-000000000000' AND id < '80000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= '80000000-0000-0000-0000-000000000000' AND id < '90000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= '90000000-0000-0000-0000-000000000000' AND id < 'a0000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= 'a0000000-0000-0000-0000-000000000000' AND id < 'b0000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= 'b0000000-0000-0000-0000-000000000000' AND id < 'c0000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= 'c0000000-0000-0000-0000-000000000000' AND id < 'd0000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= 'd0000000-0000-0000-0000-000000000000' AND id < 'e0000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= 'e0000000-0000-0000-0000-000000000000' AND id < 'f0000000-0000-0000-0000-000000000000';
+UPDATE NUMBER SET capabilitiesMask = service_type_mask(capabilities) WHERE capabilitiesMask IS NULL AND id >= 'f0000000-0000-0000-0000-000000000000';
+
+-- the same guarantee as SET NOT NULL, which would scan the table under an exclusive lock. Validating only blocks
+-- schema changes
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'chk_number_capabilitiesmask_not_null') THEN
+        ALTER TABLE NUMBER ADD CONSTRAINT chk_number_capabilitiesmask_not_null CHECK (capabilitiesMask IS NOT NULL) NOT VALID;
+    END IF;
+END
+$$;
+
+ALTER TABLE NUMBER VALIDATE CONSTRAINT chk_number_capabilitiesmask_not_null;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_number_capabilitiesmask ON NUMBER USING btree (capabilitiesMask) WHERE deleted IS NULL;
@@ -0,0 +1,33 @@
+-- bits must match com.messagemedia.numbers.repository.config.ServiceTypeMask
+CREATE OR REPLACE FUNCTION public.service_type_mask(types SERVICE_TYPE[])
+ RETURNS SMALLINT
+ LANGUAGE sql
+ IMMUTABLE
+AS $function$
+select COALESCE(SUM(DISTINCT CASE t
+    WHEN 'SMS' THEN 1
+    WHEN 'MMS' THEN 2
+    WHEN 'TTS' THEN 4
+    WHEN 'CALL' THEN 8
+END), 0)::SMALLINT FROM unnest(types) t;
+$function$
+;
+
+-- nullable at first so adding it does not rewrite the table, V1_12_1 backfills it in batches and then enforces it
+ALTER TABLE NUMBER ADD capabilitiesMask SMALLINT;
+
+-- keeps the mask in sync for writes that do not go through the entity, and for the writes made during the backfill
+CREATE OR REPLACE FUNCTION public.number_capabilities_mask_sync()
+ RETURNS trigger
+ LANGUAGE plpgsql
+AS $function$
+	begin
+		NEW.capabilitiesMask := service_type_mask(NEW.capabilities);
+		return NEW;
+	END;
+$function$
+;
+
+CREATE TRIGGER trg_number_capabilities_mask
+    BEFORE INSERT OR UPDATE OF capabilities ON NUMBER
+    FOR EACH ROW EXECUTE PROCEDURE number_capabilities_mask_sync();
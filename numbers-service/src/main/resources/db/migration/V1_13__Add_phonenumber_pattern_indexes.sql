@@ -0,0 +1,14 @@
+-- Built concurrently so registering and updating numbers is not blocked, Flyway runs them outside a transaction.
+-- The trigram operator class needs the pg_trgm extension, which is created by a DBA beforehand (see README.md)
+
+-- prefix matches: phonenumber LIKE '+614%'
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_number_phonenumber_prefix ON NUMBER USING btree (phoneNumber text_pattern_ops) WHERE deleted IS NULL;
+
+-- suffix matches as a prefix of the reversed number: reverse(phonenumber) LIKE '4321%'
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_number_phonenumber_suffix ON NUMBER USING btree (reverse(phoneNumber) text_pattern_ops) WHERE deleted IS NULL;
+
+-- contains matches: phonenumber LIKE '%1800%'
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_number_phonenumber_trgm ON NUMBER USING gin (phoneNumber gin_trgm_ops) WHERE deleted IS NULL;
+
+-- scope of assignment searches, which is what lets them fall back to a regular expression
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_assignment_vendorid_accountid ON ASSIGNMENT USING btree (vendorId, accountId) WHERE deleted IS NULL;
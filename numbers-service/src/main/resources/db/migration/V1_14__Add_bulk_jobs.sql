@@ -0,0 +1,25 @@
+CREATE TABLE BULK_JOB (
+  id         UUID PRIMARY KEY                                    NOT NULL,
+  type       VARCHAR(20)                                         NOT NULL,
+  status     VARCHAR(20)                                         NOT NULL,
+  note       TEXT                                                NULL,
+  total      INT                                                 NOT NULL,
+  succeeded  INT                                                 NOT NULL DEFAULT 0,
+  failed     INT                                                 NOT NULL DEFAULT 0,
+  created    TIMESTAMP WITH TIME ZONE                            NOT NULL,
+  updated    TIMESTAMP WITH TIME ZONE                            NOT NULL,
+  completed  TIMESTAMP WITH TIME ZONE                            NULL
+);
+
+-- one row per submitted item with its payload and, once its chunk has run, its outcome
+CREATE TABLE BULK_JOB_ROW (
+  jobId      UUID REFERENCES BULK_JOB (id) ON DELETE CASCADE     NOT NULL,
+  rowIndex   INT                                                 NOT NULL,
+  item       TEXT                                                NULL,
+  payload    TEXT                                                NOT NULL,
+  status     VARCHAR(20)                                         NOT NULL,
+  message    TEXT                                                NULL,
+  PRIMARY KEY (jobId, rowIndex)
+);
+
+CREATE INDEX IF NOT EXISTS idx_bulk_job_row_failed ON BULK_JOB_ROW USING btree (jobId, rowIndex) WHERE status = 'FAILED';
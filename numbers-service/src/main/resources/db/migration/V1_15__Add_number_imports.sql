@@ -0,0 +1,40 @@
+CREATE TABLE NUMBER_IMPORT (
+  id         UUID PRIMARY KEY                                    NOT NULL,
+  status     VARCHAR(20)                                         NOT NULL,
+  note       TEXT                                                NULL,
+  total      BIGINT                                              NOT NULL DEFAULT 0,
+  existing   BIGINT                                              NOT NULL DEFAULT 0,
+  staged     BIGINT                                              NOT NULL DEFAULT 0,
+  imported   BIGINT                                              NOT NULL DEFAULT 0,
+  rejected   BIGINT                                              NOT NULL DEFAULT 0,
+  message    TEXT                                                NULL,
+  created    TIMESTAMP WITH TIME ZONE                            NOT NULL,
+  updated    TIMESTAMP WITH TIME ZONE                            NOT NULL,
+  completed  TIMESTAMP WITH TIME ZONE                            NULL
+);
+
+-- the lines of an import which could not be read, up to numbers.service.import.maxRejections per import
+CREATE TABLE NUMBER_IMPORT_REJECTION (
+  importId   UUID REFERENCES NUMBER_IMPORT (id) ON DELETE CASCADE NOT NULL,
+  lineNumber BIGINT                                              NOT NULL,
+  line       TEXT                                                NOT NULL,
+  reason     TEXT                                                NOT NULL,
+  PRIMARY KEY (importId, lineNumber)
+);
+
+-- new numbers of an import are copied here and merged into NUMBER with a single statement, the rows only live for
+-- the duration of the import so the table is not written to the WAL
+CREATE UNLOGGED TABLE NUMBER_IMPORT_STAGING (
+  importId          UUID                                         NOT NULL,
+  lineNumber        BIGINT                                       NOT NULL,
+  id                UUID                                         NOT NULL,
+  phoneNumber       TEXT                                         NOT NULL,
+  providerId        UUID                                         NOT NULL,
+  country           VARCHAR(2)                                   NOT NULL,
+  type              NUMBER_TYPE                                  NOT NULL,
+  classification    CLASSIFICATION                               NOT NULL,
+  capabilities      SERVICE_TYPE []                              NOT NULL,
+  dedicatedReceiver BOOLEAN                                      NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_number_import_staging_importid ON NUMBER_IMPORT_STAGING USING btree (importId);
@@ -0,0 +1,14 @@
+-- provisioning events written in the transaction of the change they describe, deleted once published to the queue
+CREATE TABLE PROVISIONING_OUTBOX (
+  id          BIGSERIAL PRIMARY KEY                              NOT NULL,
+  numberId    UUID                                               NOT NULL,
+  payload     TEXT                                               NOT NULL,
+  created     TIMESTAMP WITH TIME ZONE                           NOT NULL,
+  attempts    INT                                                NOT NULL DEFAULT 0,
+  nextAttempt TIMESTAMP WITH TIME ZONE                           NOT NULL,
+  lastError   TEXT                                               NULL
+);
+
+-- the relay only publishes the oldest event of a number, which it finds through the first index
+CREATE INDEX IF NOT EXISTS idx_provisioning_outbox_number ON PROVISIONING_OUTBOX USING btree (numberId, id);
+CREATE INDEX IF NOT EXISTS idx_provisioning_outbox_due ON PROVISIONING_OUTBOX USING btree (nextAttempt, id);
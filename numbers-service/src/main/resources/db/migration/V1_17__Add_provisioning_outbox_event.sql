@@ -0,0 +1,2 @@
+-- the type of a pending event, so a later update of its number can be folded into it without parsing the payload
+ALTER TABLE PROVISIONING_OUTBOX ADD COLUMN event VARCHAR(32) NULL;
@@ -0,0 +1,7 @@
+-- the number and assignment of the last event published for each number in a delta format, and its version, which
+-- the next delta of the number is computed against
+CREATE TABLE PROVISIONING_EVENT_STATE (
+  numberId UUID PRIMARY KEY                                     NOT NULL,
+  version  BIGINT                                               NOT NULL,
+  state    TEXT                                                 NOT NULL
+);
@@ -0,0 +1,23 @@
+-- rate plan add and remove notifications for the add-on billing manager, deleted once it has accepted them
+CREATE SEQUENCE IF NOT EXISTS billing_notification_seq;
+
+CREATE TABLE BILLING_NOTIFICATION_QUEUE (
+  id          BIGSERIAL PRIMARY KEY                              NOT NULL,
+  seq         BIGINT                                             NOT NULL DEFAULT nextval('billing_notification_seq'),
+  vendorId    VARCHAR(255)                                       NOT NULL,
+  accountId   VARCHAR(255)                                       NOT NULL,
+  ratePlanId  VARCHAR(64)                                        NOT NULL,
+  numberId    UUID                                               NOT NULL,
+  action      VARCHAR(8)                                         NOT NULL,
+  created     TIMESTAMP WITH TIME ZONE                           NOT NULL,
+  attempts    INT                                                NOT NULL DEFAULT 0,
+  nextAttempt TIMESTAMP WITH TIME ZONE                           NOT NULL,
+  parked      BOOLEAN                                            NOT NULL DEFAULT FALSE,
+  lastError   TEXT                                               NULL
+);
+
+-- a notification queued again while pending is not duplicated, it moves behind the other notifications of its number
+CREATE UNIQUE INDEX IF NOT EXISTS idx_billing_notification_key ON BILLING_NOTIFICATION_QUEUE USING btree (vendorId, accountId, ratePlanId, numberId, action);
+-- notifications of a number are sent in seq order, which the worker finds through the first index
+CREATE INDEX IF NOT EXISTS idx_billing_notification_number ON BILLING_NOTIFICATION_QUEUE USING btree (numberId, seq) WHERE NOT parked;
+CREATE INDEX IF NOT EXISTS idx_billing_notification_due ON BILLING_NOTIFICATION_QUEUE USING btree (nextAttempt, seq) WHERE NOT parked;
@@ -0,0 +1,11 @@
+-- the account of the most recently created assignment of each number, which may take the number back while it is
+-- still held after being unassigned
+ALTER TABLE NUMBER ADD lastVendorId TEXT NULL;
+ALTER TABLE NUMBER ADD lastAccountId TEXT NULL;
+
+UPDATE NUMBER n SET lastVendorId = h.vendorId, lastAccountId = h.accountId
+FROM (SELECT DISTINCT ON (numberId) numberId, vendorId, accountId
+      FROM ASSIGNMENT_HISTORY
+      WHERE revtype = 0
+      ORDER BY numberId, created DESC) h
+WHERE h.numberId = n.id;
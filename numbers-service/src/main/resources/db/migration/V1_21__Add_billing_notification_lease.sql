@@ -0,0 +1,3 @@
+-- a worker sends the notifications it claimed outside the claiming transaction, the lease keeps other workers off them
+-- and tells a worker whose lease ran out that its outcome no longer applies
+ALTER TABLE BILLING_NOTIFICATION_QUEUE ADD leasedUntil TIMESTAMP WITH TIME ZONE NULL;
@@ -0,0 +1,6 @@
+-- the instance running a bulk job and when it last said so, a job whose heartbeat is older than the lease is taken over
+-- by another instance, which resumes it from the rows that are still pending
+ALTER TABLE BULK_JOB ADD owner VARCHAR(64) NULL;
+ALTER TABLE BULK_JOB ADD heartbeat TIMESTAMP WITH TIME ZONE NULL;
+
+CREATE INDEX IF NOT EXISTS idx_bulk_job_unfinished ON BULK_JOB USING btree (created) WHERE status IN ('QUEUED', 'RUNNING');
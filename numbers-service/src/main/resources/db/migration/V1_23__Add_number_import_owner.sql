@@ -0,0 +1,4 @@
+-- the instance running an import and when it last said so, the spooled file only exists on that instance, so an import
+-- whose heartbeat is older than the lease is failed and its staged rows deleted
+ALTER TABLE NUMBER_IMPORT ADD owner VARCHAR(64) NULL;
+ALTER TABLE NUMBER_IMPORT ADD heartbeat TIMESTAMP WITH TIME ZONE NULL;
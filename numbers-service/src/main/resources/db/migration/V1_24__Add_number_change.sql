@@ -0,0 +1,51 @@
+-- the numbers changed by any instance or straight in the database, written by triggers in the transaction of the change
+-- and read by every instance to keep its in-memory copies current, rows are deleted once older than the retention
+CREATE TABLE NUMBER_CHANGE (
+  id          BIGSERIAL PRIMARY KEY                              NOT NULL,
+  txId        BIGINT                                             NOT NULL DEFAULT txid_current(),
+  numberId    UUID                                               NOT NULL,
+  phoneNumber TEXT                                               NOT NULL,
+  created     TIMESTAMP WITH TIME ZONE                           NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_number_change_txid ON NUMBER_CHANGE USING btree (txId);
+CREATE INDEX IF NOT EXISTS idx_number_change_created ON NUMBER_CHANGE USING btree (created);
+
+-- numbers are inserted unassigned, so only updates, which include the soft delete, change what is read back
+CREATE OR REPLACE FUNCTION public.number_change_on_number()
+ RETURNS trigger
+ LANGUAGE plpgsql
+AS $function$
+	begin
+		INSERT INTO NUMBER_CHANGE (numberId, phoneNumber) VALUES (OLD.id, OLD.phoneNumber);
+		IF TG_OP = 'UPDATE' AND NEW.phoneNumber IS DISTINCT FROM OLD.phoneNumber THEN
+			INSERT INTO NUMBER_CHANGE (numberId, phoneNumber) VALUES (NEW.id, NEW.phoneNumber);
+		END IF;
+		return NULL;
+	END;
+$function$
+;
+
+CREATE OR REPLACE FUNCTION public.number_change_on_assignment()
+ RETURNS trigger
+ LANGUAGE plpgsql
+AS $function$
+	begin
+		IF TG_OP <> 'INSERT' THEN
+			INSERT INTO NUMBER_CHANGE (numberId, phoneNumber) SELECT id, phoneNumber FROM NUMBER WHERE id = OLD.numberId;
+		END IF;
+		IF TG_OP <> 'DELETE' AND (TG_OP = 'INSERT' OR NEW.numberId IS DISTINCT FROM OLD.numberId) THEN
+			INSERT INTO NUMBER_CHANGE (numberId, phoneNumber) SELECT id, phoneNumber FROM NUMBER WHERE id = NEW.numberId;
+		END IF;
+		return NULL;
+	END;
+$function$
+;
+
+CREATE TRIGGER trg_number_change_number
+    AFTER UPDATE OR DELETE ON NUMBER
+    FOR EACH ROW EXECUTE PROCEDURE number_change_on_number();
+
+CREATE TRIGGER trg_number_change_assignment
+    AFTER INSERT OR UPDATE OR DELETE ON ASSIGNMENT
+    FOR EACH ROW EXECUTE PROCEDURE number_change_on_assignment();
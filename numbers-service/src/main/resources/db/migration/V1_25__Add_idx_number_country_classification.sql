@@ -0,0 +1,3 @@
+-- scope of inventory searches by country and classification, which is what lets them fall back to a regular expression.
+-- Built concurrently so registering and updating numbers is not blocked, Flyway runs it outside a transaction
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_number_country_classification ON NUMBER USING btree (country, classification) WHERE deleted IS NULL;
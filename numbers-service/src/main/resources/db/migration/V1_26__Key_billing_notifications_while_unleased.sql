@@ -0,0 +1,4 @@
+-- a leased notification may be on its way already, so an equal notification queued meanwhile is kept as a new row
+-- behind it instead of resetting it. Only the unleased notifications stay unique
+DROP INDEX IF EXISTS idx_billing_notification_key;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_billing_notification_key ON BILLING_NOTIFICATION_QUEUE USING btree (vendorId, accountId, ratePlanId, numberId, action) WHERE leasedUntil IS NULL;
@@ -19,11 +19,14 @@ import com.messagemedia.numbers.repository.entities.AssignmentEntity;
 import com.messagemedia.numbers.repository.entities.BillingRatePlanEntity;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
 import com.messagemedia.numbers.repository.entities.builders.AssignmentEntityBuilder;
+import com.messagemedia.numbers.repository.projections.AssignmentView;
+import com.messagemedia.numbers.repository.projections.NumberView;
 import com.messagemedia.numbers.service.client.models.*;
 
 import java.io.InputStream;
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 import org.apache.commons.io.IOUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -94,6 +97,20 @@ public class TestData {
         return numberEntity;
     }
 
+    public static NumberView toNumberView(NumberEntity number) {
+        AssignmentEntity assignment = number.getAssignedTo();
+        return new NumberView(number.getId(), number.getPhoneNumber(), number.getProviderId(), number.getCountry(),
+                number.getType(), number.getClassification(), number.getCapabilities(), number.getAvailableAfter(),
+                number.getCreated(), number.getUpdated(), number.isDedicatedReceiver(), number.getStatus(),
+                assignment == null ? null : new AssignmentView(assignment.getId(), number.getId(), assignment.getVendorId(),
+                        assignment.getAccountId(), assignment.getCallbackUrl(), assignment.getExternalMetadata(),
+                        assignment.getCreated(), assignment.getLabel()));
+    }
+
+    public static List<NumberView> toNumberViews(List<NumberEntity> numbers) {
+        return numbers.stream().map(TestData::toNumberView).collect(Collectors.toList());
+    }
+
     public static AssignmentEntity randomAssignmentEntity() {
         AssignmentEntity assignmentEntity = randomAssignmentEntityWithoutNumberEntity();
         assignmentEntity.setNumberEntity(randomUnassignedNumberEntity());
@@ -13,10 +13,14 @@ import com.messagemedia.framework.service.RestTemplateFactory;
 import com.messagemedia.framework.service.config.RestUtilConfig;
 import com.messagemedia.numbers.repository.config.NumbersDbConfig;
 import com.messagemedia.numbers.repository.mappers.AssignmentMapper;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
 import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.*;
 import org.springframework.web.client.RestTemplate;
 
+import javax.sql.DataSource;
+
 @Configuration
 @Import(value = {
         PlatformEnvironmentConfig.class,
@@ -24,6 +28,7 @@ import org.springframework.web.client.RestTemplate;
         AmsSecureConfig.class,
         AuditConfig.class,
         SQSConfig.class,
+        ExecutorConfig.class,
         RestUtilConfig.class
 })
 @PropertySource(value = {"classpath:config.properties"})
@@ -37,8 +42,26 @@ public class ServiceTestConfig {
         return Mappers.getMapper(AssignmentMapper.class);
     }
 
+    @Bean
+    public NumbersMapper numbersMapper() {
+        return Mappers.getMapper(NumbersMapper.class);
+    }
+
     @Bean
     public RestTemplate restTemplate(RestTemplateFactory restTemplateFactory) {
         return restTemplateFactory.create(5000, 10000);
     }
+
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof StatementCountingDataSource)) {
+                    return new StatementCountingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
 }
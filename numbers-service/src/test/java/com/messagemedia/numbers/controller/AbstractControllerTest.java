@@ -16,9 +16,7 @@ import com.messagemedia.numbers.repository.mappers.AssignmentMapper;
 import com.messagemedia.numbers.repository.mappers.NumberAssignmentMapper;
 import com.messagemedia.numbers.repository.mappers.NumbersMapper;
 import com.messagemedia.numbers.service.CallableNumbersService;
-import com.messagemedia.numbers.service.NotificationService;
 import com.messagemedia.numbers.service.NumbersService;
-import com.messagemedia.numbers.service.billing.BillingNotificationService;
 import com.messagemedia.numbers.service.client.models.ServiceType;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import org.junit.Before;
@@ -46,10 +44,6 @@ public abstract class AbstractControllerTest {
     private CallableNumbersService callableNumbersService;
     @Mock
     private NumbersService numbersService;
-    @Mock
-    private NotificationService notificationService;
-    @Mock
-    private BillingNotificationService billingNotificationService;
 
     private AssignmentMapper assignmentMapper;
 
@@ -60,7 +54,6 @@ public abstract class AbstractControllerTest {
         NumberAssignmentMapper numberAssignmentMapper = Mappers.getMapper(NumberAssignmentMapper.class);
         mockMvc = MockMvcBuilders
                 .standaloneSetup(new NumbersController(numbersService,
-                    notificationService, billingNotificationService,
                         Mappers.getMapper(NumbersMapper.class), assignmentMapper, numberAssignmentMapper, callableNumbersService))
                 .setControllerAdvice(new NumbersControllerAdvice())
                 .build();
@@ -82,18 +75,10 @@ public abstract class AbstractControllerTest {
         return callableNumbersService;
     }
 
-    protected NotificationService getNotificationService() {
-        return notificationService;
-    }
-
     protected AssignmentMapper getAssignmentMapper() {
         return assignmentMapper;
     }
 
-    protected BillingNotificationService getBillingNotificationService() {
-        return billingNotificationService;
-    }
-
     protected ResultActions expectNumberEntityFields(ResultActions resultActions, NumberEntity numberEntity) throws Exception {
         return resultActions
                 .andExpect(jsonPath("$.id").value(numberEntity.getId().toString()))
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.domainmodels.accounts.VendorAccountId;
+import com.messagemedia.numbers.controller.support.NumbersControllerAdvice;
+import com.messagemedia.numbers.exception.InvalidAccountRelationshipException;
+import com.messagemedia.numbers.model.dto.BulkMigrationRow;
+import com.messagemedia.numbers.repository.entities.BulkJobEntity;
+import com.messagemedia.numbers.repository.entities.BulkJobStatus;
+import com.messagemedia.numbers.repository.entities.BulkJobType;
+import com.messagemedia.numbers.service.NumbersService;
+import com.messagemedia.numbers.service.job.BulkJobService;
+import com.messagemedia.numbers.service.job.BulkRowPages;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class AccountsControllerTest {
+
+    private static final String MIGRATE_URL = AccountsController.ACCOUNTS_URL + "/account-1/migrate-to/account-2";
+    private static final VendorAccountId FROM = new VendorAccountId("MessageMedia", "account-1");
+    private static final VendorAccountId TO = new VendorAccountId("MessageMedia", "account-2");
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private NumbersService numbersService;
+
+    @Mock
+    private BulkJobService bulkJobService;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new AccountsController(numbersService, bulkJobService))
+                .setControllerAdvice(new NumbersControllerAdvice())
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldVerifyOnceAndSubmitMigrationJob() throws Exception {
+        List<UUID> numberIds = Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        BulkJobEntity job = new BulkJobEntity(BulkJobType.MIGRATE, "GATEWAY-3", numberIds.size());
+        when(numbersService.findAssignedNumberIds("MessageMedia", "account-1", null, 2)).thenReturn(numberIds.subList(0, 2));
+        when(numbersService.findAssignedNumberIds("MessageMedia", "account-1", numberIds.get(1), 2)).thenReturn(numberIds.subList(2, 3));
+        when(bulkJobService.submitPages(eq(BulkJobType.MIGRATE), eq("GATEWAY-3"), any(BulkRowPages.class))).thenReturn(job);
+
+        mockMvc.perform(post(MIGRATE_URL)
+                .param("vendorId", "MessageMedia")
+                .param("note", "GATEWAY-3"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.type", equalTo("MIGRATE")))
+                .andExpect(jsonPath("$.total", equalTo(3)));
+
+        verify(numbersService).verifyReassignment(FROM, TO);
+        ArgumentCaptor<BulkRowPages> pages = ArgumentCaptor.forClass(BulkRowPages.class);
+        verify(bulkJobService).submitPages(eq(BulkJobType.MIGRATE), eq("GATEWAY-3"), pages.capture());
+        List<BulkMigrationRow> first = pages.getValue().next(null, 2);
+        assertEquals(2, first.size());
+        BulkMigrationRow last = (BulkMigrationRow) pages.getValue().next(first.get(1), 2).get(0);
+        assertEquals(numberIds.get(2), last.getNumberId());
+        assertEquals("account-1", last.getFromAccountId());
+        assertEquals("account-2", last.getToAccountId());
+    }
+
+    @Test
+    public void shouldSubmitCompletedJobForAccountWithoutNumbers() throws Exception {
+        BulkJobEntity job = new BulkJobEntity(BulkJobType.MIGRATE, null, 0);
+        job.setStatus(BulkJobStatus.COMPLETED);
+        when(bulkJobService.submitPages(eq(BulkJobType.MIGRATE), any(String.class), any(BulkRowPages.class))).thenReturn(job);
+
+        mockMvc.perform(post(MIGRATE_URL).param("vendorId", "MessageMedia"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status", equalTo("COMPLETED")))
+                .andExpect(jsonPath("$.total", equalTo(0)));
+    }
+
+    @Test
+    public void shouldRejectUnrelatedAccounts() throws Exception {
+        doThrow(new InvalidAccountRelationshipException(TO)).when(numbersService).verifyReassignment(FROM, TO);
+
+        mockMvc.perform(post(MIGRATE_URL).param("vendorId", "MessageMedia"))
+                .andExpect(status().isConflict());
+
+        verify(bulkJobService, never()).submitPages(any(BulkJobType.class), any(String.class), any(BulkRowPages.class));
+    }
+}
@@ -8,13 +8,11 @@
 
 package com.messagemedia.numbers.controller;
 
-import com.messagemedia.domainmodels.accounts.VendorAccountId;
 import com.messagemedia.numbers.exception.AssignmentUpdateRequestEmptyException;
 import com.messagemedia.numbers.exception.NumberNotAssignedException;
 import com.messagemedia.numbers.exception.NumberNotFoundException;
 import com.messagemedia.numbers.repository.entities.AssignmentEntity;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
-import com.messagemedia.numbers.service.client.models.Event;
 import com.messagemedia.numbers.service.client.models.ServiceType;
 import com.messagemedia.numbers.service.client.models.UpdateAssignmentRequest;
 import com.tngtech.java.junit.dataprovider.DataProvider;
@@ -40,10 +38,7 @@ public class AssignmentControllerTest extends AbstractControllerTest {
         // Given
         UUID numberId = UUID.randomUUID();
         AssignmentEntity assignmentEntity = randomAssignmentEntity();
-        NumberEntity numberEntity = randomAssignedNumberEntity();
         when(getNumbersService().disassociateAssignment(any(UUID.class))).thenReturn(assignmentEntity);
-        when(getNumbersService().getNumber(any(UUID.class))).thenReturn(numberEntity);
-        doNothing().when(getNotificationService()).push(any(Event.class), any());
 
         // When
         getMockMvc().perform(MockMvcRequestBuilders
@@ -52,9 +47,7 @@ public class AssignmentControllerTest extends AbstractControllerTest {
 
         // Then
         verify(getNumbersService()).disassociateAssignment(eq(numberId));
-        verify(getNotificationService()).push(any(Event.class), any());
-        verify(getBillingNotificationService()).sendRemoveNotification(new VendorAccountId(assignmentEntity.getVendorId(),
-                assignmentEntity.getAccountId()), numberEntity);
+        verify(getNumbersService(), never()).getNumber(any(UUID.class));
     }
 
     @DataProvider
@@ -82,8 +75,7 @@ public class AssignmentControllerTest extends AbstractControllerTest {
 
         // Then
         verify(getNumbersService()).disassociateAssignment(any(UUID.class));
-        verifyZeroInteractions(getNotificationService());
-        verifyZeroInteractions(getBillingNotificationService());
+        verifyZeroInteractions(getCallableNumbersService());
     }
 
     @Test
@@ -100,7 +92,6 @@ public class AssignmentControllerTest extends AbstractControllerTest {
         UpdateAssignmentRequest assignmentRequest = randomUpdateAssignmentRequest();
         when(getNumbersService().updateAssignment(any(UUID.class), any(UpdateAssignmentRequest.class))).thenReturn(assignmentEntity);
         when(getNumbersService().getNumber(any(UUID.class))).thenReturn(randomAssignedNumberEntity());
-        doNothing().when(getNotificationService()).push(any(Event.class), any());
         getMockMvc().perform(MockMvcRequestBuilders
                 .patch(String.format(ASSIGNMENT_URL_FORMAT, assignmentEntity.getNumberEntity().getId().toString()))
                 .content(toJson(assignmentRequest))
@@ -108,7 +99,6 @@ public class AssignmentControllerTest extends AbstractControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.callbackUrl").value(assignmentEntity.getCallbackUrl()))
                 .andExpect(jsonPath("$.metadata").value(assignmentEntity.getExternalMetadata()));
-        verify(getNotificationService()).push(any(Event.class), any());
     }
 
     @DataProvider
@@ -136,7 +126,6 @@ public class AssignmentControllerTest extends AbstractControllerTest {
                 .andExpect(jsonPath("$.message").isNotEmpty());
 
         verify(getNumbersService()).updateAssignment(any(UUID.class), any(UpdateAssignmentRequest.class));
-        verifyZeroInteractions(getNotificationService());
     }
 
     @Test
@@ -154,11 +143,10 @@ public class AssignmentControllerTest extends AbstractControllerTest {
         assignedNumber.getCapabilities().add(ServiceType.CALL);
 
         when(getNumbersService().disassociateAssignment(any(UUID.class))).thenReturn(assignedNumber.getAssignedTo());
-        when(getNumbersService().getNumber(any(UUID.class))).thenReturn(assignedNumber);
-        doNothing().when(getCallableNumbersService()).deleteCallableNumber(any(UUID.class));
+        doNothing().when(getCallableNumbersService()).deleteCallableNumber(any(NumberEntity.class));
         getMockMvc().perform(MockMvcRequestBuilders
                 .delete(String.format(ASSIGNMENT_URL_FORMAT, assignedNumber.getId().toString())))
                 .andExpect(status().isNoContent());
-        verify(getCallableNumbersService()).deleteCallableNumber(any(UUID.class));
+        verify(getCallableNumbersService()).deleteCallableNumber(assignedNumber);
     }
 }
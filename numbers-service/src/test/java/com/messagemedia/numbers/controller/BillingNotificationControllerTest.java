@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.numbers.controller.support.NumbersControllerAdvice;
+import com.messagemedia.numbers.service.billing.BillingNotificationQueue;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static com.messagemedia.numbers.controller.BillingNotificationController.BILLING_NOTIFICATIONS_URL;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BillingNotificationControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private BillingNotificationQueue billingNotificationQueue;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new BillingNotificationController(billingNotificationQueue))
+                .setControllerAdvice(new NumbersControllerAdvice())
+                .build();
+        when(billingNotificationQueue.countPending()).thenReturn(4L);
+        when(billingNotificationQueue.countParked()).thenReturn(1L);
+    }
+
+    @Test
+    public void shouldReplayParkedNotificationsOfAccount() throws Exception {
+        when(billingNotificationQueue.replay("vendor", "account")).thenReturn(3);
+
+        mockMvc.perform(MockMvcRequestBuilders.post(BILLING_NOTIFICATIONS_URL + "/replay")
+                .param("vendorId", "vendor")
+                .param("accountId", "account"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notifications", is(3)))
+                .andExpect(jsonPath("$.pending", is(4)))
+                .andExpect(jsonPath("$.parked", is(1)));
+        verify(billingNotificationQueue).replay("vendor", "account");
+    }
+
+    @Test
+    public void shouldReplayAllParkedNotifications() throws Exception {
+        when(billingNotificationQueue.replay(null, null)).thenReturn(7);
+
+        mockMvc.perform(MockMvcRequestBuilders.post(BILLING_NOTIFICATIONS_URL + "/replay"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notifications", is(7)));
+    }
+
+    @Test
+    public void shouldDrainQueue() throws Exception {
+        when(billingNotificationQueue.drain()).thenReturn(2);
+
+        mockMvc.perform(MockMvcRequestBuilders.post(BILLING_NOTIFICATIONS_URL + "/drain"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notifications", is(2)))
+                .andExpect(jsonPath("$.pending", is(4)))
+                .andExpect(jsonPath("$.parked", is(1)));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.messagemedia.numbers.model.dto.BulkAssignmentRequest;
+import com.messagemedia.numbers.model.dto.BulkAssignmentRow;
+import com.messagemedia.numbers.model.dto.BulkJobDto;
+import com.messagemedia.numbers.repository.BulkJobRepository;
+import com.messagemedia.numbers.repository.entities.BulkJobStatus;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertEquals;
+
+public class BulkJobControllerIT extends AbstractControllerIT {
+
+    private static final String JOBS_URL = BulkJobController.JOBS_SERVICE_URL;
+    private static final long JOB_TIMEOUT_MILLIS = 10000;
+
+    @Autowired
+    private BulkJobRepository bulkJobRepository;
+
+    @Override
+    protected void cleanUpDatabase() {
+        bulkJobRepository.deleteAllInBatch();
+        super.cleanUpDatabase();
+    }
+
+    @Test
+    public void shouldAssignNumbersInBackgroundAndReportFailedRows() throws Exception {
+        NumberDto byId = registerNumber();
+        NumberDto byPhoneNumber = registerNumber();
+        BulkAssignmentRequest request = new BulkAssignmentRequest("GATEWAY-1", Arrays.asList(
+                new BulkAssignmentRow(byId.getId(), null, "MessageMedia", "account-1", null, null, null),
+                new BulkAssignmentRow(null, byPhoneNumber.getPhoneNumber(), "MessageMedia", "account-2", null, null, "label"),
+                new BulkAssignmentRow(UUID.randomUUID(), null, "MessageMedia", "account-3", null, null, null),
+                new BulkAssignmentRow(byId.getId(), null, "MessageMedia", "account-4", null, null, null)));
+
+        BulkJobDto job = given().spec(buildRequestSpecification(getObjectMapper().writeValueAsString(request)))
+                .when()
+                .post(JOBS_URL + "/assignments")
+                .then()
+                .assertThat()
+                .statusCode(HttpStatus.ACCEPTED.value())
+                .body("total", equalTo(4))
+                .extract()
+                .as(BulkJobDto.class);
+
+        BulkJobDto finished = awaitJob(job.getId());
+        assertEquals(BulkJobStatus.COMPLETED, finished.getStatus());
+        assertEquals(2, finished.getSucceeded());
+        assertEquals(2, finished.getFailed());
+        assertEquals("account-1", getNumber(byId.getId()).getAssignedTo().getAccountId());
+        assertEquals("account-2", getNumber(byPhoneNumber.getId()).getAssignedTo().getAccountId());
+
+        given().spec(buildRequestSpecification())
+                .when()
+                .get(String.format("%s/%s/rows?status=FAILED", JOBS_URL, job.getId()))
+                .then()
+                .assertThat()
+                .statusCode(HttpStatus.OK.value())
+                .body("rows", hasSize(2))
+                .body("rows.row", contains(2, 3))
+                .body("rows[0].message", notNullValue());
+    }
+
+    @Test
+    public void shouldRejectEmptyAssignmentJob() throws JsonProcessingException {
+        given().spec(buildRequestSpecification(getObjectMapper().writeValueAsString(new BulkAssignmentRequest(null, null))))
+                .when()
+                .post(JOBS_URL + "/assignments")
+                .then()
+                .assertThat()
+                .statusCode(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @Test
+    public void shouldReturnNotFoundForUnknownJob() {
+        given().spec(buildRequestSpecification())
+                .when()
+                .get(String.format("%s/%s", JOBS_URL, UUID.randomUUID()))
+                .then()
+                .assertThat()
+                .statusCode(HttpStatus.NOT_FOUND.value());
+    }
+
+    private BulkJobDto awaitJob(UUID jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + JOB_TIMEOUT_MILLIS;
+        BulkJobDto job;
+        do {
+            Thread.sleep(100);
+            job = given().spec(buildRequestSpecification())
+                    .get(String.format("%s/%s", JOBS_URL, jobId))
+                    .as(BulkJobDto.class);
+        } while ((job.getStatus() == BulkJobStatus.QUEUED || job.getStatus() == BulkJobStatus.RUNNING)
+                && System.currentTimeMillis() < deadline);
+        return job;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.messagemedia.numbers.controller.support.NumbersControllerAdvice;
+import com.messagemedia.numbers.exception.BulkJobNotFoundException;
+import com.messagemedia.numbers.model.dto.BulkAssignmentRequest;
+import com.messagemedia.numbers.model.dto.BulkAssignmentRow;
+import com.messagemedia.numbers.model.dto.BulkUnassignmentRequest;
+import com.messagemedia.numbers.model.dto.BulkUnassignmentRow;
+import com.messagemedia.numbers.repository.entities.BulkJobEntity;
+import com.messagemedia.numbers.repository.entities.BulkJobRowStatus;
+import com.messagemedia.numbers.repository.entities.BulkJobType;
+import com.messagemedia.numbers.repository.projections.BulkJobRow;
+import com.messagemedia.numbers.service.NumbersService;
+import com.messagemedia.numbers.service.job.BulkJobService;
+import com.messagemedia.numbers.service.job.BulkRowPages;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BulkJobControllerTest {
+
+    private static final String ASSIGNMENTS_URL = BulkJobController.JOBS_SERVICE_URL + "/assignments";
+    private static final String UNASSIGNMENTS_URL = BulkJobController.JOBS_SERVICE_URL + "/unassignments";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private BulkJobService bulkJobService;
+
+    @Mock
+    private NumbersService numbersService;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new BulkJobController(bulkJobService, numbersService))
+                .setControllerAdvice(new NumbersControllerAdvice())
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldSubmitAssignmentJob() throws Exception {
+        BulkJobEntity job = new BulkJobEntity(BulkJobType.ASSIGN, "GATEWAY-1", 2);
+        when(bulkJobService.submit(eq(BulkJobType.ASSIGN), eq("GATEWAY-1"), anyListOf(BulkAssignmentRow.class))).thenReturn(job);
+        BulkAssignmentRequest request = new BulkAssignmentRequest("GATEWAY-1", Arrays.asList(
+                new BulkAssignmentRow(UUID.randomUUID(), null, "MessageMedia", "account-1", null, null, null),
+                new BulkAssignmentRow(null, "+61491570156", "MessageMedia", "account-2", null, null, null)));
+
+        mockMvc.perform(post(ASSIGNMENTS_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id", equalTo(job.getId().toString())))
+                .andExpect(jsonPath("$.status", equalTo("QUEUED")))
+                .andExpect(jsonPath("$.total", equalTo(2)));
+
+        ArgumentCaptor<List> rows = ArgumentCaptor.forClass(List.class);
+        verify(bulkJobService).submit(eq(BulkJobType.ASSIGN), eq("GATEWAY-1"), rows.capture());
+        assertEquals("+61491570156", ((BulkAssignmentRow) rows.getValue().get(1)).getPhoneNumber());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldSubmitAssignmentJobFromCsv() throws Exception {
+        BulkJobEntity job = new BulkJobEntity(BulkJobType.ASSIGN, "GATEWAY-1", 2);
+        when(bulkJobService.submit(eq(BulkJobType.ASSIGN), eq("GATEWAY-1"), anyListOf(BulkAssignmentRow.class))).thenReturn(job);
+
+        mockMvc.perform(post(ASSIGNMENTS_URL)
+                .param("vendorId", "MessageMedia")
+                .param("note", "GATEWAY-1")
+                .contentType(BulkJobController.TEXT_CSV_VALUE)
+                .content("+61491570156,account-1\r\n\n+61491570157, account-2\n"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id", equalTo(job.getId().toString())));
+
+        ArgumentCaptor<List> rows = ArgumentCaptor.forClass(List.class);
+        verify(bulkJobService).submit(eq(BulkJobType.ASSIGN), eq("GATEWAY-1"), rows.capture());
+        assertEquals(2, rows.getValue().size());
+        BulkAssignmentRow second = (BulkAssignmentRow) rows.getValue().get(1);
+        assertEquals("+61491570157", second.getPhoneNumber());
+        assertEquals("MessageMedia", second.getVendorId());
+        assertEquals("account-2", second.getAccountId());
+        assertEquals(Collections.singletonMap("note", "GATEWAY-1"), second.getMetadata());
+    }
+
+    @Test
+    public void shouldRejectMalformedCsvLine() throws Exception {
+        mockMvc.perform(post(ASSIGNMENTS_URL)
+                .param("vendorId", "MessageMedia")
+                .contentType(BulkJobController.TEXT_CSV_VALUE)
+                .content("+61491570156,account-1\n+61491570157\n"))
+                .andExpect(status().isBadRequest());
+
+        verify(bulkJobService, never()).submit(any(BulkJobType.class), any(String.class), anyListOf(BulkAssignmentRow.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldSubmitUnassignmentJobForAccount() throws Exception {
+        List<UUID> numberIds = Arrays.asList(UUID.randomUUID(), UUID.randomUUID());
+        BulkJobEntity job = new BulkJobEntity(BulkJobType.UNASSIGN, "GATEWAY-2", 2);
+        when(numbersService.findAssignedNumberIds("MessageMedia", "account-1", null, 10)).thenReturn(numberIds);
+        when(bulkJobService.submitPages(eq(BulkJobType.UNASSIGN), eq("GATEWAY-2"), any(BulkRowPages.class))).thenReturn(job);
+
+        mockMvc.perform(post(UNASSIGNMENTS_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new BulkUnassignmentRequest("GATEWAY-2", "MessageMedia", "account-1", null))))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.type", equalTo("UNASSIGN")));
+
+        ArgumentCaptor<BulkRowPages> pages = ArgumentCaptor.forClass(BulkRowPages.class);
+        verify(bulkJobService).submitPages(eq(BulkJobType.UNASSIGN), eq("GATEWAY-2"), pages.capture());
+        BulkUnassignmentRow second = (BulkUnassignmentRow) pages.getValue().next(null, 10).get(1);
+        assertEquals(numberIds.get(1), second.getNumberId());
+        assertEquals("MessageMedia", second.getVendorId());
+        assertEquals("account-1", second.getAccountId());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldSubmitUnassignmentJobForNumberIds() throws Exception {
+        UUID numberId = UUID.randomUUID();
+        BulkJobEntity job = new BulkJobEntity(BulkJobType.UNASSIGN, null, 1);
+        when(bulkJobService.submit(eq(BulkJobType.UNASSIGN), any(String.class), anyListOf(BulkUnassignmentRow.class))).thenReturn(job);
+
+        mockMvc.perform(post(UNASSIGNMENTS_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new BulkUnassignmentRequest(null, null, null, Collections.singletonList(numberId)))))
+                .andExpect(status().isAccepted());
+
+        ArgumentCaptor<List> rows = ArgumentCaptor.forClass(List.class);
+        verify(bulkJobService).submit(eq(BulkJobType.UNASSIGN), any(String.class), rows.capture());
+        BulkUnassignmentRow row = (BulkUnassignmentRow) rows.getValue().get(0);
+        assertEquals(numberId, row.getNumberId());
+        assertNull(row.getAccountId());
+    }
+
+    @Test
+    public void shouldRejectUnassignmentJobWithAccountAndNumberIds() throws Exception {
+        mockMvc.perform(post(UNASSIGNMENTS_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new BulkUnassignmentRequest(null, "MessageMedia", "account-1",
+                        Collections.singletonList(UUID.randomUUID())))))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post(UNASSIGNMENTS_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new BulkUnassignmentRequest(null, "MessageMedia", null, null))))
+                .andExpect(status().isBadRequest());
+
+        verify(bulkJobService, never()).submitPages(any(BulkJobType.class), any(String.class), any(BulkRowPages.class));
+    }
+
+    @Test
+    public void shouldGetJob() throws Exception {
+        BulkJobEntity job = new BulkJobEntity(BulkJobType.ASSIGN, null, 10);
+        job.setSucceeded(7);
+        job.setFailed(1);
+        when(bulkJobService.getJob(job.getId())).thenReturn(job);
+
+        mockMvc.perform(get(BulkJobController.JOBS_SERVICE_URL + "/" + job.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.type", equalTo("ASSIGN")))
+                .andExpect(jsonPath("$.succeeded", equalTo(7)))
+                .andExpect(jsonPath("$.failed", equalTo(1)));
+    }
+
+    @Test
+    public void shouldReturnNotFoundForUnknownJob() throws Exception {
+        UUID jobId = UUID.randomUUID();
+        when(bulkJobService.getJob(jobId)).thenThrow(new BulkJobNotFoundException(jobId));
+
+        mockMvc.perform(get(BulkJobController.JOBS_SERVICE_URL + "/" + jobId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shouldPageJobRows() throws Exception {
+        UUID jobId = UUID.randomUUID();
+        when(bulkJobService.getRows(jobId, BulkJobRowStatus.FAILED, 0, 3)).thenReturn(Arrays.asList(
+                new BulkJobRow(4, "+61491570156", "{}", BulkJobRowStatus.FAILED, "not found"),
+                new BulkJobRow(9, "+61491570157", "{}", BulkJobRowStatus.FAILED, "not found"),
+                new BulkJobRow(12, "+61491570158", "{}", BulkJobRowStatus.FAILED, "not found")));
+
+        mockMvc.perform(get(BulkJobController.JOBS_SERVICE_URL + "/" + jobId + "/rows")
+                .param("status", "FAILED")
+                .param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows", hasSize(2)))
+                .andExpect(jsonPath("$.rows[1].row", equalTo(9)))
+                .andExpect(jsonPath("$.rows[1].message", equalTo("not found")))
+                .andExpect(jsonPath("$.nextRow", equalTo(12)));
+    }
+
+    @Test
+    public void shouldReturnLastPageOfJobRows() throws Exception {
+        UUID jobId = UUID.randomUUID();
+        when(bulkJobService.getRows(jobId, null, 0, 1001)).thenReturn(Collections.singletonList(
+                new BulkJobRow(0, "+61491570156", "{}", BulkJobRowStatus.SUCCEEDED, null)));
+
+        mockMvc.perform(get(BulkJobController.JOBS_SERVICE_URL + "/" + jobId + "/rows"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows", hasSize(1)))
+                .andExpect(jsonPath("$.nextRow", nullValue()));
+    }
+}
@@ -41,9 +41,11 @@ import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class ListNumbersControllerIT extends AbstractControllerIT {
@@ -203,6 +205,7 @@ public class ListNumbersControllerIT extends AbstractControllerIT {
         NumberSearchRequest notFoundRequest = aNumberSearchRequestBuilder()
                 .withCountry("US")
                 .withMatching("^.61.*")
+                .withClassification(CLASSIFICATION_FILTER)
                 .build();
         checkListNumberWithPageSize(pageSize, Collections.emptyList(), notFoundRequest);
     }
@@ -249,6 +252,81 @@ public class ListNumbersControllerIT extends AbstractControllerIT {
                         containsString("serviceTypes"), containsString("assigned"));
     }
 
+    @Test
+    public void shouldReturnNumberListMatchingPhoneNumberPrefix() throws Exception {
+        NumberDto numberDto = registerNumber();
+        String phoneNumber = numberDto.getPhoneNumber();
+
+        given().spec(buildRequestSpecification(""))
+                .queryParam("matching", phoneNumber.substring(0, phoneNumber.length() - 2))
+                .queryParam("matchMode", "PREFIX")
+                .when()
+                .get(NUMBERS_SERVICE_URL)
+                .then().assertThat()
+                .statusCode(HttpStatus.OK.value())
+                .body("numbers.id", hasItem(numberDto.getId().toString()));
+        given().spec(buildRequestSpecification(""))
+                .queryParam("matching", phoneNumber.substring(3))
+                .queryParam("matchMode", "SUFFIX")
+                .when()
+                .get(NUMBERS_SERVICE_URL)
+                .then().assertThat()
+                .statusCode(HttpStatus.OK.value())
+                .body("numbers.id", hasItem(numberDto.getId().toString()));
+    }
+
+    @Test
+    public void shouldExportEveryNumberAsNdjson() throws Exception {
+        List<NumberDto> numbers = generateNumbers(NumberSearchRequest.DEFAULT_PAGE_SIZE + 5);
+
+        String body = given().spec(buildRequestSpecification(""))
+                .when()
+                .get(NUMBERS_SERVICE_URL + "/export")
+                .then().assertThat()
+                .statusCode(HttpStatus.OK.value())
+                .contentType(containsString("application/x-ndjson"))
+                .extract().asString();
+
+        String[] lines = body.split("\n");
+        assertEquals(numbers.size(), lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            NumberDto exported = getObjectMapper().readValue(lines[i], NumberDto.class);
+            assertEquals(numbers.get(i).getId(), exported.getId());
+            assertEquals(numbers.get(i).getAssignedTo() == null, exported.getAssignedTo() == null);
+        }
+    }
+
+    @Test
+    public void shouldReturnBadRequestWhenRegexHasNoSelectiveFilter() {
+        given().spec(buildRequestSpecification())
+                .param("matching", "^.61.*")
+                .param("country", "AU")
+                .when()
+                .get(NUMBERS_SERVICE_URL)
+                .then()
+                .assertThat()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .body(containsString("^.61.*"));
+        given().spec(buildRequestSpecification())
+                .param("matching", "^.61.*")
+                .param("serviceTypes", "SMS")
+                .when()
+                .get(NUMBERS_SERVICE_URL)
+                .then()
+                .assertThat()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .body(containsString("^.61.*"));
+        given().spec(buildRequestSpecification())
+                .param("matching", "^.61.*")
+                .param("classification", CLASSIFICATION_FILTER.name())
+                .when()
+                .get(NUMBERS_SERVICE_URL)
+                .then()
+                .assertThat()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .body(containsString("^.61.*"));
+    }
+
     @DataProvider
     public static Object[] availableByFilterScenarios() {
         return new Object[][]{
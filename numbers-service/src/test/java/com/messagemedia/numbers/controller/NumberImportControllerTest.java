@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.numbers.controller.support.NumbersControllerAdvice;
+import com.messagemedia.numbers.exception.NumberImportNotFoundException;
+import com.messagemedia.numbers.repository.entities.NumberImportEntity;
+import com.messagemedia.numbers.repository.entities.NumberImportStatus;
+import com.messagemedia.numbers.repository.projections.NumberImportRejection;
+import com.messagemedia.numbers.service.imports.NumberImportService;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class NumberImportControllerTest {
+
+    private static final String CSV = "phoneNumber,providerId,country,type,classification,capabilities\n"
+            + "+61491570156,b9c7fd2e-7a1b-4f4e-9d64-5c0f3c6f7a10,AU,MOBILE,BRONZE,SMS|MMS\n";
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private NumberImportService numberImportService;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new NumberImportController(numberImportService))
+                .setControllerAdvice(new NumbersControllerAdvice())
+                .build();
+    }
+
+    @Test
+    public void shouldSubmitImport() throws Exception {
+        NumberImportEntity numberImport = new NumberImportEntity("provider-drop-1");
+        when(numberImportService.submit(eq("provider-drop-1"), any(InputStream.class))).thenReturn(numberImport);
+
+        mockMvc.perform(post(NumberImportController.IMPORTS_SERVICE_URL)
+                .param("note", "provider-drop-1")
+                .contentType(BulkJobController.TEXT_CSV_VALUE)
+                .content(CSV))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id", equalTo(numberImport.getId().toString())))
+                .andExpect(jsonPath("$.status", equalTo("QUEUED")));
+
+        ArgumentCaptor<InputStream> csv = ArgumentCaptor.forClass(InputStream.class);
+        verify(numberImportService).submit(eq("provider-drop-1"), csv.capture());
+        assertEquals(CSV, IOUtils.toString(csv.getValue(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldReportProgressOfCompletedImport() throws Exception {
+        NumberImportEntity numberImport = new NumberImportEntity(null);
+        numberImport.setStatus(NumberImportStatus.COMPLETED);
+        numberImport.setTotal(1000);
+        numberImport.setExisting(600);
+        numberImport.setStaged(390);
+        numberImport.setImported(385);
+        numberImport.setRejected(10);
+        OffsetDateTime created = OffsetDateTime.now().minusSeconds(10);
+        numberImport.setCreated(created);
+        numberImport.setUpdated(created.plusSeconds(4));
+        numberImport.setCompleted(created.plusSeconds(4));
+        when(numberImportService.getImport(numberImport.getId())).thenReturn(numberImport);
+
+        mockMvc.perform(get(NumberImportController.IMPORTS_SERVICE_URL + "/" + numberImport.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", equalTo("COMPLETED")))
+                .andExpect(jsonPath("$.imported", equalTo(385)))
+                .andExpect(jsonPath("$.duplicates", equalTo(5)))
+                .andExpect(jsonPath("$.rowsPerSecond", equalTo(250.0)));
+    }
+
+    @Test
+    public void shouldReturnNotFoundForUnknownImport() throws Exception {
+        UUID importId = UUID.randomUUID();
+        when(numberImportService.getImport(importId)).thenThrow(new NumberImportNotFoundException(importId));
+
+        mockMvc.perform(get(NumberImportController.IMPORTS_SERVICE_URL + "/" + importId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shouldPageRejections() throws Exception {
+        UUID importId = UUID.randomUUID();
+        when(numberImportService.getRejections(importId, 2, 3)).thenReturn(Arrays.asList(
+                new NumberImportRejection(2, "+6149157015a,...", "invalid phoneNumber {+6149157015a}"),
+                new NumberImportRejection(7, "x", "expected 6 or 7 columns but got 1"),
+                new NumberImportRejection(9, "y", "expected 6 or 7 columns but got 1")));
+
+        mockMvc.perform(get(NumberImportController.IMPORTS_SERVICE_URL + "/" + importId + "/rejections")
+                .param("fromLine", "2")
+                .param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rejections", hasSize(2)))
+                .andExpect(jsonPath("$.rejections[0].line", equalTo(2)))
+                .andExpect(jsonPath("$.rejections[0].reason", equalTo("invalid phoneNumber {+6149157015a}")))
+                .andExpect(jsonPath("$.nextLine", equalTo(9)));
+
+        when(numberImportService.getRejections(importId, 9, 3)).thenReturn(Arrays.asList(
+                new NumberImportRejection(9, "y", "expected 6 or 7 columns but got 1")));
+        mockMvc.perform(get(NumberImportController.IMPORTS_SERVICE_URL + "/" + importId + "/rejections")
+                .param("fromLine", "9")
+                .param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextLine", nullValue()));
+    }
+
+    @Test
+    public void shouldRejectInvalidPageSize() throws Exception {
+        mockMvc.perform(get(NumberImportController.IMPORTS_SERVICE_URL + "/" + UUID.randomUUID() + "/rejections")
+                .param("pageSize", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(numberImportService, never()).getRejections(any(UUID.class), anyLong(), anyInt());
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.messagemedia.numbers.controller.support.NumbersControllerAdvice;
+import com.messagemedia.numbers.exception.NumberBatchRequestInvalidException;
+import com.messagemedia.numbers.model.dto.NumberBatchRegisterRequest;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.service.NumberRegistrationService;
+import com.messagemedia.numbers.service.client.models.RegisterNumberRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static com.messagemedia.numbers.TestData.randomRegisterNumberRequest;
+import static com.messagemedia.numbers.controller.NumbersController.NUMBERS_SERVICE_URL;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class NumbersBatchControllerTest {
+
+    private static final String BATCH_URL = NUMBERS_SERVICE_URL + "/batch";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final NumbersMapper numbersMapper = Mappers.getMapper(NumbersMapper.class);
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private NumberRegistrationService numberRegistrationService;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new NumbersBatchController(numberRegistrationService, numbersMapper))
+                .setControllerAdvice(new NumbersControllerAdvice())
+                .build();
+    }
+
+    @Test
+    public void shouldRegisterNumbersInOneCall() throws Exception {
+        RegisterNumberRequest created = randomRegisterNumberRequest();
+        RegisterNumberRequest duplicate = randomRegisterNumberRequest();
+        NumberEntity createdEntity = numbersMapper.toNumberEntity(created);
+        when(numberRegistrationService.registerNumbers(anyListOf(NumberEntity.class)))
+                .thenReturn(Arrays.asList(Optional.of(createdEntity), Optional.empty()));
+
+        mockMvc.perform(post(BATCH_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new NumberBatchRegisterRequest(Arrays.asList(created, duplicate)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", equalTo(1)))
+                .andExpect(jsonPath("$.duplicates", equalTo(1)))
+                .andExpect(jsonPath("$.results[0].outcome", equalTo("CREATED")))
+                .andExpect(jsonPath("$.results[0].number.id", equalTo(createdEntity.getId().toString())))
+                .andExpect(jsonPath("$.results[1].outcome", equalTo("DUPLICATE")))
+                .andExpect(jsonPath("$.results[1].phoneNumber", equalTo(duplicate.getPhoneNumber())))
+                .andExpect(jsonPath("$.results[1].number", nullValue()));
+    }
+
+    @Test
+    public void shouldReportEveryNumberAsDuplicate() throws Exception {
+        when(numberRegistrationService.registerNumbers(anyListOf(NumberEntity.class)))
+                .thenReturn(Collections.singletonList(Optional.empty()));
+
+        mockMvc.perform(post(BATCH_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new NumberBatchRegisterRequest(
+                        Collections.singletonList(randomRegisterNumberRequest())))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", equalTo(0)))
+                .andExpect(jsonPath("$.duplicates", equalTo(1)));
+    }
+
+    @Test
+    public void shouldRejectOversizedBatch() throws Exception {
+        when(numberRegistrationService.registerNumbers(anyListOf(NumberEntity.class)))
+                .thenThrow(new NumberBatchRequestInvalidException(2, 1));
+
+        mockMvc.perform(post(BATCH_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new NumberBatchRegisterRequest(
+                        Arrays.asList(randomRegisterNumberRequest(), randomRegisterNumberRequest())))))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.numbers.controller.support.NumbersControllerAdvice;
+import com.messagemedia.numbers.exception.NumberUpdateRequestEmptyException;
+import com.messagemedia.numbers.exception.VendorAccountRequiredException;
+import com.messagemedia.numbers.model.dto.BulkUpdateFailure;
+import com.messagemedia.numbers.model.dto.BulkUpdateResponse;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
+import com.messagemedia.numbers.service.NumbersBulkUpdateService;
+import com.messagemedia.numbers.service.client.models.Classification;
+import com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest;
+import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
+import com.messagemedia.numbers.service.client.models.UpdateAssignmentRequest;
+import com.messagemedia.numbers.service.client.models.UpdateNumberRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.controller.NumbersController.NUMBERS_SERVICE_URL;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class NumbersBulkUpdateControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private NumbersBulkUpdateService numbersBulkUpdateService;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new NumbersBulkUpdateController(numbersBulkUpdateService))
+                .setControllerAdvice(new NumbersControllerAdvice())
+                .build();
+    }
+
+    @Test
+    public void shouldUpdateNumbersMatchingFilter() throws Exception {
+        UUID failedId = UUID.randomUUID();
+        when(numbersBulkUpdateService.updateNumbers(any(NumberSearchRequest.class), eq(PhoneNumberPattern.Mode.PREFIX),
+                any(UpdateNumberRequest.class)))
+                .thenReturn(new BulkUpdateResponse(3, 2, 1,
+                        Collections.singletonList(new BulkUpdateFailure(failedId, "Number id is not a US toll free number"))));
+
+        mockMvc.perform(patch(NUMBERS_SERVICE_URL + "/bulk")
+                .param("country", "AU")
+                .param("matching", "+6140")
+                .param("matchMode", "PREFIX")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"classification\": \"GOLD\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matched", equalTo(3)))
+                .andExpect(jsonPath("$.updated", equalTo(2)))
+                .andExpect(jsonPath("$.failed", equalTo(1)))
+                .andExpect(jsonPath("$.failures[0].numberId", equalTo(failedId.toString())));
+
+        ArgumentCaptor<NumberSearchRequest> filter = ArgumentCaptor.forClass(NumberSearchRequest.class);
+        ArgumentCaptor<UpdateNumberRequest> patch = ArgumentCaptor.forClass(UpdateNumberRequest.class);
+        verify(numbersBulkUpdateService).updateNumbers(filter.capture(), eq(PhoneNumberPattern.Mode.PREFIX), patch.capture());
+        assertEquals("AU", filter.getValue().getCountry());
+        assertEquals("+6140", filter.getValue().getMatching());
+        assertEquals(Classification.GOLD, patch.getValue().getClassification());
+    }
+
+    @Test
+    public void shouldRejectEmptyNumberUpdate() throws Exception {
+        when(numbersBulkUpdateService.updateNumbers(any(NumberSearchRequest.class), any(PhoneNumberPattern.Mode.class),
+                any(UpdateNumberRequest.class)))
+                .thenThrow(new NumberUpdateRequestEmptyException("request body is invalid"));
+
+        mockMvc.perform(patch(NUMBERS_SERVICE_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldUpdateAssignmentsOfAccount() throws Exception {
+        when(numbersBulkUpdateService.updateAssignments(any(NumberAssignmentSearchRequest.class), any(PhoneNumberPattern.Mode.class),
+                any(UpdateAssignmentRequest.class)))
+                .thenReturn(new BulkUpdateResponse(2, 2, 0, Collections.emptyList()));
+
+        mockMvc.perform(patch(NUMBERS_SERVICE_URL + "/assignments/bulk")
+                .param("vendorId", "MessageMedia")
+                .param("accountId", "account-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"label\": \"support\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated", equalTo(2)));
+
+        ArgumentCaptor<NumberAssignmentSearchRequest> filter = ArgumentCaptor.forClass(NumberAssignmentSearchRequest.class);
+        verify(numbersBulkUpdateService).updateAssignments(filter.capture(), any(PhoneNumberPattern.Mode.class),
+                any(UpdateAssignmentRequest.class));
+        assertEquals("MessageMedia", filter.getValue().getVendorId());
+        assertEquals("account-1", filter.getValue().getAccountId());
+    }
+
+    @Test
+    public void shouldRequireVendorAccountForAssignments() throws Exception {
+        when(numbersBulkUpdateService.updateAssignments(any(NumberAssignmentSearchRequest.class), any(PhoneNumberPattern.Mode.class),
+                any(UpdateAssignmentRequest.class)))
+                .thenThrow(new VendorAccountRequiredException());
+
+        mockMvc.perform(patch(NUMBERS_SERVICE_URL + "/assignments/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"label\": \"support\"}"))
+                .andExpect(status().isBadRequest());
+    }
+}
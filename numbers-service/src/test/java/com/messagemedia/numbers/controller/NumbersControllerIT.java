@@ -10,6 +10,7 @@ package com.messagemedia.numbers.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.messagemedia.framework.jackson.core.valuewithnull.ValueWithNull;
+import com.messagemedia.numbers.model.dto.NumberBatchRegisterRequest;
 import com.messagemedia.numbers.service.client.models.*;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
@@ -20,6 +21,8 @@ import org.mockito.internal.util.collections.Sets;
 import org.springframework.http.HttpStatus;
 
 import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Set;
 import java.util.UUID;
 
@@ -102,6 +105,39 @@ public class NumbersControllerIT extends AbstractControllerIT {
                 .statusCode(HttpStatus.CONFLICT.value());
     }
 
+    @Test
+    public void shouldRegisterNumbersInBatchAndReportDuplicates() throws JsonProcessingException {
+        NumberDto registered = registerNumber();
+        RegisterNumberRequest first = randomRegisterNumberRequest();
+        RegisterNumberRequest second = randomRegisterNumberRequest();
+        RegisterNumberRequest existing = new RegisterNumberRequest(registered.getPhoneNumber(), UUID.randomUUID(), "AU",
+                NumberType.MOBILE, randomClassification(), randomCapabilities(), randomDedicatedReceiver());
+        NumberBatchRegisterRequest batchRequest = new NumberBatchRegisterRequest(Arrays.asList(first, existing, second, first));
+
+        given().spec(buildRequestSpecification(getObjectMapper().writeValueAsString(batchRequest)))
+                .when()
+                .post(NUMBERS_SERVICE_URL + "/batch")
+                .then()
+                .assertThat()
+                .statusCode(HttpStatus.OK.value())
+                .body("created", equalTo(2))
+                .body("duplicates", equalTo(2))
+                .body("results.outcome", contains("CREATED", "DUPLICATE", "CREATED", "DUPLICATE"))
+                .body("results[0].number.phoneNumber", equalTo(first.getPhoneNumber()))
+                .body("results[1].phoneNumber", equalTo(registered.getPhoneNumber()))
+                .body("results[2].number.id", notNullValue());
+    }
+
+    @Test
+    public void shouldRejectEmptyBatch() throws JsonProcessingException {
+        given().spec(buildRequestSpecification(getObjectMapper().writeValueAsString(new NumberBatchRegisterRequest(Collections.emptyList()))))
+                .when()
+                .post(NUMBERS_SERVICE_URL + "/batch")
+                .then()
+                .assertThat()
+                .statusCode(HttpStatus.BAD_REQUEST.value());
+    }
+
     @DataProvider
     public static Object[][] registerNumberBadData() {
         return new Object[][]{
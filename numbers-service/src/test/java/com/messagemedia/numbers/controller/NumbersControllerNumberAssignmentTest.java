@@ -11,7 +11,8 @@ package com.messagemedia.numbers.controller;
 import com.messagemedia.domainmodels.accounts.VendorAccountId;
 import com.messagemedia.numbers.exception.VendorAccountRequiredException;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
-import com.messagemedia.numbers.service.NumberListResult;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
+import com.messagemedia.numbers.service.NumberViewListResult;
 import com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
@@ -26,6 +27,7 @@ import java.util.List;
 import java.util.UUID;
 
 import static com.messagemedia.numbers.TestData.randomAssignedNumberEntity;
+import static com.messagemedia.numbers.TestData.toNumberViews;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Matchers.any;
@@ -44,8 +46,8 @@ public class NumbersControllerNumberAssignmentTest extends NumbersControllerTest
             numbers.add(randomAssignedNumberEntity(vendorAccountId));
         }
         UUID token = UUID.randomUUID();
-        NumberListResult numberListResult = new NumberListResult(numbers, token);
-        when(getNumbersService().getNumberAssignments(any(NumberAssignmentSearchRequest.class))).thenReturn(numberListResult);
+        NumberViewListResult numberListResult = new NumberViewListResult(toNumberViews(numbers), token);
+        when(getNumbersService().getNumberAssignments(any(NumberAssignmentSearchRequest.class), any(PhoneNumberPattern.Mode.class))).thenReturn(numberListResult);
 
         checkNumberAssignmentListWithPageSize(vendorAccountId, pageSize, numbers, token);
     }
@@ -94,7 +96,7 @@ public class NumbersControllerNumberAssignmentTest extends NumbersControllerTest
 
     @Test
     public void shouldGetNumberAssignmentListFailNoVendorAccount() throws Exception {
-        when(getNumbersService().getNumberAssignments(any(NumberAssignmentSearchRequest.class))).thenThrow(new VendorAccountRequiredException());
+        when(getNumbersService().getNumberAssignments(any(NumberAssignmentSearchRequest.class), any(PhoneNumberPattern.Mode.class))).thenThrow(new VendorAccountRequiredException());
         getMockMvc().perform(MockMvcRequestBuilders
                 .get("/v1/numbers/assignments")
                 .param("vendorId", "")
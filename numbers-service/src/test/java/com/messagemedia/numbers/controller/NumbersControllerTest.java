@@ -7,11 +7,12 @@
  */
 package com.messagemedia.numbers.controller;
 
-import com.messagemedia.domainmodels.accounts.VendorAccountId;
 import com.messagemedia.numbers.exception.*;
+import com.messagemedia.numbers.model.dto.NumberLookupRequest;
 import com.messagemedia.numbers.repository.entities.AssignmentEntity;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
-import com.messagemedia.numbers.service.NumberListResult;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
+import com.messagemedia.numbers.service.NumberViewListResult;
 import com.messagemedia.numbers.service.client.models.*;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
@@ -44,6 +45,36 @@ public class NumbersControllerTest extends AbstractControllerTest {
         return new Object[] {2, 15, 59};
     }
 
+    @Test
+    public void shouldLookupNumbersOk() throws Exception {
+        NumberEntity numberEntity = randomAssignedNumberEntity();
+        List<String> items = Arrays.asList(numberEntity.getPhoneNumber(), UUID.randomUUID().toString());
+        when(getNumbersService().lookupNumbers(items)).thenReturn(Arrays.asList(Optional.of(numberEntity), Optional.empty()));
+
+        getMockMvc().perform(MockMvcRequestBuilders.post(NUMBERS_SERVICE_URL + "/lookup")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(toJson(new NumberLookupRequest(items))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results", hasSize(2)))
+                .andExpect(jsonPath("$.results[0].item", is(items.get(0))))
+                .andExpect(jsonPath("$.results[0].found", is(true)))
+                .andExpect(jsonPath("$.results[0].number.id", is(numberEntity.getId().toString())))
+                .andExpect(jsonPath("$.results[0].number.assignedTo.id", is(numberEntity.getAssignedTo().getId().toString())))
+                .andExpect(jsonPath("$.results[1].item", is(items.get(1))))
+                .andExpect(jsonPath("$.results[1].found", is(false)))
+                .andExpect(jsonPath("$.results[1].number", nullValue()));
+    }
+
+    @Test
+    public void shouldLookupNumbersFailBadRequest() throws Exception {
+        when(getNumbersService().lookupNumbers(any())).thenThrow(new NumberLookupRequestInvalidException(0, 1000));
+
+        getMockMvc().perform(MockMvcRequestBuilders.post(NUMBERS_SERVICE_URL + "/lookup")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(toJson(new NumberLookupRequest(Collections.emptyList()))))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @UseDataProvider("providePageSize")
     public void shouldGetNumberListOk(int pageSize) throws Exception {
@@ -52,8 +83,8 @@ public class NumbersControllerTest extends AbstractControllerTest {
             numbers.add(randomUnassignedNumberEntity());
         }
         UUID token = UUID.randomUUID();
-        NumberListResult numberListResult = new NumberListResult(numbers, token);
-        when(getNumbersService().getNumbers(any(NumberSearchRequest.class))).thenReturn(numberListResult);
+        NumberViewListResult numberListResult = new NumberViewListResult(toNumberViews(numbers), token);
+        when(getNumbersService().getNumbers(any(NumberSearchRequest.class), any(PhoneNumberPattern.Mode.class))).thenReturn(numberListResult);
 
         checkNumberListWithPageSize(pageSize, numbers, token);
     }
@@ -125,15 +156,15 @@ public class NumbersControllerTest extends AbstractControllerTest {
 
     @Test
     public void shouldReturnEmptyNumberList() throws Exception {
-        when(getNumbersService().getNumbers(any(NumberSearchRequest.class)))
-                .thenReturn(new NumberListResult(Collections.emptyList(), null));
+        when(getNumbersService().getNumbers(any(NumberSearchRequest.class), any(PhoneNumberPattern.Mode.class)))
+                .thenReturn(new NumberViewListResult(Collections.emptyList(), null));
 
         getMockMvc().perform(MockMvcRequestBuilders
                 .get(NUMBERS_SERVICE_URL)
                 .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
                 .andExpect(status().is(HttpStatus.OK.value()))
                 .andExpect(jsonPath("$.numbers").isEmpty());
-        verify(getNumbersService()).getNumbers(any(NumberSearchRequest.class));
+        verify(getNumbersService()).getNumbers(any(NumberSearchRequest.class), any(PhoneNumberPattern.Mode.class));
     }
 
     @DataProvider
@@ -231,9 +262,6 @@ public class NumbersControllerTest extends AbstractControllerTest {
         NumberEntity numberEntity = assignmentEntity.getNumberEntity();
 
         when(getNumbersService().assignNumberToAccount(eq(numberEntity.getId()), any(AssignmentEntity.class))).thenReturn(assignmentEntity);
-        doNothing().when(getNotificationService()).push(any(Event.class), any());
-        NumberEntity assignedNumber = randomAssignedNumberEntity();
-        when(getNumbersService().getNumber(any(UUID.class))).thenReturn(assignedNumber);
         getMockMvc().perform(MockMvcRequestBuilders
                 .post(String.format(ASSIGNMENT_URL_FORMAT, numberEntity.getId()))
                 .content(toJson(assignNumberRequest))
@@ -247,9 +275,6 @@ public class NumbersControllerTest extends AbstractControllerTest {
                 .andExpect(jsonPath("$.created").isNotEmpty());
 
         verify(getNumbersService()).assignNumberToAccount(eq(numberEntity.getId()), any(AssignmentEntity.class));
-        verify(getNotificationService()).push(any(Event.class), any());
-        verify(getBillingNotificationService()).sendAddNotification(new VendorAccountId(assignNumberRequest.getVendorId(),
-                assignNumberRequest.getAccountId()), assignedNumber);
     }
 
     @DataProvider
@@ -275,7 +300,6 @@ public class NumbersControllerTest extends AbstractControllerTest {
                 .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
                 .andExpect(status().is(httpStatus.value()));
 
-        verifyNoMoreInteractions(getNotificationService());
     }
 
     @Test
@@ -328,7 +352,7 @@ public class NumbersControllerTest extends AbstractControllerTest {
     @Test
     public void shouldGetUnassignedNumberOk() throws Exception {
         NumberEntity numberEntity = randomUnassignedNumberEntity();
-        when(getNumbersService().getNumber(eq(numberEntity.getId()))).thenReturn(numberEntity);
+        when(getNumbersService().getCachedNumber(eq(numberEntity.getId()))).thenReturn(numberEntity);
 
         ResultActions result = getMockMvc().perform(MockMvcRequestBuilders
                 .get(String.format(GET_NUMBER_URL_FORMAT, numberEntity.getId()))
@@ -343,7 +367,7 @@ public class NumbersControllerTest extends AbstractControllerTest {
     @Test
     public void shouldGetAssignedNumberOk() throws Exception {
         NumberEntity numberEntity = randomAssignedNumberEntity();
-        when(getNumbersService().getNumber(eq(numberEntity.getId()))).thenReturn(numberEntity);
+        when(getNumbersService().getCachedNumber(eq(numberEntity.getId()))).thenReturn(numberEntity);
 
         ResultActions result = getMockMvc().perform(MockMvcRequestBuilders
                 .get(String.format(GET_NUMBER_URL_FORMAT, numberEntity.getId()))
@@ -365,7 +389,7 @@ public class NumbersControllerTest extends AbstractControllerTest {
         UUID numberId = UUID.randomUUID();
         doThrow(new NumberNotFoundException(numberId))
                 .when(getNumbersService())
-                .getNumber(eq(numberId));
+                .getCachedNumber(eq(numberId));
 
         getMockMvc().perform(MockMvcRequestBuilders
                 .get(String.format(GET_NUMBER_URL_FORMAT, numberId))
@@ -394,8 +418,6 @@ public class NumbersControllerTest extends AbstractControllerTest {
 
         result.andExpect(status().isOk());
         expectNumberEntityFields(result, numberEntity).andExpect(jsonPath("$.assignedTo").doesNotExist());
-        verify(getNotificationService()).push(any(Event.class), any());
-        verifyNoMoreInteractions(getNotificationService());
     }
 
     @Test
@@ -417,7 +439,6 @@ public class NumbersControllerTest extends AbstractControllerTest {
                 .andExpect(jsonPath("$.assignedTo.callbackUrl").value(numberEntity.getAssignedTo().getCallbackUrl()))
                 .andExpect(jsonPath("$.assignedTo.created").value(numberEntity.getAssignedTo().getCreated()))
                 .andExpect(jsonPath("$.assignedTo.metadata").value(numberEntity.getAssignedTo().getExternalMetadata()));
-        verify(getNotificationService()).push(any(Event.class), any());
     }
 
     @Test
@@ -452,14 +473,12 @@ public class NumbersControllerTest extends AbstractControllerTest {
                 .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
                 .andExpect(status().is(httpStatus.value()))
                 .andExpect(jsonPath("$.message").isNotEmpty());
-        verifyNoMoreInteractions(getNotificationService());
     }
 
     @Test
     public void shouldDeleteNumberSuccess() throws Exception {
         NumberEntity numberEntity = randomUnassignedNumberEntity();
         when(getNumbersService().deleteNumber(any(UUID.class))).thenReturn(numberEntity);
-        doNothing().when(getNotificationService()).push(any(Event.class), any());
 
         getMockMvc().perform(MockMvcRequestBuilders
                 .delete(NUMBERS_SERVICE_URL + "/" + numberEntity.getId()))
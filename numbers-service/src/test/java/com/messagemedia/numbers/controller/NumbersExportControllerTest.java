@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.messagemedia.numbers.controller.support.NumbersControllerAdvice;
+import com.messagemedia.numbers.exception.NumberSearchPatternInvalidException;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.repository.projections.NumberView;
+import com.messagemedia.numbers.repository.search.CompiledSearch;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
+import com.messagemedia.numbers.service.NumbersService;
+import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.function.Consumer;
+
+import static com.messagemedia.numbers.TestData.randomAssignedNumberEntity;
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberEntity;
+import static com.messagemedia.numbers.TestData.toNumberView;
+import static com.messagemedia.numbers.controller.NumbersController.NUMBERS_SERVICE_URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class NumbersExportControllerTest {
+
+    private static final String EXPORT_URL = NUMBERS_SERVICE_URL + "/export";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private NumbersService numbersService;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new NumbersExportController(numbersService, Mappers.getMapper(NumbersMapper.class), objectMapper, 1))
+                .setControllerAdvice(new NumbersControllerAdvice())
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldStreamNumbersAsNdjson() throws Exception {
+        NumberEntity assigned = randomAssignedNumberEntity();
+        NumberEntity unassigned = randomUnassignedNumberEntity();
+        doAnswer(invocation -> {
+            Consumer<NumberView> consumer = (Consumer<NumberView>) invocation.getArguments()[1];
+            consumer.accept(toNumberView(assigned));
+            consumer.accept(toNumberView(unassigned));
+            return null;
+        }).when(numbersService).exportNumbers(any(CompiledSearch.class), any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get(EXPORT_URL).param("country", "AU"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NumbersExportController.APPLICATION_NDJSON));
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(assigned.getId().toString(), first.get("id").asText());
+        assertEquals(assigned.getAssignedTo().getAccountId(), first.get("assignedTo").get("accountId").asText());
+        assertEquals(unassigned.getPhoneNumber(), objectMapper.readTree(lines[1]).get("phoneNumber").asText());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldLeaveOutAssignmentWhenNotIncluded() throws Exception {
+        NumberEntity assigned = randomAssignedNumberEntity();
+        doAnswer(invocation -> {
+            ((Consumer<NumberView>) invocation.getArguments()[1]).accept(toNumberView(assigned));
+            return null;
+        }).when(numbersService).exportNumbers(any(CompiledSearch.class), any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get(EXPORT_URL).param("includeAssignment", "false"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        JsonNode number = objectMapper.readTree(result.getResponse().getContentAsString().trim());
+        assertEquals(assigned.getId().toString(), number.get("id").asText());
+        assertTrue(number.path("assignedTo").isMissingNode() || number.get("assignedTo").isNull());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldRejectInvalidFilterBeforeStreaming() throws Exception {
+        when(numbersService.prepareExport(any(NumberSearchRequest.class), any(PhoneNumberPattern.Mode.class)))
+                .thenThrow(new NumberSearchPatternInvalidException("^.61.*", "not selective"));
+
+        MvcResult result = mockMvc.perform(get(EXPORT_URL).param("matching", "^.61.*"))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+
+        assertFalse(result.getRequest().isAsyncStarted());
+        verify(numbersService, never()).exportNumbers(any(CompiledSearch.class), any(Consumer.class));
+    }
+}
@@ -111,8 +111,9 @@ public class NumbersForwardControllerTest {
 
         CallableNumberDto callableNumberDto = randomCallableNumberDto();
         callableNumberDto.setRoutingProfile(callableNumberRoutingProfile);
-        when(getCallableNumbersService().getCallableNumber(NUMBER_ENTITY_ASSIGNED.getId())).thenReturn(callableNumberDto);
-        assertEquals(callableNumberDto, getCallableNumbersService().getCallableNumber(NUMBER_ENTITY_ASSIGNED.getId()));
+        when(getNumbersService().getCachedNumber(NUMBER_ENTITY_ASSIGNED.getId())).thenReturn(NUMBER_ENTITY_ASSIGNED);
+        when(getCallableNumbersService().getCallableNumber(NUMBER_ENTITY_ASSIGNED)).thenReturn(callableNumberDto);
+        assertEquals(callableNumberDto, getCallableNumbersService().getCallableNumber(NUMBER_ENTITY_ASSIGNED));
         ResultActions result = getMockMvc().perform(MockMvcRequestBuilders.get(String.format(FORWARD_URL_FORMAT, NUMBER_ENTITY_ASSIGNED.getId()))
                 .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
         );
@@ -124,8 +125,9 @@ public class NumbersForwardControllerTest {
     public void shouldGetForwardNumberSuccessNull() throws Exception {
         numbersRepository.save(NUMBER_ENTITY_ASSIGNED);
         CallableNumberDto callableNumberDto = randomCallableNumberDto();
-        when(getCallableNumbersService().getCallableNumber(NUMBER_ENTITY_ASSIGNED.getId())).thenReturn(callableNumberDto);
-        assertEquals(callableNumberDto, getCallableNumbersService().getCallableNumber(NUMBER_ENTITY_ASSIGNED.getId()));
+        when(getCallableNumbersService().getCallableNumber(NUMBER_ENTITY_ASSIGNED)).thenReturn(callableNumberDto);
+        assertEquals(callableNumberDto, getCallableNumbersService().getCallableNumber(NUMBER_ENTITY_ASSIGNED));
+        when(getNumbersService().getCachedNumber(NUMBER_ENTITY.getId())).thenReturn(NUMBER_ENTITY);
         ResultActions result = getMockMvc().perform(MockMvcRequestBuilders.get(String.format(FORWARD_URL_FORMAT, NUMBER_ENTITY.getId()))
                 .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
         );
@@ -150,7 +152,7 @@ public class NumbersForwardControllerTest {
         when(getNumbersService().getNumber(NUMBER_ENTITY_ASSIGNED.getId())).thenReturn(NUMBER_ENTITY_ASSIGNED);
 
         when(getCallableNumbersService().getCallableNumber(
-                NUMBER_ENTITY_ASSIGNED.getId()))
+                NUMBER_ENTITY_ASSIGNED))
                 .thenReturn(null);
 
         CallableNumberCustomerResponse callableNumberCustomerResponse = randomCallableNumberCustomerResponse();
@@ -173,7 +175,7 @@ public class NumbersForwardControllerTest {
         CallableNumberCreateResponse callableNumberCreateResponse = callableNumberCreateResponse(
                 "+61491570162", VENDOR_ACCOUNT_ID.toColonString(), callableNumberRoutingProfile);
         when(getCallableNumbersService().createCallableNumber(
-                NUMBER_ENTITY_ASSIGNED.getId(), VENDOR_ACCOUNT_ID.toColonString(), "4"))
+                NUMBER_ENTITY_ASSIGNED, VENDOR_ACCOUNT_ID.toColonString(), "4"))
                 .thenReturn(callableNumberCreateResponse);
 
         ResultActions result = getMockMvc().perform(MockMvcRequestBuilders.post(String.format(FORWARD_URL_FORMAT, NUMBER_ENTITY_ASSIGNED.getId()))
@@ -223,7 +225,7 @@ public class NumbersForwardControllerTest {
         CallableNumberDto callableNumberDto = randomCallableNumberDto();
         callableNumberDto.getRoutingProfile().getSteps().get(0).getDirectDetails().setNumber("+61491570162");
         when(getCallableNumbersService().getCallableNumber(
-                NUMBER_ENTITY_ASSIGNED.getId()))
+                NUMBER_ENTITY_ASSIGNED))
                 .thenReturn(callableNumberDto);
 
         CallableNumberRoutingProfileStepDetail callableNumberRoutingProfileStepDetail = randomCallableNumberRoutingProfileStepDetail();
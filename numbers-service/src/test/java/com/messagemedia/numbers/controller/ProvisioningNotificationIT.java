@@ -50,6 +50,9 @@ public class ProvisioningNotificationIT extends AbstractControllerIT {
     @Value("${service.numbers-service.provisioning-queue.url}")
     private String provisioningQueueUrl;
 
+    @Value("${numbers.service.outbox.pollDelayMillis}")
+    private long outboxPollDelayMillis;
+
     @Before
     public void init() {
         getSqs().purgeQueue(new PurgeQueueRequest(provisioningQueueUrl));
@@ -236,6 +239,12 @@ public class ProvisioningNotificationIT extends AbstractControllerIT {
     }
 
     private List<Message> receiveMessages() {
+        // events are published by the outbox relay of the service, give it a few polls
+        try {
+            Thread.sleep(4 * outboxPollDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         return receiveMessages(provisioningQueueUrl);
     }
 
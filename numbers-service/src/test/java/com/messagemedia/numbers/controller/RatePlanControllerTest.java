@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.domainmodels.accounts.VendorId;
+import com.messagemedia.framework.config.JsonConfig;
+import com.messagemedia.framework.json.JsonFastMapper;
+import com.messagemedia.numbers.controller.support.NumbersControllerAdvice;
+import com.messagemedia.numbers.model.dto.NumberLookupRequest;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.service.NumbersService;
+import com.messagemedia.numbers.service.billing.RatePlanResolver;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.messagemedia.numbers.TestData.randomAssignedNumberEntity;
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberEntity;
+import static com.messagemedia.numbers.controller.RatePlanController.RATE_PLANS_URL;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class RatePlanControllerTest {
+
+    private static final JsonFastMapper MAPPER = new JsonConfig().fastMapper();
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private NumbersService numbersService;
+    @Mock
+    private RatePlanResolver ratePlanResolver;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new RatePlanController(numbersService, ratePlanResolver))
+                .setControllerAdvice(new NumbersControllerAdvice())
+                .build();
+    }
+
+    @Test
+    public void shouldResolveRatePlansOfNumbers() throws Exception {
+        NumberEntity assigned = randomAssignedNumberEntity();
+        NumberEntity unassigned = randomUnassignedNumberEntity();
+        List<String> items = Arrays.asList(assigned.getId().toString(), unassigned.getPhoneNumber(), "+61400000000");
+        when(numbersService.lookupNumbers(items)).thenReturn(Arrays.asList(Optional.of(assigned), Optional.of(unassigned), Optional.empty()));
+        when(ratePlanResolver.resolve(new VendorId(assigned.getAssignedTo().getVendorId()), assigned)).thenReturn(Optional.of("ratePlan"));
+        when(ratePlanResolver.resolve(null, unassigned)).thenReturn(Optional.empty());
+
+        mockMvc.perform(MockMvcRequestBuilders.post(RATE_PLANS_URL + "/resolve")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(MAPPER.toJsonString(new NumberLookupRequest(items))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].item", is(assigned.getId().toString())))
+                .andExpect(jsonPath("$.results[0].found", is(true)))
+                .andExpect(jsonPath("$.results[0].vendorId", is(assigned.getAssignedTo().getVendorId())))
+                .andExpect(jsonPath("$.results[0].accountId", is(assigned.getAssignedTo().getAccountId())))
+                .andExpect(jsonPath("$.results[0].ratePlanId", is("ratePlan")))
+                .andExpect(jsonPath("$.results[1].found", is(true)))
+                .andExpect(jsonPath("$.results[1].numberId", is(unassigned.getId().toString())))
+                .andExpect(jsonPath("$.results[1].ratePlanId", nullValue()))
+                .andExpect(jsonPath("$.results[2].item", is("+61400000000")))
+                .andExpect(jsonPath("$.results[2].found", is(false)));
+    }
+
+    @Test
+    public void shouldRefreshRatePlans() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post(RATE_PLANS_URL + "/refresh"))
+                .andExpect(status().isNoContent());
+        verify(ratePlanResolver).refresh();
+    }
+}
@@ -14,7 +14,6 @@ import com.messagemedia.numbers.exception.InvalidAccountRelationshipException;
 import com.messagemedia.numbers.repository.entities.AssignmentEntity;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
 import com.messagemedia.numbers.service.client.models.AssignNumberRequest;
-import com.messagemedia.numbers.service.client.models.Event;
 import java.util.UUID;
 import org.junit.Test;
 import org.mockito.Matchers;
@@ -51,7 +50,6 @@ public class ReassignNumbersControllerTest extends AbstractControllerTest {
             .andExpect(jsonPath("$.metadata", is(assignmentEntity.getExternalMetadata())))
             .andExpect(jsonPath("$.created", is(assignmentEntity.getCreated())));
         verify(getNumbersService()).reassignNumber(any(), any());
-        verify(getNotificationService()).push(any(Event.class), any());
     }
 
     @Test
@@ -71,7 +69,6 @@ public class ReassignNumbersControllerTest extends AbstractControllerTest {
             .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
             .andExpect(status().isConflict());
         verify(getNumbersService()).reassignNumber(any(), any());
-        verifyZeroInteractions(getNotificationService());
     }
 
 }
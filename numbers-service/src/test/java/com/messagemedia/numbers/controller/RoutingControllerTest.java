@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.controller;
+
+import com.messagemedia.numbers.controller.support.NumbersControllerAdvice;
+import com.messagemedia.numbers.service.routing.RoutingEntry;
+import com.messagemedia.numbers.service.routing.RoutingService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+
+import static com.messagemedia.numbers.controller.RoutingController.ROUTING_URL;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class RoutingControllerTest {
+
+    private static final String PHONE_NUMBER = "+61491570156";
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private RoutingService routingService;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new RoutingController(routingService))
+                .setControllerAdvice(new NumbersControllerAdvice())
+                .build();
+    }
+
+    @Test
+    public void shouldGetRoute() throws Exception {
+        when(routingService.getRoute(PHONE_NUMBER))
+                .thenReturn(Optional.of(new RoutingEntry("vendor", "account", "http://callback", true)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(ROUTING_URL + "/" + PHONE_NUMBER))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.phoneNumber", is(PHONE_NUMBER)))
+                .andExpect(jsonPath("$.vendorId", is("vendor")))
+                .andExpect(jsonPath("$.accountId", is("account")))
+                .andExpect(jsonPath("$.callbackUrl", is("http://callback")))
+                .andExpect(jsonPath("$.dedicatedReceiver", is(true)));
+    }
+
+    @Test
+    public void shouldReturnNotFoundWhenNoRoute() throws Exception {
+        when(routingService.getRoute(PHONE_NUMBER)).thenReturn(Optional.empty());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(ROUTING_URL + "/" + PHONE_NUMBER))
+                .andExpect(status().isNotFound());
+    }
+}
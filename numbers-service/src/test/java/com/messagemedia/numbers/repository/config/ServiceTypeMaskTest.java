@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.config;
+
+import com.messagemedia.numbers.service.client.models.ServiceType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ServiceTypeMaskTest {
+
+    @Test
+    public void shouldRoundTripEveryCombination() {
+        for (short mask = 0; mask < 16; mask++) {
+            assertEquals(mask, ServiceTypeMask.toMask(ServiceTypeMask.toServiceTypes(mask)));
+        }
+        assertEquals(EnumSet.allOf(ServiceType.class), ServiceTypeMask.toServiceTypes((short) 15));
+    }
+
+    @Test
+    public void shouldEncodeNullAndEmptyAsZero() {
+        assertEquals(0, ServiceTypeMask.toMask(null));
+        assertEquals(0, ServiceTypeMask.toMask(EnumSet.noneOf(ServiceType.class)));
+    }
+
+    @Test
+    public void shouldListMasksSharingAServiceType() {
+        short sms = ServiceTypeMask.toMask(EnumSet.of(ServiceType.SMS));
+        assertEquals(Arrays.asList((short) 1, (short) 3, (short) 5, (short) 7, (short) 9, (short) 11, (short) 13, (short) 15),
+                ServiceTypeMask.masksIntersecting(sms));
+        for (short mask : ServiceTypeMask.masksIntersecting(ServiceTypeMask.toMask(EnumSet.of(ServiceType.MMS, ServiceType.CALL)))) {
+            EnumSet<ServiceType> serviceTypes = ServiceTypeMask.toServiceTypes(mask);
+            assertTrue(serviceTypes.contains(ServiceType.MMS) || serviceTypes.contains(ServiceType.CALL));
+        }
+        assertTrue(ServiceTypeMask.masksIntersecting((short) 0).isEmpty());
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.search;
+
+import com.messagemedia.numbers.exception.NumberSearchPatternInvalidException;
+import com.messagemedia.numbers.exception.VendorAccountRequiredException;
+import com.messagemedia.numbers.service.client.models.Classification;
+import com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest;
+import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
+import com.messagemedia.numbers.service.client.models.ServiceType;
+import com.messagemedia.numbers.service.client.models.Status;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest.NumberAssignmentSearchRequestBuilder.aNumberAssignmentSearchRequestBuilder;
+import static com.messagemedia.numbers.service.client.models.NumberSearchRequest.NumberSearchRequestBuilder.aNumberSearchRequestBuilder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NumberSearchCompilerTest {
+
+    private final NumberSearchCompiler compiler = new NumberSearchCompiler();
+
+    @Test
+    public void shouldCompileSameShapeToSameStatement() {
+        CompiledSearch first = compiler.compile(aNumberSearchRequestBuilder().withPageSize(10).withCountry("au")
+                .withServiceTypes(new ServiceType[]{ServiceType.SMS}).build(), null, 11);
+        CompiledSearch second = compiler.compile(aNumberSearchRequestBuilder().withPageSize(50).withCountry("US")
+                .withServiceTypes(new ServiceType[]{ServiceType.SMS, ServiceType.MMS, ServiceType.TTS}).build(), null, 51);
+
+        assertSame(first.getSql(), second.getSql());
+        assertArrayEquals(new Object[]{"AU", "{\"1\",\"3\",\"5\",\"7\",\"9\",\"11\",\"13\",\"15\"}", 11}, first.getParameters());
+        assertArrayEquals(new Object[]{"US", "{\"1\",\"2\",\"3\",\"4\",\"5\",\"6\",\"7\",\"9\",\"10\",\"11\",\"12\",\"13\",\"14\",\"15\"}", 51},
+                second.getParameters());
+        assertEquals(1, compiler.getMetrics().get("shapes"));
+        assertEquals(1L, compiler.getMetrics().get("hits"));
+    }
+
+    @Test
+    public void shouldCompileDifferentShapesToDifferentStatements() {
+        CompiledSearch anyServiceType = compiler.compile(aNumberSearchRequestBuilder().withPageSize(10)
+                .withServiceTypes(new ServiceType[]{ServiceType.SMS}).build(), null, 11);
+        CompiledSearch exactServiceTypes = compiler.compile(aNumberSearchRequestBuilder().withPageSize(10)
+                .withServiceTypes(new ServiceType[]{ServiceType.SMS}).withExactServiceTypes(true).build(), null, 11);
+
+        assertNotEquals(anyServiceType.getShape(), exactServiceTypes.getShape());
+        assertTrue(anyServiceType.getSql().contains("n.capabilitiesmask = ANY(CAST(? AS smallint[]))"));
+        assertTrue(exactServiceTypes.getSql().contains("n.capabilitiesmask = ?"));
+        assertEquals((short) 1, exactServiceTypes.getParameters()[0]);
+    }
+
+    @Test
+    public void shouldBindNumberSearchFiltersInStatementOrder() {
+        UUID token = UUID.randomUUID();
+        OffsetDateTime availableBy = OffsetDateTime.now();
+        CompiledSearch search = compiler.compile(aNumberSearchRequestBuilder()
+                .withPageSize(25)
+                .withToken(token)
+                .withCountry("AU")
+                .withAssigned(false)
+                .withClassification(Classification.BRONZE)
+                .withMatching("+614")
+                .withAvailableBy(availableBy)
+                .build(), null, 26);
+
+        assertEquals(NumberSearchCompiler.SELECT + " LEFT JOIN assignment a ON a.numberid = n.id AND a.deleted IS NULL"
+                + " WHERE n.deleted IS NULL AND n.id >= ? AND n.country = ? AND n.classification = CAST(? AS classification)"
+                + " AND a.id IS NULL AND n.phonenumber LIKE ? AND (n.availableafter IS NULL OR n.availableafter <= ?)"
+                + " ORDER BY n.id LIMIT ?", search.getSql());
+        assertArrayEquals(new Object[]{token, "AU", "BRONZE", "%+614%", Timestamp.from(availableBy.toInstant()), 26},
+                search.getParameters());
+    }
+
+    @Test
+    public void shouldJoinAssignmentOnceAndBindAccountsAsArray() {
+        CompiledSearch oneAccount = compiler.compile(aNumberAssignmentSearchRequestBuilder()
+                .withVendorId("vendor")
+                .withAccountId("account")
+                .withPageSize(5)
+                .withLabel(" label ")
+                .withStatus(Status.ASSIGNED)
+                .build(), null, 6);
+        CompiledSearch manyAccounts = compiler.compile(aNumberAssignmentSearchRequestBuilder()
+                .withVendorId("vendor")
+                .withAccountId("account")
+                .withAccounts(new String[]{"account1", "account\"2"})
+                .withPageSize(5)
+                .withLabel("other")
+                .withStatus(Status.PENDING)
+                .build(), null, 6);
+
+        assertSame(oneAccount.getSql(), manyAccounts.getSql());
+        assertEquals(oneAccount.getSql().indexOf(" JOIN "), oneAccount.getSql().lastIndexOf(" JOIN "));
+        assertTrue(oneAccount.getSql().contains(" JOIN assignment a ON a.numberid = n.id AND a.deleted IS NULL"));
+        assertFalse(oneAccount.getSql().contains("LEFT JOIN"));
+        assertArrayEquals(new Object[]{"vendor", "{\"account\"}", "label", "ASSIGNED", 6}, oneAccount.getParameters());
+        assertArrayEquals(new Object[]{"vendor", "{\"account1\",\"account\\\"2\"}", "other", "PENDING", 6},
+                manyAccounts.getParameters());
+    }
+
+    @Test
+    public void shouldNotFilterAccountsForAllAccounts() {
+        CompiledSearch search = compiler.compile(aNumberAssignmentSearchRequestBuilder()
+                .withVendorId("vendor")
+                .withAccountId("account")
+                .withAccounts(new String[]{"all"})
+                .withMatchings(new String[]{"+61", " 1800 "})
+                .withPageSize(5)
+                .build(), null, 6);
+
+        assertFalse(search.getSql().contains("a.accountid"));
+        assertTrue(search.getSql().contains(" AND (n.phonenumber LIKE ? OR n.phonenumber LIKE ?) "));
+        assertEquals(Arrays.asList("vendor", "%+61%", "%1800%", 6), Arrays.asList(search.getParameters()));
+    }
+
+    @Test
+    public void shouldGroupPatternsByMatchMode() {
+        CompiledSearch search = compiler.compile(aNumberAssignmentSearchRequestBuilder()
+                .withVendorId("vendor")
+                .withAccountId("account")
+                .withMatchings(new String[]{"61[45]", "^+614", "1234$", "+61_%"})
+                .withPageSize(5)
+                .build(), null, 6);
+        CompiledSearch reordered = compiler.compile(aNumberAssignmentSearchRequestBuilder()
+                .withVendorId("vendor")
+                .withAccountId("account")
+                .withMatchings(new String[]{"^+612", "9$", "1800"})
+                .withPageSize(5)
+                .build(), PhoneNumberPattern.Mode.CONTAINS, 6);
+
+        assertTrue(search.getSql().contains(" AND (n.phonenumber LIKE ? OR reverse(n.phonenumber) LIKE ? OR n.phonenumber ~ ?) "));
+        assertEquals(Arrays.asList("vendor", "{\"account\"}", "+614%", "4321%", "61[45]|[+]61_%", 6),
+                Arrays.asList(search.getParameters()));
+        assertTrue(reordered.getSql().contains(" AND (n.phonenumber LIKE ? OR n.phonenumber LIKE ? OR n.phonenumber LIKE ?) "));
+        assertEquals(Arrays.asList("vendor", "{\"account\"}", "%^+612%", "%9$%", "%1800%", 6),
+                Arrays.asList(reordered.getParameters()));
+    }
+
+    @Test
+    public void shouldMatchNumbersByIndexedModes() {
+        CompiledSearch prefix = compiler.compile(aNumberSearchRequestBuilder().withPageSize(10).withMatching("+614").build(),
+                PhoneNumberPattern.Mode.PREFIX, 11);
+        CompiledSearch suffix = compiler.compile(aNumberSearchRequestBuilder().withPageSize(10).withMatching("1234").build(),
+                PhoneNumberPattern.Mode.SUFFIX, 11);
+        CompiledSearch exact = compiler.compile(aNumberSearchRequestBuilder().withPageSize(10).withMatching("^+61491570156$").build(),
+                null, 11);
+
+        assertTrue(prefix.getSql().contains(" AND n.phonenumber LIKE ? "));
+        assertArrayEquals(new Object[]{"+614%", 11}, prefix.getParameters());
+        assertTrue(suffix.getSql().contains(" AND reverse(n.phonenumber) LIKE ? "));
+        assertArrayEquals(new Object[]{"4321%", 11}, suffix.getParameters());
+        assertTrue(exact.getSql().contains(" AND n.phonenumber = ? "));
+        assertArrayEquals(new Object[]{"+61491570156", 11}, exact.getParameters());
+    }
+
+    @Test(expected = NumberSearchPatternInvalidException.class)
+    public void shouldRejectRegexWithoutSelectiveFilter() {
+        compiler.compile(aNumberSearchRequestBuilder().withPageSize(10).withCountry("AU").withMatching("^.61.*").build(), null, 11);
+    }
+
+    @Test(expected = NumberSearchPatternInvalidException.class)
+    public void shouldRejectRegexFilteredByServiceTypeOnly() {
+        compiler.compile(aNumberSearchRequestBuilder().withPageSize(10).withMatching("^.61.*")
+                .withServiceTypes(new ServiceType[]{ServiceType.SMS}).build(), null, 11);
+    }
+
+    @Test
+    public void shouldAllowRegexWithSelectiveFilter() {
+        CompiledSearch search = compiler.compile(aNumberAssignmentSearchRequestBuilder()
+                .withVendorId("vendor")
+                .withAccountId("account")
+                .withMatching("^.61.*")
+                .withPageSize(10)
+                .build(), null, 11);
+
+        assertTrue(search.getSql().contains(" AND n.phonenumber ~ ? "));
+    }
+
+    @Test(expected = NumberSearchPatternInvalidException.class)
+    public void shouldRejectRegexFilteredByClassificationOnly() {
+        compiler.compile(aNumberSearchRequestBuilder().withPageSize(10).withMatching("^.61.*")
+                .withClassification(Classification.BRONZE).build(), null, 11);
+    }
+
+    @Test
+    public void shouldAllowRegexWithCountryAndClassification() {
+        CompiledSearch search = compiler.compile(aNumberSearchRequestBuilder()
+                .withCountry("AU")
+                .withClassification(Classification.BRONZE)
+                .withMatching("^.61.*")
+                .withPageSize(10)
+                .build(), null, 11);
+
+        assertTrue(search.getSql().contains(" AND n.phonenumber ~ ? "));
+        assertArrayEquals(new Object[]{"AU", "BRONZE", "^.61.*", 11}, search.getParameters());
+    }
+
+    @Test
+    public void shouldNarrowRegexByItsLiteralStart() {
+        CompiledSearch search = compiler.compile(aNumberSearchRequestBuilder()
+                .withMatching("^\\+614[0-9]{8}$")
+                .withPageSize(10)
+                .build(), null, 11);
+
+        assertTrue(search.getSql().contains(" AND n.phonenumber LIKE ? AND n.phonenumber ~ ? "));
+        assertArrayEquals(new Object[]{"+614%", "^\\+614[0-9]{8}$", 11}, search.getParameters());
+    }
+
+    @Test(expected = NumberSearchPatternInvalidException.class)
+    public void shouldRejectTooManyPatterns() {
+        String[] matchings = new String[21];
+        Arrays.fill(matchings, "1800");
+        compiler.compile(aNumberAssignmentSearchRequestBuilder()
+                .withVendorId("vendor")
+                .withAccountId("account")
+                .withMatchings(matchings)
+                .withPageSize(5)
+                .build(), null, 6);
+    }
+
+    @Test(expected = VendorAccountRequiredException.class)
+    public void shouldRequireVendorAccount() {
+        compiler.compile(new NumberAssignmentSearchRequest(), null, 1);
+    }
+
+    @Test
+    public void shouldEscapeArrayLiteral() {
+        assertEquals("{\"a\",\"b\\\\c\",\"d\\\"e\",\"f,g\"}",
+                NumberSearchCompiler.toArrayLiteral(Arrays.asList("a", "b\\c", "d\"e", "f,g")));
+    }
+
+    @Test
+    public void shouldCompileExportWithoutLimit() {
+        NumberSearchRequest request = aNumberSearchRequestBuilder().withPageSize(10).withCountry("AU").build();
+        CompiledSearch page = compiler.compile(request, null, 11);
+        CompiledSearch export = compiler.compileExport(request, null);
+
+        assertEquals(page.getShape(), export.getShape());
+        assertTrue(export.getSql().endsWith(" ORDER BY n.id"));
+        assertArrayEquals(new Object[]{"AU"}, export.getParameters());
+        assertEquals(2, compiler.getMetrics().get("shapes"));
+    }
+
+    @Test
+    public void shouldSearchNumbersWithoutFilters() {
+        CompiledSearch search = compiler.compile(new NumberSearchRequest(), null, 2);
+        assertEquals(NumberSearchCompiler.SELECT + " LEFT JOIN assignment a ON a.numberid = n.id AND a.deleted IS NULL"
+                + " WHERE n.deleted IS NULL ORDER BY n.id LIMIT ?", search.getSql());
+    }
+
+    @Test
+    public void shouldCompileIdsAfterKey() {
+        NumberSearchRequest request = aNumberSearchRequestBuilder().withPageSize(10).withCountry("AU").build();
+        UUID after = UUID.randomUUID();
+        CompiledSearch first = compiler.compileIds(request, null, null, 500);
+        CompiledSearch next = compiler.compileIds(request, null, after, 500);
+
+        assertTrue(first.getSql().startsWith(NumberSearchCompiler.SELECT_IDS + " LEFT JOIN"));
+        assertTrue(next.getSql().endsWith(" AND n.country = ? AND n.id > ? ORDER BY n.id LIMIT ?"));
+        assertArrayEquals(new Object[]{"AU", 500}, first.getParameters());
+        assertArrayEquals(new Object[]{"AU", after, 500}, next.getParameters());
+        assertNotEquals(compiler.compile(request, null, 11).getSql(), first.getSql());
+    }
+}
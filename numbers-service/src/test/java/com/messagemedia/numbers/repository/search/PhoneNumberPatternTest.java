@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.repository.search;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(DataProviderRunner.class)
+public class PhoneNumberPatternTest {
+
+    @DataProvider
+    public static Object[][] regexData() {
+        return new Object[][]{
+                {"+614", PhoneNumberPattern.Mode.CONTAINS, "+614"},
+                {" 1800 ", PhoneNumberPattern.Mode.CONTAINS, "1800"},
+                {"\\+61.*", PhoneNumberPattern.Mode.CONTAINS, "+61"},
+                {"^+614", PhoneNumberPattern.Mode.PREFIX, "+614"},
+                {"^[+]614.*", PhoneNumberPattern.Mode.PREFIX, "+614"},
+                {"1234$", PhoneNumberPattern.Mode.SUFFIX, "1234"},
+                {".*1234$", PhoneNumberPattern.Mode.SUFFIX, "1234"},
+                {"^+61491570156$", PhoneNumberPattern.Mode.EXACT, "+61491570156"},
+                {"^.*1800.*$", PhoneNumberPattern.Mode.CONTAINS, "1800"},
+                {"^.61.*", PhoneNumberPattern.Mode.REGEX, "^.61.*"},
+                {"+61[45]", PhoneNumberPattern.Mode.REGEX, "[+]61[45]"},
+                {"+13_6%", PhoneNumberPattern.Mode.REGEX, "[+]13_6%"}
+        };
+    }
+
+    @Test
+    @UseDataProvider("regexData")
+    public void shouldRewriteLiteralRegexToIndexedMode(String matching, PhoneNumberPattern.Mode mode, String value) {
+        PhoneNumberPattern pattern = PhoneNumberPattern.of(matching, null);
+        assertEquals(mode, pattern.getMode());
+        assertEquals(value, pattern.getValue());
+    }
+
+    @DataProvider
+    public static Object[][] regexPrefixData() {
+        return new Object[][]{
+                {"^\\+614[0-9]{8}$", "+614"},
+                {"^[+]61[45]", "+61"},
+                {"^+61*", "+6"},
+                {"^1800[0-9]+", "1800"},
+                {"^1{3}", null},
+                {"^.61.*", null},
+                {"[+]61[45]", null},
+                {"^1800|^1300", null}
+        };
+    }
+
+    @Test
+    @UseDataProvider("regexPrefixData")
+    public void shouldFindLiteralStartOfRegex(String matching, String prefix) {
+        assertEquals(prefix, PhoneNumberPattern.of(matching, PhoneNumberPattern.Mode.REGEX).getRegexPrefix());
+    }
+
+    @Test
+    public void shouldUseExplicitModeLiterally() {
+        assertEquals("+61\\_\\%%", PhoneNumberPattern.of("+61_%", PhoneNumberPattern.Mode.PREFIX).toLikePattern());
+        assertEquals("4321%", PhoneNumberPattern.of("1234", PhoneNumberPattern.Mode.SUFFIX).toLikePattern());
+        assertEquals("%1800%", PhoneNumberPattern.of(" 1800 ", PhoneNumberPattern.Mode.CONTAINS).toLikePattern());
+        assertEquals("[+]61.*", PhoneNumberPattern.of("+61.*", PhoneNumberPattern.Mode.REGEX).getValue());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotBuildLikePatternForRegex() {
+        PhoneNumberPattern.of("61[45]", null).toLikePattern();
+    }
+}
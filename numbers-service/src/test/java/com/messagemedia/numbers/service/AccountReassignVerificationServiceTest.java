@@ -13,6 +13,7 @@ import com.fasterxml.jackson.datatype.joda.JodaModule;
 import com.messagemedia.domainmodels.accounts.AccountId;
 import com.messagemedia.domainmodels.accounts.VendorAccountId;
 import com.messagemedia.numbers.TestData;
+import com.messagemedia.numbers.service.cache.AccountHierarchyCache;
 import com.messagemedia.service.accountmanagement.client.ContextualServiceAccountManagementClientFactory;
 import com.messagemedia.service.accountmanagement.client.ServiceAccountManagementClient;
 import com.messagemedia.service.accountmanagement.client.exception.ServiceAccountManagementException;
@@ -46,7 +47,8 @@ public class AccountReassignVerificationServiceTest {
     public void setup() throws Exception {
         MockitoAnnotations.initMocks(this);
         objectMapper.registerModule(new JodaModule());
-        accountReassignVerificationService = new AccountReassignVerificationService(contextualServiceAccountManagementClientFactory);
+        accountReassignVerificationService = new AccountReassignVerificationService(
+            new AccountHierarchyCache(contextualServiceAccountManagementClientFactory, Runnable::run, 1000, 3600, 300), 60);
         when(contextualServiceAccountManagementClientFactory.createContextualClient(any(VendorAccountId.class)))
                 .thenReturn(serviceAccountManagementClient);
 
@@ -108,6 +110,17 @@ public class AccountReassignVerificationServiceTest {
         verifyRelation("vendor1", "account1", "vendor1", "account2");
     }
 
+    @Test
+    public void testRememberVerdictForAccountPair() throws Exception {
+        Assert.assertTrue(verifyRelation("MessageMedia", "AccountM11", "MessageMedia", "AccountM121"));
+        Assert.assertTrue(verifyRelation("MessageMedia", "AccountM11", "MessageMedia", "AccountM121"));
+        Assert.assertTrue(verifyRelation("MessageMedia", "AccountM12", "MessageMedia", "AccountM122"));
+
+        verify(serviceAccountManagementClient, times(1)).getAccount(new AccountId("AccountM1"));
+        verify(serviceAccountManagementClient, times(1)).getAccount(new AccountId("AccountM12"));
+        Assert.assertEquals(1L, accountReassignVerificationService.getMetrics().get("verdictHits"));
+    }
+
     private boolean verifyRelation(String vendor1, String account1, String vendor2, String account2)
         throws Exception {
         return accountReassignVerificationService.verifyAccountRelationship(new VendorAccountId(vendor1,
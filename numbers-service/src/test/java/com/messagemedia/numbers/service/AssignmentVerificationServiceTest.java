@@ -9,57 +9,23 @@
 package com.messagemedia.numbers.service;
 
 
-import com.google.common.collect.Lists;
 import com.messagemedia.numbers.TestData;
 import com.messagemedia.numbers.repository.entities.AssignmentEntity;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
-import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import java.time.OffsetDateTime;
-import java.util.Collections;
-import org.hibernate.envers.AuditReader;
-import org.hibernate.envers.query.AuditQuery;
-import org.hibernate.envers.query.AuditQueryCreator;
-import org.junit.Before;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.MockitoAnnotations;
 import static org.junit.Assert.*;
-import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.when;
 
-@RunWith(DataProviderRunner.class)
 public class AssignmentVerificationServiceTest {
 
-    @Mock
-    private AuditReader auditReader;
-
-    @Mock
-    private AuditQuery auditQuery;
-
-    @Mock
-    private AuditQueryCreator auditQueryCreator;
-
-    @InjectMocks
-    private AssignmentVerificationService assignmentVerificationService;
-
-    @Before
-    public void setup() {
-        MockitoAnnotations.initMocks(this);
-        when(auditQuery.add(any())).thenReturn(auditQuery);
-        when(auditQuery.addOrder(any())).thenReturn(auditQuery);
-        when(auditQuery.setMaxResults(1)).thenReturn(auditQuery);
-        when(auditReader.createQuery()).thenReturn(auditQueryCreator);
-        when(auditQueryCreator.forRevisionsOfEntity(AssignmentEntity.class, true, true)).thenReturn(auditQuery);
-    }
+    private final AssignmentVerificationService assignmentVerificationService = new AssignmentVerificationService();
 
     @Test
     public void testValidAssignmentWhenTheNumberAvailableToLastOwner() {
         NumberEntity numberEntity = TestData.randomAssignedNumberEntity();
         numberEntity.setAvailableAfter(OffsetDateTime.now().plusDays(1));
         final AssignmentEntity assignedTo = numberEntity.getAssignedTo();
-        when(auditQuery.getResultList()).thenReturn(Lists.newArrayList(assignedTo));
+        numberEntity.setLastAssignee(assignedTo);
         assertTrue(assignmentVerificationService.isValidForNewAssignment(numberEntity, assignedTo.getVendorId(), assignedTo.getAccountId()));
     }
 
@@ -68,7 +34,6 @@ public class AssignmentVerificationServiceTest {
         NumberEntity numberEntity = TestData.randomAssignedNumberEntity();
         numberEntity.setAvailableAfter(OffsetDateTime.now().minusDays(1));
         final AssignmentEntity assignedTo = numberEntity.getAssignedTo();
-        when(auditQuery.getResultList()).thenReturn(Collections.emptyList());
         assertTrue(assignmentVerificationService.isValidForNewAssignment(numberEntity, assignedTo.getVendorId(), assignedTo.getAccountId()));
     }
 
@@ -84,7 +49,14 @@ public class AssignmentVerificationServiceTest {
         NumberEntity numberEntity = TestData.randomAssignedNumberEntity();
         numberEntity.setAvailableAfter(OffsetDateTime.now().plusDays(1));
         final AssignmentEntity assignedTo = numberEntity.getAssignedTo();
-        when(auditQuery.getResultList()).thenReturn(Lists.newArrayList(TestData.randomAssignmentEntity()));
+        numberEntity.setLastAssignee(TestData.randomAssignmentEntity());
         assertFalse(assignmentVerificationService.isValidForNewAssignment(numberEntity, assignedTo.getVendorId(), assignedTo.getAccountId()));
     }
+
+    @Test
+    public void testInvalidAssignmentWhenTheNumberHasNoLastOwner() {
+        NumberEntity numberEntity = TestData.randomUnassignedNumberEntity();
+        numberEntity.setAvailableAfter(OffsetDateTime.now().plusDays(1));
+        assertFalse(assignmentVerificationService.isValidForNewAssignment(numberEntity, "anyVendor", "anyAccount"));
+    }
 }
@@ -15,10 +15,16 @@ import com.messagemedia.framework.config.impl.SpringProfileCalculator;
 import com.messagemedia.framework.test.DataProviderSpringRunner;
 import com.messagemedia.framework.test.logging.TestLoggingAppender;
 import com.messagemedia.numbers.config.ServiceTestConfig;
+import com.messagemedia.numbers.repository.BillingNotificationRepository;
 import com.messagemedia.numbers.repository.BillingRatePlanRepository;
+import com.messagemedia.numbers.repository.entities.BillingNotificationAction;
+import com.messagemedia.numbers.repository.entities.BillingNotificationEntity;
 import com.messagemedia.numbers.repository.entities.BillingRatePlanEntity;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.service.billing.BillingManagerClient;
+import com.messagemedia.numbers.service.billing.BillingNotificationQueue;
 import com.messagemedia.numbers.service.billing.BillingNotificationService;
+import com.messagemedia.numbers.service.billing.RatePlanResolver;
 import com.messagemedia.numbers.service.client.models.Classification;
 import com.messagemedia.numbers.service.client.models.NumberType;
 import com.messagemedia.numbers.service.client.models.ServiceType;
@@ -31,12 +37,20 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
@@ -51,6 +65,9 @@ import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static com.messagemedia.framework.test.IntegrationTestUtilities.pathToString;
 import static com.messagemedia.numbers.TestData.randomAssignedNumberEntity;
 import static com.messagemedia.numbers.TestData.randomBillingRatePlanEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
 
 @ActiveProfiles(SpringProfileCalculator.DEFAULT_ENVIRONMENT)
@@ -74,6 +91,18 @@ public class BillingNotificationServiceTest {
     private BillingRatePlanRepository billingRatePlanRepository;
     @Autowired
     private BillingNotificationService billingNotificationService;
+    @Autowired
+    private BillingNotificationQueue billingNotificationQueue;
+    @Autowired
+    private BillingNotificationRepository billingNotificationRepository;
+    @Autowired
+    private BillingManagerClient billingManagerClient;
+    @Autowired
+    private RatePlanResolver ratePlanResolver;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Value("${numbers.service.billingManagement.smsBroadcastRatePlanId}")
     private String smsBroadcastRatePlanId;
@@ -87,13 +116,18 @@ public class BillingNotificationServiceTest {
     public void setup() {
         deleteRatePlan();
         billingRatePlanRepository.save(RATE_PLAN);
+        ratePlanResolver.refresh();
+        billingNotificationRepository.deleteAll();
         testLoggingAppender = new TestLoggingAppender();
         mockBillingManager.resetMappings();
+        mockBillingManager.resetRequests();
+        mockSlack.resetRequests();
     }
 
     @After
     public void deleteRatePlan() {
         billingRatePlanRepository.delete(RATE_PLAN);
+        ratePlanResolver.refresh();
     }
 
     @Test
@@ -105,11 +139,12 @@ public class BillingNotificationServiceTest {
         mockBillingManagerAddRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
 
         // When
-        billingNotificationService.sendAddNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendAddNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresent("add successful for rate plan " + RATE_PLAN_ID);
         verifyBillingManagerAddRequest(vendorAccountId, 1);
+        assertEquals(0, billingNotificationRepository.count());
     }
 
     @Test
@@ -121,13 +156,27 @@ public class BillingNotificationServiceTest {
         mockBillingManagerRemoveRequest(HttpStatus.NO_CONTENT.value(), "billing_manager_success_response.json");
 
         // When
-        billingNotificationService.sendRemoveNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendRemoveNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresent("remove successful for rate plan " + RATE_PLAN_ID);
         verifyBillingManagerRemoveRequest(vendorAccountId, 1);
     }
 
+    @Test
+    public void shouldSendRemoveNotificationsForEachNumber() throws Exception {
+        // Given
+        VendorAccountId vendorAccountId = new VendorAccountId("MessageMedia", "FunGuys008");
+
+        mockBillingManagerRemoveRequest(HttpStatus.NO_CONTENT.value(), "billing_manager_success_response.json");
+
+        // When
+        inTransaction(() -> billingNotificationService.sendRemoveNotifications(vendorAccountId, Arrays.asList(getNumberEntity(), getNumberEntity())));
+
+        // Then
+        verifyBillingManagerRemoveRequest(vendorAccountId, 2);
+    }
+
     @Test
     public void shouldSendAddNotificationForSmsBroadcast() throws Exception {
         // Given
@@ -137,7 +186,7 @@ public class BillingNotificationServiceTest {
         mockBillingManagerAddRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
 
         // When
-        billingNotificationService.sendAddNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendAddNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresent("add successful for rate plan " + smsBroadcastRatePlanId);
@@ -153,7 +202,7 @@ public class BillingNotificationServiceTest {
         mockBillingManagerRemoveRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
 
         // When
-        billingNotificationService.sendRemoveNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendRemoveNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresent("remove successful for rate plan " + smsBroadcastRatePlanId);
@@ -169,7 +218,7 @@ public class BillingNotificationServiceTest {
         mockBillingManagerAddRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
 
         // When
-        billingNotificationService.sendAddNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendAddNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresent("add successful for rate plan " + callableNumberRatePlanId);
@@ -185,7 +234,7 @@ public class BillingNotificationServiceTest {
         mockBillingManagerRemoveRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
 
         // When
-        billingNotificationService.sendRemoveNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendRemoveNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresent("remove successful for rate plan " + callableNumberRatePlanId);
@@ -201,7 +250,7 @@ public class BillingNotificationServiceTest {
         mockBillingManagerAddRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
 
         // When
-        billingNotificationService.sendAddNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendAddNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresent("add successful for rate plan " + AU_BRONZE_RATE_PLAN_ID);
@@ -217,7 +266,7 @@ public class BillingNotificationServiceTest {
         mockBillingManagerRemoveRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
 
         // When
-        billingNotificationService.sendRemoveNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendRemoveNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresent("remove successful for rate plan " + AU_BRONZE_RATE_PLAN_ID);
@@ -233,7 +282,7 @@ public class BillingNotificationServiceTest {
         mockBillingManagerAddRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
 
         // When
-        billingNotificationService.sendAddNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendAddNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresentWithReason("Not sending billing notification", "Unbilled account");
@@ -249,7 +298,7 @@ public class BillingNotificationServiceTest {
         mockBillingManagerRemoveRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
 
         // When
-        billingNotificationService.sendRemoveNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendRemoveNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresentWithReason("Not sending billing notification", "Unbilled account");
@@ -267,7 +316,7 @@ public class BillingNotificationServiceTest {
         mockSlackNotificationRequest();
 
         // When
-        billingNotificationService.sendAddNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendAddNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresentWithReason("Not sending billing notification", "No rate plan found for number " + number.getPhoneNumber());
@@ -286,7 +335,7 @@ public class BillingNotificationServiceTest {
         mockSlackNotificationRequest();
 
         // When
-        billingNotificationService.sendRemoveNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendRemoveNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresentWithReason("Not sending billing notification", "No rate plan found for number " + number.getPhoneNumber());
@@ -295,7 +344,7 @@ public class BillingNotificationServiceTest {
     }
 
     @Test
-    @UseDataProvider("errorResponseScenarios")
+    @UseDataProvider("rejectedResponseScenarios")
     public void shouldHandleAddErrorResponses(int responseCode, String responseBodyFile, String logReason) throws Exception {
         // Given
         NumberEntity number = getNumberEntity();
@@ -305,16 +354,17 @@ public class BillingNotificationServiceTest {
         mockSlackNotificationRequest();
 
         // When
-        billingNotificationService.sendAddNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendAddNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresentWithReason("Failed to add rate plan", logReason);
         verifyBillingManagerAddRequest(vendorAccountId, 1);
         verifySlackNotificationRequest(logReason);
+        assertParked(number, BillingNotificationAction.ADD);
     }
 
     @Test
-    @UseDataProvider("errorResponseScenarios")
+    @UseDataProvider("rejectedResponseScenarios")
     public void shouldHandleRemoveErrorResponses(int responseCode, String responseBodyFile, String logReason) throws Exception {
         // Given
         NumberEntity number = getNumberEntity();
@@ -324,25 +374,236 @@ public class BillingNotificationServiceTest {
         mockSlackNotificationRequest();
 
         // When
-        billingNotificationService.sendRemoveNotification(vendorAccountId, number);
+        inTransaction(() -> billingNotificationService.sendRemoveNotification(vendorAccountId, number));
 
         // Then
         testLoggingAppender.assertPresentWithReason("Failed to remove rate plan", logReason);
         verifyBillingManagerRemoveRequest(vendorAccountId, 1);
         verifySlackNotificationRequest(logReason);
+        assertParked(number, BillingNotificationAction.REMOVE);
     }
 
     @DataProvider
-    public static Object[][] errorResponseScenarios() {
+    public static Object[][] rejectedResponseScenarios() {
         return new Object[][]{
                 {404, "billing_manager_invalid_account_response.json", "Billing account not found"},
                 {422, "billing_manager_invalid_rate_plan_response.json", "Rate plan id does not exist"},
-                {400, "billing_manager_currency_mismatch_response.json", "Currency mismatch"},
-                {500, "billing_manager_currency_mismatch_response.json", "Unknown billing management internal server error"},
-                {503, "billing_manager_currency_mismatch_response.json", "Unexpected status code=503"}
+                {400, "billing_manager_currency_mismatch_response.json", "Currency mismatch"}
+        };
+    }
+
+    @Test
+    @UseDataProvider("retriedResponseScenarios")
+    public void shouldQueueAddForRetryOnServerErrors(int responseCode, String logReason) throws Exception {
+        // Given
+        NumberEntity number = getNumberEntity();
+        VendorAccountId vendorAccountId = new VendorAccountId("MessageMedia", "FunGuys007");
+
+        mockBillingManagerAddRequest(responseCode, "billing_manager_currency_mismatch_response.json");
+        mockSlackNotificationRequest();
+
+        // When
+        inTransaction(() -> billingNotificationService.sendAddNotification(vendorAccountId, number));
+
+        // Then
+        testLoggingAppender.assertPresentWithReason("Failed to add rate plan", logReason);
+        verifyBillingManagerAddRequest(vendorAccountId, 1);
+        mockSlack.verify(0, postRequestedFor(urlPathEqualTo("/services/abc/123")));
+        BillingNotificationEntity notification = findNotification(number, BillingNotificationAction.ADD);
+        assertFalse(notification.isParked());
+        assertEquals(1, notification.getAttempts());
+        assertEquals(logReason, notification.getLastError());
+    }
+
+    @DataProvider
+    public static Object[][] retriedResponseScenarios() {
+        return new Object[][]{
+                {500, "Unknown billing management internal server error"},
+                {503, "Unexpected status code=503"}
         };
     }
 
+    @Test
+    public void shouldSendQueuedNotificationWhenDrained() throws Exception {
+        // Given
+        NumberEntity number = getNumberEntity();
+        VendorAccountId vendorAccountId = new VendorAccountId("MessageMedia", "FunGuys009");
+        mockBillingManagerRemoveRequest(HttpStatus.SERVICE_UNAVAILABLE.value(), "billing_manager_currency_mismatch_response.json");
+        inTransaction(() -> billingNotificationService.sendRemoveNotification(vendorAccountId, number));
+        mockBillingManager.resetMappings();
+        mockBillingManagerRemoveRequest(HttpStatus.NO_CONTENT.value(), "billing_manager_success_response.json");
+
+        // When
+        int sent = billingNotificationQueue.drain();
+
+        // Then
+        assertEquals(1, sent);
+        assertEquals(0, billingNotificationRepository.count());
+        testLoggingAppender.assertPresent("remove successful for rate plan " + RATE_PLAN_ID);
+    }
+
+    @Test
+    public void shouldSendReplayedNotification() throws Exception {
+        // Given
+        NumberEntity number = getNumberEntity();
+        VendorAccountId vendorAccountId = new VendorAccountId("MessageMedia", "FunGuys010");
+        mockBillingManagerAddRequest(HttpStatus.NOT_FOUND.value(), "billing_manager_invalid_account_response.json");
+        mockSlackNotificationRequest();
+        inTransaction(() -> billingNotificationService.sendAddNotification(vendorAccountId, number));
+        assertParked(number, BillingNotificationAction.ADD);
+        mockBillingManager.resetMappings();
+        mockBillingManagerAddRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
+
+        // When
+        int replayed = billingNotificationQueue.replay("MessageMedia", "FunGuys010");
+        int sent = billingNotificationQueue.drain();
+
+        // Then
+        assertEquals(1, replayed);
+        assertEquals(1, sent);
+        assertEquals(0, billingNotificationRepository.count());
+    }
+
+    @Test
+    public void shouldNotReplayParkedNotificationsOfOtherAccounts() throws Exception {
+        // Given
+        NumberEntity number = getNumberEntity();
+        mockBillingManagerAddRequest(HttpStatus.NOT_FOUND.value(), "billing_manager_invalid_account_response.json");
+        mockSlackNotificationRequest();
+        inTransaction(() -> billingNotificationService.sendAddNotification(new VendorAccountId("MessageMedia", "FunGuys011"), number));
+
+        // When
+        int replayed = billingNotificationQueue.replay("MessageMedia", "FunGuys012");
+
+        // Then
+        assertEquals(0, replayed);
+        assertParked(number, BillingNotificationAction.ADD);
+    }
+
+    @Test
+    public void shouldNotDuplicateQueuedNotification() throws Exception {
+        // Given
+        NumberEntity number = getNumberEntity();
+        VendorAccountId vendorAccountId = new VendorAccountId("MessageMedia", "FunGuys013");
+        mockBillingManagerAddRequest(HttpStatus.SERVICE_UNAVAILABLE.value(), "billing_manager_currency_mismatch_response.json");
+
+        // When
+        inTransaction(() -> billingNotificationService.sendAddNotification(vendorAccountId, number));
+        inTransaction(() -> billingNotificationService.sendAddNotification(vendorAccountId, number));
+
+        // Then
+        List<BillingNotificationEntity> notifications = billingNotificationRepository.findAll();
+        assertEquals(1, notifications.size());
+        assertEquals(number.getId(), notifications.get(0).getNumberId());
+        assertEquals(1, notifications.get(0).getAttempts());
+    }
+
+    @Test
+    public void shouldNetAddAndRemoveWithinNettingWindow() throws Exception {
+        // Given
+        NumberEntity number = getNumberEntity();
+        VendorAccountId vendorAccountId = new VendorAccountId("MessageMedia", "FunGuys014");
+        BillingNotificationService nettingService = nettingBillingNotificationService(nettingQueue());
+        mockBillingManagerAddRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
+        mockBillingManagerRemoveRequest(HttpStatus.NO_CONTENT.value(), "billing_manager_success_response.json");
+
+        // When
+        inTransaction(() -> nettingService.sendAddNotification(vendorAccountId, number));
+        inTransaction(() -> nettingService.sendRemoveNotification(vendorAccountId, number));
+
+        // Then
+        assertEquals(0, billingNotificationRepository.count());
+        verifyBillingManagerAddRequest(vendorAccountId, 0);
+        verifyBillingManagerRemoveRequest(vendorAccountId, 0);
+    }
+
+    @Test
+    public void shouldHoldNotificationsForNettingWindow() throws Exception {
+        // Given
+        VendorAccountId vendorAccountId = new VendorAccountId("MessageMedia", "FunGuys015");
+        BillingNotificationQueue nettingQueue = nettingQueue();
+        BillingNotificationService nettingService = nettingBillingNotificationService(nettingQueue);
+        mockBillingManagerAddRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
+
+        // When
+        inTransaction(() -> nettingService.sendAddNotifications(vendorAccountId, Arrays.asList(getNumberEntity(), getNumberEntity())));
+
+        // Then
+        verifyBillingManagerAddRequest(vendorAccountId, 0);
+        assertEquals(2, nettingQueue.countPending());
+        assertEquals(2, nettingQueue.drain());
+        verifyBillingManagerAddRequest(vendorAccountId, 2);
+    }
+
+    @Test
+    public void shouldNotNetNotificationsOfOtherAccounts() throws Exception {
+        // Given
+        NumberEntity number = getNumberEntity();
+        BillingNotificationService nettingService = nettingBillingNotificationService(nettingQueue());
+
+        // When
+        inTransaction(() -> nettingService.sendAddNotification(new VendorAccountId("MessageMedia", "FunGuys016"), number));
+        inTransaction(() -> nettingService.sendRemoveNotification(new VendorAccountId("MessageMedia", "FunGuys017"), number));
+
+        // Then
+        assertEquals(2, billingNotificationRepository.count());
+    }
+
+    @Test
+    public void shouldNotSendNotificationsLeasedByAnotherWorker() throws Exception {
+        // Given
+        NumberEntity number = getNumberEntity();
+        VendorAccountId vendorAccountId = new VendorAccountId("MessageMedia", "FunGuys018");
+        BillingNotificationQueue nettingQueue = nettingQueue();
+        mockBillingManagerAddRequest(HttpStatus.CREATED.value(), "billing_manager_success_response.json");
+        inTransaction(() -> nettingBillingNotificationService(nettingQueue).sendAddNotification(vendorAccountId, number));
+        OffsetDateTime now = OffsetDateTime.now();
+        billingNotificationRepository.makeDue(now);
+        OffsetDateTime lease = now.plusMinutes(10).truncatedTo(ChronoUnit.MILLIS);
+        assertEquals(1, billingNotificationRepository.claimDue(10, now, lease).size());
+
+        // When
+        int sent = nettingQueue.drain();
+        billingNotificationRepository.deleteNotification(findNotification(number, BillingNotificationAction.ADD).getId(),
+                lease.plusMinutes(1));
+
+        // Then
+        assertEquals(0, sent);
+        verifyBillingManagerAddRequest(vendorAccountId, 0);
+        assertEquals(lease.toInstant(), findNotification(number, BillingNotificationAction.ADD).getLeasedUntil().toInstant());
+    }
+
+    private BillingNotificationQueue nettingQueue() {
+        return new BillingNotificationQueue(billingNotificationRepository, billingManagerClient, eventPublisher, transactionManager,
+                50, 1000, 60000, 20, 60000, 600000);
+    }
+
+    private BillingNotificationService nettingBillingNotificationService(BillingNotificationQueue nettingQueue) {
+        return new BillingNotificationService(nettingQueue, billingManagerClient, ratePlanResolver,
+                Collections.singleton("Bulletin:Bulletin2FA"));
+    }
+
+    /**
+     * Queues like an assignment change does, the notifications are sent once the transaction commits.
+     */
+    private void inTransaction(Runnable change) {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            change.run();
+            return null;
+        });
+    }
+
+    private BillingNotificationEntity findNotification(NumberEntity number, BillingNotificationAction action) {
+        return billingNotificationRepository.findAll().stream()
+                .filter(notification -> notification.getNumberId().equals(number.getId()) && notification.getAction() == action)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No queued notification for number " + number.getId()));
+    }
+
+    private void assertParked(NumberEntity number, BillingNotificationAction action) {
+        assertTrue(findNotification(number, action).isParked());
+    }
+
     private NumberEntity getNumberEntity() {
         NumberEntity number = randomAssignedNumberEntity();
         number.setCapabilities(RATE_PLAN.getCapabilities());
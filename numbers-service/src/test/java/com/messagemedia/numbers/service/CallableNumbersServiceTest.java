@@ -164,6 +164,18 @@ public class CallableNumbersServiceTest {
         mockCallableNumbersApi.verify(deleteRequestedFor(urlPathEqualTo(CALLABLE_NUMBERS_API_NUMBER)));
     }
 
+    @Test
+    public void shouldDeleteCallableNumberOfLoadedNumber() {
+        mockCallableNumbersApi.stubFor(delete(urlPathEqualTo(CALLABLE_NUMBERS_API_NUMBER))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.NO_CONTENT.value())));
+        // the caller's copy is used as it is, the number is not read again
+        deleteAllNumbers();
+
+        callableNumbersService.deleteCallableNumber(NUMBER_ENTITY);
+        mockCallableNumbersApi.verify(deleteRequestedFor(urlPathEqualTo(CALLABLE_NUMBERS_API_NUMBER)));
+    }
+
     @Test(expected = NumberNotFoundException.class)
     public void shouldThrowNumberNotFoundExceptionsWhenDeleteCallableNumber() {
         callableNumbersService.deleteCallableNumber(UUID.randomUUID());
@@ -8,36 +8,159 @@
 
 package com.messagemedia.numbers.service;
 
+import com.messagemedia.framework.config.JsonConfig;
+import com.messagemedia.numbers.repository.ProvisioningOutboxRepository;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.mappers.AssignmentMapper;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.repository.projections.OutboxEvent;
 import com.messagemedia.numbers.service.client.models.Event;
-import com.messagemedia.numbers.service.client.models.EventNotification;
-import com.messagemedia.numbers.sqs.SQSQueuePublisher;
+import com.messagemedia.numbers.service.client.models.NumberDto;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.TestData.randomAssignNumberDto;
+import static com.messagemedia.numbers.TestData.randomAssignedNumberEntity;
 import static com.messagemedia.numbers.TestData.randomUnassignedNumberDto;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
 public class NotificationServiceTest {
 
     @Mock
-    private SQSQueuePublisher provisioningQueue;
+    private ProvisioningOutboxRepository outboxRepository;
 
-    @InjectMocks
     private NotificationService notificationService;
 
     @Before
     public void setup()  {
-        notificationService = new NotificationService(provisioningQueue);
+        notificationService = notificationService(0);
     }
 
     @Test
     public void testPush() {
-        notificationService.push(Event.NUMBER_UPDATED, randomUnassignedNumberDto());
-        verify(provisioningQueue).publish(any(EventNotification.class));
-        verifyNoMoreInteractions(provisioningQueue);
+        NumberDto numberDto = randomUnassignedNumberDto();
+        notificationService.push(Event.NUMBER_UPDATED, numberDto);
+
+        List<OutboxEvent> events = captureEvents();
+        assertEquals(1, events.size());
+        assertEquals(numberDto.getId(), events.get(0).getNumberId());
+        assertThat(events.get(0).getPayload(), containsString("\"NUMBER_UPDATED\""));
+        assertThat(events.get(0).getPayload(), containsString(numberDto.getPhoneNumber()));
+    }
+
+    @Test
+    public void testPushAll() {
+        notificationService.pushAll(Event.NUMBER_CREATED, Arrays.asList(randomUnassignedNumberDto(), randomUnassignedNumberDto()));
+        assertEquals(2, captureEvents().size());
+    }
+
+    @Test
+    public void shouldNotEnqueueEmptyList() {
+        notificationService.pushAll(Event.NUMBER_CREATED, Collections.emptyList());
+        verifyZeroInteractions(outboxRepository);
+    }
+
+    @Test
+    public void shouldEnqueueGivenAssignment() {
+        NumberEntity numberEntity = randomAssignedNumberEntity();
+        AssignmentEntity removed = numberEntity.getAssignedTo();
+        numberEntity.setAssignedTo(null);
+
+        notificationService.push(Event.NUMBER_UNASSIGNED, numberEntity, removed);
+
+        String payload = captureEvents().get(0).getPayload();
+        assertThat(payload, containsString("\"NUMBER_UNASSIGNED\""));
+        assertThat(payload, containsString(removed.getAccountId()));
+    }
+
+    @Test
+    public void shouldEnqueueNumberWithoutAssignment() {
+        NumberEntity numberEntity = randomAssignedNumberEntity();
+        notificationService.push(Event.NUMBER_DELETED, numberEntity, null);
+        assertThat(captureEvents().get(0).getPayload(), not(containsString(numberEntity.getAssignedTo().getAccountId())));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldFoldUpdateIntoPendingAssignment() {
+        NotificationService coalescing = notificationService(1000);
+        NumberDto numberDto = randomUnassignedNumberDto();
+        numberDto.setAssignedTo(randomAssignNumberDto());
+        when(outboxRepository.lockLatestEvents(Collections.singletonList(numberDto.getId()))).thenReturn(
+                Collections.singletonMap(numberDto.getId(), new OutboxEvent(7L, numberDto.getId(), "NUMBER_ASSIGNED", "{}", 0)));
+
+        coalescing.push(Event.ASSIGNMENT_UPDATED, numberDto);
+
+        ArgumentCaptor<Map> payloads = ArgumentCaptor.forClass(Map.class);
+        verify(outboxRepository).updatePayloads(payloads.capture());
+        String payload = (String) payloads.getValue().get(7L);
+        assertThat(payload, containsString("\"NUMBER_ASSIGNED\""));
+        assertThat(payload, not(containsString("ASSIGNMENT_UPDATED")));
+        assertThat(payload, containsString(numberDto.getAssignedTo().getCallbackUrl()));
+        verify(outboxRepository, never()).insertEvents(anyListOf(OutboxEvent.class), any(OffsetDateTime.class), any(OffsetDateTime.class));
+        assertEquals(1L, coalescing.getMetrics().get("coalesced"));
+        assertEquals(0L, coalescing.getMetrics().get("enqueued"));
+    }
+
+    @Test
+    public void shouldNotFoldUpdateIntoPendingUnassignment() {
+        NotificationService coalescing = notificationService(1000);
+        NumberDto numberDto = randomUnassignedNumberDto();
+        when(outboxRepository.lockLatestEvents(Collections.singletonList(numberDto.getId()))).thenReturn(
+                Collections.singletonMap(numberDto.getId(), new OutboxEvent(7L, numberDto.getId(), "NUMBER_UNASSIGNED", "{}", 0)));
+
+        coalescing.push(Event.NUMBER_UPDATED, numberDto);
+
+        verify(outboxRepository, never()).updatePayloads(anyMapOf(Long.class, String.class));
+        verify(outboxRepository).insertEvents(anyListOf(OutboxEvent.class), any(OffsetDateTime.class), any(OffsetDateTime.class));
+        assertEquals(0L, coalescing.getMetrics().get("coalesced"));
+    }
+
+    @Test
+    public void shouldDelayTransitionsByTheWindowWithoutFolding() {
+        NotificationService coalescing = notificationService(1000);
+
+        coalescing.push(Event.NUMBER_ASSIGNED, randomUnassignedNumberDto());
+
+        ArgumentCaptor<OffsetDateTime> now = ArgumentCaptor.forClass(OffsetDateTime.class);
+        ArgumentCaptor<OffsetDateTime> due = ArgumentCaptor.forClass(OffsetDateTime.class);
+        verify(outboxRepository).insertEvents(anyListOf(OutboxEvent.class), now.capture(), due.capture());
+        verify(outboxRepository, never()).lockLatestEvents(anyCollectionOf(UUID.class));
+        assertEquals(now.getValue().plusSeconds(1), due.getValue());
+    }
+
+    private NotificationService notificationService(long coalesceWindowMillis) {
+        return new NotificationService(outboxRepository, Mappers.getMapper(NumbersMapper.class),
+                Mappers.getMapper(AssignmentMapper.class), new JsonConfig().fastMapper(), coalesceWindowMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OutboxEvent> captureEvents() {
+        ArgumentCaptor<List> events = ArgumentCaptor.forClass(List.class);
+        verify(outboxRepository).insertEvents(events.capture(), any(OffsetDateTime.class), any(OffsetDateTime.class));
+        verifyNoMoreInteractions(outboxRepository);
+        return events.getValue();
     }
 }
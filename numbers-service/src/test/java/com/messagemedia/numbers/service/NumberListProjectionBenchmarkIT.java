@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service;
+
+import com.messagemedia.framework.config.impl.SpringProfileCalculator;
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.framework.test.DataProviderSpringRunner;
+import com.messagemedia.numbers.config.ServiceTestConfig;
+import com.messagemedia.numbers.repository.AssignmentRepository;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.messagemedia.numbers.TestData.randomAssignmentEntityWithoutNumberEntity;
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberEntity;
+import static com.messagemedia.numbers.service.client.models.NumberSearchRequest.NumberSearchRequestBuilder.aNumberSearchRequestBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares listing a 1000 number page the way it was listed before projections, as a counted page of managed entities
+ * whose assignments are loaded with them, with listing it through {@link
+ * com.messagemedia.numbers.repository.projections.NumberView}s, both mapped to {@link NumberDto}s as the controller
+ * does. Time is only logged, the allocation difference is asserted.
+ */
+@ActiveProfiles(SpringProfileCalculator.DEFAULT_ENVIRONMENT)
+@ContextConfiguration(classes = {ServiceTestConfig.class})
+@RunWith(DataProviderSpringRunner.class)
+public class NumberListProjectionBenchmarkIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NumberListProjectionBenchmarkIT.class);
+
+    private static final int NUMBERS = 2000;
+    private static final int PAGE_SIZE = 1000;
+    private static final int WARM_UP_ITERATIONS = 5;
+    private static final int ITERATIONS = 20;
+
+    @Autowired
+    private NumbersService numbersService;
+
+    @Autowired
+    private NumbersRepository numbersRepository;
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    private final NumbersMapper numbersMapper = Mappers.getMapper(NumbersMapper.class);
+
+    @Before
+    public void setup() {
+        clean();
+        List<NumberEntity> numbers = new ArrayList<>();
+        for (int i = 0; i < NUMBERS; i++) {
+            numbers.add(randomUnassignedNumberEntity());
+        }
+        numbers = numbersRepository.saveAll(numbers);
+        List<AssignmentEntity> assignments = new ArrayList<>();
+        for (int i = 0; i < NUMBERS; i += 2) {
+            AssignmentEntity assignment = randomAssignmentEntityWithoutNumberEntity();
+            assignment.setNumberEntity(numbers.get(i));
+            assignments.add(assignment);
+        }
+        assignmentRepository.saveAll(assignments);
+    }
+
+    @After
+    public void clean() {
+        assignmentRepository.deleteAllInBatch();
+        numbersRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void shouldListPageThroughProjectionWithLessAllocation() {
+        NumberSearchRequest request = aNumberSearchRequestBuilder().withPageSize(PAGE_SIZE).build();
+        Supplier<List<NumberDto>> entities = this::listEntities;
+        Supplier<List<NumberDto>> views = () -> numbersMapper.toNumberDtoListFromViews(numbersService.getNumbers(request, null).getNumbers());
+
+        List<NumberDto> entityPage = entities.get();
+        assertEquals(PAGE_SIZE / 2, entityPage.stream().filter(number -> number.getAssignedTo() != null).count());
+        assertSamePage(entityPage, views.get());
+
+        Measurement entityMeasurement = measure(entities);
+        Measurement viewMeasurement = measure(views);
+        LOGGER.info("Entity page: {} bytes, {} us. Projection page: {} bytes, {} us.",
+                entityMeasurement.bytesPerPage, entityMeasurement.microsPerPage,
+                viewMeasurement.bytesPerPage, viewMeasurement.microsPerPage);
+        assertTrue(viewMeasurement.bytesPerPage < entityMeasurement.bytesPerPage);
+    }
+
+    /**
+     * The listing before projections: one more number than the page for the token, counted, with the assignment of
+     * each number loaded as it is read, and the extra number dropped before mapping.
+     */
+    private List<NumberDto> listEntities() {
+        Pageable pageable = PageRequest.of(0, PAGE_SIZE + 1, new Sort(Sort.Direction.ASC, "id"));
+        List<NumberEntity> numbers = numbersRepository.findAll(pageable).getContent();
+        return numbersMapper.toNumberDtoList(numbers.subList(0, PAGE_SIZE));
+    }
+
+    private static void assertSamePage(List<NumberDto> expected, List<NumberDto> actual) {
+        assertEquals(PAGE_SIZE, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            NumberDto expectedNumber = expected.get(i);
+            NumberDto actualNumber = actual.get(i);
+            assertEquals(expectedNumber.getId(), actualNumber.getId());
+            assertEquals(expectedNumber.getPhoneNumber(), actualNumber.getPhoneNumber());
+            assertEquals(expectedNumber.getCapabilities(), actualNumber.getCapabilities());
+            assertEquals(expectedNumber.getStatus(), actualNumber.getStatus());
+            assertEquals(expectedNumber.getCreated(), actualNumber.getCreated());
+            assertEquals(expectedNumber.getUpdated(), actualNumber.getUpdated());
+            assertEquals(expectedNumber.getAvailableAfter(), actualNumber.getAvailableAfter());
+            if (expectedNumber.getAssignedTo() == null) {
+                assertEquals(null, actualNumber.getAssignedTo());
+            } else {
+                assertEquals(expectedNumber.getAssignedTo().getId(), actualNumber.getAssignedTo().getId());
+                assertEquals(expectedNumber.getAssignedTo().getNumberId(), actualNumber.getAssignedTo().getNumberId());
+                assertEquals(expectedNumber.getAssignedTo().getMetadata(), actualNumber.getAssignedTo().getMetadata());
+                assertEquals(expectedNumber.getAssignedTo().getCreated(), actualNumber.getAssignedTo().getCreated());
+            }
+        }
+    }
+
+    private static Measurement measure(Supplier<List<NumberDto>> listing) {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            listing.get();
+        }
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            listing.get();
+        }
+        return new Measurement((allocatedBytes() - bytes) / ITERATIONS, (System.nanoTime() - start) / ITERATIONS / 1000);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static final class Measurement {
+
+        private final long bytesPerPage;
+        private final long microsPerPage;
+
+        private Measurement(long bytesPerPage, long microsPerPage) {
+            this.bytesPerPage = bytesPerPage;
+            this.microsPerPage = microsPerPage;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service;
+
+import com.messagemedia.numbers.exception.NumberBatchRequestInvalidException;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.service.client.models.Event;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import com.messagemedia.numbers.service.event.NumberChangedEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NumberRegistrationServiceTest {
+
+    @Mock
+    private NumbersRepository numbersRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private NumberRegistrationService numberRegistrationService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(numbersRepository.findRegisteredPhoneNumbers(anyCollectionOf(String.class))).thenReturn(Collections.emptyList());
+        numberRegistrationService = new NumberRegistrationService(numbersRepository, eventPublisher, notificationService,
+                Mappers.getMapper(NumbersMapper.class), transactionManager, 5, 2);
+        ReflectionTestUtils.setField(numberRegistrationService, "entityManager", entityManager);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldRegisterInChunksAndReportDuplicates() {
+        NumberEntity first = randomUnassignedNumberEntity();
+        NumberEntity registered = randomUnassignedNumberEntity();
+        NumberEntity third = randomUnassignedNumberEntity();
+        NumberEntity repeated = randomUnassignedNumberEntity();
+        repeated.setPhoneNumber(first.getPhoneNumber());
+        when(numbersRepository.findRegisteredPhoneNumbers(Arrays.asList(first.getPhoneNumber(), registered.getPhoneNumber())))
+                .thenReturn(Collections.singletonList(registered.getPhoneNumber()));
+
+        List<Optional<NumberEntity>> results = numberRegistrationService.registerNumbers(Arrays.asList(first, registered, third, repeated));
+
+        assertEquals(Arrays.asList(Optional.of(first), Optional.empty(), Optional.of(third), Optional.empty()), results);
+        verify(entityManager).persist(first);
+        verify(entityManager).persist(third);
+        verify(entityManager, never()).persist(registered);
+        verify(entityManager, never()).persist(repeated);
+        // one transaction, so one audit revision, per chunk
+        verify(transactionManager, times(2)).commit(any());
+        verify(eventPublisher, times(2)).publishEvent(any(NumberChangedEvent.class));
+        // the events of a chunk are enqueued in its transaction
+        ArgumentCaptor<List> enqueued = ArgumentCaptor.forClass(List.class);
+        verify(notificationService, times(2)).pushAll(eq(Event.NUMBER_CREATED), enqueued.capture());
+        assertEquals(first.getId(), ((NumberDto) enqueued.getAllValues().get(0).get(0)).getId());
+        assertEquals(third.getId(), ((NumberDto) enqueued.getAllValues().get(1).get(0)).getId());
+    }
+
+    @Test
+    public void shouldRetryChunkWhenConcurrentRegistrationConflicts() {
+        NumberEntity number = randomUnassignedNumberEntity();
+        doThrow(new DataIntegrityViolationException("uidx_phonenumber_deleted_partial"))
+                .doNothing()
+                .when(transactionManager).commit(any());
+        when(numbersRepository.findRegisteredPhoneNumbers(Collections.singletonList(number.getPhoneNumber())))
+                .thenReturn(Collections.emptyList())
+                .thenReturn(Collections.singletonList(number.getPhoneNumber()));
+
+        List<Optional<NumberEntity>> results = numberRegistrationService.registerNumbers(Collections.singletonList(number));
+
+        assertFalse(results.get(0).isPresent());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test(expected = NumberBatchRequestInvalidException.class)
+    public void shouldRejectTooManyNumbers() {
+        numberRegistrationService.registerNumbers(Arrays.asList(randomUnassignedNumberEntity(), randomUnassignedNumberEntity(),
+                randomUnassignedNumberEntity(), randomUnassignedNumberEntity(), randomUnassignedNumberEntity(),
+                randomUnassignedNumberEntity()));
+    }
+
+    @Test(expected = NumberBatchRequestInvalidException.class)
+    public void shouldRejectEmptyBatch() {
+        numberRegistrationService.registerNumbers(Collections.emptyList());
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service;
+
+import com.messagemedia.framework.config.impl.SpringProfileCalculator;
+import com.messagemedia.framework.jackson.core.valuewithnull.ValueWithNull;
+import com.messagemedia.numbers.config.ServiceTestConfig;
+import com.messagemedia.numbers.exception.NumberAvailableAfterUpdateException;
+import com.messagemedia.numbers.model.dto.BulkUpdateFailure;
+import com.messagemedia.numbers.model.dto.BulkUpdateResponse;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
+import com.messagemedia.numbers.service.client.models.Classification;
+import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
+import com.messagemedia.numbers.service.client.models.NumberType;
+import com.messagemedia.numbers.service.client.models.Status;
+import com.messagemedia.numbers.service.client.models.UpdateAssignmentRequest;
+import org.hibernate.envers.AuditReader;
+import org.hibernate.envers.AuditReaderFactory;
+import org.hibernate.envers.RevisionType;
+import org.hibernate.envers.query.AuditEntity;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceContextType;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static com.messagemedia.numbers.TestData.randomAssignmentEntityWithoutNumberEntity;
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberEntity;
+import static com.messagemedia.numbers.TestData.updateNumberRequest;
+import static com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest.NumberAssignmentSearchRequestBuilder.aNumberAssignmentSearchRequestBuilder;
+import static com.messagemedia.numbers.service.client.models.NumberSearchRequest.NumberSearchRequestBuilder.aNumberSearchRequestBuilder;
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.RandomStringUtils.randomAlphanumeric;
+import static org.apache.commons.lang3.RandomStringUtils.randomNumeric;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+@ActiveProfiles(SpringProfileCalculator.DEFAULT_ENVIRONMENT)
+@ContextConfiguration(classes = {ServiceTestConfig.class})
+@RunWith(SpringJUnit4ClassRunner.class)
+public class NumbersBulkUpdateServiceIT {
+
+    @PersistenceContext(type = PersistenceContextType.EXTENDED)
+    private EntityManager entityManager;
+
+    @Autowired
+    private NumbersService numbersService;
+
+    @Autowired
+    private NumbersRepository numbersRepository;
+
+    @Autowired
+    private NumbersBulkUpdateService numbersBulkUpdateService;
+
+    @Test
+    public void shouldApplyTollFreeStatusRulesPerNumber() {
+        String prefix = "+1555" + randomNumeric(7);
+        NumberEntity assignedTollFree = registerNumber(prefix + "1", NumberType.TOLL_FREE);
+        numbersService.assignNumberToAccount(assignedTollFree.getId(), randomAssignmentEntityWithoutNumberEntity());
+        NumberEntity unassignedTollFree = registerNumber(prefix + "2", NumberType.TOLL_FREE);
+        NumberEntity mobile = registerNumber(prefix + "3", NumberType.MOBILE);
+
+        BulkUpdateResponse response = numbersBulkUpdateService.updateNumbers(matching(prefix), PhoneNumberPattern.Mode.PREFIX,
+                updateNumberRequest(null, null, null, null, Status.ASSIGNED, null));
+
+        assertThat(response.getMatched(), is(3));
+        assertThat(response.getUpdated(), is(1));
+        assertThat(response.getFailed(), is(2));
+        assertThat(response.getFailures().stream().map(BulkUpdateFailure::getNumberId).collect(toList()),
+                containsInAnyOrder(unassignedTollFree.getId(), mobile.getId()));
+        assertThat(numbersRepository.findById(assignedTollFree.getId()).get().getStatus(), is(Status.ASSIGNED));
+        assertThat(numbersRepository.findById(unassignedTollFree.getId()).get().getStatus(), nullValue());
+
+        AuditReader reader = AuditReaderFactory.get(entityManager);
+        List<?> revisions = reader.createQuery().forRevisionsOfEntity(NumberEntity.class, false, true)
+                .add(AuditEntity.id().eq(assignedTollFree.getId()))
+                .getResultList();
+        Object[] updated = (Object[]) revisions.get(revisions.size() - 1);
+        assertThat(updated[2], is(RevisionType.MOD));
+        assertThat(((NumberEntity) updated[0]).getStatus(), is(Status.ASSIGNED));
+    }
+
+    @Test
+    public void shouldNotMakeAssignedNumbersAvailable() {
+        String prefix = "+1555" + randomNumeric(7);
+        NumberEntity assigned = registerNumber(prefix + "1", NumberType.MOBILE);
+        numbersService.assignNumberToAccount(assigned.getId(), randomAssignmentEntityWithoutNumberEntity());
+        NumberEntity unassigned = registerNumber(prefix + "2", NumberType.MOBILE);
+        Classification classification = assigned.getClassification() == Classification.GOLD ? Classification.SILVER : Classification.GOLD;
+
+        BulkUpdateResponse response = numbersBulkUpdateService.updateNumbers(matching(prefix), PhoneNumberPattern.Mode.PREFIX,
+                updateNumberRequest(classification, null, ValueWithNull.of(OffsetDateTime.now().plusDays(1)), null, null, null));
+
+        assertThat(response.getUpdated(), is(1));
+        assertThat(response.getFailures().get(0).getMessage(), is(new NumberAvailableAfterUpdateException(assigned.getId()).getMessage()));
+        NumberEntity updated = numbersRepository.findById(unassigned.getId()).get();
+        assertThat(updated.getClassification(), is(classification));
+        assertThat(updated.getAvailableAfter(), notNullValue());
+        assertThat(numbersRepository.findById(assigned.getId()).get().getClassification(), is(not(classification)));
+    }
+
+    @Test
+    public void shouldUpdateAssignmentsOfAccount() {
+        AssignmentEntity first = assignNewNumber("bulk-" + randomAlphanumeric(10));
+        AssignmentEntity second = assignNewNumber(first.getAccountId());
+        AssignmentEntity otherAccount = assignNewNumber("bulk-" + randomAlphanumeric(10));
+
+        BulkUpdateResponse response = numbersBulkUpdateService.updateAssignments(aNumberAssignmentSearchRequestBuilder()
+                        .withVendorId(first.getVendorId())
+                        .withAccountId(first.getAccountId())
+                        .withPageSize(10)
+                        .build(), null,
+                new UpdateAssignmentRequest(null, null, ValueWithNull.of("relabelled")));
+
+        assertThat(response.getMatched(), is(2));
+        assertThat(response.getUpdated(), is(2));
+        AssignmentEntity relabelled = numbersRepository.findById(second.getNumberEntity().getId()).get().getAssignedTo();
+        assertThat(relabelled.getLabel(), is("relabelled"));
+        assertThat(relabelled.getCallbackUrl(), is(second.getCallbackUrl()));
+        assertThat(numbersRepository.findById(otherAccount.getNumberEntity().getId()).get().getAssignedTo().getLabel(),
+                is(otherAccount.getLabel()));
+
+        List<?> revisions = AuditReaderFactory.get(entityManager).createQuery()
+                .forRevisionsOfEntity(AssignmentEntity.class, false, true)
+                .add(AuditEntity.id().eq(first.getId()))
+                .getResultList();
+        assertThat(revisions.size(), is(2));
+        assertThat(((Object[]) revisions.get(1))[2], is(RevisionType.MOD));
+        assertThat(((AssignmentEntity) ((Object[]) revisions.get(1))[0]).getLabel(), is("relabelled"));
+    }
+
+    private NumberSearchRequest matching(String prefix) {
+        return aNumberSearchRequestBuilder().withPageSize(10).withMatching(prefix).build();
+    }
+
+    private NumberEntity registerNumber(String phoneNumber, NumberType type) {
+        NumberEntity number = randomUnassignedNumberEntity();
+        number.setPhoneNumber(phoneNumber);
+        number.setCountry("US");
+        number.setType(type);
+        return numbersService.registerNumber(number);
+    }
+
+    private AssignmentEntity assignNewNumber(String accountId) {
+        NumberEntity number = numbersService.registerNumber(randomUnassignedNumberEntity());
+        AssignmentEntity assignment = randomAssignmentEntityWithoutNumberEntity();
+        assignment.setVendorId("bulk-update-vendor");
+        assignment.setAccountId(accountId);
+        return numbersService.assignNumberToAccount(number.getId(), assignment);
+    }
+}
@@ -9,10 +9,12 @@
 package com.messagemedia.numbers.service;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.messagemedia.domainmodels.accounts.VendorAccountId;
 import com.messagemedia.framework.config.impl.SpringProfileCalculator;
 import com.messagemedia.framework.jackson.core.valuewithnull.ValueWithNull;
 import com.messagemedia.framework.test.DataProviderSpringRunner;
 import com.messagemedia.numbers.config.ServiceTestConfig;
+import com.messagemedia.numbers.config.StatementCountingDataSource;
 import com.messagemedia.numbers.exception.DeleteAssignedNumberException;
 import com.messagemedia.numbers.exception.NotUsTollFreeNumberException;
 import com.messagemedia.numbers.exception.NumberAvailableAfterUpdateException;
@@ -27,6 +29,7 @@ import com.messagemedia.numbers.service.client.models.Classification;
 import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
 import com.messagemedia.numbers.service.client.models.ServiceType;
 import com.messagemedia.numbers.service.client.models.UpdateNumberRequest;
+import com.messagemedia.numbers.service.event.NumberChangeFeed;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
 import org.junit.After;
@@ -40,13 +43,19 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.UUID;
 
 import static com.messagemedia.numbers.TestData.mockUpAmsEndpoint;
+import static com.messagemedia.numbers.TestData.randomAssignedNumberEntity;
 import static com.messagemedia.numbers.TestData.randomAssignmentEntityWithoutNumberEntity;
 import static com.messagemedia.numbers.TestData.randomCapabilities;
 import static com.messagemedia.numbers.TestData.randomDedicatedReceiver;
@@ -56,10 +65,14 @@ import static com.messagemedia.numbers.TestData.randomUpdateNumberRequestWithAva
 import static com.messagemedia.numbers.TestData.randomClassification;
 import static com.messagemedia.numbers.TestData.randomUpdateNumberRequestWithoutAvailableAfter;
 import static com.messagemedia.numbers.TestData.randomUpdateNumberRequestWithOnlyStatus;
+import static com.messagemedia.numbers.TestData.randomVendorAccountId;
 import static com.messagemedia.numbers.TestData.unassignedUsTollFreeNumberEntity;
+import static com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest.NumberAssignmentSearchRequestBuilder.aNumberAssignmentSearchRequestBuilder;
+import static com.messagemedia.numbers.service.client.models.NumberSearchRequest.NumberSearchRequestBuilder.aNumberSearchRequestBuilder;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 @ActiveProfiles(SpringProfileCalculator.DEFAULT_ENVIRONMENT)
@@ -81,6 +94,15 @@ public class NumbersServiceIT {
     @Autowired
     private AssignmentRepository assignmentRepository;
 
+    @Autowired
+    private NumberChangeFeed numberChangeFeed;
+
+    @Autowired
+    private StatementCountingDataSource statementCountingDataSource;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Before
     public void setup() throws Exception {
         this.clean();
@@ -93,6 +115,107 @@ public class NumbersServiceIT {
         numbersRepository.deleteAllInBatch();
     }
 
+    @Test
+    public void shouldListNumbersAndAssignmentsWithTheirAssignments() {
+        VendorAccountId vendorAccountId = randomVendorAccountId();
+        for (int i = 0; i < 30; i++) {
+            NumberEntity number = randomAssignedNumberEntity(vendorAccountId);
+            AssignmentEntity assignment = number.getAssignedTo();
+            number.setAssignedTo(null);
+            numbersRepository.save(number);
+            assignmentRepository.save(assignment);
+            numbersRepository.save(randomUnassignedNumberEntity());
+        }
+
+        NumberViewListResult numbers = numbersService.getNumbers(aNumberSearchRequestBuilder().withPageSize(50).build(), null);
+        assertEquals(50, numbers.getNumbers().size());
+        assertEquals(30, numbers.getNumbers().stream().filter(number -> number.getAssignedTo() != null).count());
+        assertNotNull(numbers.getToken());
+
+        NumberViewListResult assigned = numbersService.getNumberAssignments(aNumberAssignmentSearchRequestBuilder()
+                .withVendorId(vendorAccountId.getVendorId().getVendorId())
+                .withAccountId(vendorAccountId.getAccountId().getAccountId())
+                .withPageSize(20)
+                .build(), null);
+        assertEquals(20, assigned.getNumbers().size());
+        assigned.getNumbers().forEach(number -> assertEquals(vendorAccountId.getAccountId().getAccountId(),
+                number.getAssignedTo().getAccountId()));
+    }
+
+    @Test
+    public void shouldListAPageOfNumbersAndAssignmentsWithASingleStatement() {
+        VendorAccountId vendorAccountId = randomVendorAccountId();
+        List<NumberEntity> numbers = new ArrayList<>();
+        List<AssignmentEntity> assignments = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            NumberEntity number = randomAssignedNumberEntity(vendorAccountId);
+            assignments.add(number.getAssignedTo());
+            number.setAssignedTo(null);
+            numbers.add(number);
+        }
+        numbersRepository.saveAll(numbers);
+        assignmentRepository.saveAll(assignments);
+
+        statementCountingDataSource.resetStatementCount();
+        NumberViewListResult small = numbersService.getNumbers(aNumberSearchRequestBuilder().withPageSize(10).build(), null);
+        assertEquals(10, small.getNumbers().size());
+        assertEquals(1, statementCountingDataSource.getStatementCount());
+
+        statementCountingDataSource.resetStatementCount();
+        NumberViewListResult page = numbersService.getNumbers(aNumberSearchRequestBuilder().withPageSize(1000).build(), null);
+        assertEquals(1000, page.getNumbers().size());
+        assertTrue(page.getNumbers().stream().allMatch(number -> number.getAssignedTo() != null));
+        assertNotNull(page.getToken());
+        assertEquals(1, statementCountingDataSource.getStatementCount());
+
+        statementCountingDataSource.resetStatementCount();
+        NumberViewListResult assigned = numbersService.getNumberAssignments(aNumberAssignmentSearchRequestBuilder()
+                .withVendorId(vendorAccountId.getVendorId().getVendorId())
+                .withAccountId(vendorAccountId.getAccountId().getAccountId())
+                .withPageSize(1000)
+                .build(), null);
+        assertEquals(1000, assigned.getNumbers().size());
+        assertEquals(1, statementCountingDataSource.getStatementCount());
+    }
+
+    @Test
+    public void shouldLookupNumbersByIdAndPhoneNumberInRequestOrder() {
+        NumberEntity unassigned = numbersRepository.save(randomUnassignedNumberEntity());
+        NumberEntity assigned = numbersRepository.save(randomUnassignedNumberEntity());
+        AssignmentEntity assignment = randomAssignmentEntityWithoutNumberEntity();
+        assignment.setNumberEntity(assigned);
+        assignmentRepository.save(assignment);
+
+        List<Optional<NumberEntity>> numbers = numbersService.lookupNumbers(Arrays.asList(
+                assigned.getPhoneNumber(), UUID.randomUUID().toString(), unassigned.getId().toString(), "+61000000000"));
+
+        assertEquals(4, numbers.size());
+        assertEquals(assigned.getId(), numbers.get(0).get().getId());
+        assertEquals(assignment.getId(), numbers.get(0).get().getAssignedTo().getId());
+        assertFalse(numbers.get(1).isPresent());
+        assertEquals(unassigned.getId(), numbers.get(2).get().getId());
+        assertEquals(null, numbers.get(2).get().getAssignedTo());
+        assertFalse(numbers.get(3).isPresent());
+    }
+
+    @Test
+    public void shouldReadAssignmentChangedByAnotherInstance() {
+        NumberEntity number = numbersRepository.save(randomUnassignedNumberEntity());
+        AssignmentEntity assignment = randomAssignmentEntityWithoutNumberEntity();
+        assignment.setNumberEntity(number);
+        assignmentRepository.save(assignment);
+        assertEquals(assignment.getAccountId(), numbersService.loadAssignmentDetailsByNumberId(number.getId()).getAccountId());
+        assertEquals(assignment.getAccountId(), numbersService.getCachedNumber(number.getId()).getAssignedTo().getAccountId());
+
+        // removed without going through this service, so no change event is published here
+        assignmentRepository.deleteAllInBatch();
+
+        assertNull(numbersService.getNumber(number.getId()).getAssignedTo());
+        // the change feed tells the cache, as it does for changes made by another instance
+        numberChangeFeed.poll();
+        assertNull(numbersService.getCachedNumber(number.getId()).getAssignedTo());
+    }
+
     @Test
     @Transactional
     public void shouldRegisterNumber() {
@@ -130,8 +253,10 @@ public class NumbersServiceIT {
         capsForSearch[0] = ServiceType.SMS;
 
         request.setServiceTypes(capsForSearch);
+        // the list reads through the connection of the transaction, so the registered numbers have to be flushed to it
+        entityManager.flush();
 
-        NumberListResult resultList = numbersService.getNumbers(request);
+        NumberViewListResult resultList = numbersService.getNumbers(request, null);
         assertNotNull(resultList);
         assertTrue(resultList.getNumbers().size() > 0);
         assertEquals(1, resultList.getNumbers().get(0).getCapabilities().size());
@@ -158,8 +283,10 @@ public class NumbersServiceIT {
         capsForSearch[0] = ServiceType.SMS;
 
         request.setServiceTypes(capsForSearch);
+        // the list reads through the connection of the transaction, so the registered numbers have to be flushed to it
+        entityManager.flush();
 
-        NumberListResult resultList = numbersService.getNumbers(request);
+        NumberViewListResult resultList = numbersService.getNumbers(request, null);
         assertNotNull(resultList);
         assertTrue(resultList.getNumbers().size() > 1);
 
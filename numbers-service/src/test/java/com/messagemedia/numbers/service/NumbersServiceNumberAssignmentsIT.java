@@ -27,6 +27,7 @@ import com.messagemedia.numbers.repository.AssignmentRepository;
 import com.messagemedia.numbers.repository.NumbersRepository;
 import com.messagemedia.numbers.repository.entities.AssignmentEntity;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.projections.NumberView;
 import com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest;
 import com.messagemedia.numbers.service.client.models.UpdateAssignmentRequest;
 import com.messagemedia.service.accountmanagement.client.ServiceAccountManagementClient;
@@ -131,11 +132,12 @@ public class NumbersServiceNumberAssignmentsIT {
                 .withAccountId(vendorAccountId.getAccountId().getAccountId())
                 .build();
 
-        List<NumberEntity> expected = ImmutableList.of(numberEntity0, numberEntity1, numberEntity2).stream()
-                .map(e -> numbersService.getNumber(e.getId())).collect(Collectors.toList());
+        List<UUID> expected = ImmutableList.of(numberEntity0, numberEntity1, numberEntity2).stream()
+                .map(NumberEntity::getId).collect(Collectors.toList());
 
-        NumberListResult result = numbersService.getNumberAssignments(searchRequest);
-        expected.stream().forEach(e -> assertTrue(result.getNumbers().contains(e)));
+        NumberViewListResult result = numbersService.getNumberAssignments(searchRequest, null);
+        List<UUID> actual = result.getNumbers().stream().map(NumberView::getId).collect(Collectors.toList());
+        expected.forEach(id -> assertTrue(actual.contains(id)));
         assertThat(result.getNumbers().size(), equalTo(3));
     }
 
@@ -14,10 +14,16 @@ import com.messagemedia.numbers.repository.AssignmentRepository;
 import com.messagemedia.numbers.repository.NumbersRepository;
 import com.messagemedia.numbers.repository.entities.AssignmentEntity;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.projections.NumberView;
+import com.messagemedia.numbers.repository.search.PhoneNumberPattern;
+import com.messagemedia.numbers.service.client.models.Event;
 import com.messagemedia.numbers.service.client.models.NumberAssignmentSearchRequest;
 import com.messagemedia.numbers.service.client.models.NumberSearchRequest;
 import com.messagemedia.numbers.service.client.models.UpdateAssignmentRequest;
 import com.messagemedia.numbers.service.client.models.UpdateNumberRequest;
+import com.messagemedia.numbers.service.billing.BillingNotificationService;
+import com.messagemedia.numbers.service.cache.NumberCache;
+import com.messagemedia.numbers.service.event.NumberChangedEvent;
 import com.messagemedia.service.accountmanagement.client.exception.ServiceAccountManagementNotFoundException;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
@@ -25,17 +31,19 @@ import com.tngtech.java.junit.dataprovider.UseDataProvider;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -48,6 +56,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -66,12 +75,50 @@ public class NumbersServiceTest {
     @Mock
     private AccountReassignVerificationService accountReassignVerificationService;
 
+    @Mock
+    private NumberCache numberCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private BillingNotificationService billingNotificationService;
+
     @InjectMocks
     private NumbersService numbersService;
 
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(numbersService, "lookupMaxItems", 3);
+    }
+
+    @Test
+    public void shouldLookupNumbersInRequestOrder() {
+        NumberEntity byId = randomUnassignedNumberEntity();
+        NumberEntity byPhoneNumber = randomAssignedNumberEntity();
+        when(numbersRepository.findAll(any(Specification.class))).thenReturn(Arrays.asList(byPhoneNumber, byId));
+
+        List<Optional<NumberEntity>> numbers = numbersService.lookupNumbers(
+                Arrays.asList(byId.getId().toString(), "+61000000000", " " + byPhoneNumber.getPhoneNumber()));
+
+        assertEquals(Optional.of(byId), numbers.get(0));
+        assertEquals(Optional.empty(), numbers.get(1));
+        assertEquals(Optional.of(byPhoneNumber), numbers.get(2));
+        verify(numbersRepository, Mockito.times(1)).findAll(any(Specification.class));
+    }
+
+    @Test(expected = NumberLookupRequestInvalidException.class)
+    public void shouldRejectLookupOverMaxItems() {
+        numbersService.lookupNumbers(Arrays.asList("1", "2", "3", "4"));
+    }
+
+    @Test(expected = NumberLookupRequestInvalidException.class)
+    public void shouldRejectEmptyLookup() {
+        numbersService.lookupNumbers(Collections.emptyList());
     }
 
     @Test
@@ -91,6 +138,14 @@ public class NumbersServiceTest {
         when(assignmentVerificationService.isValidForNewAssignment(any(), any(), any())).thenReturn(true);
         AssignmentEntity dbAssignmentEntity = numbersService.assignNumberToAccount(numberEntity.getId(), assignmentEntity);
         assertAssignmentsEquals(assignmentEntity, dbAssignmentEntity);
+
+        ArgumentCaptor<NumberChangedEvent> eventCaptor = ArgumentCaptor.forClass(NumberChangedEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        assertEquals(numberEntity.getPhoneNumber(), eventCaptor.getValue().getPhoneNumber());
+        assertEquals(assignmentEntity.getAccountId(), eventCaptor.getValue().getRoute().getAccountId());
+        verify(notificationService).push(Event.NUMBER_ASSIGNED, numberEntity, assignmentEntity);
+        verify(billingNotificationService).sendAddNotification(
+                new VendorAccountId(assignmentEntity.getVendorId(), assignmentEntity.getAccountId()), numberEntity);
     }
 
     @Test
@@ -103,6 +158,8 @@ public class NumbersServiceTest {
         when(assignmentRepository.save(newAssignmentEntity)).thenReturn(newAssignmentEntity);
         final AssignmentEntity assignmentEntity = numbersService.reassignNumber(numberEntity.getId(), newAssignmentEntity);
         assertAssignmentsEquals(newAssignmentEntity, assignmentEntity);
+        assertEquals(newAssignmentEntity.getVendorId(), numberEntity.getLastVendorId());
+        assertEquals(newAssignmentEntity.getAccountId(), numberEntity.getLastAccountId());
     }
 
     @Test(expected = NumberNotFoundException.class)
@@ -208,24 +265,44 @@ public class NumbersServiceTest {
     }
 
     @Test
-    public void shouldGetNumberList() {
-        NumberEntity numberEntity0 = randomAssignedNumberEntity();
-        NumberEntity numberEntity1 = randomUnassignedNumberEntity();
-        NumberEntity numberEntity2 = randomAssignedNumberEntity();
+    public void shouldGetCachedNumber() {
+        NumberEntity numberEntity = randomAssignedNumberEntity();
+        when(numberCache.get(numberEntity.getId())).thenReturn(Optional.of(numberEntity));
+        assertEquals(numberEntity, numbersService.getCachedNumber(numberEntity.getId()));
+        verify(numbersRepository, never()).findById(any());
+    }
 
+    @Test(expected = NumberNotFoundException.class)
+    public void shouldThrowNumberNotFoundExceptionWhenGetCachedNumber() {
+        when(numberCache.get(any())).thenReturn(Optional.empty());
+        numbersService.getCachedNumber(UUID.randomUUID());
+    }
+
+    @Test
+    public void shouldGetNumberList() {
+        List<NumberView> expected = toNumberViews(Arrays.asList(randomAssignedNumberEntity(), randomUnassignedNumberEntity(),
+                randomAssignedNumberEntity()));
         NumberSearchRequest numberSearchRequest =
                 aNumberSearchRequestBuilder().withPageSize(40).withToken(UUID.randomUUID()).withCountry("AU").build();
-        Page<NumberEntity> numberEntities = Mockito.mock(Page.class);
-        List<NumberEntity> expected = Arrays.asList(numberEntity0, numberEntity1, numberEntity2);
-        when(numberEntities.getContent()).thenReturn(expected);
-
-        when(numbersRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(numberEntities);
+        when(numbersRepository.findViews(any(NumberSearchRequest.class), any(PhoneNumberPattern.Mode.class), eq(41))).thenReturn(expected);
 
-        NumberListResult result = numbersService.getNumbers(numberSearchRequest);
+        NumberViewListResult result = numbersService.getNumbers(numberSearchRequest, null);
         assertEquals(expected, result.getNumbers());
         assertNull(result.getToken());
     }
 
+    @Test
+    public void shouldListNumberViewsWithNextPageToken() {
+        List<NumberView> views = toNumberViews(Arrays.asList(randomAssignedNumberEntity(), randomUnassignedNumberEntity(),
+                randomAssignedNumberEntity()));
+        NumberSearchRequest numberSearchRequest = aNumberSearchRequestBuilder().withPageSize(2).withCountry("AU").build();
+        when(numbersRepository.findViews(any(NumberSearchRequest.class), any(PhoneNumberPattern.Mode.class), eq(3))).thenReturn(views);
+
+        NumberViewListResult result = numbersService.getNumbers(numberSearchRequest, null);
+        assertEquals(views.subList(0, 2), result.getNumbers());
+        assertEquals(views.get(2).getId(), result.getToken());
+    }
+
     @DataProvider
     public static Object[][] updateNumberSuccessData() {
         return new Object[][]{
@@ -264,13 +341,25 @@ public class NumbersServiceTest {
     @Test
     public void shouldDisassociateAssignment() {
         NumberEntity assignedNumberEntity = randomAssignedNumberEntity();
+        AssignmentEntity assignmentEntity = assignedNumberEntity.getAssignedTo();
         when(numbersRepository.findById(any(UUID.class))).thenReturn(Optional.of(assignedNumberEntity));
         when(numbersRepository.save(any(NumberEntity.class))).thenReturn(assignedNumberEntity);
 
         numbersService.disassociateAssignment(assignedNumberEntity.getId());
 
+        // the event is about the removed assignment
+        verify(notificationService).push(Event.NUMBER_UNASSIGNED, assignedNumberEntity, assignmentEntity);
+        verify(billingNotificationService).sendRemoveNotification(
+                new VendorAccountId(assignmentEntity.getVendorId(), assignmentEntity.getAccountId()), assignedNumberEntity);
         verify(assignmentRepository).delete(any(AssignmentEntity.class));
         verify(numbersRepository).save(any(NumberEntity.class));
+
+        ArgumentCaptor<NumberChangedEvent> eventCaptor = ArgumentCaptor.forClass(NumberChangedEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        assertEquals(assignedNumberEntity.getId(), eventCaptor.getValue().getNumberId());
+        assertNull(eventCaptor.getValue().getRoute());
+        assertEquals(assignmentEntity.getVendorId(), assignedNumberEntity.getLastVendorId());
+        assertEquals(assignmentEntity.getAccountId(), assignedNumberEntity.getLastAccountId());
     }
 
     @Test
@@ -373,9 +462,8 @@ public class NumbersServiceTest {
     @Test
     public void shouldGetNumberAssignmentList() throws Exception {
         VendorAccountId vendorAccountId = new VendorAccountId("vendorId", "accountId");
-        NumberEntity numberEntity0 = randomAssignedNumberEntity(vendorAccountId);
-        NumberEntity numberEntity1 = randomAssignedNumberEntity(vendorAccountId);
-        NumberEntity numberEntity2 = randomAssignedNumberEntity(vendorAccountId);
+        List<NumberView> expected = toNumberViews(Arrays.asList(randomAssignedNumberEntity(vendorAccountId),
+                randomAssignedNumberEntity(vendorAccountId), randomAssignedNumberEntity(vendorAccountId)));
 
         NumberAssignmentSearchRequest searchRequest = NumberAssignmentSearchRequestBuilder.aNumberAssignmentSearchRequestBuilder()
                 .withVendorId(vendorAccountId.getVendorId().getVendorId())
@@ -384,23 +472,14 @@ public class NumbersServiceTest {
                 .withToken(UUID.randomUUID())
                 .build();
 
-        Page<NumberEntity> numberEntities = Mockito.mock(Page.class);
+        when(numbersRepository.findViews(any(NumberAssignmentSearchRequest.class), any(PhoneNumberPattern.Mode.class), eq(6)))
+                .thenReturn(expected);
 
-        List<NumberEntity> expected = Arrays.asList(numberEntity0, numberEntity1, numberEntity2);
-        when(numberEntities.getContent()).thenReturn(expected);
-
-        when(numbersRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(numberEntities);
-
-        NumberListResult result = numbersService.getNumberAssignments(searchRequest);
+        NumberViewListResult result = numbersService.getNumberAssignments(searchRequest, null);
         assertThat(result.getNumbers(), equalTo(expected));
         assertNull(result.getToken());
     }
 
-    @Test(expected = VendorAccountRequiredException.class)
-    public void shouldThrowExceptionWhenGetNumberAssignmentListWithNoVendorAccount() throws Exception {
-        numbersService.getNumberAssignments(new NumberAssignmentSearchRequest());
-    }
-
     private void assertAssignmentsEquals(AssignmentEntity assignmentEntity, AssignmentEntity comparingAssignmentEntity) {
         assertNotNull(assignmentEntity);
         assertEquals(assignmentEntity, comparingAssignmentEntity);
@@ -198,7 +198,7 @@ public class NumbersServiceTollFreeNumberIT {
                     .withMatchings(matchings)
                     .build();
 
-        NumberListResult result = numbersService.getNumberAssignments(searchRequest);
+        NumberViewListResult result = numbersService.getNumberAssignments(searchRequest, null);
         assertThat(result.getNumbers().size(), Matchers.equalTo(expectedResult));
 
     }
@@ -12,14 +12,15 @@ import com.messagemedia.numbers.repository.AssignmentRepository;
 import com.messagemedia.numbers.repository.NumbersRepository;
 import com.messagemedia.numbers.repository.entities.AssignmentEntity;
 import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.service.billing.BillingNotificationService;
+import com.messagemedia.numbers.service.cache.NumberCache;
+import com.messagemedia.numbers.service.event.NumberChangedEvent;
 import com.messagemedia.numbers.service.event.SlackNotificationEvent;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.context.ApplicationEventPublisher;
@@ -32,6 +33,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -52,11 +54,17 @@ public class NumbersServiceTollFreeNumberTest {
     @Mock
     private AccountReassignVerificationService accountReassignVerificationService;
 
+    @Mock
+    private NumberCache numberCache;
+
     @Mock
     private ApplicationEventPublisher eventPublisher;
 
-    @Captor
-    private ArgumentCaptor<SlackNotificationEvent> eventCaptor;
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private BillingNotificationService billingNotificationService;
 
     private NumbersService numbersService;
 
@@ -64,7 +72,7 @@ public class NumbersServiceTollFreeNumberTest {
     public void setup() throws Exception {
         MockitoAnnotations.initMocks(this);
         this.numbersService = new NumbersService(numbersRepository, assignmentRepository, accountReassignVerificationService,
-                assignmentVerificationService, eventPublisher, SLACK_URL);
+                assignmentVerificationService, numberCache, eventPublisher, notificationService, billingNotificationService, SLACK_URL);
     }
 
     @Test
@@ -82,7 +90,8 @@ public class NumbersServiceTollFreeNumberTest {
 
         // Then
         assertAssignmentsEquals(assignmentEntity, dbAssignmentEntity);
-        verify(this.eventPublisher).publishEvent(this.eventCaptor.capture());
+        verify(this.eventPublisher).publishEvent(isA(SlackNotificationEvent.class));
+        verify(this.eventPublisher).publishEvent(isA(NumberChangedEvent.class));
     }
 
     @Test
@@ -100,7 +109,8 @@ public class NumbersServiceTollFreeNumberTest {
 
         // Then
         assertAssignmentsEquals(newAssignmentEntity, assignmentEntity);
-        verify(this.eventPublisher).publishEvent(this.eventCaptor.capture());
+        verify(this.eventPublisher).publishEvent(isA(SlackNotificationEvent.class));
+        verify(this.eventPublisher).publishEvent(isA(NumberChangedEvent.class));
     }
 
     @Test
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.billing;
+
+import com.messagemedia.framework.config.impl.SpringProfileCalculator;
+import com.messagemedia.numbers.config.ServiceTestConfig;
+import com.messagemedia.numbers.repository.BillingNotificationRepository;
+import com.messagemedia.numbers.repository.entities.BillingNotificationAction;
+import com.messagemedia.numbers.repository.entities.BillingNotificationEntity;
+import com.messagemedia.numbers.repository.projections.BillingNotification;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@ActiveProfiles(SpringProfileCalculator.DEFAULT_ENVIRONMENT)
+@ContextConfiguration(classes = {ServiceTestConfig.class})
+@RunWith(SpringJUnit4ClassRunner.class)
+public class BillingNotificationQueueIT {
+
+    @Autowired
+    private BillingNotificationRepository billingNotificationRepository;
+
+    private List<BillingNotification> notification;
+    private OffsetDateTime now;
+    private OffsetDateTime lease;
+
+    @Before
+    public void setUp() {
+        billingNotificationRepository.deleteAllInBatch();
+        notification = singletonList(new BillingNotification(0, "vendor", "account", "ratePlan", UUID.randomUUID(),
+                BillingNotificationAction.ADD, 0));
+        now = OffsetDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        lease = now.plusMinutes(1);
+    }
+
+    @After
+    public void tearDown() {
+        billingNotificationRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void shouldReplaceUnleasedNotification() {
+        long queued = enqueue();
+
+        assertEquals(queued, enqueue());
+        assertEquals(1, billingNotificationRepository.count());
+    }
+
+    @Test
+    public void shouldQueueBehindLeasedNotification() {
+        long leased = enqueue();
+        assertEquals(1, billingNotificationRepository.claimDue(10, now, lease).size());
+
+        long queued = enqueue();
+        assertNotEquals(leased, queued);
+        assertEquals(lease.toInstant(), billingNotificationRepository.findById(leased).get().getLeasedUntil().toInstant());
+        assertTrue(billingNotificationRepository.claim(singletonList(queued), now, lease).isEmpty());
+
+        billingNotificationRepository.deleteNotification(leased, lease);
+        assertEquals(queued, billingNotificationRepository.claim(singletonList(queued), now, lease).get(0).getId());
+    }
+
+    @Test
+    public void shouldKeepRescheduledNotification() {
+        long leased = enqueue();
+        billingNotificationRepository.claimDue(10, now, lease);
+
+        billingNotificationRepository.reschedule(leased, lease, now.plusMinutes(5), "unavailable");
+
+        BillingNotificationEntity rescheduled = billingNotificationRepository.findById(leased).get();
+        assertEquals(1, rescheduled.getAttempts());
+        assertEquals("unavailable", rescheduled.getLastError());
+        assertNull(rescheduled.getLeasedUntil());
+        assertEquals(leased, enqueue());
+    }
+
+    @Test
+    public void shouldDropRescheduledNotificationQueuedAgainWhileLeased() {
+        long leased = enqueue();
+        billingNotificationRepository.claimDue(10, now, lease);
+        long queued = enqueue();
+
+        billingNotificationRepository.reschedule(leased, lease, now.plusMinutes(5), "unavailable");
+
+        assertFalse(billingNotificationRepository.findById(leased).isPresent());
+        assertEquals(0, billingNotificationRepository.findById(queued).get().getAttempts());
+        assertEquals(1, billingNotificationRepository.count());
+    }
+
+    @Test
+    public void shouldDropParkedNotificationQueuedAgainWhileLeased() {
+        long leased = enqueue();
+        billingNotificationRepository.claimDue(10, now, lease);
+        long queued = enqueue();
+
+        billingNotificationRepository.park(leased, lease, "rejected");
+
+        assertFalse(billingNotificationRepository.findById(leased).isPresent());
+        assertFalse(billingNotificationRepository.findById(queued).get().isParked());
+        assertEquals(0, billingNotificationRepository.countByParked(true));
+    }
+
+    private long enqueue() {
+        return billingNotificationRepository.enqueue(notification, now, now).get(0);
+    }
+}
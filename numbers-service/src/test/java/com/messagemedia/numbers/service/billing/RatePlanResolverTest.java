@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.billing;
+
+import com.messagemedia.domainmodels.accounts.VendorId;
+import com.messagemedia.numbers.repository.BillingRatePlanRepository;
+import com.messagemedia.numbers.repository.entities.BillingRatePlanEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.service.client.models.Classification;
+import com.messagemedia.numbers.service.client.models.NumberType;
+import com.messagemedia.numbers.service.client.models.ServiceType;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RatePlanResolverTest {
+
+    private static final String SMS_BROADCAST_RATE_PLAN_ID = "smsBroadcast";
+    private static final String CALLABLE_NUMBER_RATE_PLAN_ID = "callable";
+
+    @Mock
+    private BillingRatePlanRepository billingRatePlanRepository;
+
+    private RatePlanResolver ratePlanResolver;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(billingRatePlanRepository.findAll(any(Sort.class))).thenReturn(Arrays.asList(
+                ratePlan("au-bronze-sms", "AU", NumberType.MOBILE, Classification.BRONZE, ServiceType.SMS),
+                ratePlan("au-bronze-sms-mms", "AU", NumberType.MOBILE, Classification.BRONZE, ServiceType.SMS, ServiceType.MMS),
+                ratePlan("us-gold-sms-mms", "US", NumberType.LANDLINE, Classification.GOLD, ServiceType.MMS, ServiceType.SMS),
+                ratePlan("us-gold-sms", "US", NumberType.LANDLINE, Classification.GOLD, ServiceType.SMS)));
+        ratePlanResolver = new RatePlanResolver(billingRatePlanRepository, SMS_BROADCAST_RATE_PLAN_ID, CALLABLE_NUMBER_RATE_PLAN_ID);
+        ratePlanResolver.afterSingletonsInstantiated();
+    }
+
+    @Test
+    public void shouldResolveByExactCapabilities() {
+        assertEquals(Optional.of("us-gold-sms-mms"), ratePlanResolver.resolve(new VendorId("MessageMedia"),
+                number("US", NumberType.LANDLINE, Classification.GOLD, ServiceType.SMS, ServiceType.MMS)));
+        assertEquals(Optional.of("us-gold-sms"), ratePlanResolver.resolve(new VendorId("MessageMedia"),
+                number("US", NumberType.LANDLINE, Classification.GOLD, ServiceType.SMS)));
+        assertFalse(ratePlanResolver.resolve(new VendorId("MessageMedia"),
+                number("US", NumberType.LANDLINE, Classification.GOLD, ServiceType.TTS)).isPresent());
+        assertFalse(ratePlanResolver.resolve(null,
+                number("US", NumberType.MOBILE, Classification.GOLD, ServiceType.SMS)).isPresent());
+    }
+
+    @Test
+    public void shouldResolveSmsBroadcastNumbersToSmsBroadcastRatePlan() {
+        assertEquals(Optional.of(SMS_BROADCAST_RATE_PLAN_ID), ratePlanResolver.resolve(new VendorId("SMSBroadcast"),
+                number("NZ", NumberType.MOBILE, Classification.GOLD, ServiceType.SMS)));
+    }
+
+    @Test
+    public void shouldResolveAuCallableNumbersToCallableRatePlan() {
+        assertEquals(Optional.of(CALLABLE_NUMBER_RATE_PLAN_ID), ratePlanResolver.resolve(new VendorId("MessageMedia"),
+                number("AU", NumberType.MOBILE, Classification.BRONZE, ServiceType.SMS, ServiceType.CALL)));
+    }
+
+    @Test
+    public void shouldResolveAuMmsNumbersByClassification() {
+        assertEquals(Optional.of("au-bronze-sms"), ratePlanResolver.resolve(new VendorId("MessageMedia"),
+                number("AU", NumberType.MOBILE, Classification.BRONZE, ServiceType.MMS)));
+        assertFalse(ratePlanResolver.resolve(new VendorId("MessageMedia"),
+                number("AU", NumberType.MOBILE, Classification.GOLD, ServiceType.MMS)).isPresent());
+    }
+
+    @Test
+    public void shouldPickUpRatePlansOnRefresh() {
+        NumberEntity number = number("NZ", NumberType.MOBILE, Classification.SILVER, ServiceType.SMS);
+        assertFalse(ratePlanResolver.resolve(null, number).isPresent());
+        when(billingRatePlanRepository.findAll(any(Sort.class))).thenReturn(Collections.singletonList(
+                ratePlan("nz-silver-sms", "NZ", NumberType.MOBILE, Classification.SILVER, ServiceType.SMS)));
+
+        ratePlanResolver.refresh();
+
+        assertEquals(Optional.of("nz-silver-sms"), ratePlanResolver.resolve(null, number));
+        assertEquals(1, ratePlanResolver.getMetrics().get("size"));
+        verify(billingRatePlanRepository, times(2)).findAll(any(Sort.class));
+    }
+
+    private static BillingRatePlanEntity ratePlan(String ratePlanId, String country, NumberType type, Classification classification,
+                                                  ServiceType... capabilities) {
+        BillingRatePlanEntity ratePlan = new BillingRatePlanEntity();
+        ratePlan.setId(UUID.randomUUID());
+        ratePlan.setRatePlanId(ratePlanId);
+        ratePlan.setCountry(country);
+        ratePlan.setType(type);
+        ratePlan.setClassification(classification);
+        ratePlan.setCapabilities(EnumSet.copyOf(Arrays.asList(capabilities)));
+        return ratePlan;
+    }
+
+    private static NumberEntity number(String country, NumberType type, Classification classification, ServiceType... capabilities) {
+        NumberEntity number = randomUnassignedNumberEntity();
+        number.setCountry(country);
+        number.setType(type);
+        number.setClassification(classification);
+        number.setCapabilities(new HashSet<>(Arrays.asList(capabilities)));
+        return number;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import com.messagemedia.domainmodels.accounts.AccountId;
+import com.messagemedia.domainmodels.accounts.VendorAccountId;
+import com.messagemedia.numbers.TestData;
+import com.messagemedia.service.accountmanagement.client.ContextualServiceAccountManagementClientFactory;
+import com.messagemedia.service.accountmanagement.client.ServiceAccountManagementClient;
+import com.messagemedia.service.accountmanagement.client.exception.ServiceAccountManagementException;
+import com.messagemedia.service.accountmanagement.client.model.account.Account;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AccountHierarchyCacheTest {
+
+    @Mock
+    private ContextualServiceAccountManagementClientFactory contextualServiceAccountManagementClientFactory;
+
+    @Mock
+    private ServiceAccountManagementClient serviceAccountManagementClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JodaModule());
+
+    private AccountHierarchyCache accountHierarchyCache;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(contextualServiceAccountManagementClientFactory.createContextualClient(any(VendorAccountId.class)))
+                .thenReturn(serviceAccountManagementClient);
+        mockAccount("ams/account_root.json", "MessageMedia");
+        mockAccount("ams/account_m1.json", "AccountM1");
+        mockAccount("ams/account_m1_1.json", "AccountM11");
+        mockAccount("ams/account_m1_2.json", "AccountM12");
+        mockAccount("ams/account_m1_2_1.json", "AccountM121");
+        accountHierarchyCache = new AccountHierarchyCache(contextualServiceAccountManagementClientFactory, Runnable::run, 1000, 3600, 300);
+    }
+
+    @Test
+    public void shouldLoadAncestryUpToVendorAccount() throws Exception {
+        assertEquals(asList("AccountM121", "AccountM12", "AccountM1", "MessageMedia"),
+                accountIds(accountHierarchyCache.getAncestry(new VendorAccountId("MessageMedia", "AccountM121"))));
+    }
+
+    @Test
+    public void shouldFetchSharedAncestorsOnce() throws Exception {
+        List<Account> ancestry = accountHierarchyCache.getAncestry(new VendorAccountId("MessageMedia", "AccountM121"));
+        accountHierarchyCache.getAncestryAsync(new VendorAccountId("MessageMedia", "AccountM11")).join();
+
+        assertSame(ancestry, accountHierarchyCache.getAncestry(new VendorAccountId("MessageMedia", "AccountM121")));
+        verify(serviceAccountManagementClient, times(1)).getAccount(new AccountId("AccountM1"));
+        verify(serviceAccountManagementClient, times(1)).getAccount(new AccountId("MessageMedia"));
+        assertEquals(5L, accountHierarchyCache.getMetrics().get("amsCalls"));
+        assertEquals(1L, accountHierarchyCache.getMetrics().get("ancestriesHits"));
+    }
+
+    @Test
+    public void shouldUnwrapAmsFailure() throws Exception {
+        ServiceAccountManagementException failure = new ServiceAccountManagementException("Cannot get account");
+        when(serviceAccountManagementClient.getAccount(new AccountId("AccountM2"))).thenThrow(failure);
+
+        try {
+            accountHierarchyCache.getAncestryAsync(new VendorAccountId("MessageMedia", "AccountM2")).join();
+            fail("Expected the load to fail");
+        } catch (CompletionException e) {
+            assertSame(failure, AccountHierarchyCache.unwrap(e));
+        }
+        assertEquals(1L, accountHierarchyCache.getMetrics().get("amsFailures"));
+    }
+
+    private static List<String> accountIds(List<Account> accounts) {
+        return accounts.stream().map(account -> account.getVendorAccountId().getAccountId().getAccountId()).collect(Collectors.toList());
+    }
+
+    private void mockAccount(String path, String accountId) throws Exception {
+        when(serviceAccountManagementClient.getAccount(new AccountId(accountId)))
+                .thenReturn(objectMapper.readValue(TestData.loadJson(path), Account.class));
+    }
+}
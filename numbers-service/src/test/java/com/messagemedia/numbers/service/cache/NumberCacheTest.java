@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.cache;
+
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.projections.NumberChange;
+import com.messagemedia.numbers.service.event.NumberChangedEvent;
+import com.messagemedia.numbers.service.event.NumberChangesPolledEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.messagemedia.numbers.TestData.randomAssignedNumberEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NumberCacheTest {
+
+    @Mock
+    private NumbersRepository numbersRepository;
+
+    private NumberCache numberCache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        numberCache = new NumberCache(numbersRepository, 1_000_000, 60, 5);
+    }
+
+    @Test
+    public void shouldLoadOnceAndServeCopies() {
+        NumberEntity number = randomAssignedNumberEntity();
+        when(numbersRepository.findById(number.getId())).thenReturn(Optional.of(number));
+
+        NumberEntity first = numberCache.get(number.getId()).get();
+        first.getAssignedTo().setCallbackUrl("http://changed");
+        NumberEntity second = numberCache.get(number.getId()).get();
+
+        assertNotSame(first, second);
+        assertEquals(number.getAssignedTo().getCallbackUrl(), second.getAssignedTo().getCallbackUrl());
+        assertEquals(number.getPhoneNumber(), second.getPhoneNumber());
+        assertEquals(number.getCapabilities(), second.getCapabilities());
+        assertEquals(second, second.getAssignedTo().getNumberEntity());
+        verify(numbersRepository, times(1)).findById(number.getId());
+        assertEquals(1L, numberCache.getMetrics().get("hits"));
+        assertEquals(1L, numberCache.getMetrics().get("misses"));
+    }
+
+    @Test
+    public void shouldCacheMisses() {
+        UUID numberId = UUID.randomUUID();
+        when(numbersRepository.findById(numberId)).thenReturn(Optional.empty());
+
+        assertFalse(numberCache.get(numberId).isPresent());
+        assertFalse(numberCache.get(numberId).isPresent());
+
+        verify(numbersRepository, times(1)).findById(numberId);
+        assertEquals(2L, numberCache.getMetrics().get("notFound"));
+    }
+
+    @Test
+    public void shouldReloadAfterNumberChanged() {
+        NumberEntity number = randomAssignedNumberEntity();
+        when(numbersRepository.findById(number.getId())).thenReturn(Optional.of(number));
+
+        numberCache.get(number.getId());
+        numberCache.onNumberChanged(NumberChangedEvent.unassigned(number));
+        numberCache.get(number.getId());
+
+        verify(numbersRepository, times(2)).findById(number.getId());
+    }
+
+    @Test
+    public void shouldReloadAfterPolledChange() {
+        NumberEntity number = randomAssignedNumberEntity();
+        when(numbersRepository.findById(number.getId())).thenReturn(Optional.of(number));
+
+        numberCache.get(number.getId());
+        numberCache.onNumberChangesPolled(new NumberChangesPolledEvent(Collections.singletonList(
+                new NumberChange(number.getId(), number.getPhoneNumber()))));
+        numberCache.get(number.getId());
+
+        verify(numbersRepository, times(2)).findById(number.getId());
+    }
+
+    @Test
+    public void shouldCollapseConcurrentMisses() throws Exception {
+        NumberEntity number = randomAssignedNumberEntity();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(numbersRepository.findById(number.getId())).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(number);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<NumberEntity>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> numberCache.get(number.getId())));
+            }
+            loading.await(5, TimeUnit.SECONDS);
+            release.countDown();
+            for (Future<Optional<NumberEntity>> result : results) {
+                assertEquals(number.getId(), result.get(5, TimeUnit.SECONDS).get().getId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(numbersRepository, times(1)).findById(number.getId());
+    }
+}
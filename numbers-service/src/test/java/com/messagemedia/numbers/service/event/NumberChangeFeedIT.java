@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.event;
+
+import com.messagemedia.framework.config.impl.SpringProfileCalculator;
+import com.messagemedia.numbers.config.ServiceTestConfig;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.projections.NumberChange;
+import com.messagemedia.numbers.service.NumbersService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.messagemedia.numbers.TestData.randomAssignmentEntityWithoutNumberEntity;
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberEntity;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+
+@ActiveProfiles(SpringProfileCalculator.DEFAULT_ENVIRONMENT)
+@ContextConfiguration(classes = {ServiceTestConfig.class})
+@RunWith(SpringJUnit4ClassRunner.class)
+public class NumberChangeFeedIT {
+
+    @Autowired
+    private NumbersService numbersService;
+
+    @Autowired
+    private NumbersRepository numbersRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ApplicationEventPublisher eventPublisher;
+    private NumberChangeFeed feed;
+
+    @Before
+    public void setUp() {
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        feed = new NumberChangeFeed(numbersRepository, eventPublisher, 3600000);
+    }
+
+    @Test
+    public void shouldPublishCommittedChangesOnce() {
+        NumberEntity number = numbersService.registerNumber(randomUnassignedNumberEntity());
+        numbersService.assignNumberToAccount(number.getId(), randomAssignmentEntityWithoutNumberEntity());
+
+        feed.poll();
+        assertThat(polledNumberIds(), contains(number.getId()));
+
+        reset(eventPublisher);
+        feed.poll();
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    public void shouldPublishChangesOfTransactionsRunningDuringPoll() throws Exception {
+        NumberEntity number = numbersService.registerNumber(randomUnassignedNumberEntity());
+        feed.poll();
+        reset(eventPublisher);
+
+        CountDownLatch updated = new CountDownLatch(1);
+        CountDownLatch polled = new CountDownLatch(1);
+        CompletableFuture<Void> change = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            NumberEntity entity = numbersRepository.findById(number.getId()).get();
+            entity.setAvailableAfter(OffsetDateTime.now().plusDays(1));
+            numbersRepository.saveAndFlush(entity);
+            updated.countDown();
+            try {
+                polled.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        assertTrue(updated.await(10, TimeUnit.SECONDS));
+
+        // written but not committed yet, so the change is left for a later poll
+        feed.poll();
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+
+        polled.countDown();
+        change.get(10, TimeUnit.SECONDS);
+        feed.poll();
+        assertThat(polledNumberIds(), contains(number.getId()));
+    }
+
+    @Test
+    public void shouldPurgeChangesOlderThanRetention() {
+        NumberEntity number = numbersService.registerNumber(randomUnassignedNumberEntity());
+        numbersService.assignNumberToAccount(number.getId(), randomAssignmentEntityWithoutNumberEntity());
+
+        new NumberChangeFeed(numbersRepository, eventPublisher, 0).purge();
+
+        feed.poll();
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    private List<UUID> polledNumberIds() {
+        ArgumentCaptor<NumberChangesPolledEvent> captor = ArgumentCaptor.forClass(NumberChangesPolledEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertThat(captor.getValue().getChanges().isEmpty(), is(false));
+        return captor.getValue().getChanges().stream().map(NumberChange::getNumberId).distinct().collect(toList());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.executor;
+
+import com.messagemedia.numbers.service.executor.InstrumentedExecutor.OverflowPolicy;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InstrumentedExecutorTest {
+
+    private InstrumentedExecutor executor;
+
+    @After
+    public void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    public void shouldRunTasksOnNamedThreadsAndRecordLatencies() throws Exception {
+        executor = new InstrumentedExecutor("testExecutor", 2, 10, OverflowPolicy.CALLER_RUNS, false);
+        AtomicReference<String> threadName = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            threadName.set(Thread.currentThread().getName());
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(threadName.get().startsWith("testExecutor-"));
+        Map<String, Object> metrics = awaitCompleted(1);
+        assertEquals("testExecutor", executor.getMetricsName());
+        assertEquals(1L, metrics.get("submitted"));
+        assertEquals(0L, metrics.get("ranOnCaller"));
+        assertNotNull(metrics.get("averageQueueMillis"));
+        assertNotNull(metrics.get("averageRunMillis"));
+    }
+
+    @Test
+    public void shouldRunOnCallerWhenSaturated() throws Exception {
+        executor = new InstrumentedExecutor("testExecutor", 1, 1, OverflowPolicy.CALLER_RUNS, false);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> await(release));
+        assertEquals(1, executor.getMetrics().get("queueDepth"));
+        assertEquals(1, executor.getMetrics().get("activeThreads"));
+
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        executor.execute(() -> ranOn.set(Thread.currentThread()));
+
+        assertEquals(Thread.currentThread(), ranOn.get());
+        assertEquals(1L, executor.getMetrics().get("ranOnCaller"));
+        release.countDown();
+        assertEquals(3L, awaitCompleted(3).get("completed"));
+    }
+
+    @Test
+    public void shouldDiscardWhenSaturated() throws Exception {
+        executor = new InstrumentedExecutor("testExecutor", 1, 1, OverflowPolicy.DISCARD, false);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> await(release));
+
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        executor.execute(() -> ranOn.set(Thread.currentThread()));
+
+        release.countDown();
+        assertEquals(2L, awaitCompleted(2).get("completed"));
+        assertNull(ranOn.get());
+        assertEquals(1L, executor.getMetrics().get("discarded"));
+        assertEquals(3L, executor.getMetrics().get("submitted"));
+    }
+
+    @Test
+    public void shouldCountFailedTasks() throws Exception {
+        executor = new InstrumentedExecutor("testExecutor", 1, 1, OverflowPolicy.CALLER_RUNS, false);
+
+        executor.execute(() -> {
+            throw new IllegalStateException("failed");
+        });
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Long) executor.getMetrics().get("failed") == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1L, executor.getMetrics().get("failed"));
+        assertEquals(0L, executor.getMetrics().get("completed"));
+    }
+
+    @Test
+    public void shouldCreateWorkingThreadsWhetherOrNotVirtualThreadsAreAvailable() throws Exception {
+        ThreadFactory threadFactory = InstrumentedExecutor.threadFactory("virtual-", true);
+        CountDownLatch ran = new CountDownLatch(1);
+
+        Thread thread = threadFactory.newThread(ran::countDown);
+        thread.start();
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(thread.getName().startsWith("virtual-"));
+    }
+
+    private Map<String, Object> awaitCompleted(long tasks) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Long) executor.getMetrics().get("completed") < tasks && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return executor.getMetrics();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
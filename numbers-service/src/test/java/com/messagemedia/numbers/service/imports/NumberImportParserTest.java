@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.imports;
+
+import com.messagemedia.numbers.repository.projections.NumberImportRow;
+import com.messagemedia.numbers.service.client.models.Classification;
+import com.messagemedia.numbers.service.client.models.NumberType;
+import com.messagemedia.numbers.service.client.models.ServiceType;
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.EnumSet;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(DataProviderRunner.class)
+public class NumberImportParserTest {
+
+    private static final String PROVIDER_ID = "b9c7fd2e-7a1b-4f4e-9d64-5c0f3c6f7a10";
+
+    @DataProvider
+    public static Object[][] invalidLines() {
+        return new Object[][]{
+                {"+61491570156," + PROVIDER_ID + ",AU,MOBILE,BRONZE"},
+                {"+6149157015a," + PROVIDER_ID + ",AU,MOBILE,BRONZE,SMS"},
+                {"+61491570156,provider,AU,MOBILE,BRONZE,SMS"},
+                {"+61491570156," + PROVIDER_ID + ",au,MOBILE,BRONZE,SMS"},
+                {"+61491570156," + PROVIDER_ID + ",AU,UNKNOWN_TYPE,BRONZE,SMS"},
+                {"+61491570156," + PROVIDER_ID + ",AU,MOBILE,UNKNOWN_CLASSIFICATION,SMS"},
+                {"+61491570156," + PROVIDER_ID + ",AU,MOBILE,BRONZE,SMS|UNKNOWN_CAPABILITY"},
+                {"+61491570156," + PROVIDER_ID + ",AU,MOBILE,BRONZE,"},
+                {"+61491570156," + PROVIDER_ID + ",AU,MOBILE,BRONZE,SMS,yes"}
+        };
+    }
+
+    @Test
+    public void shouldParseLine() {
+        NumberImportRow row = NumberImportParser.parse(3, " +61491570156 ," + PROVIDER_ID + ",AU,mobile,GOLD,SMS|mms,TRUE");
+
+        assertEquals(3, row.getLineNumber());
+        assertEquals("+61491570156", row.getPhoneNumber());
+        assertEquals(UUID.fromString(PROVIDER_ID), row.getProviderId());
+        assertEquals("AU", row.getCountry());
+        assertEquals(NumberType.MOBILE, row.getType());
+        assertEquals(Classification.GOLD, row.getClassification());
+        assertEquals(EnumSet.of(ServiceType.SMS, ServiceType.MMS), row.getCapabilities());
+        assertTrue(row.isDedicatedReceiver());
+    }
+
+    @Test
+    public void shouldDefaultDedicatedReceiver() {
+        assertFalse(NumberImportParser.parse(1, "+61491570156," + PROVIDER_ID + ",AU,MOBILE,BRONZE,SMS").isDedicatedReceiver());
+    }
+
+    @Test
+    public void shouldRecogniseHeader() {
+        assertTrue(NumberImportParser.isHeader("phonenumber,providerId,country,type,classification,capabilities"));
+        assertFalse(NumberImportParser.isHeader("+61491570156," + PROVIDER_ID + ",AU,MOBILE,BRONZE,SMS"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @UseDataProvider("invalidLines")
+    public void shouldRejectInvalidLine(String line) {
+        NumberImportParser.parse(1, line);
+    }
+}
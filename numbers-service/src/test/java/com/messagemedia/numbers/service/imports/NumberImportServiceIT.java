@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.imports;
+
+import com.messagemedia.framework.config.impl.SpringProfileCalculator;
+import com.messagemedia.numbers.config.ServiceTestConfig;
+import com.messagemedia.numbers.exception.NumberImportRequestInvalidException;
+import com.messagemedia.numbers.repository.NumberImportRepository;
+import com.messagemedia.numbers.repository.ProvisioningOutboxRepository;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.entities.NumberImportEntity;
+import com.messagemedia.numbers.repository.entities.NumberImportStatus;
+import com.messagemedia.numbers.repository.entities.ProvisioningOutboxEntity;
+import com.messagemedia.numbers.repository.projections.NumberImportRejection;
+import com.messagemedia.numbers.service.NumbersService;
+import com.messagemedia.numbers.service.client.models.Event;
+import com.messagemedia.numbers.service.client.models.ServiceType;
+import org.hibernate.envers.AuditReaderFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceContextType;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.TestData.randomPhoneNumber;
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberEntity;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+@ActiveProfiles(SpringProfileCalculator.DEFAULT_ENVIRONMENT)
+@ContextConfiguration(classes = {ServiceTestConfig.class})
+@RunWith(SpringJUnit4ClassRunner.class)
+public class NumberImportServiceIT {
+
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    @PersistenceContext(type = PersistenceContextType.EXTENDED)
+    private EntityManager entityManager;
+
+    @Autowired
+    private NumbersService numbersService;
+
+    @Autowired
+    private NumberImportService numberImportService;
+
+    @Autowired
+    private NumberImportRepository numberImportRepository;
+
+    @Autowired
+    private ProvisioningOutboxRepository outboxRepository;
+
+    @Test
+    public void shouldImportNewNumbersOnly() throws Exception {
+        NumberEntity registered = numbersService.registerNumber(randomUnassignedNumberEntity());
+        String phoneNumber = randomPhoneNumber();
+        String providerId = UUID.randomUUID().toString();
+        String csv = "phoneNumber,providerId,country,type,classification,capabilities,dedicatedReceiver\n"
+                + registered.getPhoneNumber() + "," + providerId + ",AU,MOBILE,BRONZE,SMS\n"
+                + phoneNumber + "," + providerId + ",AU,MOBILE,GOLD,SMS|MMS,true\n"
+                + "\n"
+                + "+6149157015a," + providerId + ",AU,MOBILE,BRONZE,SMS\n"
+                + phoneNumber + "," + providerId + ",AU,MOBILE,BRONZE,SMS\n";
+
+        NumberImportEntity numberImport = awaitCompletion(numberImportService.submit("IT",
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))).getId());
+
+        assertThat(numberImport.getStatus(), is(NumberImportStatus.COMPLETED));
+        assertThat(numberImport.getTotal(), is(4L));
+        assertThat(numberImport.getExisting(), is(1L));
+        assertThat(numberImport.getStaged(), is(2L));
+        assertThat(numberImport.getImported(), is(1L));
+        assertThat(numberImport.getRejected(), is(1L));
+
+        List<NumberImportRejection> rejections = numberImportService.getRejections(numberImport.getId(), 0, 10);
+        assertThat(rejections, hasSize(1));
+        assertThat(rejections.get(0).getLineNumber(), is(5L));
+        assertThat(rejections.get(0).getReason(), startsWith("invalid phoneNumber"));
+
+        // the first line of a repeated phone number wins
+        List<NumberEntity> imported = entityManager
+                .createQuery("select n from NumberEntity n where n.phoneNumber = :phoneNumber", NumberEntity.class)
+                .setParameter("phoneNumber", phoneNumber)
+                .getResultList();
+        assertThat(imported, hasSize(1));
+        assertThat(imported.get(0).getCapabilities(), is(EnumSet.of(ServiceType.SMS, ServiceType.MMS)));
+        assertThat(imported.get(0).isDedicatedReceiver(), is(true));
+        assertThat(AuditReaderFactory.get(entityManager).getRevisions(NumberEntity.class, imported.get(0).getId()), hasSize(1));
+
+        List<ProvisioningOutboxEntity> events = outboxRepository.findAll().stream()
+                .filter(event -> event.getNumberId().equals(imported.get(0).getId()))
+                .collect(toList());
+        assertThat(events, hasSize(1));
+        assertThat(events.get(0).getEvent(), is(Event.NUMBER_CREATED.name()));
+        assertThat(events.get(0).getPayload(), containsString(phoneNumber));
+    }
+
+    @Test(expected = NumberImportRequestInvalidException.class)
+    public void shouldRejectEmptyFile() {
+        numberImportService.submit(null, new ByteArrayInputStream(new byte[0]));
+    }
+
+    @Test
+    public void shouldFailImportsOfStoppedInstances() {
+        NumberImportEntity abandoned = new NumberImportEntity("IT");
+        abandoned.setStatus(NumberImportStatus.STAGING);
+        abandoned.setOwner(UUID.randomUUID().toString());
+        abandoned.setHeartbeat(OffsetDateTime.now().minusHours(1));
+        numberImportRepository.save(abandoned);
+        NumberImportEntity running = new NumberImportEntity("IT");
+        running.setStatus(NumberImportStatus.STAGING);
+        running.setOwner(UUID.randomUUID().toString());
+        running.setHeartbeat(OffsetDateTime.now());
+        numberImportRepository.save(running);
+
+        numberImportService.failAbandoned();
+
+        NumberImportEntity failed = numberImportService.getImport(abandoned.getId());
+        assertThat(failed.getStatus(), is(NumberImportStatus.FAILED));
+        assertThat(failed.getMessage(), startsWith("Interrupted"));
+        assertThat(numberImportService.getImport(running.getId()).getStatus(), is(NumberImportStatus.STAGING));
+    }
+
+    private NumberImportEntity awaitCompletion(UUID importId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        NumberImportEntity numberImport = numberImportService.getImport(importId);
+        while (numberImport.getStatus() != NumberImportStatus.COMPLETED && numberImport.getStatus() != NumberImportStatus.FAILED
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            numberImport = numberImportService.getImport(importId);
+        }
+        return numberImport;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.imports;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PhoneNumberBloomFilterTest {
+
+    private static final int INSERTIONS = 100_000;
+
+    @Test
+    public void shouldContainEveryPutPhoneNumber() {
+        PhoneNumberBloomFilter filter = new PhoneNumberBloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.put(phoneNumber(i));
+        }
+
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertTrue(filter.mightContain(phoneNumber(i)));
+        }
+    }
+
+    @Test
+    public void shouldKeepFalsePositivesNearTheRate() {
+        PhoneNumberBloomFilter filter = new PhoneNumberBloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.put(phoneNumber(i));
+        }
+
+        int falsePositives = 0;
+        for (int i = INSERTIONS; i < 2 * INSERTIONS; i++) {
+            if (filter.mightContain(phoneNumber(i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < INSERTIONS * 0.02);
+    }
+
+    @Test
+    public void shouldSizeForTheRate() {
+        PhoneNumberBloomFilter filter = new PhoneNumberBloomFilter(1_000_000, 0.01);
+
+        // ~9.6 bits and 7 hashes per phone number for 1%
+        assertEquals(9_585_088, filter.getBitCount());
+        assertEquals(7, filter.getHashCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidRate() {
+        new PhoneNumberBloomFilter(10, 1.0);
+    }
+
+    private static String phoneNumber(int i) {
+        return String.format("+614%08d", i);
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.job;
+
+import com.messagemedia.framework.config.JsonConfig;
+import com.messagemedia.framework.json.JsonFastMapper;
+import com.messagemedia.numbers.exception.BulkJobRequestInvalidException;
+import com.messagemedia.numbers.model.dto.BulkAssignmentRow;
+import com.messagemedia.numbers.repository.BulkJobRepository;
+import com.messagemedia.numbers.repository.entities.BulkJobEntity;
+import com.messagemedia.numbers.repository.entities.BulkJobRowStatus;
+import com.messagemedia.numbers.repository.entities.BulkJobStatus;
+import com.messagemedia.numbers.repository.entities.BulkJobType;
+import com.messagemedia.numbers.repository.projections.BulkJobRow;
+import com.messagemedia.numbers.service.executor.InstrumentedExecutor;
+import com.messagemedia.numbers.service.executor.InstrumentedExecutor.OverflowPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BulkJobServiceTest {
+
+    private final JsonFastMapper mapper = new JsonConfig().fastMapper();
+
+    @Mock
+    private BulkJobRepository bulkJobRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BulkJobHandler<BulkAssignmentRow> handler;
+
+    private final InstrumentedExecutor jobExecutor = new InstrumentedExecutor("bulkJobExecutor", 1, 10, OverflowPolicy.CALLER_RUNS, false);
+    private final InstrumentedExecutor chunkExecutor = new InstrumentedExecutor("bulkJobChunkExecutor", 2, 2, OverflowPolicy.CALLER_RUNS, false);
+
+    private BulkJobService bulkJobService;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        handler = mock(BulkJobHandler.class);
+        when(handler.getType()).thenReturn(BulkJobType.ASSIGN);
+        when(handler.getRowType()).thenReturn(BulkAssignmentRow.class);
+        when(handler.describe(any(BulkAssignmentRow.class))).thenAnswer(invocation -> ((BulkAssignmentRow) invocation.getArguments()[0]).getPhoneNumber());
+        // fails the whole chunk on an "error" account and single rows on a "bad" account
+        when(handler.process(anyListOf(BulkAssignmentRow.class))).thenAnswer(invocation -> {
+            List<BulkAssignmentRow> rows = (List<BulkAssignmentRow>) invocation.getArguments()[0];
+            if (rows.stream().anyMatch(row -> "error".equals(row.getAccountId()))) {
+                throw new IllegalStateException("chunk failed");
+            }
+            return new BulkChunkResult(rows.stream()
+                    .map(row -> "bad".equals(row.getAccountId()) ? BulkRowOutcome.failed("bad account") : BulkRowOutcome.succeeded())
+                    .collect(toList()), null);
+        });
+        bulkJobService = bulkJobService(chunkExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        jobExecutor.destroy();
+        chunkExecutor.destroy();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldStoreJobAndRowsOnSubmit() {
+        when(bulkJobRepository.saveAndFlush(any(BulkJobEntity.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+
+        BulkJobEntity job = bulkJobService.submit(BulkJobType.ASSIGN, "GATEWAY-1", Arrays.asList(row("+61491570156", "a"), row("+61491570157", "b")));
+
+        assertEquals(BulkJobStatus.QUEUED, job.getStatus());
+        assertEquals(2, job.getTotal());
+        ArgumentCaptor<List> rows = ArgumentCaptor.forClass(List.class);
+        verify(bulkJobRepository).insertRows(eq(job.getId()), rows.capture());
+        BulkJobRow second = (BulkJobRow) rows.getValue().get(1);
+        assertEquals(1, second.getRowIndex());
+        assertEquals("+61491570157", second.getItem());
+        assertEquals(BulkJobRowStatus.PENDING, second.getStatus());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldStorePagedJobLargerThanMaxRows() {
+        when(bulkJobRepository.saveAndFlush(any(BulkJobEntity.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        List<BulkAssignmentRow> all = Arrays.asList(row("1", "a"), row("2", "a"), row("3", "a"), row("4", "a"));
+
+        BulkJobEntity job = bulkJobService.submitPages(BulkJobType.ASSIGN, null, (last, limit) -> {
+            int from = last == null ? 0 : all.indexOf(last) + 1;
+            return all.subList(from, Math.min(from + limit, all.size()));
+        });
+
+        assertEquals(BulkJobStatus.QUEUED, job.getStatus());
+        assertEquals(4, job.getTotal());
+        ArgumentCaptor<List> rows = ArgumentCaptor.forClass(List.class);
+        verify(bulkJobRepository, times(2)).insertRows(eq(job.getId()), rows.capture());
+        assertEquals(3, rows.getAllValues().get(0).size());
+        BulkJobRow fourth = (BulkJobRow) rows.getAllValues().get(1).get(0);
+        assertEquals(3, fourth.getRowIndex());
+        assertEquals("4", fourth.getItem());
+    }
+
+    @Test
+    public void shouldCompleteEmptyPagedJob() {
+        when(bulkJobRepository.saveAndFlush(any(BulkJobEntity.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+
+        BulkJobEntity job = bulkJobService.submitPages(BulkJobType.ASSIGN, null, (last, limit) -> Collections.emptyList());
+
+        assertEquals(BulkJobStatus.COMPLETED, job.getStatus());
+        assertEquals(0, job.getTotal());
+        assertNotNull(job.getCompleted());
+        verify(bulkJobRepository, never()).insertRows(any(UUID.class), anyListOf(BulkJobRow.class));
+        verify(bulkJobRepository, never()).claim(any(UUID.class), anyString(), any(OffsetDateTime.class), any(OffsetDateTime.class));
+    }
+
+    @Test(expected = BulkJobRequestInvalidException.class)
+    public void shouldRejectTooManyRows() {
+        bulkJobService.submit(BulkJobType.ASSIGN, null, Arrays.asList(row("1", "a"), row("2", "a"), row("3", "a"), row("4", "a")));
+    }
+
+    @Test
+    public void shouldProcessChunksAndRecordOutcomes() throws Exception {
+        BulkJobEntity job = runnableJob(3);
+        when(bulkJobRepository.findPendingRows(job.getId(), 0, 2))
+                .thenReturn(Arrays.asList(pending(0, row("+61491570156", "a")), pending(1, row("+61491570157", "bad"))));
+        when(bulkJobRepository.findPendingRows(job.getId(), 2, 3))
+                .thenReturn(Collections.singletonList(pending(2, row("+61491570158", "b"))));
+
+        bulkJobService.run(job.getId());
+
+        verify(bulkJobRepository).addProgress(eq(job.getId()), anyString(), eq(1), eq(1), any(OffsetDateTime.class));
+        verify(bulkJobRepository).addProgress(eq(job.getId()), anyString(), eq(1), eq(0), any(OffsetDateTime.class));
+        verify(bulkJobRepository).complete(eq(job.getId()), anyString(), eq(BulkJobStatus.COMPLETED), any(OffsetDateTime.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldRetryFailedChunkRowByRow() throws Exception {
+        BulkJobEntity job = runnableJob(2);
+        when(bulkJobRepository.findPendingRows(job.getId(), 0, 2))
+                .thenReturn(Arrays.asList(pending(0, row("+61491570156", "a")), pending(1, row("+61491570157", "error"))));
+
+        bulkJobService.run(job.getId());
+
+        ArgumentCaptor<List> outcomes = ArgumentCaptor.forClass(List.class);
+        verify(bulkJobRepository, times(2)).updateOutcomes(eq(job.getId()), outcomes.capture());
+        assertEquals(BulkJobRowStatus.SUCCEEDED, ((BulkJobRow) outcomes.getAllValues().get(0).get(0)).getStatus());
+        BulkJobRow failed = (BulkJobRow) outcomes.getAllValues().get(1).get(0);
+        assertEquals(BulkJobRowStatus.FAILED, failed.getStatus());
+        assertEquals("IllegalStateException: chunk failed", failed.getMessage());
+    }
+
+    @Test
+    public void shouldFailJobOnlyOnceChunksInFlightAreDone() throws Exception {
+        BulkJobEntity job = runnableJob(3);
+        when(bulkJobRepository.findPendingRows(job.getId(), 0, 2)).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return Collections.singletonList(pending(0, row("+61491570156", "a")));
+        });
+        // hands the first chunk to another thread and refuses the second
+        AtomicInteger executed = new AtomicInteger();
+        Executor refusing = task -> {
+            if (executed.getAndIncrement() > 0) {
+                throw new RejectedExecutionException("saturated");
+            }
+            chunkExecutor.execute(task);
+        };
+
+        bulkJobService(refusing).run(job.getId());
+
+        InOrder inOrder = inOrder(bulkJobRepository);
+        inOrder.verify(bulkJobRepository).updateOutcomes(eq(job.getId()), anyListOf(BulkJobRow.class));
+        inOrder.verify(bulkJobRepository).complete(eq(job.getId()), anyString(), eq(BulkJobStatus.FAILED), any(OffsetDateTime.class));
+    }
+
+    @Test
+    public void shouldNotRunJobClaimedElsewhere() {
+        UUID jobId = UUID.randomUUID();
+        when(bulkJobRepository.claim(eq(jobId), anyString(), any(OffsetDateTime.class), any(OffsetDateTime.class))).thenReturn(0);
+
+        bulkJobService.run(jobId);
+
+        verify(bulkJobRepository, never()).findPendingRows(any(UUID.class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void shouldStopJobTakenOverByAnotherInstance() throws Exception {
+        BulkJobEntity job = runnableJob(3);
+        when(bulkJobRepository.addProgress(eq(job.getId()), anyString(), anyInt(), anyInt(), any(OffsetDateTime.class))).thenReturn(0);
+        when(bulkJobRepository.findPendingRows(job.getId(), 0, 2))
+                .thenReturn(Arrays.asList(pending(0, row("+61491570156", "a")), pending(1, row("+61491570157", "b"))));
+
+        bulkJobService.run(job.getId());
+
+        verify(bulkJobRepository, never()).updateOutcomes(any(UUID.class), anyListOf(BulkJobRow.class));
+        verify(bulkJobRepository, never()).complete(any(UUID.class), anyString(), any(BulkJobStatus.class), any(OffsetDateTime.class));
+    }
+
+    @Test
+    public void shouldResumeQueuedAndAbandonedJobs() throws Exception {
+        BulkJobEntity job = runnableJob(2);
+        when(bulkJobRepository.findClaimable(any(OffsetDateTime.class))).thenReturn(Collections.singletonList(job.getId()));
+        when(bulkJobRepository.findPendingRows(job.getId(), 0, 2))
+                .thenReturn(Collections.singletonList(pending(1, row("+61491570157", "a"))));
+
+        bulkJobService.recover();
+
+        verify(bulkJobRepository, timeout(5000)).complete(eq(job.getId()), anyString(), eq(BulkJobStatus.COMPLETED), any(OffsetDateTime.class));
+        verify(bulkJobRepository).addProgress(eq(job.getId()), anyString(), eq(1), eq(0), any(OffsetDateTime.class));
+    }
+
+    private BulkJobService bulkJobService(Executor chunks) {
+        return new BulkJobService(bulkJobRepository, mapper, transactionManager, Collections.singletonList(handler), 3, 2, 2, 60000,
+                jobExecutor, chunks);
+    }
+
+    private BulkJobEntity runnableJob(int total) {
+        BulkJobEntity job = new BulkJobEntity(BulkJobType.ASSIGN, null, total);
+        when(bulkJobRepository.claim(eq(job.getId()), anyString(), any(OffsetDateTime.class), any(OffsetDateTime.class))).thenReturn(1);
+        when(bulkJobRepository.addProgress(eq(job.getId()), anyString(), anyInt(), anyInt(), any(OffsetDateTime.class))).thenReturn(1);
+        when(bulkJobRepository.findById(job.getId())).thenReturn(Optional.of(job));
+        return job;
+    }
+
+    private BulkJobRow pending(int index, BulkAssignmentRow row) throws Exception {
+        return BulkJobRow.pending(index, row.getPhoneNumber(), mapper.toJsonString(row));
+    }
+
+    private static BulkAssignmentRow row(String phoneNumber, String accountId) {
+        return new BulkAssignmentRow(null, phoneNumber, "MessageMedia", accountId, null, null, null);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.job;
+
+import com.messagemedia.framework.config.impl.SpringProfileCalculator;
+import com.messagemedia.numbers.config.ServiceTestConfig;
+import com.messagemedia.numbers.model.dto.BulkMigrationRow;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.service.NumbersService;
+import org.hibernate.envers.AuditReader;
+import org.hibernate.envers.AuditReaderFactory;
+import org.hibernate.envers.RevisionType;
+import org.hibernate.envers.query.AuditEntity;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceContextType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.TestData.randomAssignmentEntityWithoutNumberEntity;
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberEntity;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+
+@ActiveProfiles(SpringProfileCalculator.DEFAULT_ENVIRONMENT)
+@ContextConfiguration(classes = {ServiceTestConfig.class})
+@RunWith(SpringJUnit4ClassRunner.class)
+public class BulkMigrationHandlerIT {
+
+    @PersistenceContext(type = PersistenceContextType.EXTENDED)
+    private EntityManager entityManager;
+
+    @Autowired
+    private NumbersService numbersService;
+
+    @Autowired
+    private NumbersRepository numbersRepository;
+
+    @Autowired
+    private BulkMigrationHandler bulkMigrationHandler;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void shouldMoveAssignmentsAndRecordAudit() {
+        AssignmentEntity first = assignNewNumber("account-1");
+        AssignmentEntity second = assignNewNumber("account-1");
+        AssignmentEntity elsewhere = assignNewNumber("account-3");
+        String vendorId = first.getVendorId();
+        List<BulkMigrationRow> rows = Arrays.asList(
+                new BulkMigrationRow(first.getNumberEntity().getId(), vendorId, "account-1", "account-2"),
+                new BulkMigrationRow(elsewhere.getNumberEntity().getId(), vendorId, "account-1", "account-2"),
+                new BulkMigrationRow(second.getNumberEntity().getId(), vendorId, "account-1", "account-2"),
+                new BulkMigrationRow(UUID.randomUUID(), vendorId, "account-1", "account-2"));
+
+        BulkChunkResult result = new TransactionTemplate(transactionManager).execute(status -> bulkMigrationHandler.process(rows));
+
+        List<BulkRowOutcome> outcomes = result.getOutcomes();
+        assertThat(outcomes.get(0).isSucceeded(), is(true));
+        assertThat(outcomes.get(1).getMessage(), startsWith(String.format("Number id {%s} is no longer assigned",
+                elsewhere.getNumberEntity().getId())));
+        assertThat(outcomes.get(2).isSucceeded(), is(true));
+        assertThat(outcomes.get(3).isSucceeded(), is(false));
+
+        AssignmentEntity moved = numbersRepository.findById(first.getNumberEntity().getId()).get().getAssignedTo();
+        assertThat(moved.getId(), is(not(first.getId())));
+        assertThat(moved.getAccountId(), is("account-2"));
+        assertThat(moved.getVendorId(), is(vendorId));
+        assertThat(moved.getCallbackUrl(), is(first.getCallbackUrl()));
+        assertThat(moved.getExternalMetadata(), is(first.getExternalMetadata()));
+        assertThat(numbersRepository.findById(elsewhere.getNumberEntity().getId()).get().getAssignedTo().getAccountId(), is("account-3"));
+
+        AuditReader reader = AuditReaderFactory.get(entityManager);
+        List<?> oldRevisions = reader.createQuery().forRevisionsOfEntity(AssignmentEntity.class, false, true)
+                .add(AuditEntity.id().eq(first.getId()))
+                .getResultList();
+        assertThat(((Object[]) oldRevisions.get(oldRevisions.size() - 1))[2], is(RevisionType.DEL));
+        List<?> newRevisions = reader.createQuery().forRevisionsOfEntity(AssignmentEntity.class, false, true)
+                .add(AuditEntity.id().eq(moved.getId()))
+                .getResultList();
+        assertThat(newRevisions.size(), is(1));
+        assertThat(((Object[]) newRevisions.get(0))[2], is(RevisionType.ADD));
+    }
+
+    private AssignmentEntity assignNewNumber(String accountId) {
+        NumberEntity number = numbersService.registerNumber(randomUnassignedNumberEntity());
+        AssignmentEntity assignment = randomAssignmentEntityWithoutNumberEntity();
+        assignment.setAccountId(accountId);
+        return numbersService.assignNumberToAccount(number.getId(), assignment);
+    }
+}
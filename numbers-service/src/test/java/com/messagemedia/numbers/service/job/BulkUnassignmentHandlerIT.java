@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.job;
+
+import com.messagemedia.framework.config.impl.SpringProfileCalculator;
+import com.messagemedia.numbers.config.ServiceTestConfig;
+import com.messagemedia.numbers.model.dto.BulkUnassignmentRow;
+import com.messagemedia.numbers.repository.NumbersRepository;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.service.NumbersService;
+import org.hibernate.envers.AuditReader;
+import org.hibernate.envers.AuditReaderFactory;
+import org.hibernate.envers.RevisionType;
+import org.hibernate.envers.query.AuditEntity;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceContextType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.TestData.randomAssignmentEntityWithoutNumberEntity;
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberEntity;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+
+@ActiveProfiles(SpringProfileCalculator.DEFAULT_ENVIRONMENT)
+@ContextConfiguration(classes = {ServiceTestConfig.class})
+@RunWith(SpringJUnit4ClassRunner.class)
+public class BulkUnassignmentHandlerIT {
+
+    @PersistenceContext(type = PersistenceContextType.EXTENDED)
+    private EntityManager entityManager;
+
+    @Autowired
+    private NumbersService numbersService;
+
+    @Autowired
+    private NumbersRepository numbersRepository;
+
+    @Autowired
+    private BulkUnassignmentHandler bulkUnassignmentHandler;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void shouldUnassignChunkAndRecordAudit() {
+        AssignmentEntity byAccount = assignNewNumber();
+        AssignmentEntity otherAccount = assignNewNumber();
+        AssignmentEntity byId = assignNewNumber();
+        List<BulkUnassignmentRow> rows = Arrays.asList(
+                new BulkUnassignmentRow(byAccount.getNumberEntity().getId(), byAccount.getVendorId(), byAccount.getAccountId()),
+                new BulkUnassignmentRow(otherAccount.getNumberEntity().getId(), otherAccount.getVendorId(), "another-account"),
+                new BulkUnassignmentRow(byId.getNumberEntity().getId(), null, null),
+                new BulkUnassignmentRow(byId.getNumberEntity().getId(), null, null),
+                new BulkUnassignmentRow(UUID.randomUUID(), null, null));
+
+        BulkChunkResult result = new TransactionTemplate(transactionManager).execute(status -> bulkUnassignmentHandler.process(rows));
+
+        List<BulkRowOutcome> outcomes = result.getOutcomes();
+        assertThat(outcomes.get(0).isSucceeded(), is(true));
+        assertThat(outcomes.get(1).getMessage(), startsWith(String.format("Number id {%s} is no longer assigned", otherAccount.getNumberEntity().getId())));
+        assertThat(outcomes.get(2).isSucceeded(), is(true));
+        assertThat(outcomes.get(3).getMessage(), is(String.format("Number id {%s} is not assigned", byId.getNumberEntity().getId())));
+        assertThat(outcomes.get(4).isSucceeded(), is(false));
+
+        NumberEntity unassigned = numbersRepository.findById(byAccount.getNumberEntity().getId()).get();
+        assertThat(unassigned.getAssignedTo(), nullValue());
+        assertThat(unassigned.getAvailableAfter(), notNullValue());
+        assertThat(numbersRepository.findById(otherAccount.getNumberEntity().getId()).get().getAssignedTo(), notNullValue());
+
+        AuditReader reader = AuditReaderFactory.get(entityManager);
+        List<?> assignmentRevisions = reader.createQuery().forRevisionsOfEntity(AssignmentEntity.class, false, true)
+                .add(AuditEntity.id().eq(byId.getId()))
+                .getResultList();
+        assertThat(assignmentRevisions.size(), is(2));
+        Object[] deleted = (Object[]) assignmentRevisions.get(1);
+        assertThat(deleted[2], is(RevisionType.DEL));
+        assertThat(((AssignmentEntity) deleted[0]).getAccountId(), is(byId.getAccountId()));
+
+        List<?> numberRevisions = reader.createQuery().forRevisionsOfEntity(NumberEntity.class, false, true)
+                .add(AuditEntity.id().eq(byId.getNumberEntity().getId()))
+                .getResultList();
+        Object[] released = (Object[]) numberRevisions.get(numberRevisions.size() - 1);
+        assertThat(released[2], is(RevisionType.MOD));
+        assertThat(((NumberEntity) released[0]).getAvailableAfter(), notNullValue());
+    }
+
+    private AssignmentEntity assignNewNumber() {
+        NumberEntity number = numbersService.registerNumber(randomUnassignedNumberEntity());
+        return numbersService.assignNumberToAccount(number.getId(), randomAssignmentEntityWithoutNumberEntity());
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.messagemedia.framework.config.JsonConfig;
+import com.messagemedia.framework.json.JsonFastMapper;
+import com.messagemedia.numbers.exception.EventNotificationPublishingFailedException;
+import com.messagemedia.numbers.repository.ProvisioningOutboxRepository;
+import com.messagemedia.numbers.repository.projections.EventState;
+import com.messagemedia.numbers.repository.projections.OutboxEvent;
+import com.messagemedia.numbers.service.client.models.AssignmentDto;
+import com.messagemedia.numbers.service.client.models.Event;
+import com.messagemedia.numbers.service.client.models.EventNotification;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import com.messagemedia.numbers.service.outbox.ProvisioningEventEncoder.EncodedEvents;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.TestData.randomAssignmentDtoBuilder;
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberDto;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class ProvisioningEventEncoderTest {
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory());
+
+    private final JsonFastMapper mapper = new JsonConfig().fastMapper();
+
+    @Mock
+    private ProvisioningOutboxRepository outboxRepository;
+
+    private NumberDto number;
+    private AssignmentDto.AssignmentDtoBuilder assignmentBuilder;
+    private AssignmentDto assignment;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        number = randomUnassignedNumberDto();
+        assignmentBuilder = randomAssignmentDtoBuilder().withId(UUID.randomUUID());
+        assignment = assignmentBuilder.build();
+    }
+
+    @Test
+    public void shouldPassJsonThrough() throws Exception {
+        OutboxEvent event = event(Event.NUMBER_ASSIGNED, number, assignment);
+
+        EncodedEvents encoded = encoder(EventFormat.JSON).encode(Collections.singletonList(event));
+
+        assertEquals(Collections.singletonList(event.getPayload()), encoded.getMessages());
+        verifyZeroInteractions(outboxRepository);
+    }
+
+    @Test
+    public void shouldEncodeTheSameTreeAsCbor() throws Exception {
+        OutboxEvent event = event(Event.NUMBER_ASSIGNED, number, assignment);
+
+        String message = encoder(EventFormat.CBOR).encode(Collections.singletonList(event)).getMessages().get(0);
+        byte[] cbor = Base64.getDecoder().decode(message);
+        JsonNode tree = CBOR_MAPPER.readTree(cbor);
+
+        assertEquals("NUMBER_ASSIGNED", tree.get("event").asText());
+        assertEquals(number.getPhoneNumber(), tree.get("number").get("phoneNumber").asText());
+        assertEquals(assignment.getAccountId(), tree.get("assignment").get("accountId").asText());
+        assertEquals(JSON_MAPPER.readTree(event.getPayload()).get("assignment").get("metadata"), tree.get("assignment").get("metadata"));
+        assertTrue(cbor.length < event.getPayload().length());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldSendFirstEventInFullAndKeepItsState() throws Exception {
+        OutboxEvent event = event(Event.ASSIGNMENT_UPDATED, number, assignment);
+        ProvisioningEventEncoder encoder = encoder(EventFormat.JSON_DELTA);
+
+        EncodedEvents encoded = encoder.encode(Collections.singletonList(event));
+        JsonNode message = JSON_MAPPER.readTree(encoded.getMessages().get(0));
+
+        assertEquals(1L, message.get(ProvisioningEventEncoder.VERSION).asLong());
+        assertFalse(message.has(ProvisioningEventEncoder.BASE_VERSION));
+        assertEquals(number.getPhoneNumber(), message.get("number").get("phoneNumber").asText());
+        verify(outboxRepository, never()).saveStates(anyListOf(EventState.class));
+
+        encoder.saveStates(encoded);
+        ArgumentCaptor<List> states = ArgumentCaptor.forClass(List.class);
+        verify(outboxRepository).saveStates(states.capture());
+        assertEquals(1L, ((EventState) states.getValue().get(0)).getVersion());
+    }
+
+    @Test
+    public void shouldOnlySendChangedFieldsOfAnUpdate() throws Exception {
+        ProvisioningEventEncoder encoder = encoder(EventFormat.JSON_DELTA);
+        EventState base = state(encoder, event(Event.NUMBER_ASSIGNED, number, assignment), 4);
+        AssignmentDto relabelled = assignmentBuilder.withCallbackUrl("http://changed").build();
+        when(outboxRepository.findStates(anyCollectionOf(UUID.class))).thenReturn(Collections.singletonMap(number.getId(), base));
+
+        JsonNode message = JSON_MAPPER.readTree(encoder.encode(Collections.singletonList(event(Event.ASSIGNMENT_UPDATED, number, relabelled)))
+                .getMessages().get(0));
+
+        assertEquals("ASSIGNMENT_UPDATED", message.get("event").asText());
+        assertEquals(5L, message.get(ProvisioningEventEncoder.VERSION).asLong());
+        assertEquals(4L, message.get(ProvisioningEventEncoder.BASE_VERSION).asLong());
+        assertFalse(message.has("number"));
+        assertEquals(1, message.get("assignment").size());
+        assertEquals("http://changed", message.get("assignment").get("callbackUrl").asText());
+    }
+
+    @Test
+    public void shouldSendTransitionsInFull() throws Exception {
+        ProvisioningEventEncoder encoder = encoder(EventFormat.CBOR_DELTA);
+        EventState base = state(encoder, event(Event.NUMBER_ASSIGNED, number, assignment), 2);
+        when(outboxRepository.findStates(anyCollectionOf(UUID.class))).thenReturn(Collections.singletonMap(number.getId(), base));
+        OutboxEvent unassigned = event(Event.NUMBER_UNASSIGNED, number, assignment);
+
+        String message = encoder.encode(Collections.singletonList(unassigned)).getMessages().get(0);
+        JsonNode tree = CBOR_MAPPER.readTree(Base64.getDecoder().decode(message));
+
+        assertEquals(3L, tree.get(ProvisioningEventEncoder.VERSION).asLong());
+        assertFalse(tree.has(ProvisioningEventEncoder.BASE_VERSION));
+        assertEquals(number.getPhoneNumber(), tree.get("number").get("phoneNumber").asText());
+        assertEquals(assignment.getCallbackUrl(), tree.get("assignment").get("callbackUrl").asText());
+    }
+
+    @Test
+    public void shouldForgetTheStateOfADeletedNumber() throws Exception {
+        ProvisioningEventEncoder encoder = encoder(EventFormat.JSON_DELTA);
+
+        encoder.saveStates(encoder.encode(Collections.singletonList(event(Event.NUMBER_DELETED, number, null))));
+
+        verify(outboxRepository).deleteStates(Collections.singletonList(number.getId()));
+        verify(outboxRepository, never()).saveStates(anyListOf(EventState.class));
+    }
+
+    @Test(expected = EventNotificationPublishingFailedException.class)
+    public void shouldFailOnMalformedPayload() {
+        encoder(EventFormat.CBOR).encode(Collections.singletonList(new OutboxEvent(1, number.getId(), "NUMBER_UPDATED", "[1]", 0)));
+    }
+
+    private ProvisioningEventEncoder encoder(EventFormat format) {
+        return new ProvisioningEventEncoder(outboxRepository, format);
+    }
+
+    /**
+     * Encodes the event for a number without a state and returns the state it would leave, with the given version.
+     */
+    @SuppressWarnings("unchecked")
+    private EventState state(ProvisioningEventEncoder encoder, OutboxEvent event, long version) {
+        encoder.saveStates(encoder.encode(Collections.singletonList(event)));
+        ArgumentCaptor<List> states = ArgumentCaptor.forClass(List.class);
+        verify(outboxRepository).saveStates(states.capture());
+        EventState state = (EventState) states.getValue().get(0);
+        return new EventState(state.getNumberId(), version, state.getState());
+    }
+
+    private OutboxEvent event(Event event, NumberDto numberDto, AssignmentDto assignmentDto) throws Exception {
+        String payload = mapper.toJsonString(new EventNotification(event, numberDto, assignmentDto));
+        return new OutboxEvent(1, numberDto.getId(), event.name(), payload, 0);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.messagemedia.framework.config.JsonConfig;
+import com.messagemedia.framework.json.JsonFastMapper;
+import com.messagemedia.framework.logging.Logger;
+import com.messagemedia.framework.logging.LoggerFactory;
+import com.messagemedia.numbers.repository.ProvisioningOutboxRepository;
+import com.messagemedia.numbers.repository.projections.EventState;
+import com.messagemedia.numbers.repository.projections.OutboxEvent;
+import com.messagemedia.numbers.service.client.models.AssignmentDto;
+import com.messagemedia.numbers.service.client.models.Event;
+import com.messagemedia.numbers.service.client.models.EventNotification;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.messagemedia.numbers.TestData.randomAssignmentDtoBuilder;
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberDto;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the encoded size, the size of the published message and the time to encode for every {@link EventFormat},
+ * with the JSON the outbox holds as the baseline. The events are callback URL only {@link Event#ASSIGNMENT_UPDATED}s
+ * of numbers whose previous state is known, the case the delta formats are for. Sizes and times are logged, the size
+ * reductions are asserted.
+ */
+public class ProvisioningEventEncodingBenchmarkIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProvisioningEventEncodingBenchmarkIT.class);
+
+    private static final int EVENTS = 100;
+    private static final int WARM_UP_ITERATIONS = 50;
+    private static final int ITERATIONS = 200;
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private final JsonFastMapper mapper = new JsonConfig().fastMapper();
+
+    @Mock
+    private ProvisioningOutboxRepository outboxRepository;
+
+    private final List<OutboxEvent> events = new ArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        Map<UUID, EventState> states = new HashMap<>();
+        for (int i = 0; i < EVENTS; i++) {
+            NumberDto number = randomUnassignedNumberDto();
+            AssignmentDto.AssignmentDtoBuilder assignment = randomAssignmentDtoBuilder().withId(UUID.randomUUID());
+            OutboxEvent assigned = event(Event.NUMBER_ASSIGNED, number, assignment.build());
+            states.put(number.getId(), new EventState(number.getId(), 1, stateOf(assigned)));
+            events.add(event(Event.ASSIGNMENT_UPDATED, number, assignment.withCallbackUrl("http://callback/" + i).build()));
+        }
+        when(outboxRepository.findStates(anyCollectionOf(UUID.class))).thenReturn(states);
+    }
+
+    @Test
+    public void shouldEncodeSmallerEventsThanJson() {
+        Map<EventFormat, Measurement> measurements = new EnumMap<>(EventFormat.class);
+        for (EventFormat format : EventFormat.values()) {
+            Measurement measurement = measure(encoder(format));
+            measurements.put(format, measurement);
+            LOGGER.info("{}: {} encoded bytes, {} message bytes, {} ns per event", format, measurement.encodedBytesPerEvent,
+                    measurement.messageBytesPerEvent, measurement.nanosPerEvent);
+        }
+        // SQS bodies are text, so the base64 of a binary format adds a third to what it saves
+        assertTrue(measurements.get(EventFormat.CBOR).encodedBytesPerEvent < measurements.get(EventFormat.JSON).encodedBytesPerEvent);
+        assertTrue(measurements.get(EventFormat.JSON_DELTA).messageBytesPerEvent < measurements.get(EventFormat.JSON).messageBytesPerEvent / 2);
+        assertTrue(measurements.get(EventFormat.CBOR_DELTA).encodedBytesPerEvent < measurements.get(EventFormat.JSON_DELTA).encodedBytesPerEvent);
+    }
+
+    private Measurement measure(ProvisioningEventEncoder encoder) {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            encoder.encode(events);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            encoder.encode(events);
+        }
+        long nanosPerEvent = (System.nanoTime() - start) / ITERATIONS / EVENTS;
+        long encodedBytes = 0;
+        long messageBytes = 0;
+        for (String message : encoder.encode(events).getMessages()) {
+            encodedBytes += encoder.getFormat().isBinary() ? Base64.getDecoder().decode(message).length : message.length();
+            messageBytes += message.length();
+        }
+        return new Measurement(encodedBytes / EVENTS, messageBytes / EVENTS, nanosPerEvent);
+    }
+
+    private ProvisioningEventEncoder encoder(EventFormat format) {
+        return new ProvisioningEventEncoder(outboxRepository, format);
+    }
+
+    private static String stateOf(OutboxEvent event) throws IOException {
+        ObjectNode state = (ObjectNode) JSON_MAPPER.readTree(event.getPayload());
+        state.retain(ProvisioningEventEncoder.NUMBER, ProvisioningEventEncoder.ASSIGNMENT);
+        return JSON_MAPPER.writeValueAsString(state);
+    }
+
+    private OutboxEvent event(Event event, NumberDto numberDto, AssignmentDto assignmentDto) throws Exception {
+        String payload = mapper.toJsonString(new EventNotification(event, numberDto, assignmentDto));
+        return new OutboxEvent(0, numberDto.getId(), event.name(), payload, 0);
+    }
+
+    private static final class Measurement {
+
+        private final long encodedBytesPerEvent;
+        private final long messageBytesPerEvent;
+        private final long nanosPerEvent;
+
+        private Measurement(long encodedBytesPerEvent, long messageBytesPerEvent, long nanosPerEvent) {
+            this.encodedBytesPerEvent = encodedBytesPerEvent;
+            this.messageBytesPerEvent = messageBytesPerEvent;
+            this.nanosPerEvent = nanosPerEvent;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.outbox;
+
+import com.messagemedia.framework.config.impl.SpringProfileCalculator;
+import com.messagemedia.framework.json.JsonFastMapper;
+import com.messagemedia.numbers.config.ServiceTestConfig;
+import com.messagemedia.numbers.repository.ProvisioningOutboxRepository;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.entities.ProvisioningOutboxEntity;
+import com.messagemedia.numbers.repository.mappers.AssignmentMapper;
+import com.messagemedia.numbers.repository.mappers.NumbersMapper;
+import com.messagemedia.numbers.repository.projections.OutboxEvent;
+import com.messagemedia.numbers.service.NotificationService;
+import com.messagemedia.numbers.service.NumbersService;
+import com.messagemedia.numbers.service.client.models.Event;
+import com.messagemedia.numbers.service.client.models.NumberDto;
+import com.messagemedia.numbers.sqs.SQSQueuePublisher;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.messagemedia.numbers.TestData.randomAssignNumberDto;
+import static com.messagemedia.numbers.TestData.randomAssignmentEntityWithoutNumberEntity;
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberDto;
+import static com.messagemedia.numbers.TestData.randomUnassignedNumberEntity;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ActiveProfiles(SpringProfileCalculator.DEFAULT_ENVIRONMENT)
+@ContextConfiguration(classes = {ServiceTestConfig.class})
+@RunWith(SpringJUnit4ClassRunner.class)
+public class ProvisioningOutboxRelayIT {
+
+    private static final int BATCH_SIZE = 10;
+
+    @Autowired
+    private NumbersService numbersService;
+
+    @Autowired
+    private ProvisioningOutboxRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private NumbersMapper numbersMapper;
+
+    @Autowired
+    private AssignmentMapper assignmentMapper;
+
+    @Autowired
+    private JsonFastMapper jsonFastMapper;
+
+    private SQSQueuePublisher publisher;
+    private ProvisioningOutboxRelay relay;
+
+    @Before
+    public void setUp() {
+        // events enqueued by other tests are never relayed in the test context
+        outboxRepository.deleteAll();
+        publisher = mock(SQSQueuePublisher.class);
+        relay = new ProvisioningOutboxRelay(outboxRepository, publisher, new ProvisioningEventEncoder(outboxRepository, EventFormat.JSON),
+                transactionManager, BATCH_SIZE, 60000, 600000);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldRelayTheEventsOfANumberInOrder() {
+        NumberEntity number = numbersService.registerNumber(randomUnassignedNumberEntity());
+        numbersService.assignNumberToAccount(number.getId(), randomAssignmentEntityWithoutNumberEntity());
+        numbersService.disassociateAssignment(number.getId());
+        assertThat(outboxRepository.count(), is(3L));
+
+        relay.relay();
+        relay.relay();
+        relay.relay();
+
+        ArgumentCaptor<List> published = ArgumentCaptor.forClass(List.class);
+        verify(publisher, times(3)).publishMessages(published.capture(), eq(EventFormat.JSON.getContentType()));
+        assertThat(published.getAllValues().get(0).size(), is(1));
+        assertThat((String) published.getAllValues().get(0).get(0), containsString("NUMBER_CREATED"));
+        assertThat((String) published.getAllValues().get(1).get(0), containsString("NUMBER_ASSIGNED"));
+        assertThat((String) published.getAllValues().get(2).get(0), containsString("NUMBER_UNASSIGNED"));
+        assertThat(outboxRepository.count(), is(0L));
+    }
+
+    @Test
+    public void shouldSkipNumbersClaimedByAnotherRelay() throws Exception {
+        NumberEntity claimed = numbersService.registerNumber(randomUnassignedNumberEntity());
+        numbersService.assignNumberToAccount(claimed.getId(), randomAssignmentEntityWithoutNumberEntity());
+        NumberEntity free = numbersService.registerNumber(randomUnassignedNumberEntity());
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService otherInstance = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<OutboxEvent>> otherClaim = otherInstance.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+                List<OutboxEvent> events = outboxRepository.claimDue(1, OffsetDateTime.now());
+                locked.countDown();
+                await(release);
+                return events;
+            }));
+            await(locked);
+
+            List<OutboxEvent> events = new TransactionTemplate(transactionManager)
+                    .execute(status -> outboxRepository.claimDue(BATCH_SIZE, OffsetDateTime.now()));
+            release.countDown();
+
+            assertThat(otherClaim.get(5, TimeUnit.SECONDS).get(0).getNumberId(), is(claimed.getId()));
+            // neither the locked event nor the later event of the same number
+            assertThat(events.size(), is(1));
+            assertThat(events.get(0).getNumberId(), is(free.getId()));
+        } finally {
+            release.countDown();
+            otherInstance.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldKeepEventsAndBackOffWhenPublishingFails() {
+        numbersService.registerNumber(randomUnassignedNumberEntity());
+        doThrow(new IllegalStateException("queue unavailable")).when(publisher).publishMessages(anyListOf(String.class), anyString());
+
+        assertThat(relay.relayBatch(), is(0));
+        // not due again before the backoff
+        assertThat(relay.relayBatch(), is(0));
+
+        List<ProvisioningOutboxEntity> events = new ArrayList<>(outboxRepository.findAll());
+        assertThat(events.size(), is(1));
+        assertThat(events.get(0).getAttempts(), is(1));
+        assertThat(events.get(0).getLastError(), containsString("queue unavailable"));
+        assertThat(events.get(0).getNextAttempt(), is(notNullValue()));
+        assertThat(events.get(0).getNextAttempt().toEpochSecond() - OffsetDateTime.now().toEpochSecond(), greaterThan(30L));
+        verify(publisher, times(1)).publishMessages(anyListOf(String.class), anyString());
+    }
+
+    @Test
+    public void shouldFoldUpdatesIntoThePendingEventOfTheNumber() {
+        NotificationService coalescing = new NotificationService(outboxRepository, numbersMapper, assignmentMapper, jsonFastMapper, 60000);
+        NumberDto number = randomUnassignedNumberDto();
+        number.setAssignedTo(randomAssignNumberDto());
+
+        push(coalescing, Event.NUMBER_ASSIGNED, number);
+        push(coalescing, Event.ASSIGNMENT_UPDATED, number);
+        push(coalescing, Event.NUMBER_UNASSIGNED, number);
+        push(coalescing, Event.NUMBER_UPDATED, number);
+
+        List<ProvisioningOutboxEntity> events = outboxRepository.findAll(Sort.by("id"));
+        assertThat(events.stream().map(ProvisioningOutboxEntity::getEvent).collect(toList()),
+                contains("NUMBER_ASSIGNED", "NUMBER_UNASSIGNED", "NUMBER_UPDATED"));
+        assertThat(coalescing.getMetrics().get("coalesced"), is(1L));
+        // nothing is due before the window has passed
+        assertThat(relay.relayBatch(), is(0));
+    }
+
+    private void push(NotificationService notificationService, Event event, NumberDto number) {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            notificationService.push(event, number);
+            return null;
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.outbox;
+
+import com.messagemedia.numbers.repository.ProvisioningOutboxRepository;
+import com.messagemedia.numbers.repository.projections.OutboxEvent;
+import com.messagemedia.numbers.sqs.SQSQueuePublisher;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProvisioningOutboxRelayTest {
+
+    @Mock
+    private ProvisioningOutboxRepository outboxRepository;
+
+    @Mock
+    private SQSQueuePublisher publisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProvisioningOutboxRelay relay;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        relay = new ProvisioningOutboxRelay(outboxRepository, publisher, new ProvisioningEventEncoder(outboxRepository, EventFormat.JSON),
+                transactionManager, 2, 1000, 10000);
+    }
+
+    @Test
+    public void shouldPublishAndDeleteUntilABatchComesBackShort() {
+        OutboxEvent first = event(1, 0);
+        OutboxEvent second = event(2, 0);
+        OutboxEvent third = event(3, 0);
+        when(outboxRepository.claimDue(eq(2), any(OffsetDateTime.class)))
+                .thenReturn(Arrays.asList(first, second))
+                .thenReturn(Collections.singletonList(third));
+
+        relay.relay();
+
+        verify(publisher).publishMessages(Arrays.asList(first.getPayload(), second.getPayload()), "application/json");
+        verify(publisher).publishMessages(Collections.singletonList(third.getPayload()), "application/json");
+        verify(outboxRepository).deleteEvents(Arrays.asList(1L, 2L));
+        verify(outboxRepository).deleteEvents(Collections.singletonList(3L));
+        verify(outboxRepository, times(2)).claimDue(anyInt(), any(OffsetDateTime.class));
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(3L, relay.getMetrics().get("published"));
+    }
+
+    @Test
+    public void shouldNotPublishWhenNothingIsDue() {
+        when(outboxRepository.claimDue(anyInt(), any(OffsetDateTime.class))).thenReturn(Collections.emptyList());
+
+        relay.relay();
+
+        verify(publisher, never()).publishMessages(anyListOf(String.class), anyString());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldRescheduleTheBatchWhenPublishingFails() {
+        OutboxEvent fresh = event(1, 0);
+        OutboxEvent retried = event(2, 2);
+        when(outboxRepository.claimDue(anyInt(), any(OffsetDateTime.class))).thenReturn(Arrays.asList(fresh, retried));
+        doThrow(new IllegalStateException("queue unavailable")).when(publisher).publishMessages(anyListOf(String.class), anyString());
+        OffsetDateTime before = OffsetDateTime.now();
+
+        relay.relay();
+
+        ArgumentCaptor<Map> nextAttempts = ArgumentCaptor.forClass(Map.class);
+        verify(outboxRepository).reschedule(nextAttempts.capture(), eq("IllegalStateException: queue unavailable"));
+        assertTrue(((OffsetDateTime) nextAttempts.getValue().get(1L)).isAfter(before.plusNanos(999_000_000L)));
+        assertTrue(((OffsetDateTime) nextAttempts.getValue().get(2L)).isAfter(before.plusNanos(3_999_000_000L)));
+        verify(outboxRepository, never()).deleteEvents(anyListOf(Long.class));
+        // the batch was not full of published events, so the round ends
+        verify(outboxRepository, times(1)).claimDue(anyInt(), any(OffsetDateTime.class));
+        assertEquals(2L, relay.getMetrics().get("failed"));
+    }
+
+    @Test
+    public void shouldDoubleTheBackoffUpToTheMaximum() {
+        assertEquals(1000L, relay.backoffMillis(0));
+        assertEquals(2000L, relay.backoffMillis(1));
+        assertEquals(8000L, relay.backoffMillis(3));
+        assertEquals(10000L, relay.backoffMillis(4));
+        assertEquals(10000L, relay.backoffMillis(Integer.MAX_VALUE));
+    }
+
+    private static OutboxEvent event(long id, int attempts) {
+        return new OutboxEvent(id, UUID.randomUUID(), "NUMBER_UPDATED", "{\"event\":" + id + "}", attempts);
+    }
+}
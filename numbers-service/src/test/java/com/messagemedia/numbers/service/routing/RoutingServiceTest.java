@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.routing;
+
+import com.messagemedia.numbers.repository.AssignmentRepository;
+import com.messagemedia.numbers.repository.entities.AssignmentEntity;
+import com.messagemedia.numbers.repository.entities.NumberEntity;
+import com.messagemedia.numbers.repository.projections.NumberChange;
+import com.messagemedia.numbers.service.event.NumberChangedEvent;
+import com.messagemedia.numbers.service.event.NumberChangesPolledEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.messagemedia.numbers.TestData.randomAssignedNumberEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+public class RoutingServiceTest {
+
+    @Mock
+    private AssignmentRepository assignmentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RoutingService routingService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        routingService = new RoutingService(assignmentRepository, transactionManager);
+    }
+
+    @Test
+    public void shouldLoadActiveRoutes() {
+        when(assignmentRepository.streamActiveRoutes()).thenReturn(Stream.of(
+                new Object[]{"+61491570156", "vendor", "account1", "http://callback", true},
+                new Object[]{"+61491570157", "vendor", "account2", null, false},
+                new Object[]{"not a number", "vendor", "account3", null, false}));
+
+        routingService.load();
+
+        assertEquals(2, routingService.size());
+        assertEquals(Optional.of(new RoutingEntry("vendor", "account1", "http://callback", true)),
+                routingService.getRoute("+61491570156"));
+        assertEquals(Optional.of(new RoutingEntry("vendor", "account2", null, false)),
+                routingService.getRoute("+61491570157"));
+    }
+
+    @Test
+    public void shouldApplyNumberChanges() {
+        NumberEntity number = randomAssignedNumberEntity();
+        AssignmentEntity assignment = number.getAssignedTo();
+
+        routingService.onNumberChanged(NumberChangedEvent.assigned(number, assignment));
+        assertEquals(assignment.getAccountId(), routingService.getRoute(number.getPhoneNumber()).get().getAccountId());
+
+        assignment.setCallbackUrl("http://updated");
+        routingService.onNumberChanged(NumberChangedEvent.assigned(number, assignment));
+        assertEquals("http://updated", routingService.getRoute(number.getPhoneNumber()).get().getCallbackUrl());
+
+        routingService.onNumberChanged(NumberChangedEvent.unassigned(number));
+        assertFalse(routingService.getRoute(number.getPhoneNumber()).isPresent());
+    }
+
+    @Test
+    public void shouldReadBackNumbersChangedDuringLoad() {
+        NumberEntity assigned = randomAssignedNumberEntity();
+        NumberEntity unassigned = randomAssignedNumberEntity();
+        when(assignmentRepository.streamActiveRoutes()).thenAnswer(invocation -> {
+            // committed while the snapshot streams: one is in the snapshot, the other is not
+            routingService.onNumberChanged(NumberChangedEvent.assigned(assigned, assigned.getAssignedTo()));
+            routingService.onNumberChanged(NumberChangedEvent.unassigned(unassigned));
+            return Stream.<Object[]>of(new Object[]{unassigned.getPhoneNumber(), "vendor", "account", null, false});
+        });
+        // read back after the snapshot, the assigned number has moved on to another account since its event
+        when(assignmentRepository.findActiveRoutes(any())).thenReturn(Collections.singletonList(
+                new Object[]{assigned.getPhoneNumber(), "vendor", "later", null, false}));
+
+        routingService.load();
+
+        assertEquals("later", routingService.getRoute(assigned.getPhoneNumber()).get().getAccountId());
+        assertFalse(routingService.getRoute(unassigned.getPhoneNumber()).isPresent());
+    }
+
+    @Test
+    public void shouldReadBackPolledChanges() {
+        NumberEntity assigned = randomAssignedNumberEntity();
+        NumberEntity unassigned = randomAssignedNumberEntity();
+        routingService.onNumberChanged(NumberChangedEvent.assigned(unassigned, unassigned.getAssignedTo()));
+        when(assignmentRepository.findActiveRoutes(any())).thenReturn(Collections.singletonList(
+                new Object[]{assigned.getPhoneNumber(), "vendor", "account", "http://callback", true}));
+
+        routingService.onNumberChangesPolled(new NumberChangesPolledEvent(Arrays.asList(
+                new NumberChange(assigned.getId(), assigned.getPhoneNumber()),
+                new NumberChange(unassigned.getId(), unassigned.getPhoneNumber()))));
+
+        assertEquals(Optional.of(new RoutingEntry("vendor", "account", "http://callback", true)),
+                routingService.getRoute(assigned.getPhoneNumber()));
+        assertFalse(routingService.getRoute(unassigned.getPhoneNumber()).isPresent());
+    }
+
+    @Test
+    public void shouldReplaceRoutesOnReload() {
+        NumberEntity number = randomAssignedNumberEntity();
+        routingService.onNumberChanged(NumberChangedEvent.assigned(number, number.getAssignedTo()));
+        when(assignmentRepository.streamActiveRoutes()).thenReturn(Stream.empty());
+
+        routingService.load();
+
+        assertFalse(routingService.getRoute(number.getPhoneNumber()).isPresent());
+    }
+
+    @Test
+    public void shouldNotFindRouteForInvalidPhoneNumber() {
+        assertFalse(routingService.getRoute("abc").isPresent());
+    }
+}
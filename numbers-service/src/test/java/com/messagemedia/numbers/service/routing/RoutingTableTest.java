@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.service.routing;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(DataProviderRunner.class)
+public class RoutingTableTest {
+
+    @DataProvider
+    public static Object[][] validPhoneNumbers() {
+        return new Object[][]{
+                {"+61491570156"},
+                {"61491570156"},
+                {"+0012"},
+                {"0"},
+                {"+999999999999999"}
+        };
+    }
+
+    @DataProvider
+    public static Object[][] invalidPhoneNumbers() {
+        return new Object[][]{
+                {null},
+                {""},
+                {"+"},
+                {"+6149157015a"},
+                {"+1234567890123456"}
+        };
+    }
+
+    @Test
+    @UseDataProvider("validPhoneNumbers")
+    public void shouldPackAndUnpackPhoneNumber(String phoneNumber) {
+        assertEquals(phoneNumber, PhoneNumberKey.unpack(PhoneNumberKey.pack(phoneNumber)));
+    }
+
+    @Test
+    @UseDataProvider("invalidPhoneNumbers")
+    public void shouldNotPackInvalidPhoneNumber(String phoneNumber) {
+        assertEquals(PhoneNumberKey.INVALID, PhoneNumberKey.pack(phoneNumber));
+    }
+
+    @Test
+    public void shouldKeepPlusAndLeadingZerosDistinct() {
+        RoutingTable table = new RoutingTable();
+        RoutingEntry plus = entry("plus");
+        RoutingEntry zero = entry("zero");
+        table.put(PhoneNumberKey.pack("+61400"), plus);
+        table.put(PhoneNumberKey.pack("061400"), zero);
+        assertEquals(plus, table.get(PhoneNumberKey.pack("+61400")));
+        assertEquals(zero, table.get(PhoneNumberKey.pack("061400")));
+        assertNull(table.get(PhoneNumberKey.pack("61400")));
+    }
+
+    @Test
+    public void shouldMatchHashMapAcrossRandomPutsAndRemoves() {
+        RoutingTable table = new RoutingTable();
+        Map<Long, RoutingEntry> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long key = PhoneNumberKey.pack("+614" + random.nextInt(5_000));
+            if (random.nextInt(3) == 0) {
+                table.remove(key);
+                expected.remove(key);
+            } else {
+                RoutingEntry entry = entry("account" + i);
+                table.put(key, entry);
+                expected.put(key, entry);
+            }
+        }
+        assertEquals(expected.size(), table.size());
+        for (int i = 0; i < 5_000; i++) {
+            long key = PhoneNumberKey.pack("+614" + i);
+            assertEquals(expected.get(key), table.get(key));
+        }
+    }
+
+    @Test
+    public void shouldRemoveEntryWhenPutNull() {
+        RoutingTable table = new RoutingTable();
+        long key = PhoneNumberKey.pack("+61491570156");
+        table.put(key, entry("account"));
+        table.put(key, null);
+        assertNull(table.get(key));
+        assertEquals(0, table.size());
+    }
+
+    private static RoutingEntry entry(String accountId) {
+        return new RoutingEntry("vendor", accountId, "http://callback", false);
+    }
+}
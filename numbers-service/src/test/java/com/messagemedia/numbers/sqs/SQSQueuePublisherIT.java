@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) Message4U Pty Ltd 2014-2022
+ *
+ * Except as otherwise permitted by the Copyright Act 1967 (Cth) (as amended from time to time) and/or any other
+ * applicable copyright legislation, the material may not be reproduced in any format and in any way whatsoever
+ * without the prior written consent of the copyright owner.
+ */
+
+package com.messagemedia.numbers.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.PurgeQueueRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.messagemedia.framework.config.impl.SpringProfileCalculator;
+import com.messagemedia.framework.json.JsonFastMapper;
+import com.messagemedia.numbers.config.ServiceTestConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@ActiveProfiles(SpringProfileCalculator.DEFAULT_ENVIRONMENT)
+@ContextConfiguration(classes = {ServiceTestConfig.class})
+@RunWith(SpringJUnit4ClassRunner.class)
+public class SQSQueuePublisherIT {
+
+    private static final int CALLERS = 5;
+    private static final int MESSAGES_PER_CALLER = 7;
+
+    @Autowired
+    private AmazonSQS amazonSqs;
+
+    @Autowired
+    private JsonFastMapper mapper;
+
+    @Value("${service.numbers-service.provisioning-queue.url}")
+    private String queueUrl;
+
+    private SQSQueuePublisher publisher;
+
+    @Before
+    public void setUp() {
+        amazonSqs.purgeQueue(new PurgeQueueRequest(queueUrl));
+        publisher = new SQSQueuePublisher(amazonSqs, queueUrl, mapper, 100, 3);
+    }
+
+    @After
+    public void tearDown() {
+        publisher.destroy();
+        amazonSqs.purgeQueue(new PurgeQueueRequest(queueUrl));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldPublishEveryMessageOfConcurrentCallersInBatches() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        Set<String> expected = new HashSet<>();
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int caller = 0; caller < CALLERS; caller++) {
+                List<String> messages = new ArrayList<>();
+                for (int i = 0; i < MESSAGES_PER_CALLER; i++) {
+                    messages.add(String.format("{\"caller\":%d,\"message\":%d}", caller, i));
+                }
+                expected.addAll(messages);
+                results.add(executor.submit(() -> publisher.publishMessages(messages)));
+            }
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(expected, receiveAll(expected.size()));
+        Map<String, Object> metrics = publisher.getMetrics();
+        assertEquals((long) expected.size(), metrics.get("sent"));
+        assertEquals(0L, metrics.get("failed"));
+        assertTrue((Long) metrics.get("batches") < expected.size());
+        assertTrue(((Map<String, Long>) metrics.get("batchSizes")).containsKey("10"));
+    }
+
+    @Test
+    public void shouldPublishSingleItemAfterWindow() throws Exception {
+        publisher.publishAll(Arrays.asList("first", "second"));
+
+        assertEquals(new HashSet<>(Arrays.asList("\"first\"", "\"second\"")), receiveAll(2));
+        assertEquals(1L, publisher.getMetrics().get("batches"));
+    }
+
+    private Set<String> receiveAll(int expected) {
+        Set<String> bodies = new HashSet<>();
+        ReceiveMessageRequest request = new ReceiveMessageRequest(queueUrl).withMaxNumberOfMessages(10).withWaitTimeSeconds(1);
+        for (int attempt = 0; attempt < 20 && bodies.size() < expected; attempt++) {
+            for (Message message : amazonSqs.receiveMessage(request).getMessages()) {
+                bodies.add(message.getBody());
+                amazonSqs.deleteMessage(queueUrl, message.getReceiptHandle());
+            }
+        }
+        return bodies;
+    }
+}
@@ -9,21 +9,38 @@
 package com.messagemedia.numbers.sqs;
 
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.google.common.collect.ImmutableMap;
 import com.messagemedia.framework.config.JsonConfig;
 import com.messagemedia.framework.json.JsonFastMapper;
 import com.messagemedia.numbers.exception.EventNotificationPublishingFailedException;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
 @RunWith(DataProviderRunner.class)
@@ -59,4 +76,146 @@ public class SQSQueuePublisherTest {
         doThrow(new IOException("test")).when(mapperMock).toJsonString(anyObject());
         publisher.publish(message);
     }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldPublishAllInBatchesOfTen() throws Exception {
+        when(amazonSqs.sendMessageBatch(anyString(), anyListOf(SendMessageBatchRequestEntry.class)))
+                .thenReturn(new SendMessageBatchResult());
+
+        this.queuePublisher.publishAll(Collections.nCopies(23, message));
+
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        verify(amazonSqs, times(3)).sendMessageBatch(eq(QUEUE_URL), batches.capture());
+        assertEquals(10, batches.getAllValues().get(0).size());
+        assertEquals(10, batches.getAllValues().get(1).size());
+        assertEquals(3, batches.getAllValues().get(2).size());
+        assertEquals(mapper.toJsonString(message), ((SendMessageBatchRequestEntry) batches.getAllValues().get(2).get(0)).getMessageBody());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldPublishMessagesAsTheyAre() {
+        when(amazonSqs.sendMessageBatch(anyString(), anyListOf(SendMessageBatchRequestEntry.class)))
+                .thenReturn(new SendMessageBatchResult());
+
+        this.queuePublisher.publishMessages(Collections.singletonList("{\"foo\":\"bar\"}"));
+
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        verify(amazonSqs).sendMessageBatch(eq(QUEUE_URL), batches.capture());
+        assertEquals("{\"foo\":\"bar\"}", ((SendMessageBatchRequestEntry) batches.getValue().get(0)).getMessageBody());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldAnnounceContentType() {
+        when(amazonSqs.sendMessageBatch(anyString(), anyListOf(SendMessageBatchRequestEntry.class)))
+                .thenReturn(new SendMessageBatchResult());
+
+        this.queuePublisher.publishMessages(Collections.singletonList("oWFhAQ=="), "application/cbor");
+
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        verify(amazonSqs).sendMessageBatch(eq(QUEUE_URL), batches.capture());
+        SendMessageBatchRequestEntry entry = (SendMessageBatchRequestEntry) batches.getValue().get(0);
+        assertEquals("application/cbor", entry.getMessageAttributes().get(SQSQueuePublisher.CONTENT_TYPE).getStringValue());
+        assertEquals("String", entry.getMessageAttributes().get(SQSQueuePublisher.CONTENT_TYPE).getDataType());
+    }
+
+    @Test(expected = EventNotificationPublishingFailedException.class)
+    public void shouldFailWhenBatchEntryIsNotPublished() {
+        when(amazonSqs.sendMessageBatch(anyString(), anyListOf(SendMessageBatchRequestEntry.class)))
+                .thenReturn(new SendMessageBatchResult().withFailed(new BatchResultErrorEntry().withId("0")));
+
+        this.queuePublisher.publishAll(Collections.singletonList(message));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldStartNewBatchAtByteLimit() {
+        when(amazonSqs.sendMessageBatch(anyString(), anyListOf(SendMessageBatchRequestEntry.class)))
+                .thenReturn(new SendMessageBatchResult());
+        String large = StringUtils.repeat('x', 100 * 1024);
+
+        this.queuePublisher.publishMessages(Arrays.asList(large, large, large));
+
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        verify(amazonSqs, times(2)).sendMessageBatch(eq(QUEUE_URL), batches.capture());
+        assertEquals(2, batches.getAllValues().get(0).size());
+        assertEquals(1, batches.getAllValues().get(1).size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldRetryOnlyFailedEntries() {
+        SQSQueuePublisher publisher = new SQSQueuePublisher(amazonSqs, QUEUE_URL, mapper, 0, 2);
+        when(amazonSqs.sendMessageBatch(anyString(), anyListOf(SendMessageBatchRequestEntry.class)))
+                .thenReturn(new SendMessageBatchResult().withFailed(new BatchResultErrorEntry().withId("1").withSenderFault(false)))
+                .thenReturn(new SendMessageBatchResult());
+
+        publisher.publishMessages(Arrays.asList("a", "b", "c"));
+
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        verify(amazonSqs, times(2)).sendMessageBatch(eq(QUEUE_URL), batches.capture());
+        assertEquals(3, batches.getAllValues().get(0).size());
+        assertEquals(1, batches.getAllValues().get(1).size());
+        assertEquals("b", ((SendMessageBatchRequestEntry) batches.getAllValues().get(1).get(0)).getMessageBody());
+        assertEquals(3L, publisher.getMetrics().get("sent"));
+        assertEquals(1L, publisher.getMetrics().get("retried"));
+    }
+
+    @Test
+    public void shouldNotRetrySenderFaults() {
+        SQSQueuePublisher publisher = new SQSQueuePublisher(amazonSqs, QUEUE_URL, mapper, 0, 2);
+        when(amazonSqs.sendMessageBatch(anyString(), anyListOf(SendMessageBatchRequestEntry.class)))
+                .thenReturn(new SendMessageBatchResult().withFailed(new BatchResultErrorEntry().withId("0").withSenderFault(true)));
+
+        try {
+            publisher.publishMessages(Arrays.asList("a", "b"));
+            fail("Expected EventNotificationPublishingFailedException");
+        } catch (EventNotificationPublishingFailedException e) {
+            assertEquals(String.format("Unable to publish 1 of 2 messages to SQS queue: %s", QUEUE_URL), e.getMessage());
+        }
+        verify(amazonSqs, times(1)).sendMessageBatch(anyString(), anyListOf(SendMessageBatchRequestEntry.class));
+        assertEquals(1L, publisher.getMetrics().get("failed"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldCoalesceConcurrentCallersWithinWindow() throws Exception {
+        SQSQueuePublisher publisher = new SQSQueuePublisher(amazonSqs, QUEUE_URL, mapper, 500, 0);
+        when(amazonSqs.sendMessageBatch(anyString(), anyListOf(SendMessageBatchRequestEntry.class)))
+                .thenReturn(new SendMessageBatchResult());
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String body = String.valueOf(i);
+                results.add(executor.submit(() -> publisher.publishMessages(Collections.singletonList(body))));
+            }
+            for (Future<?> result : results) {
+                result.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            publisher.destroy();
+        }
+
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        verify(amazonSqs, times(1)).sendMessageBatch(eq(QUEUE_URL), batches.capture());
+        assertEquals(3, batches.getValue().size());
+        assertEquals(3.0, publisher.getMetrics().get("averageBatchSize"));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldSendFullBatchWithoutWaitingForWindow() {
+        SQSQueuePublisher publisher = new SQSQueuePublisher(amazonSqs, QUEUE_URL, mapper, 60_000, 0);
+        when(amazonSqs.sendMessageBatch(anyString(), anyListOf(SendMessageBatchRequestEntry.class)))
+                .thenReturn(new SendMessageBatchResult());
+
+        publisher.publishMessages(Collections.nCopies(10, "a"));
+
+        verify(amazonSqs, times(1)).sendMessageBatch(anyString(), anyListOf(SendMessageBatchRequestEntry.class));
+        assertEquals(0, publisher.getMetrics().get("buffered"));
+        publisher.destroy();
+    }
 }